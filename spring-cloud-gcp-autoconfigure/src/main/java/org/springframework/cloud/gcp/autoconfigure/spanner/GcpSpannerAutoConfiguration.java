@@ -17,17 +17,23 @@
 package org.springframework.cloud.gcp.autoconfigure.spanner;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 import com.google.api.gax.core.CredentialsProvider;
 import com.google.auth.Credentials;
+import com.google.cloud.spanner.BatchClient;
 import com.google.cloud.spanner.DatabaseClient;
 import com.google.cloud.spanner.DatabaseId;
 import com.google.cloud.spanner.SessionPoolOptions;
 import com.google.cloud.spanner.Spanner;
 import com.google.cloud.spanner.SpannerOptions;
 import com.google.cloud.spanner.SpannerOptions.Builder;
+import io.micrometer.core.instrument.MeterRegistry;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -36,10 +42,14 @@ import org.springframework.cloud.gcp.autoconfigure.core.GcpContextAutoConfigurat
 import org.springframework.cloud.gcp.core.DefaultCredentialsProvider;
 import org.springframework.cloud.gcp.core.GcpProjectIdProvider;
 import org.springframework.cloud.gcp.core.UsageTrackingHeaderProvider;
+import org.springframework.cloud.gcp.data.spanner.core.MicrometerSpannerMetrics;
+import org.springframework.cloud.gcp.data.spanner.core.SpannerMetrics;
 import org.springframework.cloud.gcp.data.spanner.core.SpannerMutationFactory;
 import org.springframework.cloud.gcp.data.spanner.core.SpannerMutationFactoryImpl;
 import org.springframework.cloud.gcp.data.spanner.core.SpannerOperations;
+import org.springframework.cloud.gcp.data.spanner.core.SpannerSessionWarmer;
 import org.springframework.cloud.gcp.data.spanner.core.SpannerTemplate;
+import org.springframework.cloud.gcp.data.spanner.core.SpannerTransactionManager;
 import org.springframework.cloud.gcp.data.spanner.core.admin.SpannerDatabaseAdminTemplate;
 import org.springframework.cloud.gcp.data.spanner.core.admin.SpannerSchemaUtils;
 import org.springframework.cloud.gcp.data.spanner.core.convert.MappingSpannerConverter;
@@ -54,7 +64,9 @@ import org.springframework.context.annotation.Configuration;
  * @author Chengyuan Zhao
  */
 @Configuration
-@AutoConfigureAfter(GcpContextAutoConfiguration.class)
+@AutoConfigureAfter(value = GcpContextAutoConfiguration.class, name = {
+		"org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration",
+		"org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration" })
 @ConditionalOnProperty(value = "spring.cloud.gcp.spanner.enabled", matchIfMissing = true)
 @ConditionalOnClass({ SpannerMappingContext.class, SpannerOperations.class,
 		SpannerMutationFactory.class, SpannerConverter.class })
@@ -83,6 +95,8 @@ public class GcpSpannerAutoConfiguration {
 
 	private final int keepAliveIntervalMinutes;
 
+	private final long warmupTimeoutSeconds;
+
 	public GcpSpannerAutoConfiguration(GcpSpannerProperties gcpSpannerProperties,
 			GcpProjectIdProvider projectIdProvider,
 			CredentialsProvider credentialsProvider) throws IOException {
@@ -102,6 +116,7 @@ public class GcpSpannerAutoConfiguration {
 		this.writeSessionsFraction = gcpSpannerProperties.getWriteSessionsFraction();
 		this.keepAliveIntervalMinutes = gcpSpannerProperties
 				.getKeepAliveIntervalMinutes();
+		this.warmupTimeoutSeconds = gcpSpannerProperties.getWarmup().getTimeoutSeconds();
 	}
 
 	@Bean
@@ -165,6 +180,28 @@ public class GcpSpannerAutoConfiguration {
 		return spanner.getDatabaseClient(databaseId);
 	}
 
+	@Bean
+	@ConditionalOnMissingBean
+	public BatchClient spannerBatchClient(Spanner spanner, DatabaseId databaseId) {
+		return spanner.getBatchClient(databaseId);
+	}
+
+	@Bean(initMethod = "warmUp")
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty("spring.cloud.gcp.spanner.warmup.enabled")
+	public SpannerSessionWarmer spannerSessionWarmer(DatabaseClient databaseClient,
+			SessionPoolOptions sessionPoolOptions) {
+		SpannerSessionWarmer spannerSessionWarmer = new SpannerSessionWarmer(databaseClient,
+				Math.max(sessionPoolOptions.getMinSessions(), 1),
+				sessionPoolOptions.getWriteSessionsFraction());
+		spannerSessionWarmer.setTimeout(this.warmupTimeoutSeconds, TimeUnit.SECONDS);
+		if (this.numRpcChannels > 0) {
+			spannerSessionWarmer.setMaxThreads(
+					this.numRpcChannels * SpannerSessionWarmer.THREADS_PER_CHANNEL);
+		}
+		return spannerSessionWarmer;
+	}
+
 	@Bean
 	@ConditionalOnMissingBean
 	public SpannerMappingContext spannerMappingContext() {
@@ -175,9 +212,21 @@ public class GcpSpannerAutoConfiguration {
 	@ConditionalOnMissingBean
 	public SpannerTemplate spannerTemplate(DatabaseClient databaseClient,
 			SpannerMappingContext mappingContext, SpannerConverter spannerConverter,
-			SpannerMutationFactory spannerMutationFactory) {
-		return new SpannerTemplate(databaseClient, mappingContext, spannerConverter,
-				spannerMutationFactory);
+			SpannerMutationFactory spannerMutationFactory, BatchClient batchClient,
+			ObjectProvider<SpannerMetrics> spannerMetrics) {
+		SpannerTemplate spannerTemplate = new SpannerTemplate(databaseClient,
+				mappingContext, spannerConverter, spannerMutationFactory);
+		spannerTemplate.setBatchClient(batchClient);
+		spannerTemplate.setMetrics(spannerMetrics.getIfAvailable());
+		return spannerTemplate;
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty("spring.cloud.gcp.spanner.transaction-manager.enabled")
+	public SpannerTransactionManager spannerTransactionManager(
+			DatabaseClient databaseClient) {
+		return new SpannerTransactionManager(databaseClient);
 	}
 
 	@Bean
@@ -209,4 +258,37 @@ public class GcpSpannerAutoConfiguration {
 		return new SpannerDatabaseAdminTemplate(spanner.getDatabaseAdminClient(),
 				databaseId);
 	}
+
+	/**
+	 * Records the metrics of Spanner operations in the application's meter registry.
+	 */
+	@Configuration
+	@ConditionalOnClass(MeterRegistry.class)
+	@ConditionalOnProperty(value = "spring.cloud.gcp.spanner.metrics.enabled",
+			matchIfMissing = true)
+	static class SpannerMetricsConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		@ConditionalOnBean(MeterRegistry.class)
+		public SpannerMetrics spannerMetrics(MeterRegistry meterRegistry) {
+			return new MicrometerSpannerMetrics(meterRegistry);
+		}
+	}
+
+	/**
+	 * Reports the application as out of service until the session pool is warmed up.
+	 */
+	@Configuration
+	@ConditionalOnClass(HealthIndicator.class)
+	@ConditionalOnProperty("spring.cloud.gcp.spanner.warmup.enabled")
+	static class SpannerWarmupHealthConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean(name = "spannerWarmupHealthIndicator")
+		public SpannerWarmupHealthIndicator spannerWarmupHealthIndicator(
+				SpannerSessionWarmer spannerSessionWarmer) {
+			return new SpannerWarmupHealthIndicator(spannerSessionWarmer);
+		}
+	}
 }
@@ -21,6 +21,7 @@ import org.springframework.boot.context.properties.NestedConfigurationProperty;
 import org.springframework.cloud.gcp.core.Credentials;
 import org.springframework.cloud.gcp.core.CredentialsSupplier;
 import org.springframework.cloud.gcp.core.GcpScope;
+import org.springframework.cloud.gcp.data.spanner.core.SpannerSessionWarmer;
 
 /**
  * @author Chengyuan Zhao
@@ -60,6 +61,12 @@ public class GcpSpannerProperties implements CredentialsSupplier {
 	// Default value is negative to indicate to use Spanner default number.
 	private int keepAliveIntervalMinutes = -1;
 
+	/** Warm-up of the session pool at startup. */
+	private final Warmup warmup = new Warmup();
+
+	/** Declarative transactions of the Spanner transaction manager. */
+	private final TransactionManager transactionManager = new TransactionManager();
+
 	public Credentials getCredentials() {
 		return this.credentials;
 	}
@@ -143,4 +150,57 @@ public class GcpSpannerProperties implements CredentialsSupplier {
 	public void setKeepAliveIntervalMinutes(int keepAliveIntervalMinutes) {
 		this.keepAliveIntervalMinutes = keepAliveIntervalMinutes;
 	}
+
+	public Warmup getWarmup() {
+		return this.warmup;
+	}
+
+	public TransactionManager getTransactionManager() {
+		return this.transactionManager;
+	}
+
+	/**
+	 * Settings of the warm-up of the session pool.
+	 */
+	public static class Warmup {
+
+		/** Whether the sessions of the pool are created and primed at startup. */
+		private boolean enabled;
+
+		/** The time in which all of the sessions must be warmed up. */
+		private long timeoutSeconds = SpannerSessionWarmer.DEFAULT_TIMEOUT_SECONDS;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public long getTimeoutSeconds() {
+			return this.timeoutSeconds;
+		}
+
+		public void setTimeoutSeconds(long timeoutSeconds) {
+			this.timeoutSeconds = timeoutSeconds;
+		}
+	}
+
+	/**
+	 * Settings of the Spanner transaction manager.
+	 */
+	public static class TransactionManager {
+
+		/** Whether a Spanner transaction manager is created for declarative transactions. */
+		private boolean enabled;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+	}
 }
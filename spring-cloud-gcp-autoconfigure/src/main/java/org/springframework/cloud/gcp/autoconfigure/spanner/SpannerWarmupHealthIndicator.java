@@ -0,0 +1,65 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.autoconfigure.spanner;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.cloud.gcp.data.spanner.core.SpannerSessionWarmer;
+import org.springframework.util.Assert;
+
+/**
+ * A health indicator that is out of service while the Spanner session pool is being
+ * warmed up, so that no traffic is routed to the application before its sessions are
+ * ready. It is up once the warm-up completes, and down if the warm-up failed.
+ *
+ * @author Chengyuan Zhao
+ */
+public class SpannerWarmupHealthIndicator extends AbstractHealthIndicator {
+
+	private final SpannerSessionWarmer spannerSessionWarmer;
+
+	/**
+	 * Constructor
+	 * @param spannerSessionWarmer the warm-up of the session pool.
+	 */
+	public SpannerWarmupHealthIndicator(SpannerSessionWarmer spannerSessionWarmer) {
+		Assert.notNull(spannerSessionWarmer, "A valid Spanner session warmer is required.");
+		this.spannerSessionWarmer = spannerSessionWarmer;
+	}
+
+	@Override
+	protected void doHealthCheck(Health.Builder builder) {
+		builder.withDetail("sessions", this.spannerSessionWarmer.getSessions())
+				.withDetail("writeSessions", this.spannerSessionWarmer.getWriteSessions());
+		CompletableFuture<Void> warmUp = this.spannerSessionWarmer.getWarmUp();
+		if (warmUp == null || !warmUp.isDone()) {
+			builder.outOfService();
+		}
+		else {
+			try {
+				warmUp.join();
+				builder.up();
+			}
+			catch (CompletionException e) {
+				builder.down().withDetail("error", String.valueOf(e.getCause()));
+			}
+		}
+	}
+}
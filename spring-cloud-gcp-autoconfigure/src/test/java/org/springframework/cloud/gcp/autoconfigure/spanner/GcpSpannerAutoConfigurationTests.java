@@ -18,17 +18,23 @@ package org.springframework.cloud.gcp.autoconfigure.spanner;
 
 import com.google.api.gax.core.CredentialsProvider;
 import com.google.auth.Credentials;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Test;
 
 import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
 import org.springframework.boot.autoconfigure.AutoConfigurations;
 import org.springframework.boot.test.context.runner.ApplicationContextRunner;
 import org.springframework.cloud.gcp.autoconfigure.core.GcpContextAutoConfiguration;
+import org.springframework.cloud.gcp.data.spanner.core.MicrometerSpannerMetrics;
 import org.springframework.cloud.gcp.data.spanner.core.SpannerOperations;
+import org.springframework.cloud.gcp.data.spanner.core.SpannerTemplate;
+import org.springframework.cloud.gcp.data.spanner.core.SpannerTransactionManager;
 import org.springframework.cloud.gcp.data.spanner.core.admin.SpannerDatabaseAdminTemplate;
 import org.springframework.cloud.gcp.data.spanner.core.admin.SpannerSchemaUtils;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.rest.webmvc.spi.BackendIdConverter;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -77,6 +83,41 @@ public class GcpSpannerAutoConfigurationTests {
 		});
 	}
 
+	@Test
+	public void testTransactionManagerCreated() {
+		this.contextRunner
+				.withPropertyValues("spring.cloud.gcp.spanner.transaction-manager.enabled=true")
+				.run(context -> {
+					assertThat(context.getBean(PlatformTransactionManager.class))
+							.isInstanceOf(SpannerTransactionManager.class);
+				});
+	}
+
+	@Test
+	public void testTransactionManagerNotCreatedByDefault() {
+		this.contextRunner.run(context -> {
+			assertThat(context.getBeansOfType(PlatformTransactionManager.class)).isEmpty();
+		});
+	}
+
+	@Test
+	public void testSpannerMetricsCreated() {
+		this.contextRunner.withUserConfiguration(MeterRegistryConfiguration.class)
+				.run(context -> {
+					assertThat(context.getBean(SpannerTemplate.class).getMetrics())
+							.isInstanceOf(MicrometerSpannerMetrics.class);
+				});
+	}
+
+	@Test
+	public void testSpannerMetricsDisabled() {
+		this.contextRunner.withUserConfiguration(MeterRegistryConfiguration.class)
+				.withPropertyValues("spring.cloud.gcp.spanner.metrics.enabled=false")
+				.run(context -> {
+					assertThat(context.getBean(SpannerTemplate.class).getMetrics()).isNull();
+				});
+	}
+
 	@Test
 	public void testIdConverterCreated() {
 		this.contextRunner.run(context -> {
@@ -86,6 +127,14 @@ public class GcpSpannerAutoConfigurationTests {
 		});
 	}
 
+	static class MeterRegistryConfiguration {
+
+		@Bean
+		public MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+	}
+
 	@AutoConfigurationPackage
 	static class TestConfiguration {
 
@@ -0,0 +1,70 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.autoconfigure.spanner;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.cloud.gcp.data.spanner.core.SpannerSessionWarmer;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerDataException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Chengyuan Zhao
+ */
+public class SpannerWarmupHealthIndicatorTests {
+
+	private SpannerSessionWarmer spannerSessionWarmer;
+
+	private SpannerWarmupHealthIndicator healthIndicator;
+
+	@Before
+	public void setUp() {
+		this.spannerSessionWarmer = mock(SpannerSessionWarmer.class);
+		when(this.spannerSessionWarmer.getSessions()).thenReturn(10);
+		this.healthIndicator = new SpannerWarmupHealthIndicator(this.spannerSessionWarmer);
+	}
+
+	@Test
+	public void outOfServiceDuringWarmUpTest() {
+		when(this.spannerSessionWarmer.getWarmUp()).thenReturn(new CompletableFuture<>());
+		assertThat(this.healthIndicator.health().getStatus())
+				.isEqualTo(Status.OUT_OF_SERVICE);
+		assertThat(this.healthIndicator.health().getDetails()).containsEntry("sessions", 10);
+	}
+
+	@Test
+	public void upAfterWarmUpTest() {
+		when(this.spannerSessionWarmer.getWarmUp())
+				.thenReturn(CompletableFuture.completedFuture(null));
+		assertThat(this.healthIndicator.health().getStatus()).isEqualTo(Status.UP);
+	}
+
+	@Test
+	public void downAfterFailedWarmUpTest() {
+		CompletableFuture<Void> warmUp = new CompletableFuture<>();
+		warmUp.completeExceptionally(new SpannerDataException("failed"));
+		when(this.spannerSessionWarmer.getWarmUp()).thenReturn(warmUp);
+		assertThat(this.healthIndicator.health().getStatus()).isEqualTo(Status.DOWN);
+	}
+}
@@ -0,0 +1,347 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.benchmarks.spanner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.cloud.ByteArray;
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.Mutation.WriteBuilder;
+import com.google.cloud.spanner.ResultSets;
+import com.google.cloud.spanner.Struct;
+import com.google.cloud.spanner.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.cloud.gcp.data.spanner.core.convert.MappingSpannerConverter;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.Column;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.PrimaryKey;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerMappingContext;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.Table;
+
+/**
+ * Measures the throughput of reading entities from Spanner rows and writing entities to
+ * mutations with {@link MappingSpannerConverter}, using in-memory rows only. Besides a
+ * typical entity, narrow entities of a few columns, wide entities of many columns, and
+ * entities of mostly array columns are measured, because the cost of conversion grows
+ * differently with the number of columns and with the number of array elements.
+ *
+ * <p>Run with {@code -prof gc} to also measure the allocations of each operation.
+ *
+ * @author Chengyuan Zhao
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpannerConverterBenchmark {
+
+	private static final int RESULT_SET_ROWS = 100;
+
+	private static final int ARRAY_ELEMENTS = 20;
+
+	private MappingSpannerConverter converter;
+
+	private Struct row;
+
+	private List<Struct> rows;
+
+	private Trade trade;
+
+	private Struct narrowRow;
+
+	private NarrowEntity narrowEntity;
+
+	private Struct wideRow;
+
+	private WideEntity wideEntity;
+
+	private Struct arrayRow;
+
+	private ArrayEntity arrayEntity;
+
+	@Setup
+	public void setup() {
+		this.converter = new MappingSpannerConverter(new SpannerMappingContext());
+		this.row = createRow(0);
+		this.rows = new ArrayList<>();
+		for (int i = 0; i < RESULT_SET_ROWS; i++) {
+			this.rows.add(createRow(i));
+		}
+		this.trade = this.converter.read(Trade.class, this.row);
+		this.narrowRow = createNarrowRow();
+		this.narrowEntity = this.converter.read(NarrowEntity.class, this.narrowRow);
+		this.wideRow = createWideRow();
+		this.wideEntity = this.converter.read(WideEntity.class, this.wideRow);
+		this.arrayRow = createArrayRow();
+		this.arrayEntity = this.converter.read(ArrayEntity.class, this.arrayRow);
+	}
+
+	@Benchmark
+	public Trade readEntity() {
+		return this.converter.read(Trade.class, this.row);
+	}
+
+	@Benchmark
+	public List<Trade> mapResultSet() {
+		return this.converter.mapToList(
+				ResultSets.forRows(this.row.getType(), this.rows), Trade.class);
+	}
+
+	@Benchmark
+	public Mutation writeEntity() {
+		WriteBuilder writeBuilder = Mutation.newInsertBuilder("trades");
+		this.converter.write(this.trade, writeBuilder);
+		return writeBuilder.build();
+	}
+
+	@Benchmark
+	public NarrowEntity readNarrowEntity() {
+		return this.converter.read(NarrowEntity.class, this.narrowRow);
+	}
+
+	@Benchmark
+	public WideEntity readWideEntity() {
+		return this.converter.read(WideEntity.class, this.wideRow);
+	}
+
+	@Benchmark
+	public ArrayEntity readArrayEntity() {
+		return this.converter.read(ArrayEntity.class, this.arrayRow);
+	}
+
+	@Benchmark
+	public Mutation writeNarrowEntity() {
+		WriteBuilder writeBuilder = Mutation.newInsertBuilder("narrow");
+		this.converter.write(this.narrowEntity, writeBuilder);
+		return writeBuilder.build();
+	}
+
+	@Benchmark
+	public Mutation writeWideEntity() {
+		WriteBuilder writeBuilder = Mutation.newInsertBuilder("wide");
+		this.converter.write(this.wideEntity, writeBuilder);
+		return writeBuilder.build();
+	}
+
+	@Benchmark
+	public Mutation writeArrayEntity() {
+		WriteBuilder writeBuilder = Mutation.newInsertBuilder("arrays");
+		this.converter.write(this.arrayEntity, writeBuilder);
+		return writeBuilder.build();
+	}
+
+	private static Struct createRow(int i) {
+		return Struct.newBuilder().add("id", Value.string("trade" + i))
+				.add("action", Value.string("BUY"))
+				.add("price", Value.float64(100.5 + i))
+				.add("shares", Value.float64(12))
+				.add("ticker", Value.string("ABCD"))
+				.add("trader_id", Value.string("trader" + (i % 10)))
+				.add("quantity", Value.int64(i))
+				.add("executed_at", Value.timestamp(Timestamp.ofTimeMicroseconds(i)))
+				.add("tags", Value.stringArray(Arrays.asList("equity", "us")))
+				.add("payload", Value.bytes(ByteArray.copyFrom("payload" + i)))
+				.build();
+	}
+
+	private static Struct createNarrowRow() {
+		return Struct.newBuilder().add("id", Value.string("narrow"))
+				.add("value", Value.int64(42)).build();
+	}
+
+	private static Struct createWideRow() {
+		Struct.Builder builder = Struct.newBuilder().add("id", Value.string("wide"));
+		for (int i = 0; i < 8; i++) {
+			builder.add("string" + i, Value.string("value" + i))
+					.add("long" + i, Value.int64(i))
+					.add("double" + i, Value.float64(i + 0.5))
+					.add("timestamp" + i, Value.timestamp(Timestamp.ofTimeMicroseconds(i)));
+		}
+		return builder.build();
+	}
+
+	private static Struct createArrayRow() {
+		List<String> strings = new ArrayList<>();
+		List<Long> longs = new ArrayList<>();
+		List<Double> doubles = new ArrayList<>();
+		List<Boolean> booleans = new ArrayList<>();
+		List<Timestamp> timestamps = new ArrayList<>();
+		for (int i = 0; i < ARRAY_ELEMENTS; i++) {
+			strings.add("value" + i);
+			longs.add((long) i);
+			doubles.add(i + 0.5);
+			booleans.add(i % 2 == 0);
+			timestamps.add(Timestamp.ofTimeMicroseconds(i));
+		}
+		return Struct.newBuilder().add("id", Value.string("arrays"))
+				.add("strings", Value.stringArray(strings))
+				.add("longs", Value.int64Array(longs))
+				.add("doubles", Value.float64Array(doubles))
+				.add("booleans", Value.boolArray(booleans))
+				.add("timestamps", Value.timestampArray(timestamps))
+				.build();
+	}
+
+	/**
+	 * A typical entity with scalar, converted, array and bytes columns.
+	 */
+	@Table(name = "trades")
+	public static class Trade {
+		@PrimaryKey
+		String id;
+
+		String action;
+
+		double price;
+
+		double shares;
+
+		@Column(name = "ticker")
+		String symbol;
+
+		@Column(name = "trader_id")
+		String traderId;
+
+		// int is not a native Spanner type, so this will utilize custom conversions.
+		int quantity;
+
+		@Column(name = "executed_at")
+		Timestamp executedAt;
+
+		List<String> tags;
+
+		ByteArray payload;
+	}
+
+	/**
+	 * An entity with only a key and a single value column.
+	 */
+	@Table(name = "narrow")
+	public static class NarrowEntity {
+		@PrimaryKey
+		String id;
+
+		long value;
+	}
+
+	/**
+	 * An entity with 33 scalar columns.
+	 */
+	@Table(name = "wide")
+	public static class WideEntity {
+		@PrimaryKey
+		String id;
+
+		String string0;
+
+		String string1;
+
+		String string2;
+
+		String string3;
+
+		String string4;
+
+		String string5;
+
+		String string6;
+
+		String string7;
+
+		long long0;
+
+		long long1;
+
+		long long2;
+
+		long long3;
+
+		long long4;
+
+		long long5;
+
+		long long6;
+
+		long long7;
+
+		double double0;
+
+		double double1;
+
+		double double2;
+
+		double double3;
+
+		double double4;
+
+		double double5;
+
+		double double6;
+
+		double double7;
+
+		Timestamp timestamp0;
+
+		Timestamp timestamp1;
+
+		Timestamp timestamp2;
+
+		Timestamp timestamp3;
+
+		Timestamp timestamp4;
+
+		Timestamp timestamp5;
+
+		Timestamp timestamp6;
+
+		Timestamp timestamp7;
+	}
+
+	/**
+	 * An entity whose columns are mostly arrays.
+	 */
+	@Table(name = "arrays")
+	public static class ArrayEntity {
+		@PrimaryKey
+		String id;
+
+		List<String> strings;
+
+		List<Long> longs;
+
+		List<Double> doubles;
+
+		List<Boolean> booleans;
+
+		List<Timestamp> timestamps;
+	}
+}
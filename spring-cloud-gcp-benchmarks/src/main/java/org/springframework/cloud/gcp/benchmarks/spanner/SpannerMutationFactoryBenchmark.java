@@ -0,0 +1,178 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.benchmarks.spanner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.KeySet;
+import com.google.cloud.spanner.Mutation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.cloud.gcp.benchmarks.spanner.SpannerConverterBenchmark.Trade;
+import org.springframework.cloud.gcp.data.spanner.core.SpannerMutationFactoryImpl;
+import org.springframework.cloud.gcp.data.spanner.core.convert.MappingSpannerConverter;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.Interleaved;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.PrimaryKey;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerMappingContext;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.Table;
+
+/**
+ * Measures the throughput of building the mutations of entity writes and deletes with
+ * {@link SpannerMutationFactoryImpl}, including the mutations of interleaved child
+ * entities that are written together with their parent.
+ *
+ * <p>Run with {@code -prof gc} to also measure the allocations of each operation.
+ *
+ * @author Chengyuan Zhao
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpannerMutationFactoryBenchmark {
+
+	private static final int CHILDREN = 10;
+
+	private static final int DELETED_KEYS = 100;
+
+	private SpannerMutationFactoryImpl mutationFactory;
+
+	private Trade trade;
+
+	private Optional<Set<String>> updatedColumns;
+
+	private Order order;
+
+	private KeySet deletedKeys;
+
+	@Setup
+	public void setup() {
+		SpannerMappingContext mappingContext = new SpannerMappingContext();
+		this.mutationFactory = new SpannerMutationFactoryImpl(
+				new MappingSpannerConverter(mappingContext), mappingContext);
+
+		this.trade = new Trade();
+		this.trade.id = "trade1";
+		this.trade.action = "BUY";
+		this.trade.price = 100.5;
+		this.trade.shares = 12;
+		this.trade.symbol = "ABCD";
+		this.trade.traderId = "trader1";
+		this.trade.quantity = 3;
+		this.trade.executedAt = Timestamp.ofTimeMicroseconds(1);
+		this.trade.tags = Arrays.asList("equity", "us");
+		this.updatedColumns = Optional.of(new HashSet<>(Arrays.asList("price", "shares")));
+
+		this.order = new Order();
+		this.order.id = "order1";
+		this.order.customer = "customer1";
+		this.order.lines = new ArrayList<>();
+		for (int i = 0; i < CHILDREN; i++) {
+			OrderLine line = new OrderLine();
+			line.id = this.order.id;
+			line.lineId = "line" + i;
+			line.product = "product" + i;
+			line.quantity = i;
+			this.order.lines.add(line);
+		}
+
+		KeySet.Builder keys = KeySet.newBuilder();
+		for (int i = 0; i < DELETED_KEYS; i++) {
+			keys.addKey(Key.of("trade" + i));
+		}
+		this.deletedKeys = keys.build();
+	}
+
+	@Benchmark
+	public List<Mutation> insert() {
+		return this.mutationFactory.insertWithChildren(this.trade);
+	}
+
+	@Benchmark
+	public List<Mutation> upsert() {
+		return this.mutationFactory.upsertWithChildren(this.trade, null);
+	}
+
+	@Benchmark
+	public List<Mutation> updateColumns() {
+		return this.mutationFactory.updateWithChildren(this.trade, this.updatedColumns);
+	}
+
+	@Benchmark
+	public List<Mutation> insertWithChildren() {
+		return this.mutationFactory.insertWithChildren(this.order);
+	}
+
+	@Benchmark
+	public Mutation delete() {
+		return this.mutationFactory.delete(this.trade);
+	}
+
+	@Benchmark
+	public Mutation deleteKeys() {
+		return this.mutationFactory.delete(Trade.class, this.deletedKeys);
+	}
+
+	/**
+	 * A parent entity whose interleaved child entities are written with it.
+	 */
+	@Table(name = "orders")
+	public static class Order {
+		@PrimaryKey
+		String id;
+
+		String customer;
+
+		@Interleaved
+		List<OrderLine> lines;
+	}
+
+	/**
+	 * A child entity interleaved in {@link Order}.
+	 */
+	@Table(name = "order_lines")
+	public static class OrderLine {
+		@PrimaryKey
+		String id;
+
+		@PrimaryKey(keyOrder = 2)
+		String lineId;
+
+		String product;
+
+		long quantity;
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.benchmarks.spanner;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.KeySet;
+import com.google.cloud.spanner.Statement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.cloud.gcp.benchmarks.spanner.SpannerConverterBenchmark.Trade;
+import org.springframework.cloud.gcp.data.spanner.core.SpannerMutationFactoryImpl;
+import org.springframework.cloud.gcp.data.spanner.core.SpannerQueryOptions;
+import org.springframework.cloud.gcp.data.spanner.core.SpannerTemplate;
+import org.springframework.cloud.gcp.data.spanner.core.convert.MappingSpannerConverter;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerMappingContext;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerPersistentEntity;
+import org.springframework.cloud.gcp.data.spanner.repository.query.SpannerStatementQueryExecutor;
+import org.springframework.data.repository.query.parser.PartTree;
+
+/**
+ * Measures the throughput of building the SQL statements of repository queries with
+ * {@link SpannerStatementQueryExecutor}. The statements are captured instead of being
+ * executed, so no Spanner instance is needed.
+ *
+ * <p>Run with {@code -prof gc} to also measure the allocations of each operation.
+ *
+ * @author Chengyuan Zhao
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpannerStatementQueryExecutorBenchmark {
+
+	private static final int READ_KEYS = 50;
+
+	private static final String SQL = "SELECT * FROM trades WHERE trader_id = @trader "
+			+ "AND price > @price AND ticker IN UNNEST(@tickers) LIMIT @limit";
+
+	private SpannerMappingContext mappingContext;
+
+	private StatementCapturingTemplate spannerTemplate;
+
+	private PartTree partTree;
+
+	private Object[] partTreeParams;
+
+	private List<String> tags;
+
+	private Object[] sqlParams;
+
+	private SpannerPersistentEntity<?> tradeEntity;
+
+	private KeySet readKeys;
+
+	@Setup
+	public void setup() {
+		this.mappingContext = new SpannerMappingContext();
+		MappingSpannerConverter converter = new MappingSpannerConverter(this.mappingContext);
+		DatabaseClient databaseClient = (DatabaseClient) Proxy.newProxyInstance(
+				DatabaseClient.class.getClassLoader(), new Class[] { DatabaseClient.class },
+				(proxy, method, args) -> {
+					throw new UnsupportedOperationException(
+							"The benchmark does not execute statements.");
+				});
+		this.spannerTemplate = new StatementCapturingTemplate(databaseClient,
+				this.mappingContext, converter,
+				new SpannerMutationFactoryImpl(converter, this.mappingContext));
+
+		this.partTree = new PartTree(
+				"findTop10ByTraderIdAndPriceGreaterThanAndSymbolInOrderByPriceDesc",
+				Trade.class);
+		this.partTreeParams = new Object[] { "trader1", 100.5,
+				Arrays.asList("ABCD", "EFGH", "IJKL") };
+
+		this.tags = Arrays.asList("trader", "price", "tickers", "limit");
+		this.sqlParams = new Object[] { "trader1", 100.5,
+				Arrays.asList("ABCD", "EFGH", "IJKL"), 10L };
+
+		this.tradeEntity = this.mappingContext.getPersistentEntity(Trade.class);
+		KeySet.Builder keys = KeySet.newBuilder();
+		for (int i = 0; i < READ_KEYS; i++) {
+			keys.addKey(Key.of("trade" + i));
+		}
+		this.readKeys = keys.build();
+	}
+
+	@Benchmark
+	public Statement partTreeQuery() {
+		SpannerStatementQueryExecutor.executeQuery(Trade.class, this.partTree,
+				this.partTreeParams, this.spannerTemplate, this.mappingContext);
+		return this.spannerTemplate.statement;
+	}
+
+	@Benchmark
+	public Statement sqlWithArgs() {
+		return SpannerStatementQueryExecutor.buildStatementFromSqlWithArgs(SQL, this.tags,
+				this.sqlParams);
+	}
+
+	@Benchmark
+	public Statement readByKeys() {
+		return SpannerStatementQueryExecutor.buildReadStatement(this.tradeEntity,
+				this.readKeys, this.mappingContext);
+	}
+
+	/**
+	 * A template that keeps the statements of queries instead of executing them.
+	 */
+	private static final class StatementCapturingTemplate extends SpannerTemplate {
+
+		private Statement statement;
+
+		StatementCapturingTemplate(DatabaseClient databaseClient,
+				SpannerMappingContext mappingContext, MappingSpannerConverter converter,
+				SpannerMutationFactoryImpl mutationFactory) {
+			super(databaseClient, mappingContext, converter, mutationFactory);
+		}
+
+		@Override
+		public <T> List<T> query(Class<T> entityClass, Statement statement,
+				SpannerQueryOptions options) {
+			this.statement = statement;
+			return Collections.emptyList();
+		}
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.data.spanner.core;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.springframework.util.Assert;
+
+/**
+ * Records the metrics of Spanner operations in a Micrometer {@link MeterRegistry}.
+ *
+ * <ul>
+ * <li>{@code spanner.operations}: a timer of template operations, tagged by
+ * {@code entity}, {@code table}, {@code operation}, and {@code outcome}.</li>
+ * <li>{@code spanner.rows}: a distribution summary of the rows returned by reads and
+ * queries, tagged by {@code entity}, {@code table}, and {@code operation}.</li>
+ * <li>{@code spanner.mutations}: a distribution summary of the mutations of each table
+ * written by a single operation, tagged by {@code table} and {@code operation}.</li>
+ * <li>{@code spanner.transaction.retries}: a counter of retries of aborted read-write
+ * transactions.</li>
+ * <li>{@code spanner.repository.queries}: a timer of repository query methods, tagged by
+ * {@code entity}, {@code method}, and {@code outcome}.</li>
+ * </ul>
+ *
+ * <p>The meters are registered on first use and cached by their tags, so that recording
+ * a measurement does not look them up in the registry.
+ *
+ * @author Chengyuan Zhao
+ */
+public class MicrometerSpannerMetrics implements SpannerMetrics {
+
+	private static final String NONE = "none";
+
+	private final MeterRegistry meterRegistry;
+
+	private final Counter transactionRetries;
+
+	private final Map<List<Object>, Timer> operationTimers = new ConcurrentHashMap<>();
+
+	private final Map<List<Object>, DistributionSummary> rowSummaries =
+			new ConcurrentHashMap<>();
+
+	private final Map<List<Object>, DistributionSummary> mutationSummaries =
+			new ConcurrentHashMap<>();
+
+	private final Map<List<Object>, Timer> queryMethodTimers = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructor
+	 * @param meterRegistry the registry of the meters.
+	 */
+	public MicrometerSpannerMetrics(MeterRegistry meterRegistry) {
+		Assert.notNull(meterRegistry, "A valid meter registry is required.");
+		this.meterRegistry = meterRegistry;
+		this.transactionRetries = Counter.builder("spanner.transaction.retries")
+				.description("Retries of aborted Spanner read-write transactions")
+				.register(meterRegistry);
+	}
+
+	@Override
+	public void recordOperation(String operation, Class<?> entityClass, String table,
+			long durationNanos, boolean success) {
+		this.operationTimers.computeIfAbsent(
+				Arrays.asList(operation, entityClass, table, success),
+				unused -> Timer.builder("spanner.operations")
+						.description("Spanner template operations")
+						.tags("entity", getEntityTag(entityClass), "table", getTag(table),
+								"operation", operation, "outcome", getOutcomeTag(success))
+						.register(this.meterRegistry))
+				.record(durationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void recordRows(String operation, Class<?> entityClass, String table,
+			long rows) {
+		this.rowSummaries.computeIfAbsent(Arrays.asList(operation, entityClass, table),
+				unused -> DistributionSummary.builder("spanner.rows")
+						.description("Rows returned by Spanner reads and queries")
+						.baseUnit("rows")
+						.tags("entity", getEntityTag(entityClass), "table", getTag(table),
+								"operation", operation)
+						.register(this.meterRegistry))
+				.record(rows);
+	}
+
+	@Override
+	public void recordMutations(String operation, String table, long mutations) {
+		this.mutationSummaries.computeIfAbsent(Arrays.asList(operation, table),
+				unused -> DistributionSummary.builder("spanner.mutations")
+						.description("Mutations written to a Spanner table by an operation")
+						.baseUnit("mutations")
+						.tags("table", getTag(table), "operation", operation)
+						.register(this.meterRegistry))
+				.record(mutations);
+	}
+
+	@Override
+	public void recordTransactionRetry() {
+		this.transactionRetries.increment();
+	}
+
+	@Override
+	public void recordQueryMethod(Class<?> entityClass, String method, long durationNanos,
+			boolean success) {
+		this.queryMethodTimers.computeIfAbsent(
+				Arrays.asList(entityClass, method, success),
+				unused -> Timer.builder("spanner.repository.queries")
+						.description("Spanner repository query methods")
+						.tags("entity", getEntityTag(entityClass), "method", method,
+								"outcome", getOutcomeTag(success))
+						.register(this.meterRegistry))
+				.record(durationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	private static String getEntityTag(Class<?> entityClass) {
+		return entityClass == null ? NONE : entityClass.getSimpleName();
+	}
+
+	private static String getTag(String value) {
+		return value == null ? NONE : value;
+	}
+
+	private static String getOutcomeTag(boolean success) {
+		return success ? "success" : "error";
+	}
+}
@@ -16,6 +16,7 @@
 
 package org.springframework.cloud.gcp.data.spanner.core;
 
+import java.util.List;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
@@ -24,10 +25,12 @@ import com.google.cloud.spanner.DatabaseClient;
 import com.google.cloud.spanner.Mutation;
 import com.google.cloud.spanner.ReadContext;
 import com.google.cloud.spanner.ReadOnlyTransaction;
+import com.google.cloud.spanner.TimestampBound;
 
 import org.springframework.cloud.gcp.data.spanner.core.convert.SpannerConverter;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerDataException;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerMappingContext;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerPersistentEntity;
 
 /**
  * A {@link SpannerTemplate} that performs all operations in a single transaction.
@@ -47,17 +50,27 @@ class ReadOnlyTransactionSpannerTemplate extends SpannerTemplate {
 	}
 
 	@Override
-	protected <T, U> void applyMutationTwoArgs(BiFunction<T, U, Mutation> function,
+	protected <T, U> void applyMutationTwoArgs(BiFunction<T, U, List<Mutation>> function,
 			T arg1, U arg2) {
 		throw new SpannerDataException(
 				"A read-only transaction template cannot perform mutations.");
 	}
 
+	@Override
+	protected List<Timestamp> applyMutations(List<List<Mutation>> mutationGroups) {
+		throw new SpannerDataException(
+				"A read-only transaction template cannot perform mutations.");
+	}
+
 	@Override
 	protected ReadContext getReadContext() {
 		return this.readOnlyTransaction;
 	}
 
+	Timestamp getReadTimestamp() {
+		return this.readOnlyTransaction.getReadTimestamp();
+	}
+
 	@Override
 	protected ReadContext getReadContext(Timestamp timestamp) {
 		throw new SpannerDataException(
@@ -65,6 +78,20 @@ class ReadOnlyTransactionSpannerTemplate extends SpannerTemplate {
 						+ " in read-only transaction templates.");
 	}
 
+	@Override
+	protected ReadContext getReadContext(TimestampBound timestampBound) {
+		throw new SpannerDataException(
+				"Getting stale snapshot read contexts is not supported"
+						+ " in read-only transaction templates.");
+	}
+
+	@Override
+	protected TimestampBound getStaleReadBound(
+			SpannerPersistentEntity<?> persistentEntity) {
+		// reads in a transaction are always done at the timestamp of the transaction.
+		return null;
+	}
+
 	@Override
 	public <T> T performReadWriteTransaction(Function<SpannerTemplate, T> operations) {
 		throw new SpannerDataException("A read-only transaction is already under execution. "
@@ -16,28 +16,62 @@
 
 package org.springframework.cloud.gcp.data.spanner.core;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
 import com.google.cloud.Timestamp;
 import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.KeySet;
 import com.google.cloud.spanner.Mutation;
 import com.google.cloud.spanner.ReadContext;
+import com.google.cloud.spanner.TimestampBound;
 import com.google.cloud.spanner.TransactionContext;
 
 import org.springframework.cloud.gcp.data.spanner.core.convert.SpannerConverter;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerDataException;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerMappingContext;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerPersistentEntity;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerPersistentProperty;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.mapping.PropertyHandler;
 
 /**
  * A {@link SpannerTemplate} that performs all operations in a single transaction.
  * This template is not intended for the user to directly instantiate.
+ *
+ * <p>Entities read by key with {@link #read(Class, Key)} are kept in an identity map for
+ * the duration of the transaction, so that repeated reads of the same key return the
+ * same object without another read. Entities written with all of their columns, and the
+ * child entities written with them, replace the entities in the map, the columns written
+ * by partial updates are copied to the entities in the map, and deleted entities are read
+ * as null, and the interleaved properties of the parent entities in the map are updated
+ * with the written and deleted child entities, so that reads reflect the mutations
+ * buffered by the transaction, which Spanner reads do not see.
  * @author Chengyuan Zhao
  */
 class ReadWriteTransactionSpannerTemplate extends SpannerTemplate {
 
 	private TransactionContext transactionContext;
 
+	private final List<Class<?>> writtenEntityClasses = new ArrayList<>();
+
+	private final List<KeySet> writtenKeys = new ArrayList<>();
+
+	private final List<Runnable> afterCommitActions = new ArrayList<>();
+
+	private final Map<Class<?>, Map<Key, Optional<Object>>> identityMap = new HashMap<>();
+
+	private final Map<Class<?>, Map<Key, Map<SpannerPersistentProperty, Object>>> writtenValues =
+			new HashMap<>();
+
 	ReadWriteTransactionSpannerTemplate(DatabaseClient databaseClient,
 			SpannerMappingContext mappingContext, SpannerConverter spannerConverter,
 			SpannerMutationFactory spannerMutationFactory,
@@ -47,9 +81,18 @@ class ReadWriteTransactionSpannerTemplate extends SpannerTemplate {
 	}
 
 	@Override
-	protected <T, U> void applyMutationTwoArgs(BiFunction<T, U, Mutation> function,
+	protected <T, U> void applyMutationTwoArgs(BiFunction<T, U, List<Mutation>> function,
 			T arg1, U arg2) {
-		this.transactionContext.buffer(function.apply(arg1, arg2));
+		List<Mutation> mutations = function.apply(arg1, arg2);
+		recordMutations(mutations);
+		this.transactionContext.buffer(mutations);
+	}
+
+	@Override
+	protected List<Timestamp> applyMutations(List<List<Mutation>> mutationGroups) {
+		mutationGroups.forEach(this::recordMutations);
+		mutationGroups.forEach(this.transactionContext::buffer);
+		return Collections.emptyList();
 	}
 
 	@Override
@@ -64,6 +107,230 @@ class ReadWriteTransactionSpannerTemplate extends SpannerTemplate {
 						+ " in read-write transaction templates.");
 	}
 
+	@Override
+	protected ReadContext getReadContext(TimestampBound timestampBound) {
+		throw new SpannerDataException(
+				"Getting stale snapshot read contexts is not supported"
+						+ " in read-write transaction templates.");
+	}
+
+	@Override
+	protected TimestampBound getStaleReadBound(
+			SpannerPersistentEntity<?> persistentEntity) {
+		// reads in a transaction are always done at the timestamp of the transaction.
+		return null;
+	}
+
+	@Override
+	protected SpannerEntityCache getReadThroughCache() {
+		// reads in a transaction must see the writes of the transaction.
+		return null;
+	}
+
+	@Override
+	public <T> T read(Class<T> entityClass, Key key, SpannerReadOptions options) {
+		if (options != null) {
+			return super.read(entityClass, key, options);
+		}
+		Map<Key, Optional<Object>> entities = getIdentityMap(entityClass);
+		Optional<Object> entity = entities.get(key);
+		if (entity == null) {
+			entity = Optional.ofNullable(super.read(entityClass, key, null));
+			Map<SpannerPersistentProperty, Object> values = getWrittenValues(entityClass)
+					.remove(key);
+			if (values != null && entity.isPresent()) {
+				// the read row does not have the columns written earlier in the transaction.
+				setValues(entity.get(), values);
+			}
+			entities.put(key, entity);
+		}
+		return (T) entity.orElse(null);
+	}
+
+	@Override
+	protected void afterWrite(Iterable<?> entities, Set<String> columns) {
+		super.afterWrite(entities, columns);
+		if (entities == null) {
+			return;
+		}
+		for (Object entity : entities) {
+			mapWrittenEntity(entity, columns);
+		}
+	}
+
+	private void mapWrittenEntity(Object entity, Set<String> columns) {
+		Key key = getEntityKey(entity);
+		Map<Key, Optional<Object>> identityMap = getIdentityMap(entity.getClass());
+		if (columns == null) {
+			identityMap.put(key, Optional.of(entity));
+			getWrittenValues(entity.getClass()).remove(key);
+		}
+		else {
+			Optional<Object> mappedEntity = identityMap.get(key);
+			if (mappedEntity == null) {
+				// the written values are set on the entity when its row is read.
+				getWrittenValues(entity.getClass())
+						.computeIfAbsent(key, unused -> new HashMap<>())
+						.putAll(getValues(entity, columns));
+			}
+			else if (mappedEntity.isPresent() && mappedEntity.get() != entity) {
+				setValues(mappedEntity.get(), getValues(entity, columns));
+			}
+		}
+		updateMappedParents(entity.getClass(), key, entity, columns);
+		// the child entities are written with all of their columns.
+		forEachWrittenChild(entity, columns, child -> mapWrittenEntity(child, null));
+	}
+
+	/**
+	 * Updates the interleaved properties of the parent entities in the map that include
+	 * a written or deleted child entity.
+	 * @param entityClass the type of the child entity.
+	 * @param key the primary key of the child entity.
+	 * @param entity the written child entity, or null if it was deleted.
+	 * @param columns the written columns of the child entity, or null if all of its
+	 * columns were written.
+	 */
+	private void updateMappedParents(Class<?> entityClass, Key key, Object entity,
+			Set<String> columns) {
+		for (SpannerPersistentProperty parentProperty : getParentProperties(entityClass)) {
+			SpannerPersistentEntity<?> parentEntity =
+					(SpannerPersistentEntity<?>) parentProperty.getOwner();
+			Optional<Object> parent = getIdentityMap(parentEntity.getType())
+					.get(getParentKey(parentEntity, key));
+			if (parent != null && parent.isPresent()) {
+				updateChildren(parentEntity.getPropertyAccessor(parent.get()),
+						parentProperty, key, entity, columns);
+			}
+		}
+	}
+
+	private void updateChildren(PersistentPropertyAccessor parentAccessor,
+			SpannerPersistentProperty parentProperty, Key key, Object entity,
+			Set<String> columns) {
+		Iterable<?> children = (Iterable<?>) parentAccessor.getProperty(parentProperty);
+		List<Object> updatedChildren = new ArrayList<>();
+		boolean found = false;
+		boolean changed = false;
+		for (Object child : children == null ? Collections.emptyList() : children) {
+			if (child == null || !key.equals(getEntityKey(child))) {
+				updatedChildren.add(child);
+			}
+			else if (entity == null) {
+				changed = true;
+				found = true;
+			}
+			else if (columns != null) {
+				if (child != entity) {
+					setValues(child, getValues(entity, columns));
+				}
+				updatedChildren.add(child);
+				found = true;
+			}
+			else {
+				changed |= child != entity;
+				updatedChildren.add(entity);
+				found = true;
+			}
+		}
+		if (!found && entity != null && columns == null) {
+			// the written child is new to the parent.
+			updatedChildren.add(entity);
+			changed = true;
+		}
+		if (changed) {
+			parentAccessor.setProperty(parentProperty, updatedChildren);
+		}
+	}
+
+	@Override
+	protected void afterDelete(Class<?> entityClass, KeySet keys) {
+		super.afterDelete(entityClass, keys);
+		if (keys.isAll() || keys.getRanges().iterator().hasNext()) {
+			// the deleted keys in ranges are not known.
+			this.identityMap.remove(entityClass);
+			this.writtenValues.remove(entityClass);
+			for (Class<?> parentClass : getAncestorTypes(entityClass)) {
+				this.identityMap.remove(parentClass);
+			}
+		}
+		else {
+			Map<Key, Optional<Object>> identityMap = getIdentityMap(entityClass);
+			Map<Key, Map<SpannerPersistentProperty, Object>> writtenValues = getWrittenValues(
+					entityClass);
+			for (Key key : keys.getKeys()) {
+				identityMap.put(key, Optional.empty());
+				writtenValues.remove(key);
+				updateMappedParents(entityClass, key, null, null);
+			}
+		}
+		// the deleted child keys are not known.
+		for (Class<?> childClass : getDescendantTypes(entityClass)) {
+			this.identityMap.remove(childClass);
+			this.writtenValues.remove(childClass);
+		}
+	}
+
+	private Map<Key, Optional<Object>> getIdentityMap(Class<?> entityClass) {
+		return this.identityMap.computeIfAbsent(entityClass, unused -> new HashMap<>());
+	}
+
+	private Map<Key, Map<SpannerPersistentProperty, Object>> getWrittenValues(
+			Class<?> entityClass) {
+		return this.writtenValues.computeIfAbsent(entityClass, unused -> new HashMap<>());
+	}
+
+	private Map<SpannerPersistentProperty, Object> getValues(Object entity,
+			Set<String> columns) {
+		SpannerPersistentEntity<?> persistentEntity = getMappingContext()
+				.getPersistentEntity(entity.getClass());
+		PersistentPropertyAccessor accessor = persistentEntity.getPropertyAccessor(entity);
+		Map<SpannerPersistentProperty, Object> values = new HashMap<>();
+		persistentEntity.doWithProperties(
+				(PropertyHandler<SpannerPersistentProperty>) property -> {
+					if (columns.contains(property.getColumnName())) {
+						values.put(property, accessor.getProperty(property));
+					}
+				});
+		return values;
+	}
+
+	private void setValues(Object entity, Map<SpannerPersistentProperty, Object> values) {
+		PersistentPropertyAccessor accessor = getMappingContext()
+				.getPersistentEntity(entity.getClass()).getPropertyAccessor(entity);
+		values.forEach(accessor::setProperty);
+	}
+
+	@Override
+	protected void invalidateCachedEntities(Class<?> entityClass, KeySet keys) {
+		if (getEntityCache() != null) {
+			this.writtenEntityClasses.add(entityClass);
+			this.writtenKeys.add(keys);
+		}
+	}
+
+	/**
+	 * Evicts the entities written or deleted by this transaction from the entity cache.
+	 */
+	void invalidateWrittenEntities() {
+		for (int i = 0; i < this.writtenKeys.size(); i++) {
+			getEntityCache().invalidate(this.writtenEntityClasses.get(i),
+					this.writtenKeys.get(i));
+		}
+	}
+
+	@Override
+	protected void afterCommit(Runnable action) {
+		this.afterCommitActions.add(action);
+	}
+
+	/**
+	 * Runs the actions that wait for the writes of this transaction to be committed.
+	 */
+	void runAfterCommitActions() {
+		this.afterCommitActions.forEach(Runnable::run);
+	}
+
 	@Override
 	public <T> T performReadWriteTransaction(Function<SpannerTemplate, T> operations) {
 		throw new SpannerDataException("A read-write transaction is already under execution. "
@@ -76,4 +343,5 @@ class ReadWriteTransactionSpannerTemplate extends SpannerTemplate {
 		throw new SpannerDataException("A read-write transaction is already under execution. "
 				+ "Opening sub-transactions is not supported!");
 	}
+
 }
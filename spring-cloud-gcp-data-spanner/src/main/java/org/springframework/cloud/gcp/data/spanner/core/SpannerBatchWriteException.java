@@ -0,0 +1,58 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.data.spanner.core;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.google.cloud.Timestamp;
+
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerDataException;
+
+/**
+ * Thrown when a write of multiple entities that was split into several commits fails
+ * after some of its commits succeeded. The committed entities are always the first
+ * entities of the write, in order.
+ *
+ * @author Chengyuan Zhao
+ */
+public class SpannerBatchWriteException extends SpannerDataException {
+
+	private final List<Timestamp> commitTimestamps;
+
+	public SpannerBatchWriteException(String message, Throwable cause,
+			List<Timestamp> commitTimestamps) {
+		super(message, cause);
+		this.commitTimestamps = Collections.unmodifiableList(commitTimestamps);
+	}
+
+	/**
+	 * Gets the number of entities that were committed before the failure.
+	 * @return the number of committed entities.
+	 */
+	public int getCommittedCount() {
+		return this.commitTimestamps.size();
+	}
+
+	/**
+	 * Gets the commit timestamps of the entities that were committed before the failure.
+	 * @return the commit timestamp of each committed entity, in the order of the entities.
+	 */
+	public List<Timestamp> getCommitTimestamps() {
+		return this.commitTimestamps;
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.data.spanner.core;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A snapshot of the progress of a bulk write by a {@link SpannerBulkWriter}.
+ *
+ * @author Chengyuan Zhao
+ */
+public class SpannerBulkWriteProgress {
+
+	private final long entities;
+
+	private final long mutations;
+
+	private final long commits;
+
+	private final long retries;
+
+	private final long elapsedNanos;
+
+	SpannerBulkWriteProgress(long entities, long mutations, long commits, long retries,
+			long elapsedNanos) {
+		this.entities = entities;
+		this.mutations = mutations;
+		this.commits = commits;
+		this.retries = retries;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * Gets the number of committed entities, not counting their child entities.
+	 * @return the number of committed entities.
+	 */
+	public long getEntities() {
+		return this.entities;
+	}
+
+	/**
+	 * Gets the number of committed mutations, including those of child entities.
+	 * @return the number of committed mutations.
+	 */
+	public long getMutations() {
+		return this.mutations;
+	}
+
+	public long getCommits() {
+		return this.commits;
+	}
+
+	/**
+	 * Gets the number of failed commits of chunks that were retried.
+	 * @return the number of retries.
+	 */
+	public long getRetries() {
+		return this.retries;
+	}
+
+	public long getElapsed(TimeUnit timeUnit) {
+		return timeUnit.convert(this.elapsedNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Gets the average number of entities committed per second since the write started.
+	 * @return the throughput in entities per second.
+	 */
+	public double getEntitiesPerSecond() {
+		return this.elapsedNanos == 0 ? 0
+				: this.entities * (double) TimeUnit.SECONDS.toNanos(1) / this.elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"%d entities (%d mutations) in %d commits with %d retries, %.1f entities/s",
+				this.entities, this.mutations, this.commits, this.retries,
+				getEntitiesPerSecond());
+	}
+}
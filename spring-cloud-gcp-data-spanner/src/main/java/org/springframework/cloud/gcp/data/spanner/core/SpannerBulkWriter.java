@@ -0,0 +1,366 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.data.spanner.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import com.google.cloud.spanner.ErrorCode;
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.KeySet;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.SpannerException;
+
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerDataException;
+import org.springframework.util.Assert;
+
+/**
+ * Writes very large numbers of entities, read lazily from a stream or an iterator, with
+ * several concurrent commits. The mutations of the entities are committed in chunks that
+ * stay within the maximum number of mutation cells per commit of the template, and at
+ * most the configured number of chunks are held in memory or committed at the same
+ * time, so the memory used does not depend on the number of entities.
+ *
+ * <p>A chunk that fails to commit with a transient error is retried with an exponential
+ * backoff. An aborted commit is always transient. An unavailable or deadline exceeded
+ * error is only transient for upserts, because the commit may still have succeeded,
+ * after which a retried insert would fail because its rows already exist. If a chunk
+ * fails with any other error, or still fails after the maximum number of attempts, no
+ * further entities are read and the write fails once the chunks being committed have
+ * finished. Because chunks are committed
+ * concurrently, the entities committed before a failure are not necessarily a prefix of
+ * the input.
+ *
+ * @author Chengyuan Zhao
+ */
+public class SpannerBulkWriter {
+
+	/**
+	 * The default maximum number of chunks committed at the same time.
+	 */
+	public static final int DEFAULT_CONCURRENCY = 4;
+
+	/**
+	 * The default maximum number of attempts to commit a chunk.
+	 */
+	public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+	/**
+	 * The default backoff before the first retry of a chunk, in milliseconds.
+	 */
+	public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 100;
+
+	private final SpannerTemplate spannerTemplate;
+
+	private final Executor executor;
+
+	private int concurrency = DEFAULT_CONCURRENCY;
+
+	private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+	private long initialBackoffNanos = TimeUnit.MILLISECONDS
+			.toNanos(DEFAULT_INITIAL_BACKOFF_MILLIS);
+
+	private Consumer<SpannerBulkWriteProgress> progressListener;
+
+	/**
+	 * Constructor
+	 * @param spannerTemplate the template that commits the chunks.
+	 * @param executor the executor that commits the chunks. It needs as many threads as
+	 * the concurrency to commit that many chunks at the same time.
+	 */
+	public SpannerBulkWriter(SpannerTemplate spannerTemplate, Executor executor) {
+		Assert.notNull(spannerTemplate, "A valid Spanner template is required.");
+		Assert.notNull(executor, "A valid executor is required.");
+		this.spannerTemplate = spannerTemplate;
+		this.executor = executor;
+	}
+
+	/**
+	 * Sets the maximum number of chunks committed at the same time.
+	 * @param concurrency the maximum number of concurrent commits. Must be positive.
+	 */
+	public void setConcurrency(int concurrency) {
+		Assert.isTrue(concurrency > 0, "The concurrency must be positive.");
+		this.concurrency = concurrency;
+	}
+
+	/**
+	 * Sets the maximum number of attempts to commit a chunk.
+	 * @param maxAttempts the maximum number of attempts, including the first. Must be
+	 * positive.
+	 */
+	public void setMaxAttempts(int maxAttempts) {
+		Assert.isTrue(maxAttempts > 0, "The maximum number of attempts must be positive.");
+		this.maxAttempts = maxAttempts;
+	}
+
+	/**
+	 * Sets the backoff before the first retry of a chunk. The backoff doubles with each
+	 * further retry of the same chunk.
+	 * @param initialBackoff the backoff before the first retry. Must not be negative.
+	 * @param timeUnit the unit of the backoff.
+	 */
+	public void setInitialBackoff(long initialBackoff, TimeUnit timeUnit) {
+		Assert.isTrue(initialBackoff >= 0, "The backoff must not be negative.");
+		this.initialBackoffNanos = timeUnit.toNanos(initialBackoff);
+	}
+
+	/**
+	 * Sets the listener that is given the progress of a write after each committed chunk.
+	 * The listener is called on the threads of the executor.
+	 * @param progressListener the progress listener, or null to not report progress.
+	 */
+	public void setProgressListener(Consumer<SpannerBulkWriteProgress> progressListener) {
+		this.progressListener = progressListener;
+	}
+
+	/**
+	 * Inserts the entities of a stream, and their interleaved child entities.
+	 * @param entities the entities to insert.
+	 * @return the final progress of the write.
+	 */
+	public SpannerBulkWriteProgress insert(Stream<?> entities) {
+		return insert(entities.iterator());
+	}
+
+	/**
+	 * Inserts the entities of an iterator, and their interleaved child entities.
+	 * @param entities the entities to insert.
+	 * @return the final progress of the write.
+	 */
+	public SpannerBulkWriteProgress insert(Iterator<?> entities) {
+		return write(entities, this.spannerTemplate.getMutationFactory()::insertWithChildren,
+				false);
+	}
+
+	/**
+	 * Upserts the entities of a stream, and their interleaved child entities.
+	 * @param entities the entities to upsert.
+	 * @return the final progress of the write.
+	 */
+	public SpannerBulkWriteProgress upsert(Stream<?> entities) {
+		return upsert(entities.iterator());
+	}
+
+	/**
+	 * Upserts the entities of an iterator, and their interleaved child entities.
+	 * @param entities the entities to upsert.
+	 * @return the final progress of the write.
+	 */
+	public SpannerBulkWriteProgress upsert(Iterator<?> entities) {
+		return write(entities,
+				entity -> this.spannerTemplate.getMutationFactory().upsertWithChildren(entity, null),
+				true);
+	}
+
+	private SpannerBulkWriteProgress write(Iterator<?> entities,
+			Function<Object, List<Mutation>> mutationFunction, boolean idempotent) {
+		Assert.notNull(entities, "A valid iterator of entities is required.");
+		BulkWrite bulkWrite = new BulkWrite(idempotent);
+		// the keys of the written entities are only needed to evict them from the cache.
+		boolean trackKeys = this.spannerTemplate.getEntityCache() != null;
+		try {
+			Chunk chunk = new Chunk();
+			while (entities.hasNext() && bulkWrite.failure.get() == null) {
+				Object entity = entities.next();
+				List<Mutation> mutations = mutationFunction.apply(entity);
+				int cells = 0;
+				for (Mutation mutation : mutations) {
+					cells += SpannerMutationUtils.countCells(mutation);
+				}
+				if (!chunk.mutationGroups.isEmpty() && chunk.cells
+						+ cells > this.spannerTemplate.getMaxMutationCellsPerCommit()) {
+					submit(bulkWrite, chunk);
+					chunk = new Chunk();
+				}
+				chunk.add(entity, trackKeys ? this.spannerTemplate.getEntityKey(entity) : null,
+						mutations, cells);
+			}
+			if (!chunk.mutationGroups.isEmpty() && bulkWrite.failure.get() == null) {
+				submit(bulkWrite, chunk);
+			}
+		}
+		finally {
+			// waits for the chunks being committed, even if reading the entities failed.
+			bulkWrite.inFlight.acquireUninterruptibly(this.concurrency);
+		}
+		if (bulkWrite.failure.get() != null) {
+			throw new SpannerDataException(String.format(
+					"Bulk write failed after committing %s.", bulkWrite.getProgress()),
+					bulkWrite.failure.get());
+		}
+		return bulkWrite.getProgress();
+	}
+
+	private void submit(BulkWrite bulkWrite, Chunk chunk) {
+		bulkWrite.inFlight.acquireUninterruptibly();
+		try {
+			this.executor.execute(() -> {
+				try {
+					commit(bulkWrite, chunk);
+				}
+				finally {
+					bulkWrite.inFlight.release();
+				}
+			});
+		}
+		catch (RejectedExecutionException e) {
+			bulkWrite.inFlight.release();
+			bulkWrite.failure.compareAndSet(null, e);
+		}
+	}
+
+	private void commit(BulkWrite bulkWrite, Chunk chunk) {
+		try {
+			if (commitWithRetries(bulkWrite, chunk)) {
+				bulkWrite.committed(chunk);
+			}
+		}
+		finally {
+			chunk.keys.forEach((entityClass, keys) -> this.spannerTemplate
+					.invalidateCachedEntities(entityClass, keys.build()));
+		}
+	}
+
+	private boolean commitWithRetries(BulkWrite bulkWrite, Chunk chunk) {
+		long backoffNanos = this.initialBackoffNanos;
+		// stops retrying once another chunk has failed.
+		for (int attempt = 1; bulkWrite.failure.get() == null; attempt++) {
+			try {
+				this.spannerTemplate.applyMutations(chunk.mutationGroups);
+				return true;
+			}
+			catch (RuntimeException e) {
+				if (attempt >= this.maxAttempts || !isRetryable(e, bulkWrite.idempotent)) {
+					bulkWrite.failure.compareAndSet(null, e);
+				}
+				else {
+					bulkWrite.retries.incrementAndGet();
+					backoffNanos = backoff(bulkWrite, backoffNanos);
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if a commit failed with a transient Spanner error, which may be wrapped in
+	 * other exceptions. Errors after which the commit may have succeeded are only
+	 * transient if the mutations can be applied again.
+	 */
+	private static boolean isRetryable(Throwable failure, boolean idempotent) {
+		for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+			if (cause instanceof SpannerException) {
+				ErrorCode errorCode = ((SpannerException) cause).getErrorCode();
+				return errorCode == ErrorCode.ABORTED || (idempotent
+						&& (errorCode == ErrorCode.UNAVAILABLE
+								|| errorCode == ErrorCode.DEADLINE_EXCEEDED));
+			}
+		}
+		return false;
+	}
+
+	private long backoff(BulkWrite bulkWrite, long backoffNanos) {
+		try {
+			TimeUnit.NANOSECONDS.sleep(backoffNanos);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			bulkWrite.failure.compareAndSet(null, e);
+		}
+		return backoffNanos * 2;
+	}
+
+	/**
+	 * The mutations of consecutive entities committed together.
+	 */
+	private static final class Chunk {
+
+		private final List<List<Mutation>> mutationGroups = new ArrayList<>();
+
+		private final Map<Class<?>, KeySet.Builder> keys = new HashMap<>();
+
+		private int mutations;
+
+		private int cells;
+
+		void add(Object entity, Key key, List<Mutation> mutations, int cells) {
+			this.mutationGroups.add(mutations);
+			if (key != null) {
+				this.keys.computeIfAbsent(entity.getClass(), unused -> KeySet.newBuilder())
+						.addKey(key);
+			}
+			this.mutations += mutations.size();
+			this.cells += cells;
+		}
+	}
+
+	/**
+	 * The state of a single call to write.
+	 */
+	private final class BulkWrite {
+
+		private final long startNanos = System.nanoTime();
+
+		private final boolean idempotent;
+
+		private final Semaphore inFlight = new Semaphore(
+				SpannerBulkWriter.this.concurrency);
+
+		private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+		private final AtomicLong entities = new AtomicLong();
+
+		private final AtomicLong mutations = new AtomicLong();
+
+		private final AtomicLong commits = new AtomicLong();
+
+		private final AtomicLong retries = new AtomicLong();
+
+		BulkWrite(boolean idempotent) {
+			this.idempotent = idempotent;
+		}
+
+		void committed(Chunk chunk) {
+			this.entities.addAndGet(chunk.mutationGroups.size());
+			this.mutations.addAndGet(chunk.mutations);
+			this.commits.incrementAndGet();
+			if (SpannerBulkWriter.this.progressListener != null) {
+				SpannerBulkWriter.this.progressListener.accept(getProgress());
+			}
+		}
+
+		SpannerBulkWriteProgress getProgress() {
+			return new SpannerBulkWriteProgress(this.entities.get(), this.mutations.get(),
+					this.commits.get(), this.retries.get(),
+					System.nanoTime() - this.startNanos);
+		}
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.data.spanner.core;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.Mutation.WriteBuilder;
+import com.google.cloud.spanner.Value;
+import com.google.common.collect.MapMaker;
+
+import org.springframework.cloud.gcp.data.spanner.core.convert.SpannerEntityWriter;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerMappingContext;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerPersistentEntity;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerPersistentProperty;
+import org.springframework.util.Assert;
+
+/**
+ * Tracks the changes of entities by keeping a snapshot of the column values of each
+ * tracked entity. {@link SpannerTemplate} tracks the entities it reads, so that updating
+ * them only writes the columns that changed since they were read or last written.
+ *
+ * <p>Entities are tracked by identity, and only as long as they are referenced
+ * elsewhere. Each snapshot holds a copy of all of the column values of its entity, so
+ * tracking uses about as much memory as the tracked entities themselves.
+ *
+ * @author Chengyuan Zhao
+ */
+public class SpannerDirtyTracker {
+
+	private final SpannerMappingContext mappingContext;
+
+	private final SpannerEntityWriter entityWriter;
+
+	private final Map<Object, Map<String, Value>> snapshots = new MapMaker().weakKeys()
+			.makeMap();
+
+	/**
+	 * Constructor
+	 * @param mappingContext the mapping context used to get metadata from entity types.
+	 * @param entityWriter the writer used to get the column values of entities.
+	 */
+	public SpannerDirtyTracker(SpannerMappingContext mappingContext,
+			SpannerEntityWriter entityWriter) {
+		Assert.notNull(mappingContext, "A valid mapping context for Spanner is required.");
+		Assert.notNull(entityWriter, "A valid entity writer for Spanner is required.");
+		this.mappingContext = mappingContext;
+		this.entityWriter = entityWriter;
+	}
+
+	/**
+	 * Takes a snapshot of the current column values of an entity, replacing its previous
+	 * snapshot.
+	 * @param entity the entity to track.
+	 */
+	public void track(Object entity) {
+		this.snapshots.put(entity, getColumnValues(entity));
+	}
+
+	/**
+	 * Takes a snapshot of the current column values of an entity without tracking it, so
+	 * that it can be tracked with the snapshot later, such as when a write is committed.
+	 * @param entity the entity.
+	 * @return the snapshot.
+	 */
+	Map<String, Value> takeSnapshot(Object entity) {
+		return getColumnValues(entity);
+	}
+
+	/**
+	 * Tracks an entity with a snapshot taken earlier, replacing its previous snapshot.
+	 * @param entity the entity to track.
+	 * @param snapshot the snapshot of the entity.
+	 */
+	void track(Object entity, Map<String, Value> snapshot) {
+		this.snapshots.put(entity, snapshot);
+	}
+
+	/**
+	 * Stops tracking an entity.
+	 * @param entity the entity.
+	 */
+	public void untrack(Object entity) {
+		this.snapshots.remove(entity);
+	}
+
+	/**
+	 * Checks if an entity is tracked.
+	 * @param entity the entity.
+	 * @return true if the entity has a snapshot.
+	 */
+	public boolean isTracked(Object entity) {
+		return this.snapshots.containsKey(entity);
+	}
+
+	/**
+	 * Gets the columns of an entity whose values differ from its snapshot. The columns of
+	 * interleaved properties are always included, because their child entities are not
+	 * tracked.
+	 * @param entity the entity.
+	 * @return the names of the changed columns, or null if the entity is not tracked.
+	 */
+	public Set<String> getChangedColumns(Object entity) {
+		Map<String, Value> snapshot = this.snapshots.get(entity);
+		if (snapshot == null) {
+			return null;
+		}
+		Set<String> changedColumns = new HashSet<>();
+		getColumnValues(entity).forEach((column, value) -> {
+			if (!value.equals(snapshot.get(column))) {
+				changedColumns.add(column);
+			}
+		});
+		for (SpannerPersistentProperty interleavedProperty : this.mappingContext
+				.getPersistentEntity(entity.getClass()).getInterleavedProperties()) {
+			changedColumns.add(interleavedProperty.getColumnName());
+		}
+		return changedColumns;
+	}
+
+	private Map<String, Value> getColumnValues(Object entity) {
+		SpannerPersistentEntity<?> persistentEntity = this.mappingContext
+				.getPersistentEntity(entity.getClass());
+		WriteBuilder writeBuilder = Mutation.newUpdateBuilder(persistentEntity.tableName());
+		this.entityWriter.write(entity, writeBuilder);
+		return writeBuilder.build().asMap();
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.data.spanner.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.KeySet;
+import com.google.cloud.spanner.Struct;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import org.springframework.util.Assert;
+
+/**
+ * A bounded cache of entities read by key, used by {@link SpannerTemplate} to serve
+ * repeated reads of the same keys. Each entity type has its own cache that holds at
+ * most the maximum number of entities, each for at most the time to live.
+ *
+ * <p>The cache holds the immutable rows of the entities, and each read maps a new entity
+ * from the cached row, so entities returned by reads are never shared between readers.
+ *
+ * <p>Each entity type has a generation that is incremented whenever entities of the type
+ * are evicted. A row read before an eviction is not cached after it, so that a read that
+ * races with a write cannot put the row as it was before the write back into the cache.
+ *
+ * @author Chengyuan Zhao
+ */
+public class SpannerEntityCache {
+
+	private final long maximumSize;
+
+	private final long timeToLive;
+
+	private final TimeUnit timeUnit;
+
+	private final Map<Class<?>, Cache<Key, Struct>> caches = new ConcurrentHashMap<>();
+
+	private final Map<Class<?>, AtomicLong> generations = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructor
+	 * @param maximumSize the maximum number of entities cached for each entity type. Must
+	 * be positive.
+	 * @param timeToLive the time after which a cached entity is evicted. Must be positive.
+	 * @param timeUnit the unit of the time to live.
+	 */
+	public SpannerEntityCache(long maximumSize, long timeToLive, TimeUnit timeUnit) {
+		Assert.isTrue(maximumSize > 0, "The maximum size of the cache must be positive.");
+		Assert.isTrue(timeToLive > 0, "The time to live of cached entities must be positive.");
+		Assert.notNull(timeUnit, "A valid time unit is required.");
+		this.maximumSize = maximumSize;
+		this.timeToLive = timeToLive;
+		this.timeUnit = timeUnit;
+	}
+
+	/**
+	 * Gets the cached row of an entity.
+	 * @param entityClass the type of the entity.
+	 * @param key the primary key of the entity.
+	 * @return the cached row, or null if it is not cached.
+	 */
+	public Struct get(Class<?> entityClass, Key key) {
+		return getCache(entityClass).getIfPresent(key);
+	}
+
+	/**
+	 * Gets the current generation of an entity type, which must be taken before a row to
+	 * be cached is read.
+	 * @param entityClass the type of the entities.
+	 * @return the generation.
+	 */
+	public long getGeneration(Class<?> entityClass) {
+		return getGenerationCounter(entityClass).get();
+	}
+
+	/**
+	 * Caches the row of an entity, unless entities of its type were evicted since the row
+	 * was read.
+	 * @param entityClass the type of the entity.
+	 * @param key the primary key of the entity.
+	 * @param row the row of the entity. Must not be null.
+	 * @param generation the generation of the entity type taken before the row was read.
+	 * @return true if the row was cached.
+	 */
+	public boolean put(Class<?> entityClass, Key key, Struct row, long generation) {
+		Assert.notNull(row, "Only non-null rows can be cached.");
+		Cache<Key, Struct> cache = getCache(entityClass);
+		cache.put(key, row);
+		// an eviction that happened before the put is caught by the generation, and one
+		// that happens after it evicts the row itself.
+		if (getGeneration(entityClass) != generation) {
+			cache.invalidate(key);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Evicts the cached entities with the given keys. All of the entities of the type are
+	 * evicted if the key set contains ranges.
+	 * @param entityClass the type of the entities.
+	 * @param keys the primary keys of the entities.
+	 */
+	public void invalidate(Class<?> entityClass, KeySet keys) {
+		getGenerationCounter(entityClass).incrementAndGet();
+		Cache<Key, Struct> cache = this.caches.get(entityClass);
+		if (cache == null) {
+			return;
+		}
+		if (keys.isAll() || keys.getRanges().iterator().hasNext()) {
+			cache.invalidateAll();
+		}
+		else {
+			cache.invalidateAll(keys.getKeys());
+		}
+	}
+
+	/**
+	 * Evicts all of the cached entities of a type.
+	 * @param entityClass the type of the entities.
+	 */
+	public void invalidateAll(Class<?> entityClass) {
+		getGenerationCounter(entityClass).incrementAndGet();
+		Cache<Key, Struct> cache = this.caches.get(entityClass);
+		if (cache != null) {
+			cache.invalidateAll();
+		}
+	}
+
+	/**
+	 * Evicts all of the cached entities.
+	 */
+	public void invalidateAll() {
+		this.generations.values().forEach(AtomicLong::incrementAndGet);
+		this.caches.values().forEach(Cache::invalidateAll);
+	}
+
+	/**
+	 * Gets the hit, miss, and eviction counts of the cache of an entity type. Evictions
+	 * count entities removed because of the size or time to live, but not entities
+	 * invalidated by writes.
+	 * @param entityClass the type of the entities.
+	 * @return the statistics of the entity type.
+	 */
+	public CacheStats getStats(Class<?> entityClass) {
+		Cache<Key, Struct> cache = this.caches.get(entityClass);
+		return cache == null ? new CacheStats(0, 0, 0, 0, 0, 0) : cache.stats();
+	}
+
+	/**
+	 * Gets the hit, miss, and eviction counts summed over all entity types.
+	 * @return the statistics of all entity types.
+	 */
+	public CacheStats getStats() {
+		CacheStats stats = new CacheStats(0, 0, 0, 0, 0, 0);
+		for (Cache<Key, Struct> cache : this.caches.values()) {
+			stats = stats.plus(cache.stats());
+		}
+		return stats;
+	}
+
+	private AtomicLong getGenerationCounter(Class<?> entityClass) {
+		return this.generations.computeIfAbsent(entityClass, unused -> new AtomicLong());
+	}
+
+	private Cache<Key, Struct> getCache(Class<?> entityClass) {
+		return this.caches.computeIfAbsent(entityClass,
+				unused -> CacheBuilder.newBuilder().maximumSize(this.maximumSize)
+						.expireAfterWrite(this.timeToLive, this.timeUnit).recordStats()
+						.build());
+	}
+}
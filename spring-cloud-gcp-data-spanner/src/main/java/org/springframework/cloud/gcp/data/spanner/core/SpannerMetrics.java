@@ -0,0 +1,72 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.data.spanner.core;
+
+/**
+ * Records the durations and sizes of the operations of a {@link SpannerTemplate} and of
+ * repository query methods. Operations are not measured unless a template is given an
+ * instance with {@link SpannerTemplate#setMetrics(SpannerMetrics)}.
+ *
+ * @author Chengyuan Zhao
+ */
+public interface SpannerMetrics {
+
+	/**
+	 * Records the duration of a template operation.
+	 * @param operation the name of the operation, such as {@code read} or {@code insert}.
+	 * @param entityClass the type of the entities of the operation, or null if it has
+	 * none.
+	 * @param table the table of the entities, or null if the operation has no entity type.
+	 * @param durationNanos the duration of the operation in nanoseconds.
+	 * @param success true if the operation succeeded, false if it threw an exception.
+	 */
+	void recordOperation(String operation, Class<?> entityClass, String table,
+			long durationNanos, boolean success);
+
+	/**
+	 * Records the number of rows returned by a read or query.
+	 * @param operation the name of the operation.
+	 * @param entityClass the type of the entities read, or null for rows of a query that
+	 * are not mapped to entities.
+	 * @param table the table of the entities, or null.
+	 * @param rows the number of rows.
+	 */
+	void recordRows(String operation, Class<?> entityClass, String table, long rows);
+
+	/**
+	 * Records the number of mutations of a table committed or buffered by a write.
+	 * @param operation the name of the mutation operation, such as {@code upsert}.
+	 * @param table the table of the mutations.
+	 * @param mutations the number of mutations.
+	 */
+	void recordMutations(String operation, String table, long mutations);
+
+	/**
+	 * Records a retry of a read-write transaction that was aborted.
+	 */
+	void recordTransactionRetry();
+
+	/**
+	 * Records the duration of an execution of a repository query method.
+	 * @param entityClass the entity type of the repository.
+	 * @param method the name of the query method.
+	 * @param durationNanos the duration of the execution in nanoseconds.
+	 * @param success true if the execution succeeded, false if it threw an exception.
+	 */
+	void recordQueryMethod(Class<?> entityClass, String method, long durationNanos,
+			boolean success);
+}
@@ -16,6 +16,8 @@
 
 package org.springframework.cloud.gcp.data.spanner.core;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -32,7 +34,8 @@ import com.google.cloud.spanner.Mutation;
 public interface SpannerMutationFactory {
 
 	/**
-	 * Stores a single object in Spanner.
+	 * Stores a single object in Spanner. The child entities of its interleaved
+	 * properties are not stored; use {@link #insertWithChildren(Object)} for them.
 	 * @param object The object to store.
 	 * @return The mutation operation which will store the object.
 	 */
@@ -40,7 +43,9 @@ public interface SpannerMutationFactory {
 
 	/**
 	 * Updates or inserts a single object in Spanner. The columns' values corresponding to
-	 * the object's fields are treated according to Mutation.Op.INSERT_OR_UPDATE.
+	 * the object's fields are treated according to Mutation.Op.INSERT_OR_UPDATE. The child
+	 * entities of its interleaved properties are not written; use
+	 * {@link #upsertWithChildren(Object, Optional)} for them.
 	 * @param object The object to update or newly insert.
 	 * @param includeColumns The columns to use in the operation. if null or empty
 	 * Optional, then all columns are used.
@@ -50,7 +55,9 @@ public interface SpannerMutationFactory {
 
 	/**
 	 * Updates a single object in Spanner. The columns' values corresponding to the
-	 * object's fields are treated according to Mutation.Op.UPDATE.
+	 * object's fields are treated according to Mutation.Op.UPDATE. The child entities of
+	 * its interleaved properties are not written; use
+	 * {@link #updateWithChildren(Object, Optional)} for them.
 	 * @param object The object to update.
 	 * @param includeColumns The columns to use in the operation. if null or empty
 	 * Optional, then all columns are used.
@@ -58,6 +65,50 @@ public interface SpannerMutationFactory {
 	 */
 	Mutation update(Object object, Optional<Set<String>> includeColumns);
 
+	/**
+	 * Stores a single object in Spanner, together with the child entities of its
+	 * interleaved properties. The default implementation only stores the object.
+	 * @param object The object to store.
+	 * @return The mutation operations which will store the object and its children, with
+	 * each parent before its children.
+	 */
+	default List<Mutation> insertWithChildren(Object object) {
+		return Collections.singletonList(insert(object));
+	}
+
+	/**
+	 * Updates or inserts a single object in Spanner, together with the child entities of
+	 * its interleaved properties, which are also updated or inserted. The default
+	 * implementation only writes the object.
+	 * @param object The object to update or newly insert.
+	 * @param includeColumns The columns to use in the operation. if null or empty
+	 * Optional, then all columns are used. The child entities of an interleaved property
+	 * are only written if all columns are used or the property's column name is included.
+	 * @return The mutation operations to perform the action on the object and its
+	 * children, with each parent before its children.
+	 */
+	default List<Mutation> upsertWithChildren(Object object,
+			Optional<Set<String>> includeColumns) {
+		return Collections.singletonList(upsert(object, includeColumns));
+	}
+
+	/**
+	 * Updates a single object in Spanner, together with the child entities of its
+	 * interleaved properties. The child entities are updated or inserted, because the
+	 * children of an existing parent may have been added since it was read. The default
+	 * implementation only writes the object.
+	 * @param object The object to update.
+	 * @param includeColumns The columns to use in the operation. if null or empty
+	 * Optional, then all columns are used. The child entities of an interleaved property
+	 * are only written if all columns are used or the property's column name is included.
+	 * @return The mutation operations to perform the action on the object and its
+	 * children, with each parent before its children.
+	 */
+	default List<Mutation> updateWithChildren(Object object,
+			Optional<Set<String>> includeColumns) {
+		return Collections.singletonList(update(object, includeColumns));
+	}
+
 	/**
 	 * Deletes several objects from Spanner.
 	 * @param entityClass The type of the objects to delete.
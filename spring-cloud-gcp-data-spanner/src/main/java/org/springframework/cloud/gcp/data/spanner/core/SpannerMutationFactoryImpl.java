@@ -16,7 +16,9 @@
 
 package org.springframework.cloud.gcp.data.spanner.core;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -29,6 +31,7 @@ import com.google.cloud.spanner.Mutation.WriteBuilder;
 import org.springframework.cloud.gcp.data.spanner.core.convert.SpannerConverter;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerMappingContext;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerPersistentEntity;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerPersistentProperty;
 import org.springframework.data.mapping.PersistentProperty;
 import org.springframework.data.mapping.PersistentPropertyAccessor;
 import org.springframework.util.Assert;
@@ -66,16 +69,30 @@ public class SpannerMutationFactoryImpl implements SpannerMutationFactory {
 
 	@Override
 	public Mutation upsert(Object object, Optional<Set<String>> includeColumns) {
-		return saveObject(Op.INSERT_OR_UPDATE, object,
-				includeColumns == null || !includeColumns.isPresent() ? null
-						: includeColumns.get());
+		return saveObject(Op.INSERT_OR_UPDATE, object, getColumns(includeColumns));
 	}
 
 	@Override
 	public Mutation update(Object object, Optional<Set<String>> includeColumns) {
-		return saveObject(Op.UPDATE, object,
-				includeColumns == null || !includeColumns.isPresent() ? null
-						: includeColumns.get());
+		return saveObject(Op.UPDATE, object, getColumns(includeColumns));
+	}
+
+	@Override
+	public List<Mutation> insertWithChildren(Object object) {
+		return saveObjectWithChildren(Op.INSERT, object, null);
+	}
+
+	@Override
+	public List<Mutation> upsertWithChildren(Object object,
+			Optional<Set<String>> includeColumns) {
+		return saveObjectWithChildren(Op.INSERT_OR_UPDATE, object,
+				getColumns(includeColumns));
+	}
+
+	@Override
+	public List<Mutation> updateWithChildren(Object object,
+			Optional<Set<String>> includeColumns) {
+		return saveObjectWithChildren(Op.UPDATE, object, getColumns(includeColumns));
 	}
 
 	@Override
@@ -111,15 +128,57 @@ public class SpannerMutationFactoryImpl implements SpannerMutationFactory {
 		return delete(entityClass, KeySet.singleKey(key));
 	}
 
+	private static Set<String> getColumns(Optional<Set<String>> includeColumns) {
+		return includeColumns == null || !includeColumns.isPresent() ? null
+				: includeColumns.get();
+	}
+
 	private Mutation saveObject(Op op, Object object, Set<String> includeColumns) {
-		SpannerPersistentEntity<?> persistentEntity = this.spannerMappingContext
-				.getPersistentEntity(object.getClass());
-		Mutation.WriteBuilder writeBuilder = writeBuilder(op,
-				persistentEntity.tableName());
+		Mutation.WriteBuilder writeBuilder = writeBuilder(op, this.spannerMappingContext
+				.getPersistentEntity(object.getClass()).tableName());
 		this.spannerConverter.write(object, writeBuilder, includeColumns);
 		return writeBuilder.build();
 	}
 
+	private List<Mutation> saveObjectWithChildren(Op op, Object object,
+			Set<String> includeColumns) {
+		List<Mutation> mutations = new ArrayList<>();
+		saveObjectWithChildren(op, object, includeColumns, mutations);
+		return mutations;
+	}
+
+	/**
+	 * Adds the mutation of an object, followed by the mutations of the child entities of
+	 * its interleaved properties, so that every parent row is written before its children.
+	 */
+	private void saveObjectWithChildren(Op op, Object object, Set<String> includeColumns,
+			List<Mutation> mutations) {
+		SpannerPersistentEntity<?> persistentEntity = this.spannerMappingContext
+				.getPersistentEntity(object.getClass());
+		mutations.add(saveObject(op, object, includeColumns));
+		// children added to an existing parent do not exist yet, so they are upserted.
+		Op childOp = op == Op.UPDATE ? Op.INSERT_OR_UPDATE : op;
+		PersistentPropertyAccessor accessor = null;
+		for (SpannerPersistentProperty interleavedProperty : persistentEntity
+				.getInterleavedProperties()) {
+			if (includeColumns != null
+					&& !includeColumns.contains(interleavedProperty.getColumnName())) {
+				continue;
+			}
+			accessor = accessor == null ? persistentEntity.getPropertyAccessor(object)
+					: accessor;
+			Iterable<?> children = (Iterable<?>) accessor.getProperty(interleavedProperty);
+			if (children == null) {
+				continue;
+			}
+			for (Object child : children) {
+				if (child != null) {
+					saveObjectWithChildren(childOp, child, null, mutations);
+				}
+			}
+		}
+	}
+
 	private WriteBuilder writeBuilder(Op op, String tableName) {
 		Mutation.WriteBuilder builder = null;
 		switch (op) {
@@ -0,0 +1,100 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.data.spanner.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.cloud.spanner.KeySet;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.Mutation.Op;
+
+import org.springframework.util.Assert;
+
+/**
+ * Utility functions for sizing and grouping Spanner mutations into commits.
+ *
+ * @author Chengyuan Zhao
+ */
+final class SpannerMutationUtils {
+
+	private SpannerMutationUtils() {
+	}
+
+	/**
+	 * Counts the mutation cells a mutation contributes to a commit. Writes count one cell
+	 * per column, and deletes count one cell per key or key range.
+	 * @param mutation the mutation to measure.
+	 * @return the number of mutation cells.
+	 */
+	static int countCells(Mutation mutation) {
+		int cells = 0;
+		if (mutation.getOperation() == Op.DELETE) {
+			KeySet keySet = mutation.getKeySet();
+			if (keySet.isAll()) {
+				return 1;
+			}
+			for (Object ignored : keySet.getKeys()) {
+				cells++;
+			}
+			for (Object ignored : keySet.getRanges()) {
+				cells++;
+			}
+		}
+		else {
+			for (String ignored : mutation.getColumns()) {
+				cells++;
+			}
+		}
+		return Math.max(cells, 1);
+	}
+
+	/**
+	 * Splits groups of mutations into consecutive chunks that each stay within a
+	 * mutation-cell limit. The mutations of a group are always placed in the same chunk,
+	 * so that they are committed atomically. A single group exceeding the limit is placed
+	 * in a chunk by itself.
+	 * @param mutationGroups the groups of mutations to split, in commit order.
+	 * @param maxCellsPerChunk the maximum number of mutation cells per chunk.
+	 * @return the chunks of groups of mutations, in order.
+	 */
+	static List<List<List<Mutation>>> partition(List<List<Mutation>> mutationGroups,
+			int maxCellsPerChunk) {
+		Assert.isTrue(maxCellsPerChunk > 0,
+				"The maximum number of mutation cells per chunk must be positive.");
+		List<List<List<Mutation>>> chunks = new ArrayList<>();
+		List<List<Mutation>> currentChunk = new ArrayList<>();
+		int currentCells = 0;
+		for (List<Mutation> mutationGroup : mutationGroups) {
+			int cells = 0;
+			for (Mutation mutation : mutationGroup) {
+				cells += countCells(mutation);
+			}
+			if (!currentChunk.isEmpty() && currentCells + cells > maxCellsPerChunk) {
+				chunks.add(currentChunk);
+				currentChunk = new ArrayList<>();
+				currentCells = 0;
+			}
+			currentChunk.add(mutationGroup);
+			currentCells += cells;
+		}
+		if (!currentChunk.isEmpty()) {
+			chunks.add(currentChunk);
+		}
+		return chunks;
+	}
+}
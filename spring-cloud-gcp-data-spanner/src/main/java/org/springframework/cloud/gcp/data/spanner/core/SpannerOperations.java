@@ -17,16 +17,21 @@
 package org.springframework.cloud.gcp.data.spanner.core;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
+import com.google.cloud.Timestamp;
 import com.google.cloud.spanner.Key;
 import com.google.cloud.spanner.KeySet;
 import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.Struct;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 
 /**
@@ -101,6 +106,18 @@ public interface SpannerOperations {
 	 */
 	<T> List<T> query(Class<T> entityClass, Statement statement);
 
+	/**
+	 * Runs an SQL statement and maps each result row with a function instead of
+	 * converting it to an entity. Useful for scalar and aggregate results.
+	 * @param rowFunc the function that maps a result row to a result object.
+	 * @param statement the SQL statement to run.
+	 * @param options Spanner query options with which to run the statement.
+	 * @param <A> the type of the result objects.
+	 * @return the list of mapped rows. If no rows were returned the list will be empty.
+	 */
+	<A> List<A> queryRows(Function<Struct, A> rowFunc, Statement statement,
+			SpannerQueryOptions options);
+
 	/**
 	 * Finds all objects of the given type.
 	 * @param entityClass the type of the object to retrieve.
@@ -120,6 +137,75 @@ public interface SpannerOperations {
 	 */
 	<T> List<T> readAll(Class<T> entityClass);
 
+	/**
+	 * Finds objects stored from their keys, mapping each row only as the returned stream
+	 * is consumed.
+	 * @param entityClass the type of the object to retrieve.
+	 * @param keys the keys of the objects to retrieve.
+	 * @param options Spanner read options with which to conduct the read operation.
+	 * @param <T> the type of the object to retrieve.
+	 * @return a stream of objects that could be found using the given keys. The stream
+	 * holds the underlying result set open and must be closed after use.
+	 */
+	<T> Stream<T> readStream(Class<T> entityClass, KeySet keys,
+			SpannerReadOptions options);
+
+	/**
+	 * Finds objects stored from their keys, mapping each row only as the returned stream
+	 * is consumed.
+	 * @param entityClass the type of the object to retrieve.
+	 * @param keys the keys of the objects to retrieve.
+	 * @param <T> the type of the object to retrieve.
+	 * @return a stream of objects that could be found using the given keys. The stream
+	 * holds the underlying result set open and must be closed after use.
+	 */
+	<T> Stream<T> readStream(Class<T> entityClass, KeySet keys);
+
+	/**
+	 * Finds objects by using an SQL statement, mapping each row only as the returned
+	 * stream is consumed.
+	 * @param entityClass the type of object to retrieve.
+	 * @param statement the SQL statement used to select the objects.
+	 * @param options Spanner query options with which to conduct the query operation.
+	 * @param <T> the type of object to retrieve.
+	 * @return a stream of the objects found. The stream holds the underlying result set
+	 * open and must be closed after use.
+	 */
+	<T> Stream<T> queryStream(Class<T> entityClass, Statement statement,
+			SpannerQueryOptions options);
+
+	/**
+	 * Finds objects by using an SQL statement, mapping each row only as the returned
+	 * stream is consumed.
+	 * @param entityClass the type of object to retrieve.
+	 * @param statement the SQL statement used to select the objects.
+	 * @param <T> the type of object to retrieve.
+	 * @return a stream of the objects found. The stream holds the underlying result set
+	 * open and must be closed after use.
+	 */
+	<T> Stream<T> queryStream(Class<T> entityClass, Statement statement);
+
+	/**
+	 * Finds all objects of the given type, mapping each row only as the returned stream
+	 * is consumed.
+	 * @param entityClass the type of the object to retrieve.
+	 * @param options Spanner read options with which to conduct the read operation.
+	 * @param <T> the type of the object to retrieve.
+	 * @return a stream of all objects stored of the given type. The stream holds the
+	 * underlying result set open and must be closed after use.
+	 */
+	<T> Stream<T> readAllStream(Class<T> entityClass, SpannerReadOptions options);
+
+	/**
+	 * Finds all objects of the given type, mapping each row only as the returned stream
+	 * is consumed.
+	 * @param entityClass the type of the object to retrieve.
+	 * @param <T> the type of the object to retrieve.
+	 * @return a stream of all objects stored of the given type. The stream holds the
+	 * underlying result set open and must be closed after use.
+	 */
+	<T> Stream<T> readAllStream(Class<T> entityClass);
+
 	/**
 	 * Finds all objects of the given type.
 	 * @param entityClass the type of the object to retrieve.
@@ -163,6 +249,42 @@ public interface SpannerOperations {
 	 */
 	<T> Page<T> queryAll(Class<T> entityClass, Pageable pageable);
 
+	/**
+	 * Finds the objects of the given type that follow an object in a sort order. Instead
+	 * of skipping the preceding rows with an offset, the query seeks directly to the rows
+	 * after the given object using the sort and primary key columns, so a slice deep into
+	 * a table costs the same as the first one.
+	 * @param entityClass the type of the object to retrieve.
+	 * @param sort the order of the objects. The primary key columns are appended to it so
+	 * that the order is total.
+	 * @param lastEntity the last object of the previous slice, or null to get the first
+	 * slice.
+	 * @param pageSize the maximum number of objects to retrieve.
+	 * @param options Spanner query options with which to conduct the query operation.
+	 * Limits and offsets in the options are ignored.
+	 * @param <T> the type of the object to retrieve.
+	 * @return a slice of the objects following the given object. The last object of the
+	 * slice is used to get the next slice.
+	 */
+	<T> Slice<T> queryAllAfter(Class<T> entityClass, Sort sort, T lastEntity,
+			int pageSize, SpannerQueryOptions options);
+
+	/**
+	 * Finds the objects of the given type that follow an object in a sort order, seeking
+	 * on the sort and primary key columns instead of using an offset.
+	 * @param entityClass the type of the object to retrieve.
+	 * @param sort the order of the objects. The primary key columns are appended to it so
+	 * that the order is total.
+	 * @param lastEntity the last object of the previous slice, or null to get the first
+	 * slice.
+	 * @param pageSize the maximum number of objects to retrieve.
+	 * @param <T> the type of the object to retrieve.
+	 * @return a slice of the objects following the given object. The last object of the
+	 * slice is used to get the next slice.
+	 */
+	<T> Slice<T> queryAllAfter(Class<T> entityClass, Sort sort, T lastEntity,
+			int pageSize);
+
 	/**
 	 * Deletes an object based on a key.
 	 * @param entityClass the type of the object to delete.
@@ -243,6 +365,53 @@ public interface SpannerOperations {
 	 */
 	void upsert(Object object, Optional<Set<String>> includeColumns);
 
+	/**
+	 * Insert multiple objects into storage using as few commits as possible. The
+	 * mutations are split into consecutive commits so that no commit exceeds the
+	 * per-commit mutation-cell limit. The write is not atomic: each commit succeeds or
+	 * fails on its own, and an object and its interleaved children are always committed
+	 * together.
+	 * @param objects the objects to insert.
+	 * @return the commit timestamp of each object, in the order of the objects. Objects
+	 * committed together share a timestamp. Empty if the mutations were buffered in an
+	 * ongoing transaction instead of being committed.
+	 * @throws SpannerBatchWriteException if a commit fails, with the commit timestamps of
+	 * the leading objects that were committed before it.
+	 */
+	List<Timestamp> insertAll(Iterable<?> objects);
+
+	/**
+	 * Update multiple objects already in storage using as few commits as possible. The
+	 * mutations are split into consecutive commits so that no commit exceeds the
+	 * per-commit mutation-cell limit. The write is not atomic: each commit succeeds or
+	 * fails on its own, and an object and its interleaved children are always committed
+	 * together.
+	 * @param objects the objects to update.
+	 * @return the commit timestamp of each object, in the order of the objects, or null
+	 * for an object that had no changes to write. Objects committed together share a
+	 * timestamp. Empty if the mutations were buffered in an ongoing transaction instead of
+	 * being committed.
+	 * @throws SpannerBatchWriteException if a commit fails, with the commit timestamps of
+	 * the leading objects that were committed before it.
+	 */
+	List<Timestamp> updateAll(Iterable<?> objects);
+
+	/**
+	 * Update or insert multiple objects into storage using as few commits as possible.
+	 * The mutations are split into consecutive commits so that no commit exceeds the
+	 * per-commit mutation-cell limit. The write is not atomic: each commit succeeds or
+	 * fails on its own, and an object and its interleaved children are always committed
+	 * together.
+	 * @param objects the objects to update or insert.
+	 * @return the commit timestamp of each object, in the order of the objects, or null
+	 * for an object that had no changes to write. Objects committed together share a
+	 * timestamp. Empty if the mutations were buffered in an ongoing transaction instead of
+	 * being committed.
+	 * @throws SpannerBatchWriteException if a commit fails, with the commit timestamps of
+	 * the leading objects that were committed before it.
+	 */
+	List<Timestamp> upsertAll(Iterable<?> objects);
+
 	/**
 	 * Count how many objects are stored of the given type.
 	 * @param entityClass the type of object to count.
@@ -251,7 +420,9 @@ public interface SpannerOperations {
 	long count(Class entityClass);
 
 	/**
-	 * Performs multiple read and write operations in a single transaction.
+	 * Performs multiple read and write operations in a single transaction. In a
+	 * transaction of a {@link SpannerTransactionManager}, the operations join that
+	 * transaction instead of committing their own.
 	 * @param operations the function representing the operations to perform using a
 	 * SpannerOperations based on a single transaction.
 	 * @param <T> the final return type of the operations.
@@ -269,4 +440,28 @@ public interface SpannerOperations {
 	 */
 	<T> T performReadOnlyTransaction(Function<SpannerTemplate, T> operations,
 			SpannerReadOptions readOptions);
+
+	/**
+	 * Reads the entities of several types concurrently in a single read-only transaction,
+	 * so that all of them are read at the same timestamp in about the time of the slowest
+	 * read.
+	 * @param keys the keys of the entities to read for each type. Must not be empty.
+	 * @param readOptions the timestamp or staleness of the read-only transaction. Can be
+	 * null.
+	 * @return the entities of each type and the timestamp at which they were read.
+	 */
+	SpannerReadResults readConcurrently(Map<Class<?>, KeySet> keys,
+			SpannerReadOptions readOptions);
+
+	/**
+	 * Runs queries for entities of several types concurrently in a single read-only
+	 * transaction, so that all of them are read at the same timestamp in about the time of
+	 * the slowest query.
+	 * @param statements the query for each type of entity. Must not be empty.
+	 * @param readOptions the timestamp or staleness of the read-only transaction. Can be
+	 * null.
+	 * @return the entities of each type and the timestamp at which they were read.
+	 */
+	SpannerReadResults queryConcurrently(Map<Class<?>, Statement> statements,
+			SpannerReadOptions readOptions);
 }
@@ -20,9 +20,11 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
 
 import com.google.cloud.Timestamp;
 import com.google.cloud.spanner.Options.QueryOption;
+import com.google.cloud.spanner.TimestampBound;
 
 import org.springframework.util.Assert;
 
@@ -36,6 +38,8 @@ public class SpannerQueryOptions {
 
 	private Optional<Timestamp> timestamp = Optional.empty();
 
+	private Optional<TimestampBound> staleness = Optional.empty();
+
 	private OptionalLong limit = OptionalLong.empty();
 
 	private OptionalLong offset = OptionalLong.empty();
@@ -70,6 +74,49 @@ public class SpannerQueryOptions {
 		return this;
 	}
 
+	public SpannerQueryOptions unsetStaleness() {
+		this.staleness = Optional.empty();
+		return this;
+	}
+
+	public boolean hasStaleness() {
+		return this.staleness.isPresent();
+	}
+
+	public TimestampBound getStaleness() {
+		if (!hasStaleness()) {
+			throw new UnsupportedOperationException(
+					"Cannot get staleness because it hasn't been set.");
+		}
+		return this.staleness.get();
+	}
+
+	/**
+	 * Allows reading data that is at most the given duration old, so that the nearest
+	 * replica can serve the read. Only supported outside of transactions. A timestamp
+	 * set by {@link #setTimestamp(Timestamp)} takes precedence.
+	 * @param duration the maximum staleness.
+	 * @param unit the unit of the duration.
+	 * @return this options object.
+	 */
+	public SpannerQueryOptions setMaxStaleness(long duration, TimeUnit unit) {
+		this.staleness = Optional.of(TimestampBound.ofMaxStaleness(duration, unit));
+		return this;
+	}
+
+	/**
+	 * Reads data exactly as it was the given duration ago, so that the nearest replica
+	 * can serve the read. A timestamp set by {@link #setTimestamp(Timestamp)} takes
+	 * precedence.
+	 * @param duration the exact staleness.
+	 * @param unit the unit of the duration.
+	 * @return this options object.
+	 */
+	public SpannerQueryOptions setExactStaleness(long duration, TimeUnit unit) {
+		this.staleness = Optional.of(TimestampBound.ofExactStaleness(duration, unit));
+		return this;
+	}
+
 	public boolean hasTimestamp() {
 		return this.timestamp.isPresent();
 	}
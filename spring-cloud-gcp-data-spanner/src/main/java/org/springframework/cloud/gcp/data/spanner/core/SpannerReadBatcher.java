@@ -0,0 +1,232 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.data.spanner.core;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.KeySet;
+import com.google.cloud.spanner.Struct;
+
+import org.springframework.cloud.gcp.data.spanner.core.convert.ConversionUtils;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerPersistentEntity;
+import org.springframework.util.Assert;
+
+/**
+ * Merges single-key reads of the same entity type that arrive within a short window into
+ * a single read of all of their keys. A batch is read when its window ends or when it
+ * holds the maximum number of keys, whichever comes first.
+ *
+ * <p>Batches are read on the threads of the given scheduler, so it needs enough threads
+ * for the number of batches read at the same time. Reads of different entity types do not
+ * contend with each other, and every read gets its own entity, even if the same key is
+ * read more than once in a batch.
+ *
+ * @author Chengyuan Zhao
+ */
+public class SpannerReadBatcher {
+
+	/**
+	 * The default window in which single-key reads are merged, in microseconds.
+	 */
+	public static final long DEFAULT_BATCH_WINDOW_MICROS = 1000;
+
+	/**
+	 * The default maximum number of keys read in a single batch.
+	 */
+	public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+
+	private final SpannerTemplate spannerTemplate;
+
+	private final ScheduledExecutorService scheduler;
+
+	private long defaultBatchWindowNanos = TimeUnit.MICROSECONDS
+			.toNanos(DEFAULT_BATCH_WINDOW_MICROS);
+
+	private int defaultMaxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+	private final Map<Class<?>, Long> batchWindowNanos = new ConcurrentHashMap<>();
+
+	private final Map<Class<?>, Integer> maxBatchSizes = new ConcurrentHashMap<>();
+
+	private final Map<Class<?>, Batch> pendingBatches = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructor
+	 * @param spannerTemplate the template that reads the batches of keys.
+	 * @param scheduler the scheduler that ends the batch windows and reads the batches.
+	 */
+	public SpannerReadBatcher(SpannerTemplate spannerTemplate,
+			ScheduledExecutorService scheduler) {
+		Assert.notNull(spannerTemplate, "A valid Spanner template is required.");
+		Assert.notNull(scheduler, "A valid scheduler is required.");
+		this.spannerTemplate = spannerTemplate;
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Sets the window in which single-key reads are merged for entity types without their
+	 * own window.
+	 * @param batchWindow the length of the window. Must not be negative.
+	 * @param timeUnit the unit of the window.
+	 */
+	public void setDefaultBatchWindow(long batchWindow, TimeUnit timeUnit) {
+		Assert.isTrue(batchWindow >= 0, "The batch window must not be negative.");
+		this.defaultBatchWindowNanos = timeUnit.toNanos(batchWindow);
+	}
+
+	/**
+	 * Sets the maximum number of keys read in a single batch for entity types without their
+	 * own maximum.
+	 * @param maxBatchSize the maximum number of keys. Must be positive.
+	 */
+	public void setDefaultMaxBatchSize(int maxBatchSize) {
+		Assert.isTrue(maxBatchSize > 0, "The maximum batch size must be positive.");
+		this.defaultMaxBatchSize = maxBatchSize;
+	}
+
+	/**
+	 * Sets the window in which single-key reads of an entity type are merged.
+	 * @param entityClass the type of the entities.
+	 * @param batchWindow the length of the window. Must not be negative.
+	 * @param timeUnit the unit of the window.
+	 */
+	public void setBatchWindow(Class<?> entityClass, long batchWindow, TimeUnit timeUnit) {
+		Assert.isTrue(batchWindow >= 0, "The batch window must not be negative.");
+		this.batchWindowNanos.put(entityClass, timeUnit.toNanos(batchWindow));
+	}
+
+	/**
+	 * Sets the maximum number of keys of an entity type read in a single batch.
+	 * @param entityClass the type of the entities.
+	 * @param maxBatchSize the maximum number of keys. Must be positive.
+	 */
+	public void setMaxBatchSize(Class<?> entityClass, int maxBatchSize) {
+		Assert.isTrue(maxBatchSize > 0, "The maximum batch size must be positive.");
+		this.maxBatchSizes.put(entityClass, maxBatchSize);
+	}
+
+	/**
+	 * Adds a key to the current batch of its entity type.
+	 * @param entityClass the type of the entity.
+	 * @param key the primary key of the entity.
+	 * @param <T> the type of the entity.
+	 * @return a future that completes with the entity, or with null if there is no entity
+	 * with the key, once the batch has been read. Every call gets its own entity, even if
+	 * the same key is read more than once in a batch.
+	 */
+	public <T> CompletableFuture<T> read(Class<T> entityClass, Key key) {
+		return readRow(entityClass, key).thenApply(
+				row -> row == null ? null : this.spannerTemplate.mapRow(entityClass, row));
+	}
+
+	/**
+	 * Adds a key to the current batch of its entity type.
+	 * @param entityClass the type of the entity.
+	 * @param key the primary key of the entity.
+	 * @return a future that completes with the row of the entity, or with null if there is
+	 * no entity with the key, once the batch has been read.
+	 */
+	CompletableFuture<Struct> readRow(Class<?> entityClass, Key key) {
+		Assert.notNull(key, "A valid key is required.");
+		CompletableFuture<Struct> row = null;
+		Batch fullBatch = null;
+		while (row == null) {
+			Batch batch = this.pendingBatches.computeIfAbsent(entityClass, Batch::new);
+			synchronized (batch) {
+				// a batch that was closed by another reader is replaced by a new batch.
+				if (!batch.closed) {
+					if (!batch.scheduled) {
+						batch.scheduled = true;
+						this.scheduler.schedule(() -> readAfterWindow(batch),
+								this.batchWindowNanos.getOrDefault(entityClass,
+										this.defaultBatchWindowNanos),
+								TimeUnit.NANOSECONDS);
+					}
+					row = batch.rows.computeIfAbsent(key, unused -> new CompletableFuture<>());
+					if (batch.rows.size() >= this.maxBatchSizes.getOrDefault(entityClass,
+							this.defaultMaxBatchSize)) {
+						close(batch);
+						fullBatch = batch;
+					}
+				}
+			}
+		}
+		if (fullBatch != null) {
+			readBatch(fullBatch);
+		}
+		return row;
+	}
+
+	private void readAfterWindow(Batch batch) {
+		synchronized (batch) {
+			// a batch that became full before its window ended has already been read.
+			if (batch.closed) {
+				return;
+			}
+			close(batch);
+		}
+		readBatch(batch);
+	}
+
+	private void close(Batch batch) {
+		batch.closed = true;
+		this.pendingBatches.remove(batch.entityClass, batch);
+	}
+
+	private void readBatch(Batch batch) {
+		try {
+			KeySet.Builder keys = KeySet.newBuilder();
+			batch.rows.keySet().forEach(keys::addKey);
+			SpannerPersistentEntity<?> persistentEntity = this.spannerTemplate
+					.getMappingContext().getPersistentEntity(batch.entityClass);
+			Map<Key, Struct> rowsByKey = new HashMap<>();
+			for (Struct row : this.spannerTemplate.readRows(batch.entityClass,
+					keys.build(), null)) {
+				rowsByKey.put(ConversionUtils.getKey(persistentEntity, row), row);
+			}
+			batch.rows.forEach((key, row) -> row.complete(rowsByKey.get(key)));
+		}
+		catch (RuntimeException e) {
+			batch.rows.values().forEach(row -> row.completeExceptionally(e));
+		}
+	}
+
+	/**
+	 * The keys of an entity type waiting to be read together.
+	 */
+	private static final class Batch {
+
+		private final Class<?> entityClass;
+
+		private final Map<Key, CompletableFuture<Struct>> rows = new LinkedHashMap<>();
+
+		private boolean scheduled;
+
+		private boolean closed;
+
+		Batch(Class<?> entityClass) {
+			this.entityClass = entityClass;
+		}
+	}
+}
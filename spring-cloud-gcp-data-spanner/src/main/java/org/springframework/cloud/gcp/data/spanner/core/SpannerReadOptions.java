@@ -19,9 +19,11 @@ package org.springframework.cloud.gcp.data.spanner.core;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import com.google.cloud.Timestamp;
 import com.google.cloud.spanner.Options.ReadOption;
+import com.google.cloud.spanner.TimestampBound;
 
 import org.springframework.util.Assert;
 
@@ -35,6 +37,8 @@ public class SpannerReadOptions {
 
 	private Optional<Timestamp> timestamp = Optional.empty();
 
+	private Optional<TimestampBound> staleness = Optional.empty();
+
 	private Optional<String> index = Optional.empty();
 
 	/**
@@ -55,6 +59,49 @@ public class SpannerReadOptions {
 		return this;
 	}
 
+	public SpannerReadOptions unsetStaleness() {
+		this.staleness = Optional.empty();
+		return this;
+	}
+
+	public boolean hasStaleness() {
+		return this.staleness.isPresent();
+	}
+
+	public TimestampBound getStaleness() {
+		if (!hasStaleness()) {
+			throw new UnsupportedOperationException(
+					"Cannot get staleness because it hasn't been set.");
+		}
+		return this.staleness.get();
+	}
+
+	/**
+	 * Allows reading data that is at most the given duration old, so that the nearest
+	 * replica can serve the read. Only supported outside of transactions. A timestamp
+	 * set by {@link #setTimestamp(Timestamp)} takes precedence.
+	 * @param duration the maximum staleness.
+	 * @param unit the unit of the duration.
+	 * @return this options object.
+	 */
+	public SpannerReadOptions setMaxStaleness(long duration, TimeUnit unit) {
+		this.staleness = Optional.of(TimestampBound.ofMaxStaleness(duration, unit));
+		return this;
+	}
+
+	/**
+	 * Reads data exactly as it was the given duration ago, so that the nearest replica
+	 * can serve the read. A timestamp set by {@link #setTimestamp(Timestamp)} takes
+	 * precedence.
+	 * @param duration the exact staleness.
+	 * @param unit the unit of the duration.
+	 * @return this options object.
+	 */
+	public SpannerReadOptions setExactStaleness(long duration, TimeUnit unit) {
+		this.staleness = Optional.of(TimestampBound.ofExactStaleness(duration, unit));
+		return this;
+	}
+
 	public boolean hasTimestamp() {
 		return this.timestamp.isPresent();
 	}
@@ -0,0 +1,72 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.data.spanner.core;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.google.cloud.Timestamp;
+
+import org.springframework.util.Assert;
+
+/**
+ * The entities of several types read concurrently in a single read-only transaction, so
+ * that all of them were read at the same timestamp.
+ *
+ * @author Chengyuan Zhao
+ */
+public class SpannerReadResults {
+
+	private final Map<Class<?>, List<?>> entities;
+
+	private final Timestamp readTimestamp;
+
+	SpannerReadResults(Map<Class<?>, List<?>> entities, Timestamp readTimestamp) {
+		this.entities = Collections.unmodifiableMap(entities);
+		this.readTimestamp = readTimestamp;
+	}
+
+	/**
+	 * Gets the entities read for a type.
+	 * @param entityClass the type of the entities.
+	 * @param <T> the type of the entities.
+	 * @return the entities read for the type.
+	 * @throws IllegalArgumentException if the type was not read.
+	 */
+	public <T> List<T> get(Class<T> entityClass) {
+		Assert.isTrue(this.entities.containsKey(entityClass),
+				"The entity type was not read: " + entityClass);
+		return (List<T>) this.entities.get(entityClass);
+	}
+
+	/**
+	 * Gets the entities read for all of the types.
+	 * @return the entities of each type, in the order the types were given in.
+	 */
+	public Map<Class<?>, List<?>> getAll() {
+		return this.entities;
+	}
+
+	/**
+	 * Gets the timestamp at which all of the entities were read.
+	 * @return the read timestamp.
+	 */
+	public Timestamp getReadTimestamp() {
+		return this.readTimestamp;
+	}
+}
@@ -0,0 +1,249 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.data.spanner.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.Statement;
+
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerDataException;
+import org.springframework.util.Assert;
+
+/**
+ * Warms up the session pool of a database client, so that the first requests do not pay
+ * for creating sessions. The given number of sessions are checked out of the pool at the
+ * same time, which makes the pool create them across all of its gRPC channels, and each
+ * of them runs a trivial query. The given fraction of the sessions run their query in a
+ * read-write transaction, so that sessions are also prepared for writes.
+ *
+ * <p>The warm-up runs in the background on a bounded pool of its own threads, and
+ * completes once all of the sessions have been checked out and returned to the pool. A
+ * read only needs a thread until its query has started, but a session prepared for
+ * writes holds its thread until all of the sessions have been checked out.
+ *
+ * @author Chengyuan Zhao
+ */
+public class SpannerSessionWarmer {
+
+	/**
+	 * The default time in which all of the sessions must be warmed up, in seconds.
+	 */
+	public static final long DEFAULT_TIMEOUT_SECONDS = 60;
+
+	/**
+	 * The number of threads that check out sessions for each gRPC channel of the client.
+	 */
+	public static final int THREADS_PER_CHANNEL = 4;
+
+	/**
+	 * The default maximum number of threads that check out sessions, which suits the
+	 * default of 4 gRPC channels.
+	 */
+	public static final int DEFAULT_MAX_THREADS = 4 * THREADS_PER_CHANNEL;
+
+	private static final Statement WARM_UP_QUERY = Statement.of("SELECT 1");
+
+	private final DatabaseClient databaseClient;
+
+	private final int sessions;
+
+	private final int writeSessions;
+
+	private long timeoutNanos = TimeUnit.SECONDS.toNanos(DEFAULT_TIMEOUT_SECONDS);
+
+	private int maxThreads = DEFAULT_MAX_THREADS;
+
+	private CompletableFuture<Void> warmUp;
+
+	/**
+	 * Constructor
+	 * @param databaseClient the client whose session pool is warmed up.
+	 * @param sessions the number of sessions to warm up. Must be positive.
+	 * @param writeSessionsFraction the fraction of the sessions to prepare for writes.
+	 * Must be between 0 and 1.
+	 */
+	public SpannerSessionWarmer(DatabaseClient databaseClient, int sessions,
+			float writeSessionsFraction) {
+		Assert.notNull(databaseClient, "A valid database client for Spanner is required.");
+		Assert.isTrue(sessions > 0, "The number of sessions to warm up must be positive.");
+		Assert.isTrue(writeSessionsFraction >= 0 && writeSessionsFraction <= 1,
+				"The fraction of write sessions must be between 0 and 1.");
+		this.databaseClient = databaseClient;
+		this.sessions = sessions;
+		this.writeSessions = Math.round(sessions * writeSessionsFraction);
+	}
+
+	/**
+	 * Sets the time in which all of the sessions must be warmed up, after which the
+	 * warm-up fails.
+	 * @param timeout the timeout. Must be positive.
+	 * @param timeUnit the unit of the timeout.
+	 */
+	public void setTimeout(long timeout, TimeUnit timeUnit) {
+		Assert.isTrue(timeout > 0, "The timeout must be positive.");
+		this.timeoutNanos = timeUnit.toNanos(timeout);
+	}
+
+	/**
+	 * Sets the maximum number of threads that check out sessions. The sessions prepared
+	 * for writes each hold a thread until all of the sessions have been checked out, so
+	 * more threads are used if there are more of them.
+	 * @param maxThreads the maximum number of threads. Must be positive.
+	 */
+	public void setMaxThreads(int maxThreads) {
+		Assert.isTrue(maxThreads > 0, "The maximum number of threads must be positive.");
+		this.maxThreads = maxThreads;
+	}
+
+	/**
+	 * Gets the number of sessions that are warmed up.
+	 * @return the number of sessions.
+	 */
+	public int getSessions() {
+		return this.sessions;
+	}
+
+	/**
+	 * Gets the number of sessions that are prepared for writes.
+	 * @return the number of write sessions.
+	 */
+	public int getWriteSessions() {
+		return this.writeSessions;
+	}
+
+	/**
+	 * Starts the warm-up if it has not been started yet.
+	 * @return a future that completes when all of the sessions have been warmed up, or
+	 * completes exceptionally if the warm-up failed or timed out.
+	 */
+	public synchronized CompletableFuture<Void> warmUp() {
+		if (this.warmUp == null) {
+			// one thread waits for the sessions, and at least one is left for the reads.
+			int threads = Math.min(this.sessions,
+					Math.max(this.maxThreads, this.writeSessions + 1)) + 1;
+			ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+				Thread thread = new Thread(runnable, "spanner-session-warm-up");
+				thread.setDaemon(true);
+				return thread;
+			});
+			this.warmUp = CompletableFuture.runAsync(() -> checkOutSessions(executor),
+					executor);
+			this.warmUp.whenComplete((unused, e) -> executor.shutdown());
+		}
+		return this.warmUp;
+	}
+
+	/**
+	 * Gets the warm-up.
+	 * @return the future of the warm-up, or null if it has not been started.
+	 */
+	public synchronized CompletableFuture<Void> getWarmUp() {
+		return this.warmUp;
+	}
+
+	private void checkOutSessions(ExecutorService executor) {
+		long deadline = System.nanoTime() + this.timeoutNanos;
+		CountDownLatch checkedOut = new CountDownLatch(this.sessions);
+		List<ResultSet> resultSets = new ArrayList<>();
+		AtomicBoolean finished = new AtomicBoolean();
+		List<CompletableFuture<Void>> checkOuts = new ArrayList<>();
+		try {
+			for (int i = 0; i < this.sessions; i++) {
+				checkOuts.add(i < this.writeSessions
+						? CompletableFuture.runAsync(
+								() -> checkOutWriteSession(checkedOut, deadline), executor)
+						: CompletableFuture.runAsync(
+								() -> checkOutReadSession(checkedOut, resultSets, finished),
+								executor));
+			}
+			if (!checkedOut.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+				throw new SpannerDataException("Timed out checking out " + this.sessions
+						+ " Spanner sessions.");
+			}
+			CompletableFuture.allOf(checkOuts.toArray(new CompletableFuture[0]))
+					.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SpannerDataException("Interrupted while warming up Spanner sessions.",
+					e);
+		}
+		catch (ExecutionException | TimeoutException e) {
+			throw new SpannerDataException("Failed to warm up Spanner sessions.", e);
+		}
+		finally {
+			// the sessions of reads are held by their open result sets until now.
+			synchronized (resultSets) {
+				finished.set(true);
+				resultSets.forEach(ResultSet::close);
+			}
+		}
+	}
+
+	private void checkOutReadSession(CountDownLatch checkedOut, List<ResultSet> resultSets,
+			AtomicBoolean finished) {
+		try {
+			ResultSet resultSet = this.databaseClient.singleUse()
+					.executeQuery(WARM_UP_QUERY);
+			synchronized (resultSets) {
+				// a read that finishes after a failed warm-up returns its session at once.
+				if (finished.get()) {
+					resultSet.close();
+					return;
+				}
+				resultSets.add(resultSet);
+			}
+			resultSet.next();
+		}
+		finally {
+			checkedOut.countDown();
+		}
+	}
+
+	private void checkOutWriteSession(CountDownLatch checkedOut, long deadline) {
+		AtomicBoolean counted = new AtomicBoolean();
+		try {
+			this.databaseClient.readWriteTransaction().run(transaction -> {
+				try (ResultSet resultSet = transaction.executeQuery(WARM_UP_QUERY)) {
+					resultSet.next();
+				}
+				if (counted.compareAndSet(false, true)) {
+					checkedOut.countDown();
+				}
+				// the session is held until all of the sessions have been checked out.
+				checkedOut.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+				return null;
+			});
+		}
+		finally {
+			if (counted.compareAndSet(false, true)) {
+				checkedOut.countDown();
+			}
+		}
+	}
+}
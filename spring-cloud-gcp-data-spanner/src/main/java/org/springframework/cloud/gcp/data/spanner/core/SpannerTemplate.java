@@ -16,37 +16,80 @@
 
 package org.springframework.cloud.gcp.data.spanner.core;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.annotation.Nullable;
 
 import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.BatchClient;
+import com.google.cloud.spanner.BatchReadOnlyTransaction;
 import com.google.cloud.spanner.DatabaseClient;
 import com.google.cloud.spanner.Key;
 import com.google.cloud.spanner.KeySet;
 import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.Mutation.Op;
+import com.google.cloud.spanner.Options.QueryOption;
+import com.google.cloud.spanner.Options.ReadOption;
+import com.google.cloud.spanner.Partition;
+import com.google.cloud.spanner.PartitionOptions;
 import com.google.cloud.spanner.ReadContext;
 import com.google.cloud.spanner.ReadOnlyTransaction;
 import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.SpannerException;
 import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.Struct;
 import com.google.cloud.spanner.TimestampBound;
 import com.google.cloud.spanner.TransactionContext;
 import com.google.cloud.spanner.TransactionRunner.TransactionCallable;
+import com.google.cloud.spanner.Value;
+import com.google.cloud.spanner.ValueBinder;
 
+import org.springframework.cloud.gcp.data.spanner.core.convert.MappingSpannerWriteConverter;
 import org.springframework.cloud.gcp.data.spanner.core.convert.SpannerConverter;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerDataException;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerMappingContext;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerPersistentEntity;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerPersistentProperty;
 import org.springframework.cloud.gcp.data.spanner.repository.query.SpannerStatementQueryExecutor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Order;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.Assert;
 
 /**
@@ -55,6 +98,18 @@ import org.springframework.util.Assert;
  */
 public class SpannerTemplate implements SpannerOperations {
 
+	/**
+	 * The default maximum number of mutation cells sent in a single commit, which is the
+	 * per-commit limit enforced by Spanner.
+	 */
+	public static final int DEFAULT_MAX_MUTATION_CELLS_PER_COMMIT = 20000;
+
+	/**
+	 * The default maximum number of partitions of a partitioned read or query that are
+	 * read at the same time.
+	 */
+	public static final int DEFAULT_MAX_CONCURRENT_PARTITIONS = 8;
+
 	private final DatabaseClient databaseClient;
 
 	private final SpannerMappingContext mappingContext;
@@ -63,6 +118,22 @@ public class SpannerTemplate implements SpannerOperations {
 
 	private final SpannerMutationFactory mutationFactory;
 
+	private int maxMutationCellsPerCommit = DEFAULT_MAX_MUTATION_CELLS_PER_COMMIT;
+
+	private BatchClient batchClient;
+
+	private Executor partitionExecutor;
+
+	private Executor concurrentReadExecutor;
+
+	private SpannerEntityCache entityCache;
+
+	private SpannerReadBatcher readBatcher;
+
+	private SpannerMetrics metrics;
+
+	private SpannerDirtyTracker dirtyTracker;
+
 	public SpannerTemplate(DatabaseClient databaseClient,
 			SpannerMappingContext mappingContext, SpannerConverter spannerConverter,
 			SpannerMutationFactory spannerMutationFactory) {
@@ -81,13 +152,33 @@ public class SpannerTemplate implements SpannerOperations {
 	}
 
 	protected ReadContext getReadContext() {
-		return this.databaseClient.singleUse();
+		SpannerTransactionManager.TransactionHolder transaction = SpannerTransactionManager
+				.getCurrentTransaction(this.databaseClient);
+		return transaction != null && transaction.getReadOnlyTransaction() != null
+				? transaction.getReadOnlyTransaction()
+				: this.databaseClient.singleUse();
 	}
 
 	protected ReadContext getReadContext(Timestamp timestamp) {
 		return this.databaseClient.singleUse(TimestampBound.ofReadTimestamp(timestamp));
 	}
 
+	protected ReadContext getReadContext(TimestampBound timestampBound) {
+		return this.databaseClient.singleUse(timestampBound);
+	}
+
+	/**
+	 * Gets the staleness allowed by default for reads of an entity that do not set their
+	 * own timestamp or staleness.
+	 * @param persistentEntity the entity being read. Can be null.
+	 * @return the timestamp bound of stale reads, or null for strong reads.
+	 */
+	protected TimestampBound getStaleReadBound(SpannerPersistentEntity<?> persistentEntity) {
+		// reads in a transaction of a transaction manager are done at its timestamp.
+		return persistentEntity == null || isInManagedTransaction() ? null
+				: persistentEntity.getStaleReadBound();
+	}
+
 	public SpannerMappingContext getMappingContext() {
 		return this.mappingContext;
 	}
@@ -96,6 +187,263 @@ public class SpannerTemplate implements SpannerOperations {
 		return this.spannerConverter;
 	}
 
+	public SpannerMutationFactory getMutationFactory() {
+		return this.mutationFactory;
+	}
+
+	/**
+	 * Sets the maximum number of mutation cells sent in a single commit by the batch
+	 * write operations such as {@link #insertAll(Iterable)}.
+	 * @param maxMutationCellsPerCommit the maximum number of mutation cells per commit.
+	 * Must be positive.
+	 */
+	public void setMaxMutationCellsPerCommit(int maxMutationCellsPerCommit) {
+		Assert.isTrue(maxMutationCellsPerCommit > 0,
+				"The maximum number of mutation cells per commit must be positive.");
+		this.maxMutationCellsPerCommit = maxMutationCellsPerCommit;
+	}
+
+	public int getMaxMutationCellsPerCommit() {
+		return this.maxMutationCellsPerCommit;
+	}
+
+	/**
+	 * Sets the batch client used by the partitioned reads and queries such as
+	 * {@link #readAllPartitioned(Class, SpannerReadOptions)}.
+	 * @param batchClient the batch client for the same database as the database client.
+	 */
+	public void setBatchClient(BatchClient batchClient) {
+		this.batchClient = batchClient;
+	}
+
+	/**
+	 * Sets the executor that reads partitions and maps them to entities in parallel. By
+	 * default, every partitioned read or query reads its partitions on its own threads, at
+	 * most {@link #DEFAULT_MAX_CONCURRENT_PARTITIONS} of them, which are released once
+	 * the partitions are read.
+	 * @param partitionExecutor the executor for partitions. Must not be null.
+	 */
+	public void setPartitionExecutor(Executor partitionExecutor) {
+		Assert.notNull(partitionExecutor, "A valid partition executor is required.");
+		this.partitionExecutor = partitionExecutor;
+	}
+
+	/**
+	 * Sets the executor that runs the reads and queries of
+	 * {@link #readConcurrently(Map, SpannerReadOptions)} and
+	 * {@link #queryConcurrently(Map, SpannerReadOptions)}. Each read blocks a thread of the
+	 * executor until its rows are mapped. By default, every call runs its reads on its
+	 * own threads, one per read, which are released once the reads are done.
+	 * @param concurrentReadExecutor the executor for concurrent reads. Must not be null.
+	 */
+	public void setConcurrentReadExecutor(Executor concurrentReadExecutor) {
+		Assert.notNull(concurrentReadExecutor,
+				"A valid concurrent read executor is required.");
+		this.concurrentReadExecutor = concurrentReadExecutor;
+	}
+
+	/**
+	 * Sets the cache of entities read by key with {@link #read(Class, Key)}. The cache
+	 * holds the rows of the entities, and every read returns a new entity. Entities
+	 * written or deleted through this template are evicted from the cache. Reads with an
+	 * explicit timestamp, staleness, or index, and reads in transactions, bypass the
+	 * cache. No entities are cached by default.
+	 * @param entityCache the entity cache, or null to disable caching.
+	 */
+	public void setEntityCache(SpannerEntityCache entityCache) {
+		this.entityCache = entityCache;
+	}
+
+	public SpannerEntityCache getEntityCache() {
+		return this.entityCache;
+	}
+
+	/**
+	 * Sets the batcher that merges concurrent reads of single keys with
+	 * {@link #read(Class, Key)} into reads of multiple keys. Reads with read options and
+	 * reads in transactions are not batched. Reads are not batched by default.
+	 * @param readBatcher the read batcher, or null to read each key separately.
+	 */
+	public void setReadBatcher(SpannerReadBatcher readBatcher) {
+		this.readBatcher = readBatcher;
+	}
+
+	/**
+	 * Sets the metrics that the durations of operations, the rows they return, and the
+	 * mutations they write are recorded in. Operations are not measured by default.
+	 * @param metrics the metrics, or null to not measure operations.
+	 */
+	public void setMetrics(SpannerMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public SpannerMetrics getMetrics() {
+		return this.metrics;
+	}
+
+	/**
+	 * Sets the tracker of the changes of the entities read by this template. The entities
+	 * returned by reads and queries are tracked, and updates or upserts of tracked
+	 * entities without explicit columns only write their changed columns, or are not
+	 * written at all if nothing changed. Entities are not tracked by
+	 * default.
+	 * @param dirtyTracker the dirty tracker, or null to not track entities.
+	 */
+	public void setDirtyTracker(SpannerDirtyTracker dirtyTracker) {
+		this.dirtyTracker = dirtyTracker;
+	}
+
+	public SpannerDirtyTracker getDirtyTracker() {
+		return this.dirtyTracker;
+	}
+
+	/**
+	 * Gets the entity cache that key reads are served from.
+	 * @return the entity cache, or null if key reads are not cached.
+	 */
+	protected SpannerEntityCache getReadThroughCache() {
+		return isInManagedTransaction() ? null : this.entityCache;
+	}
+
+	/**
+	 * Checks if a {@link SpannerTransactionManager} transaction is bound to the current
+	 * thread for this template's database client.
+	 * @return true if operations are part of a transaction of a transaction manager.
+	 */
+	protected boolean isInManagedTransaction() {
+		return SpannerTransactionManager.getCurrentTransaction(this.databaseClient) != null;
+	}
+
+	/**
+	 * Runs an action once the writes made so far are committed: immediately, or when the
+	 * {@link SpannerTransactionManager} transaction of the writes commits. The action is
+	 * not run if the transaction is rolled back.
+	 * @param action the action to run.
+	 */
+	protected void afterCommit(Runnable action) {
+		if (isInManagedTransaction()
+				&& TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager
+					.registerSynchronization(new TransactionSynchronizationAdapter() {
+						@Override
+						public void afterCommit() {
+							action.run();
+						}
+					});
+		}
+		else {
+			action.run();
+		}
+	}
+
+	/**
+	 * Evicts entities that were written or deleted from the entity cache. The entities
+	 * written in a {@link SpannerTransactionManager} transaction are evicted when the
+	 * transaction completes, because their writes are only visible once it commits.
+	 * @param entityClass the type of the entities.
+	 * @param keys the primary keys of the entities.
+	 */
+	protected void invalidateCachedEntities(Class<?> entityClass, KeySet keys) {
+		SpannerEntityCache cache = this.entityCache;
+		if (cache == null) {
+			return;
+		}
+		if (isInManagedTransaction()
+				&& TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager
+					.registerSynchronization(new TransactionSynchronizationAdapter() {
+						@Override
+						public void afterCompletion(int status) {
+							cache.invalidate(entityClass, keys);
+						}
+					});
+		}
+		else {
+			cache.invalidate(entityClass, keys);
+		}
+	}
+
+	/**
+	 * Reads all of the rows of an entity's table in partitions that are read and mapped to
+	 * entities in parallel. All partitions are read at the same snapshot timestamp. The
+	 * entities of every partition are held in memory until they are consumed, so very
+	 * large tables should be read with
+	 * {@link #readAllPartitioned(Class, SpannerReadOptions, Consumer)} instead.
+	 * @param entityClass the type of the entities.
+	 * @param options the read options, such as the timestamp or the index to read with.
+	 * Can be null. The timestamp is the read timestamp of all partitions.
+	 * @param <T> the type of the entities.
+	 * @return a stream of the entities of all partitions, in partition order.
+	 */
+	public <T> Stream<T> readAllPartitioned(Class<T> entityClass,
+			SpannerReadOptions options) {
+		return mergePartitions(entityClass,
+				options != null && options.hasTimestamp() ? options.getTimestamp() : null,
+				transaction -> partitionReadAll(transaction, entityClass, options), false);
+	}
+
+	/**
+	 * Reads all of the rows of an entity's table in partitions, each of which is read and
+	 * given to the consumer in parallel. All partitions are read at the same snapshot
+	 * timestamp. This method returns after every partition has been consumed.
+	 * @param entityClass the type of the entities.
+	 * @param options the read options, such as the timestamp or the index to read with.
+	 * Can be null. The timestamp is the read timestamp of all partitions.
+	 * @param partitionConsumer receives a stream of the entities of each partition. It is
+	 * called concurrently from the partition executor, and the stream is closed after it
+	 * returns.
+	 * @param <T> the type of the entities.
+	 */
+	public <T> void readAllPartitioned(Class<T> entityClass, SpannerReadOptions options,
+			Consumer<Stream<T>> partitionConsumer) {
+		consumePartitions(entityClass,
+				options != null && options.hasTimestamp() ? options.getTimestamp() : null,
+				transaction -> partitionReadAll(transaction, entityClass, options), false,
+				partitionConsumer);
+	}
+
+	/**
+	 * Executes a root-partitionable query in partitions that are read and mapped to
+	 * entities in parallel. All partitions are read at the same snapshot timestamp. The
+	 * entities of every partition are held in memory until they are consumed, so very
+	 * large results should be read with
+	 * {@link #queryPartitioned(Class, Statement, SpannerQueryOptions, Consumer)} instead.
+	 * @param entityClass the type of the entities.
+	 * @param statement the query. Limits and offsets of the options are not applied.
+	 * @param options the query options. Can be null. The timestamp is the read timestamp
+	 * of all partitions.
+	 * @param <T> the type of the entities.
+	 * @return a stream of the entities of all partitions, in partition order.
+	 */
+	public <T> Stream<T> queryPartitioned(Class<T> entityClass, Statement statement,
+			SpannerQueryOptions options) {
+		return mergePartitions(entityClass,
+				options != null && options.hasTimestamp() ? options.getTimestamp() : null,
+				transaction -> partitionQuery(transaction, statement, options),
+				options != null && options.isAllowPartialRead());
+	}
+
+	/**
+	 * Executes a root-partitionable query in partitions, each of which is read and given
+	 * to the consumer in parallel. All partitions are read at the same snapshot timestamp.
+	 * This method returns after every partition has been consumed.
+	 * @param entityClass the type of the entities.
+	 * @param statement the query. Limits and offsets of the options are not applied.
+	 * @param options the query options. Can be null. The timestamp is the read timestamp
+	 * of all partitions.
+	 * @param partitionConsumer receives a stream of the entities of each partition. It is
+	 * called concurrently from the partition executor, and the stream is closed after it
+	 * returns.
+	 * @param <T> the type of the entities.
+	 */
+	public <T> void queryPartitioned(Class<T> entityClass, Statement statement,
+			SpannerQueryOptions options, Consumer<Stream<T>> partitionConsumer) {
+		consumePartitions(entityClass,
+				options != null && options.hasTimestamp() ? options.getTimestamp() : null,
+				transaction -> partitionQuery(transaction, statement, options),
+				options != null && options.isAllowPartialRead(), partitionConsumer);
+	}
+
 	@Override
 	public <T> T read(Class<T> entityClass, Key key) {
 		return read(entityClass, key, null);
@@ -103,6 +451,37 @@ public class SpannerTemplate implements SpannerOperations {
 
 	@Override
 	public <T> T read(Class<T> entityClass, Key key, SpannerReadOptions options) {
+		SpannerEntityCache cache = getReadThroughCache();
+		boolean cacheable = cache != null && (options == null || (!options.hasTimestamp()
+				&& !options.hasStaleness() && !options.hasIndex()));
+		if (!cacheable) {
+			return readByKey(entityClass, key, options);
+		}
+		Struct row = cache.get(entityClass, key);
+		if (row == null) {
+			// the generation is taken before the read so that an eviction during the read
+			// keeps the row from being cached.
+			long generation = cache.getGeneration(entityClass);
+			row = readRowByKey(entityClass, key, options);
+			if (row != null) {
+				cache.put(entityClass, key, row, generation);
+			}
+		}
+		return row == null ? null : mapRow(entityClass, row);
+	}
+
+	private Struct readRowByKey(Class<?> entityClass, Key key, SpannerReadOptions options) {
+		if (options == null && this.readBatcher != null && !isInManagedTransaction()) {
+			return join(this.readBatcher.readRow(entityClass, key));
+		}
+		List<Struct> rows = readRows(entityClass, KeySet.singleKey(key), options);
+		return rows.isEmpty() ? null : rows.get(0);
+	}
+
+	private <T> T readByKey(Class<T> entityClass, Key key, SpannerReadOptions options) {
+		if (options == null && this.readBatcher != null && !isInManagedTransaction()) {
+			return join(this.readBatcher.read(entityClass, key));
+		}
 		List<T> items = read(entityClass, KeySet.singleKey(key), options);
 		return items.isEmpty() ? null : items.get(0);
 	}
@@ -115,18 +494,62 @@ public class SpannerTemplate implements SpannerOperations {
 	@Override
 	public <T> List<T> read(Class<T> entityClass, KeySet keys,
 			SpannerReadOptions options) {
-		SpannerPersistentEntity<?> persistentEntity = this.mappingContext
-				.getPersistentEntity(entityClass);
-		return this.spannerConverter.mapToList(executeRead(persistentEntity.tableName(),
-				keys, persistentEntity.columns(), options), entityClass);
+		return timed("read", entityClass, () -> {
+			SpannerPersistentEntity<?> persistentEntity = this.mappingContext
+					.getPersistentEntity(entityClass);
+			return trackChanges(recordRows("read", entityClass,
+					this.spannerConverter.mapToList(executeRead(persistentEntity, keys,
+							persistentEntity.columns(), options), entityClass)));
+		});
+	}
+
+	/**
+	 * Reads the rows of entities by key without mapping them to entities.
+	 * @param entityClass the type of the entities.
+	 * @param keys the primary keys of the entities.
+	 * @param options the read options. Can be null.
+	 * @return the rows of the entities.
+	 */
+	List<Struct> readRows(Class<?> entityClass, KeySet keys, SpannerReadOptions options) {
+		return timed("read", entityClass, () -> {
+			SpannerPersistentEntity<?> persistentEntity = this.mappingContext
+					.getPersistentEntity(entityClass);
+			List<Struct> rows = new ArrayList<>();
+			try (ResultSet resultSet = executeRead(persistentEntity, keys,
+					persistentEntity.columns(), options)) {
+				while (resultSet.next()) {
+					rows.add(resultSet.getCurrentRowAsStruct());
+				}
+			}
+			return recordRows("read", entityClass, rows);
+		});
+	}
+
+	/**
+	 * Maps a row read by {@link #readRows} to a new entity, which is tracked by the dirty
+	 * tracker like the entities returned by reads.
+	 * @param entityClass the type of the entity.
+	 * @param row the row of the entity.
+	 * @param <T> the type of the entity.
+	 * @return the entity.
+	 */
+	<T> T mapRow(Class<T> entityClass, Struct row) {
+		T entity = this.spannerConverter.read(entityClass, row);
+		if (this.dirtyTracker != null) {
+			this.dirtyTracker.track(entity);
+		}
+		return entity;
 	}
 
 	@Override
 	public <T> List<T> query(Class<T> entityClass, Statement statement,
 			SpannerQueryOptions options) {
-		return this.spannerConverter.mapToList(executeQuery(statement, options),
-				entityClass, Optional.empty(),
-				options == null ? false : options.isAllowPartialRead());
+		return timed("query", entityClass, () -> trackChanges(recordRows("query",
+				entityClass,
+				this.spannerConverter.mapToList(executeQuery(statement, options,
+						this.mappingContext.getPersistentEntity(entityClass)),
+						entityClass, Optional.empty(),
+						options == null ? false : options.isAllowPartialRead()))));
 	}
 
 	@Override
@@ -134,6 +557,21 @@ public class SpannerTemplate implements SpannerOperations {
 		return query(entityClass, statement, null);
 	}
 
+	@Override
+	public <A> List<A> queryRows(Function<Struct, A> rowFunc, Statement statement,
+			SpannerQueryOptions options) {
+		Assert.notNull(rowFunc, "A valid row function is required.");
+		return timed("query", null, () -> {
+			List<A> results = new ArrayList<>();
+			try (ResultSet resultSet = executeQuery(statement, options, null)) {
+				while (resultSet.next()) {
+					results.add(rowFunc.apply(resultSet.getCurrentRowAsStruct()));
+				}
+			}
+			return recordRows("query", null, results);
+		});
+	}
+
 	@Override
 	public <T> List<T> readAll(Class<T> entityClass, SpannerReadOptions options) {
 		return read(entityClass, KeySet.all(), options);
@@ -144,6 +582,47 @@ public class SpannerTemplate implements SpannerOperations {
 		return readAll(entityClass, (SpannerReadOptions) null);
 	}
 
+	@Override
+	public <T> Stream<T> readStream(Class<T> entityClass, KeySet keys) {
+		return readStream(entityClass, keys, null);
+	}
+
+	@Override
+	public <T> Stream<T> readStream(Class<T> entityClass, KeySet keys,
+			SpannerReadOptions options) {
+		SpannerPersistentEntity<?> persistentEntity = this.mappingContext
+				.getPersistentEntity(entityClass);
+		return timedStream("read", entityClass,
+				() -> this.spannerConverter.mapToStream(executeRead(persistentEntity, keys,
+						persistentEntity.columns(), options), entityClass));
+	}
+
+	@Override
+	public <T> Stream<T> queryStream(Class<T> entityClass, Statement statement) {
+		return queryStream(entityClass, statement, null);
+	}
+
+	@Override
+	public <T> Stream<T> queryStream(Class<T> entityClass, Statement statement,
+			SpannerQueryOptions options) {
+		return timedStream("query", entityClass,
+				() -> this.spannerConverter.mapToStream(executeQuery(statement, options,
+						this.mappingContext.getPersistentEntity(entityClass)),
+						entityClass, Optional.empty(),
+						options == null ? false : options.isAllowPartialRead()));
+	}
+
+	@Override
+	public <T> Stream<T> readAllStream(Class<T> entityClass) {
+		return readAllStream(entityClass, null);
+	}
+
+	@Override
+	public <T> Stream<T> readAllStream(Class<T> entityClass,
+			SpannerReadOptions options) {
+		return readStream(entityClass, KeySet.all(), options);
+	}
+
 	@Override
 	public <T> List<T> queryAll(Class<T> entityClass, Sort sort) {
 		return queryAll(entityClass, sort, null);
@@ -157,13 +636,20 @@ public class SpannerTemplate implements SpannerOperations {
 		StringBuilder stringBuilder = new StringBuilder();
 		SpannerPersistentEntity<?> persistentEntity = this.mappingContext
 				.getPersistentEntity(entityClass);
-		stringBuilder.append("SELECT * FROM " + persistentEntity.tableName() + " ");
+		stringBuilder.append("SELECT "
+				+ SpannerStatementQueryExecutor.getColumnsStringForSelect(persistentEntity,
+						this.mappingContext)
+				+ " FROM " + persistentEntity.tableName() + " ");
 		SpannerStatementQueryExecutor.buildOrderBy(persistentEntity, stringBuilder, sort);
 		if (options != null) {
 			if (options.hasLimit()) {
 				stringBuilder.append(" LIMIT " + options.getLimit());
 			}
-			if (options.hasLimit()) {
+			else if (options.hasOffset()) {
+				// Spanner only allows an OFFSET after a LIMIT.
+				stringBuilder.append(" LIMIT " + Long.MAX_VALUE);
+			}
+			if (options.hasOffset()) {
 				stringBuilder.append(" OFFSET " + options.getOffset());
 			}
 		}
@@ -187,148 +673,1065 @@ public class SpannerTemplate implements SpannerOperations {
 				.setOffset(pageable.getOffset()).setLimit(pageable.getPageSize()));
 	}
 
+	@Override
+	public <T> Slice<T> queryAllAfter(Class<T> entityClass, Sort sort, T lastEntity,
+			int pageSize) {
+		return queryAllAfter(entityClass, sort, lastEntity, pageSize, null);
+	}
+
+	@Override
+	public <T> Slice<T> queryAllAfter(Class<T> entityClass, Sort sort, T lastEntity,
+			int pageSize, SpannerQueryOptions options) {
+		Assert.notNull(sort, "sort must not be null!");
+		Assert.isTrue(pageSize > 0, "The page size must be positive.");
+
+		SpannerPersistentEntity<?> persistentEntity = this.mappingContext
+				.getPersistentEntity(entityClass);
+		Sort keysetSort = getKeysetSort(persistentEntity, sort);
+		Statement.Builder builder = Statement.newBuilder("SELECT "
+				+ SpannerStatementQueryExecutor.getColumnsStringForSelect(persistentEntity,
+						this.mappingContext)
+				+ " FROM " + persistentEntity.tableName() + " ");
+		if (lastEntity != null) {
+			appendSeekCondition(builder, persistentEntity, keysetSort, lastEntity);
+		}
+		StringBuilder orderBy = new StringBuilder();
+		SpannerStatementQueryExecutor.buildOrderBy(persistentEntity, orderBy, keysetSort);
+		// one row more than the page size is read to know if there is a next slice.
+		builder.append(orderBy.toString()).append(" LIMIT " + (pageSize + 1L) + ";");
+
+		List<T> results = query(entityClass, builder.build(), options);
+		boolean hasNext = results.size() > pageSize;
+		return new SliceImpl<>(hasNext ? results.subList(0, pageSize) : results,
+				PageRequest.of(0, pageSize, keysetSort), hasNext);
+	}
+
 	@Override
 	public void insert(Object object) {
-		applyMutationUsingEntity(this.mutationFactory::insert, object);
+		timedRun("insert", object.getClass(), () -> {
+			try {
+				applyMutationTwoArgs((Object entity, Object unused) -> this.mutationFactory
+						.insertWithChildren(entity), object, null);
+			}
+			finally {
+				afterWrite(Collections.singletonList(object), null);
+			}
+		});
 	}
 
 	@Override
 	public void update(Object object) {
-		applyMutationTwoArgs(this.mutationFactory::update, object, null);
+		Set<String> dirtyColumns = getDirtyColumns(object);
+		if (dirtyColumns == null) {
+			update(object, (Optional<Set<String>>) null);
+		}
+		else if (!dirtyColumns.isEmpty()) {
+			update(object, Optional.of(dirtyColumns));
+			refreshSnapshots(Collections.singletonList(object));
+		}
 	}
 
 	@Override
 	public void update(Object object, String... includeColumns) {
-		applyMutationTwoArgs(this.mutationFactory::update, object,
-				includeColumns.length == 0 ? null
-						: Optional.of(new HashSet<>(Arrays.asList(includeColumns))));
+		update(object, includeColumns.length == 0 ? null
+				: Optional.of(new HashSet<>(Arrays.asList(includeColumns))));
 	}
 
 	@Override
 	public void update(Object object, Optional<Set<String>> includeColumns) {
-		applyMutationTwoArgs(this.mutationFactory::update, object, includeColumns);
+		timedRun("update", object.getClass(), () -> {
+			try {
+				applyMutationTwoArgs(this.mutationFactory::updateWithChildren, object,
+						includeColumns);
+			}
+			finally {
+				afterWrite(Collections.singletonList(object),
+						getWrittenColumns(includeColumns));
+			}
+		});
 	}
 
 	@Override
 	public void upsert(Object object) {
-		applyMutationTwoArgs(this.mutationFactory::upsert, object, null);
+		Set<String> dirtyColumns = getDirtyColumns(object);
+		if (dirtyColumns == null) {
+			upsert(object, (Optional<Set<String>>) null);
+		}
+		else if (!dirtyColumns.isEmpty()) {
+			// the row is still upserted, so that it is recreated if it was deleted.
+			upsert(object, Optional.of(dirtyColumns));
+			refreshSnapshots(Collections.singletonList(object));
+		}
 	}
 
 	@Override
 	public void upsert(Object object, String... includeColumns) {
-		applyMutationTwoArgs(this.mutationFactory::upsert, object,
-				includeColumns.length == 0 ? null
-						: Optional.of(new HashSet<>(Arrays.asList(includeColumns))));
+		upsert(object, includeColumns.length == 0 ? null
+				: Optional.of(new HashSet<>(Arrays.asList(includeColumns))));
 	}
 
 	@Override
 	public void upsert(Object object, Optional<Set<String>> includeColumns) {
-		applyMutationTwoArgs(this.mutationFactory::upsert, object, includeColumns);
+		timedRun("upsert", object.getClass(), () -> {
+			try {
+				applyMutationTwoArgs(this.mutationFactory::upsertWithChildren, object,
+						includeColumns);
+			}
+			finally {
+				afterWrite(Collections.singletonList(object),
+						getWrittenColumns(includeColumns));
+			}
+		});
+	}
+
+	@Override
+	public List<Timestamp> insertAll(Iterable<?> objects) {
+		return timed("insert", getEntityClass(objects), () -> {
+			try {
+				return applyMutations(
+						buildMutationGroups(this.mutationFactory::insertWithChildren, objects));
+			}
+			finally {
+				afterWrite(objects, null);
+			}
+		});
+	}
+
+	@Override
+	public List<Timestamp> updateAll(Iterable<?> objects) {
+		return timed("update", getEntityClass(objects), () -> {
+			try {
+				List<Timestamp> commitTimestamps = applyMutations(buildMutationGroups(
+						object -> dirtyWrite(object, this.mutationFactory::updateWithChildren),
+						objects));
+				refreshSnapshots(objects);
+				return commitTimestamps;
+			}
+			finally {
+				afterWrite(objects, null);
+			}
+		});
+	}
+
+	@Override
+	public List<Timestamp> upsertAll(Iterable<?> objects) {
+		return timed("upsert", getEntityClass(objects), () -> {
+			try {
+				List<Timestamp> commitTimestamps = applyMutations(buildMutationGroups(
+						object -> dirtyWrite(object, this.mutationFactory::upsertWithChildren),
+						objects));
+				refreshSnapshots(objects);
+				return commitTimestamps;
+			}
+			finally {
+				afterWrite(objects, null);
+			}
+		});
 	}
 
 	@Override
 	public void delete(Object entity) {
-		applyMutationUsingEntity(this.mutationFactory::delete, entity);
+		timedRun("delete", entity.getClass(), () -> {
+			try {
+				applyDeleteMutation((Object object, Object unused) -> this.mutationFactory
+						.delete(object), entity, null);
+			}
+			finally {
+				afterDelete(entity.getClass(), KeySet.singleKey(getEntityKey(entity)));
+			}
+		});
 	}
 
 	@Override
 	public void delete(Class entityClass, Key key) {
-		applyMutationTwoArgs(this.mutationFactory::delete, entityClass, key);
+		timedRun("delete", entityClass, () -> {
+			try {
+				applyDeleteMutation(this.mutationFactory::delete, entityClass, key);
+			}
+			finally {
+				afterDelete(entityClass, KeySet.singleKey(key));
+			}
+		});
 	}
 
 	@Override
 	public <T> void delete(Class<T> entityClass, Iterable<? extends T> entities) {
-		applyMutationTwoArgs(this.mutationFactory::delete, entityClass, entities);
+		timedRun("delete", entityClass, () -> {
+			try {
+				applyDeleteMutation(this.mutationFactory::delete, entityClass, entities);
+			}
+			finally {
+				KeySet.Builder keys = KeySet.newBuilder();
+				entities.forEach(entity -> keys.addKey(getEntityKey(entity)));
+				afterDelete(entityClass, keys.build());
+			}
+		});
 	}
 
 	@Override
 	public void delete(Class entityClass, KeySet keys) {
-		applyMutationTwoArgs(this.mutationFactory::delete, entityClass, keys);
+		timedRun("delete", entityClass, () -> {
+			try {
+				applyDeleteMutation(this.mutationFactory::delete, entityClass, keys);
+			}
+			finally {
+				afterDelete(entityClass, keys);
+			}
+		});
 	}
 
 	@Override
 	public long count(Class entityClass) {
-		SpannerPersistentEntity<?> persistentEntity = this.mappingContext
-				.getPersistentEntity(entityClass);
-		Statement statement = Statement.of(String.format(
-				"select count(*) from %s", persistentEntity.tableName()));
-		try (ResultSet resultSet = executeQuery(statement, null)) {
-			resultSet.next();
-			return resultSet.getLong(0);
-		}
+		return timed("count", entityClass, () -> {
+			SpannerPersistentEntity<?> persistentEntity = this.mappingContext
+					.getPersistentEntity(entityClass);
+			Statement statement = Statement.of(String.format(
+					"select count(*) from %s", persistentEntity.tableName()));
+			try (ResultSet resultSet = executeQuery(statement, null, persistentEntity)) {
+				resultSet.next();
+				return resultSet.getLong(0);
+			}
+		});
 	}
 
 	@Override
 	public <T> T performReadWriteTransaction(Function<SpannerTemplate, T> operations) {
-		return this.databaseClient.readWriteTransaction()
-				.run(new TransactionCallable<T>() {
-					@Nullable
-					@Override
-					public T run(TransactionContext transaction) throws Exception {
-						ReadWriteTransactionSpannerTemplate transactionSpannerTemplate =
-								new ReadWriteTransactionSpannerTemplate(
-								SpannerTemplate.this.databaseClient,
-								SpannerTemplate.this.mappingContext,
-								SpannerTemplate.this.spannerConverter,
-								SpannerTemplate.this.mutationFactory, transaction);
-						return operations.apply(transactionSpannerTemplate);
-					}
-				});
+		if (isInManagedTransaction()) {
+			// the operations join the transaction of the transaction manager, so that their
+			// mutations are committed or rolled back with it.
+			return operations.apply(this);
+		}
+		return timed("readWriteTransaction", null,
+				() -> runReadWriteTransaction(operations));
+	}
+
+	private <T> T runReadWriteTransaction(Function<SpannerTemplate, T> operations) {
+		AtomicReference<ReadWriteTransactionSpannerTemplate> lastAttempt =
+				new AtomicReference<>();
+		AtomicInteger attempts = new AtomicInteger();
+		try {
+			T result = this.databaseClient.readWriteTransaction()
+					.run(new TransactionCallable<T>() {
+						@Nullable
+						@Override
+						public T run(TransactionContext transaction) throws Exception {
+							if (attempts.incrementAndGet() > 1
+									&& SpannerTemplate.this.metrics != null) {
+								SpannerTemplate.this.metrics.recordTransactionRetry();
+							}
+							ReadWriteTransactionSpannerTemplate transactionSpannerTemplate =
+									new ReadWriteTransactionSpannerTemplate(
+									SpannerTemplate.this.databaseClient,
+									SpannerTemplate.this.mappingContext,
+									SpannerTemplate.this.spannerConverter,
+									SpannerTemplate.this.mutationFactory, transaction);
+							transactionSpannerTemplate.setMaxMutationCellsPerCommit(
+									SpannerTemplate.this.maxMutationCellsPerCommit);
+							transactionSpannerTemplate.setEntityCache(
+									SpannerTemplate.this.entityCache);
+							transactionSpannerTemplate
+									.setMetrics(SpannerTemplate.this.metrics);
+							transactionSpannerTemplate
+									.setDirtyTracker(SpannerTemplate.this.dirtyTracker);
+							lastAttempt.set(transactionSpannerTemplate);
+							return operations.apply(transactionSpannerTemplate);
+						}
+					});
+			// only the attempt that was committed is completed.
+			lastAttempt.get().runAfterCommitActions();
+			return result;
+		}
+		finally {
+			// entities are only evicted after the commit, so that the entities written by
+			// the transaction are not read into the cache again before they are visible.
+			ReadWriteTransactionSpannerTemplate transactionSpannerTemplate = lastAttempt
+					.get();
+			if (transactionSpannerTemplate != null) {
+				transactionSpannerTemplate.invalidateWrittenEntities();
+			}
+		}
 	}
 
 	@Override
 	public <T> T performReadOnlyTransaction(Function<SpannerTemplate, T> operations,
 			SpannerReadOptions readOptions) {
+		return timed("readOnlyTransaction", null,
+				() -> runReadOnlyTransaction(operations, readOptions));
+	}
+
+	private <T> T runReadOnlyTransaction(Function<SpannerTemplate, T> operations,
+			SpannerReadOptions readOptions) {
 		SpannerReadOptions options = readOptions == null ? new SpannerReadOptions()
 				: readOptions;
-		try (ReadOnlyTransaction readOnlyTransaction = options.hasTimestamp()
-				? this.databaseClient.readOnlyTransaction(
-						TimestampBound.ofReadTimestamp(options.getTimestamp()))
-				: this.databaseClient.readOnlyTransaction()) {
-			return operations.apply(new ReadOnlyTransactionSpannerTemplate(
+		TimestampBound timestampBound = null;
+		if (options.hasTimestamp()) {
+			timestampBound = TimestampBound.ofReadTimestamp(options.getTimestamp());
+		}
+		else if (options.hasStaleness()) {
+			timestampBound = options.getStaleness();
+			// only an exact staleness is allowed for multi-use read-only transactions.
+			if (timestampBound.getMode() != TimestampBound.Mode.EXACT_STALENESS) {
+				throw new SpannerDataException("Read-only transactions only support an "
+						+ "exact staleness, because all of their reads must be at the same "
+						+ "timestamp. A max staleness can only be used for single reads: "
+						+ timestampBound);
+			}
+		}
+		try (ReadOnlyTransaction readOnlyTransaction = timestampBound == null
+				? this.databaseClient.readOnlyTransaction()
+				: this.databaseClient.readOnlyTransaction(timestampBound)) {
+			ReadOnlyTransactionSpannerTemplate transactionSpannerTemplate =
+					new ReadOnlyTransactionSpannerTemplate(
 					SpannerTemplate.this.databaseClient,
 					SpannerTemplate.this.mappingContext,
 					SpannerTemplate.this.spannerConverter,
-					SpannerTemplate.this.mutationFactory, readOnlyTransaction));
+					SpannerTemplate.this.mutationFactory, readOnlyTransaction);
+			transactionSpannerTemplate.setMetrics(this.metrics);
+			transactionSpannerTemplate.setDirtyTracker(this.dirtyTracker);
+			return operations.apply(transactionSpannerTemplate);
 		}
 	}
 
-	private ResultSet executeRead(String tableName, KeySet keys, Iterable<String> columns,
-			SpannerReadOptions options) {
-		if (options == null) {
-			return getReadContext().read(tableName, keys, columns);
+	@Override
+	public SpannerReadResults readConcurrently(Map<Class<?>, KeySet> keys,
+			SpannerReadOptions readOptions) {
+		return runConcurrently(keys, (transactionOperations, entityClass,
+				keySet) -> transactionOperations.read(entityClass, keySet), readOptions);
+	}
+
+	@Override
+	public SpannerReadResults queryConcurrently(Map<Class<?>, Statement> statements,
+			SpannerReadOptions readOptions) {
+		return runConcurrently(statements, (transactionOperations, entityClass,
+				statement) -> transactionOperations.query(entityClass, statement),
+				readOptions);
+	}
+
+	private <A> SpannerReadResults runConcurrently(Map<Class<?>, A> reads,
+			ConcurrentRead<A> concurrentRead, SpannerReadOptions readOptions) {
+		Assert.notEmpty(reads, "At least one entity type to read is required.");
+		return performReadOnlyTransaction(transactionOperations -> {
+			Map<Class<?>, CompletableFuture<List<?>>> futures = new LinkedHashMap<>();
+			ExecutorService ownExecutor = this.concurrentReadExecutor != null ? null
+					: newReadExecutor(reads.size(), "spanner-concurrent-read");
+			Executor executor = ownExecutor != null ? ownExecutor
+					: this.concurrentReadExecutor;
+			try {
+				reads.forEach((entityClass, read) -> futures.put(entityClass,
+						CompletableFuture.supplyAsync(() -> concurrentRead
+								.read(transactionOperations, entityClass, read),
+								executor)));
+			}
+			finally {
+				if (ownExecutor != null) {
+					// the submitted reads still run, and the threads end after them.
+					ownExecutor.shutdown();
+				}
+			}
+			// all of the reads must finish before the transaction is closed.
+			CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0]))
+					.handle((unused, e) -> null).join();
+			Map<Class<?>, List<?>> entities = new LinkedHashMap<>();
+			futures.forEach((entityClass, future) -> entities.put(entityClass,
+					join(future)));
+			return new SpannerReadResults(entities,
+					((ReadOnlyTransactionSpannerTemplate) transactionOperations)
+							.getReadTimestamp());
+		}, readOptions);
+	}
+
+	/**
+	 * Appends the primary key columns that are not already sorted on to a sort, so that
+	 * the order of the rows is total and a row can be sought by its sort values.
+	 */
+	private static Sort getKeysetSort(SpannerPersistentEntity<?> persistentEntity,
+			Sort sort) {
+		Sort keysetSort = sort;
+		for (SpannerPersistentProperty keyProperty : persistentEntity
+				.getPrimaryKeyProperties()) {
+			if (sort.getOrderFor(keyProperty.getName()) == null) {
+				keysetSort = keysetSort.and(Sort.by(Order.asc(keyProperty.getName())));
+			}
 		}
-		else {
-			ReadContext readContext = (options.hasTimestamp()
-					? getReadContext(options.getTimestamp())
-					: getReadContext());
-			if (options.hasIndex()) {
-				return readContext.readUsingIndex(tableName, options.getIndex(), keys,
-						columns, options.getReadOptions());
+		return keysetSort;
+	}
+
+	/**
+	 * Appends a WHERE clause matching the rows after an entity in a sort order, in the
+	 * form {@code (c1>@seek0) OR (c1=@seek0 AND c2>@seek1) OR ...}, with the comparison
+	 * reversed for descending columns. Spanner sorts NULL before all other values.
+	 */
+	private void appendSeekCondition(Statement.Builder builder,
+			SpannerPersistentEntity<?> persistentEntity, Sort sort, Object lastEntity) {
+		PersistentPropertyAccessor accessor = persistentEntity
+				.getPropertyAccessor(lastEntity);
+		List<String> precedingEqualities = new ArrayList<>();
+		StringJoiner seekCondition = new StringJoiner(" OR ");
+		for (Order order : sort) {
+			SpannerPersistentProperty property = persistentEntity
+					.getPersistentProperty(order.getProperty());
+			if (property == null) {
+				throw new SpannerDataException(
+						"The sort property is not a property of the entity: "
+								+ order.getProperty());
+			}
+			String column = property.getColumnName();
+			Object value = accessor.getProperty(property);
+			String after;
+			String equality;
+			if (value == null) {
+				after = order.isAscending() ? column + " IS NOT NULL" : "FALSE";
+				equality = column + " IS NULL";
+			}
+			else {
+				String tag = "seek" + precedingEqualities.size();
+				bindSeekValue(builder.bind(tag), property, value);
+				after = order.isAscending() ? column + ">@" + tag
+						: "( " + column + "<@" + tag + " OR " + column + " IS NULL )";
+				equality = column + "=@" + tag;
 			}
-			return readContext.read(tableName, keys, columns,
-							options.getReadOptions());
+			StringJoiner conjunction = new StringJoiner(" AND ", "( ", " )");
+			precedingEqualities.forEach(conjunction::add);
+			conjunction.add(after);
+			seekCondition.add(conjunction.toString());
+			precedingEqualities.add(equality);
+		}
+		builder.append("WHERE " + seekCondition.toString() + " ");
+	}
+
+	private void bindSeekValue(ValueBinder<Statement.Builder> valueBinder,
+			SpannerPersistentProperty property, Object value) {
+		Class spannerType = this.spannerConverter.getSpannerJavaType(value.getClass(),
+				false);
+		BiFunction toMethod = spannerType == null ? null
+				: MappingSpannerWriteConverter.singleItemType2ToMethodMap.get(spannerType);
+		if (toMethod == null) {
+			throw new SpannerDataException(
+					"The sort property cannot be used to seek rows: " + property.getName());
+		}
+		toMethod.apply(valueBinder, spannerType == value.getClass() ? value
+				: this.spannerConverter.convert(value, spannerType));
+	}
+
+	private List<Partition> partitionReadAll(BatchReadOnlyTransaction transaction,
+			Class<?> entityClass, SpannerReadOptions options) {
+		SpannerPersistentEntity<?> persistentEntity = this.mappingContext
+				.getPersistentEntity(entityClass);
+		ReadOption[] readOptions = options == null ? new ReadOption[0]
+				: options.getReadOptions();
+		if (options != null && options.hasIndex()) {
+			return transaction.partitionReadUsingIndex(
+					PartitionOptions.getDefaultInstance(), persistentEntity.tableName(),
+					options.getIndex(), KeySet.all(), persistentEntity.columns(),
+					readOptions);
 		}
+		return transaction.partitionRead(PartitionOptions.getDefaultInstance(),
+				persistentEntity.tableName(), KeySet.all(), persistentEntity.columns(),
+				readOptions);
 	}
 
-	private ResultSet executeQuery(Statement statement, SpannerQueryOptions options) {
+	private List<Partition> partitionQuery(BatchReadOnlyTransaction transaction,
+			Statement statement, SpannerQueryOptions options) {
+		return transaction.partitionQuery(PartitionOptions.getDefaultInstance(),
+				statement,
+				options == null ? new QueryOption[0] : options.getQueryOptions());
+	}
+
+	private BatchReadOnlyTransaction beginBatchReadOnlyTransaction(Timestamp timestamp) {
+		Assert.state(this.batchClient != null,
+				"A batch client is required for partitioned reads and queries.");
+		return this.batchClient.batchReadOnlyTransaction(timestamp == null
+				? TimestampBound.strong() : TimestampBound.ofReadTimestamp(timestamp));
+	}
+
+	private <T> Stream<T> mergePartitions(Class<T> entityClass, Timestamp timestamp,
+			Function<BatchReadOnlyTransaction, List<Partition>> partitioner,
+			boolean allowPartialRead) {
+		BatchReadOnlyTransaction transaction = beginBatchReadOnlyTransaction(timestamp);
+		List<CompletableFuture<List<T>>> partitionResults;
+		try {
+			partitionResults = executePartitions(transaction,
+					partitioner.apply(transaction), entityClass, allowPartialRead,
+					entities -> entities.collect(Collectors.toList()));
+		}
+		catch (RuntimeException e) {
+			transaction.close();
+			throw e;
+		}
+		// the session is released once every partition has been read.
+		CompletableFuture.allOf(partitionResults.toArray(new CompletableFuture[0]))
+				.whenComplete((unused, error) -> transaction.close());
+		return partitionResults.stream()
+				.flatMap(partitionResult -> join(partitionResult).stream());
+	}
+
+	private <T> void consumePartitions(Class<T> entityClass, Timestamp timestamp,
+			Function<BatchReadOnlyTransaction, List<Partition>> partitioner,
+			boolean allowPartialRead, Consumer<Stream<T>> partitionConsumer) {
+		Assert.notNull(partitionConsumer, "A valid partition consumer is required.");
+		try (BatchReadOnlyTransaction transaction = beginBatchReadOnlyTransaction(
+				timestamp)) {
+			List<CompletableFuture<Void>> partitionResults = executePartitions(
+					transaction, partitioner.apply(transaction), entityClass,
+					allowPartialRead, entities -> {
+						partitionConsumer.accept(entities);
+						return null;
+					});
+			join(CompletableFuture
+					.allOf(partitionResults.toArray(new CompletableFuture[0])));
+		}
+	}
+
+	private <T, R> List<CompletableFuture<R>> executePartitions(
+			BatchReadOnlyTransaction transaction, List<Partition> partitions,
+			Class<T> entityClass, boolean allowPartialRead,
+			Function<Stream<T>, R> partitionFunction) {
+		List<CompletableFuture<R>> partitionResults = new ArrayList<>();
+		ExecutorService ownExecutor = this.partitionExecutor != null ? null
+				: newReadExecutor(Math.max(1,
+						Math.min(partitions.size(), DEFAULT_MAX_CONCURRENT_PARTITIONS)),
+						"spanner-partition-read");
+		Executor executor = ownExecutor != null ? ownExecutor : this.partitionExecutor;
+		try {
+			for (Partition partition : partitions) {
+				partitionResults.add(CompletableFuture.supplyAsync(() -> {
+					try (Stream<T> entities = this.spannerConverter.mapToStream(
+							transaction.execute(partition), entityClass, Optional.empty(),
+							allowPartialRead)) {
+						return partitionFunction.apply(entities);
+					}
+				}, executor));
+			}
+		}
+		finally {
+			if (ownExecutor != null) {
+				// the submitted partitions still run, and the threads end after them.
+				ownExecutor.shutdown();
+			}
+		}
+		return partitionResults;
+	}
+
+	/**
+	 * Creates an executor of daemon threads for reads that block on Spanner, so that they
+	 * do not hold the threads of a shared pool meant for computation.
+	 */
+	private static ExecutorService newReadExecutor(int threads, String threadName) {
+		return Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, threadName);
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	private static <R> R join(CompletableFuture<R> result) {
+		try {
+			return result.join();
+		}
+		catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Gets the read context for a read or query. An explicit timestamp takes precedence
+	 * over an explicit staleness, which takes precedence over the staleness of the entity.
+	 */
+	private ReadContext getReadContext(Timestamp timestamp, TimestampBound staleness,
+			SpannerPersistentEntity<?> persistentEntity) {
+		if (timestamp != null) {
+			return getReadContext(timestamp);
+		}
+		TimestampBound timestampBound = staleness != null ? staleness
+				: getStaleReadBound(persistentEntity);
+		return timestampBound == null ? getReadContext() : getReadContext(timestampBound);
+	}
+
+	private ResultSet executeRead(SpannerPersistentEntity<?> persistentEntity, KeySet keys,
+			Iterable<String> columns, SpannerReadOptions options) {
+		String tableName = persistentEntity.tableName();
+		if (persistentEntity.getInterleavedProperties().iterator().hasNext()) {
+			return executeReadWithChildren(persistentEntity, keys, options);
+		}
+		ReadContext readContext = getReadContext(
+				options != null && options.hasTimestamp() ? options.getTimestamp() : null,
+				options != null && options.hasStaleness() ? options.getStaleness() : null,
+				persistentEntity);
+		if (options != null && options.hasIndex()) {
+			return readContext.readUsingIndex(tableName, options.getIndex(), keys,
+					columns, options.getReadOptions());
+		}
+		return options == null ? readContext.read(tableName, keys, columns)
+				: readContext.read(tableName, keys, columns, options.getReadOptions());
+	}
+
+	/**
+	 * Reads rows by key with a query, so that the child entities of interleaved properties
+	 * are read in the same statement as their parents.
+	 */
+	private ResultSet executeReadWithChildren(SpannerPersistentEntity<?> persistentEntity,
+			KeySet keys, SpannerReadOptions options) {
+		if (options != null && (options.hasIndex() || options.getReadOptions().length > 0)) {
+			throw new SpannerDataException("Reads using an index or read options are not "
+					+ "supported for entities with interleaved properties: "
+					+ persistentEntity.getType());
+		}
+		Statement statement = SpannerStatementQueryExecutor
+				.buildReadStatement(persistentEntity, keys, this.mappingContext);
+		return getReadContext(
+				options != null && options.hasTimestamp() ? options.getTimestamp() : null,
+				options != null && options.hasStaleness() ? options.getStaleness() : null,
+				persistentEntity).executeQuery(statement);
+	}
+
+	private ResultSet executeQuery(Statement statement, SpannerQueryOptions options,
+			SpannerPersistentEntity<?> persistentEntity) {
 		if (options == null) {
-			return getReadContext().executeQuery(statement);
+			return getReadContext(null, null, persistentEntity).executeQuery(statement);
 		}
 		else {
-			return (options.hasTimestamp() ? getReadContext(options.getTimestamp())
-					: getReadContext()).executeQuery(statement,
-							options.getQueryOptions());
+			return getReadContext(options.hasTimestamp() ? options.getTimestamp() : null,
+					options.hasStaleness() ? options.getStaleness() : null,
+					persistentEntity).executeQuery(statement, options.getQueryOptions());
 		}
 	}
 
-	protected <T, U> void applyMutationTwoArgs(BiFunction<T, U, Mutation> function,
+	/**
+	 * Commits the mutations of a single write, such as the mutations of an entity and its
+	 * child entities, in one commit.
+	 * @param function the function that creates the mutations from the arguments.
+	 * @param arg1 the first argument.
+	 * @param arg2 the second argument.
+	 */
+	protected <T, U> void applyMutationTwoArgs(BiFunction<T, U, List<Mutation>> function,
 			T arg1,
 			U arg2) {
-		this.databaseClient.write(Arrays.asList(function.apply(arg1, arg2)));
+		List<Mutation> mutations = function.apply(arg1, arg2);
+		recordMutations(mutations);
+		SpannerTransactionManager.TransactionHolder transaction = SpannerTransactionManager
+				.getCurrentTransaction(this.databaseClient);
+		if (transaction != null) {
+			transaction.buffer(mutations);
+		}
+		else {
+			this.databaseClient.write(mutations);
+		}
+	}
+
+	private <T, U> void applyDeleteMutation(BiFunction<T, U, Mutation> function, T arg1,
+			U arg2) {
+		applyMutationTwoArgs((T t, U u) -> Collections.singletonList(function.apply(t, u)),
+				arg1, arg2);
+	}
+
+	/**
+	 * Commits the given groups of mutations using as few commits as possible, keeping each
+	 * commit within the maximum number of mutation cells. The mutations of a group are
+	 * always committed together. In a transaction of a {@link SpannerTransactionManager}
+	 * the mutations are buffered into the transaction instead.
+	 * @param mutationGroups the groups of mutations to commit, in order.
+	 * @return the commit timestamp of each group of mutations, in order, or an empty list
+	 * if the mutations were buffered. The timestamp of an empty group is null.
+	 * @throws SpannerBatchWriteException if a commit fails after the preceding commits
+	 * succeeded, with the commit timestamps of the groups that were committed.
+	 */
+	protected List<Timestamp> applyMutations(List<List<Mutation>> mutationGroups) {
+		mutationGroups.forEach(this::recordMutations);
+		SpannerTransactionManager.TransactionHolder transaction = SpannerTransactionManager
+				.getCurrentTransaction(this.databaseClient);
+		if (transaction != null) {
+			mutationGroups.forEach(transaction::buffer);
+			return Collections.emptyList();
+		}
+		List<List<List<Mutation>>> chunks = SpannerMutationUtils.partition(mutationGroups,
+				this.maxMutationCellsPerCommit);
+		List<Timestamp> commitTimestamps = new ArrayList<>();
+		for (int i = 0; i < chunks.size(); i++) {
+			List<List<Mutation>> chunk = chunks.get(i);
+			List<Mutation> mutations = new ArrayList<>();
+			chunk.forEach(mutations::addAll);
+			try {
+				Timestamp commitTimestamp = mutations.isEmpty() ? null
+						: this.databaseClient.write(mutations);
+				chunk.forEach(group -> commitTimestamps
+						.add(group.isEmpty() ? null : commitTimestamp));
+			}
+			catch (SpannerException e) {
+				throw new SpannerBatchWriteException(String.format(
+						"Failed to commit chunk %d of %d. The first %d of %d entities were committed.",
+						i + 1, chunks.size(), commitTimestamps.size(),
+						mutationGroups.size()), e, commitTimestamps);
+			}
+		}
+		return commitTimestamps;
+	}
+
+	/**
+	 * Called after entities were inserted, updated, or upserted, whether or not the write
+	 * succeeded. Evicts the entities, the child entities written with them, and the parent
+	 * entities whose interleaved properties include them, from the entity cache.
+	 * @param entities the written entities.
+	 * @param columns the written columns of the entities, or null if all of their columns
+	 * were written.
+	 */
+	protected void afterWrite(Iterable<?> entities, Set<String> columns) {
+		if (this.entityCache == null || entities == null) {
+			return;
+		}
+		Map<Class<?>, KeySet.Builder> keys = new LinkedHashMap<>();
+		for (Object entity : entities) {
+			addWrittenKeys(entity, columns, keys);
+		}
+		keys.forEach((entityClass, entityKeys) -> invalidateCachedEntities(entityClass,
+				entityKeys.build()));
+	}
+
+	/**
+	 * Called after entities were deleted, whether or not the delete succeeded. Evicts the
+	 * entities from the entity cache, all of the entities of their interleaved child
+	 * types, whose rows are deleted with their parents, and the parent entities whose
+	 * interleaved properties include them.
+	 * @param entityClass the type of the entities.
+	 * @param keys the primary keys of the deleted entities.
+	 */
+	protected void afterDelete(Class<?> entityClass, KeySet keys) {
+		invalidateCachedEntities(entityClass, keys);
+		if (this.entityCache == null) {
+			return;
+		}
+		for (Class<?> childClass : getDescendantTypes(entityClass)) {
+			invalidateCachedEntities(childClass, KeySet.all());
+		}
+		Map<Class<?>, KeySet.Builder> parentKeys = new LinkedHashMap<>();
+		if (keys.isAll() || keys.getRanges().iterator().hasNext()) {
+			// the parents of the deleted keys in ranges are not known.
+			for (Class<?> parentClass : getAncestorTypes(entityClass)) {
+				parentKeys.put(parentClass, KeySet.newBuilder().setAll());
+			}
+		}
+		else {
+			for (Key key : keys.getKeys()) {
+				addParentKeys(entityClass, key, parentKeys);
+			}
+		}
+		parentKeys.forEach((parentClass, entityKeys) -> invalidateCachedEntities(
+				parentClass, entityKeys.build()));
+	}
+
+	/**
+	 * Gets the interleaved properties of other entity types whose child entities are of a
+	 * type. The rows of the child entities are read with their parents, so writes of the
+	 * child entities change the parent entities as well.
+	 * @param entityClass the type of the child entities.
+	 * @return the interleaved properties, whose owners are the parent entity types.
+	 */
+	protected List<SpannerPersistentProperty> getParentProperties(Class<?> entityClass) {
+		List<SpannerPersistentProperty> parentProperties = new ArrayList<>();
+		for (SpannerPersistentEntity<?> persistentEntity : this.mappingContext
+				.getPersistentEntities()) {
+			for (SpannerPersistentProperty interleavedProperty : persistentEntity
+					.getInterleavedProperties()) {
+				if (interleavedProperty.getColumnInnerType() == entityClass) {
+					parentProperties.add(interleavedProperty);
+				}
+			}
+		}
+		return parentProperties;
+	}
+
+	/**
+	 * Gets the primary key of the parent of an interleaved child entity, which is a prefix
+	 * of the primary key of the child.
+	 * @param parentEntity the type of the parent entity.
+	 * @param key the primary key of the child entity.
+	 * @return the primary key of the parent entity.
+	 */
+	protected static Key getParentKey(SpannerPersistentEntity<?> parentEntity, Key key) {
+		int parentKeySize = parentEntity.getPrimaryKeyProperties().length;
+		Key.Builder builder = Key.newBuilder();
+		Iterator<Object> parts = key.getParts().iterator();
+		for (int i = 0; i < parentKeySize && parts.hasNext(); i++) {
+			builder.appendObject(parts.next());
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Gets the entity types that have interleaved properties of an entity type, and the
+	 * entity types that have interleaved properties of those in turn.
+	 * @param entityClass the entity type.
+	 * @return the parent types, in no particular order.
+	 */
+	protected Set<Class<?>> getAncestorTypes(Class<?> entityClass) {
+		Set<Class<?>> ancestorTypes = new LinkedHashSet<>();
+		for (SpannerPersistentProperty parentProperty : getParentProperties(entityClass)) {
+			Class<?> parentClass = parentProperty.getOwner().getType();
+			if (ancestorTypes.add(parentClass)) {
+				ancestorTypes.addAll(getAncestorTypes(parentClass));
+			}
+		}
+		return ancestorTypes;
+	}
+
+	private void addParentKeys(Class<?> entityClass, Key key,
+			Map<Class<?>, KeySet.Builder> keys) {
+		for (SpannerPersistentProperty parentProperty : getParentProperties(entityClass)) {
+			SpannerPersistentEntity<?> parentEntity =
+					(SpannerPersistentEntity<?>) parentProperty.getOwner();
+			Key parentKey = getParentKey(parentEntity, key);
+			keys.computeIfAbsent(parentEntity.getType(), unused -> KeySet.newBuilder())
+					.addKey(parentKey);
+			addParentKeys(parentEntity.getType(), parentKey, keys);
+		}
+	}
+
+	/**
+	 * Calls an action for each child entity written with an entity, which are the
+	 * elements of its written interleaved properties.
+	 * @param entity the written entity.
+	 * @param columns the written columns of the entity, or null if all of its columns were
+	 * written.
+	 * @param action the action to call for each child entity.
+	 */
+	protected void forEachWrittenChild(Object entity, Set<String> columns,
+			Consumer<Object> action) {
+		SpannerPersistentEntity<?> persistentEntity = this.mappingContext
+				.getPersistentEntity(entity.getClass());
+		PersistentPropertyAccessor accessor = null;
+		for (SpannerPersistentProperty interleavedProperty : persistentEntity
+				.getInterleavedProperties()) {
+			if (columns != null && !columns.contains(interleavedProperty.getColumnName())) {
+				continue;
+			}
+			accessor = accessor == null ? persistentEntity.getPropertyAccessor(entity)
+					: accessor;
+			Iterable<?> children = (Iterable<?>) accessor.getProperty(interleavedProperty);
+			if (children != null) {
+				for (Object child : children) {
+					if (child != null) {
+						action.accept(child);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the types of the interleaved properties of an entity type, and of their
+	 * interleaved properties in turn.
+	 * @param entityClass the entity type.
+	 * @return the child types, in no particular order.
+	 */
+	protected Set<Class<?>> getDescendantTypes(Class<?> entityClass) {
+		Set<Class<?>> descendantTypes = new LinkedHashSet<>();
+		addDescendantTypes(entityClass, descendantTypes);
+		return descendantTypes;
+	}
+
+	private void addDescendantTypes(Class<?> entityClass, Set<Class<?>> descendantTypes) {
+		for (SpannerPersistentProperty interleavedProperty : this.mappingContext
+				.getPersistentEntity(entityClass).getInterleavedProperties()) {
+			Class<?> childClass = interleavedProperty.getColumnInnerType();
+			if (descendantTypes.add(childClass)) {
+				addDescendantTypes(childClass, descendantTypes);
+			}
+		}
+	}
+
+	private void addWrittenKeys(Object entity, Set<String> columns,
+			Map<Class<?>, KeySet.Builder> keys) {
+		Key key = getEntityKey(entity);
+		keys.computeIfAbsent(entity.getClass(), unused -> KeySet.newBuilder()).addKey(key);
+		// the cached parents of the entity include it in their interleaved properties.
+		addParentKeys(entity.getClass(), key, keys);
+		// the child entities are written with all of their columns.
+		forEachWrittenChild(entity, columns, child -> addWrittenKeys(child, null, keys));
+	}
+
+	/**
+	 * Gets the primary key of an entity.
+	 * @param entity the entity.
+	 * @return the primary key.
+	 */
+	protected Key getEntityKey(Object entity) {
+		SpannerPersistentEntity<?> persistentEntity = this.mappingContext
+				.getPersistentEntity(entity.getClass());
+		return (Key) persistentEntity.getPropertyAccessor(entity)
+				.getProperty(persistentEntity.getIdProperty());
+	}
+
+	/**
+	 * Records the number of mutations of each table and operation in the metrics.
+	 * @param mutations the mutations committed or buffered by a single write.
+	 */
+	protected void recordMutations(List<Mutation> mutations) {
+		if (this.metrics == null) {
+			return;
+		}
+		Map<Op, Map<String, Integer>> counts = new EnumMap<>(Op.class);
+		for (Mutation mutation : mutations) {
+			counts.computeIfAbsent(mutation.getOperation(), unused -> new LinkedHashMap<>())
+					.merge(mutation.getTable(), 1, Integer::sum);
+		}
+		counts.forEach((op, tableCounts) -> tableCounts.forEach(
+				(table, count) -> this.metrics.recordMutations(
+						op == Op.INSERT_OR_UPDATE ? "upsert" : op.name().toLowerCase(Locale.ROOT),
+						table, count)));
+	}
+
+	private <R> R timed(String operation, Class<?> entityClass, Supplier<R> action) {
+		if (this.metrics == null) {
+			return action.get();
+		}
+		long startNanos = System.nanoTime();
+		boolean success = false;
+		try {
+			R result = action.get();
+			success = true;
+			return result;
+		}
+		finally {
+			this.metrics.recordOperation(operation, entityClass, getTableName(entityClass),
+					System.nanoTime() - startNanos, success);
+		}
+	}
+
+	/**
+	 * Measures a stream from when it is opened until it is closed, and records the number
+	 * of rows that were consumed from it.
+	 */
+	private <T> Stream<T> timedStream(String operation, Class<T> entityClass,
+			Supplier<Stream<T>> action) {
+		if (this.metrics == null) {
+			return action.get();
+		}
+		long startNanos = System.nanoTime();
+		Stream<T> stream;
+		try {
+			stream = action.get();
+		}
+		catch (RuntimeException e) {
+			this.metrics.recordOperation(operation, entityClass, getTableName(entityClass),
+					System.nanoTime() - startNanos, false);
+			throw e;
+		}
+		AtomicLong rows = new AtomicLong();
+		return stream.peek(unused -> rows.incrementAndGet()).onClose(() -> {
+			String table = getTableName(entityClass);
+			this.metrics.recordOperation(operation, entityClass, table,
+					System.nanoTime() - startNanos, true);
+			this.metrics.recordRows(operation, entityClass, table, rows.get());
+		});
+	}
+
+	private void timedRun(String operation, Class<?> entityClass, Runnable action) {
+		timed(operation, entityClass, () -> {
+			action.run();
+			return null;
+		});
+	}
+
+	private <R> List<R> recordRows(String operation, Class<?> entityClass, List<R> rows) {
+		if (this.metrics != null) {
+			this.metrics.recordRows(operation, entityClass, getTableName(entityClass),
+					rows.size());
+		}
+		return rows;
+	}
+
+	private String getTableName(Class<?> entityClass) {
+		return entityClass == null ? null
+				: this.mappingContext.getPersistentEntity(entityClass).tableName();
+	}
+
+	private static Class<?> getEntityClass(Iterable<?> objects) {
+		Iterator<?> iterator = objects == null ? null : objects.iterator();
+		return iterator != null && iterator.hasNext() ? iterator.next().getClass() : null;
+	}
+
+	/**
+	 * Gets the columns to write to update an entity tracked by the dirty tracker: its
+	 * changed columns and its primary key columns.
+	 * @return the columns to write, which are empty if nothing changed, or null if the
+	 * entity is not tracked.
+	 */
+	private Set<String> getDirtyColumns(Object entity) {
+		Set<String> changedColumns = this.dirtyTracker == null ? null
+				: this.dirtyTracker.getChangedColumns(entity);
+		if (changedColumns != null && !changedColumns.isEmpty()) {
+			for (SpannerPersistentProperty keyProperty : this.mappingContext
+					.getPersistentEntity(entity.getClass()).getPrimaryKeyProperties()) {
+				changedColumns.add(keyProperty.getColumnName());
+			}
+		}
+		return changedColumns;
+	}
+
+	/**
+	 * Gets the mutations of an entity in a multi-entity update or upsert. Tracked entities
+	 * are written in only their changed columns.
+	 */
+	private List<Mutation> dirtyWrite(Object entity,
+			BiFunction<Object, Optional<Set<String>>, List<Mutation>> mutations) {
+		Set<String> dirtyColumns = getDirtyColumns(entity);
+		if (dirtyColumns == null) {
+			return mutations.apply(entity, null);
+		}
+		return dirtyColumns.isEmpty() ? Collections.emptyList()
+				: mutations.apply(entity, Optional.of(dirtyColumns));
+	}
+
+	private <T> List<T> trackChanges(List<T> entities) {
+		if (this.dirtyTracker != null) {
+			entities.forEach(this.dirtyTracker::track);
+		}
+		return entities;
+	}
+
+	/**
+	 * Takes new snapshots of the tracked entities after they were written. The snapshots
+	 * only replace the previous ones once the write is committed, so that the changes of
+	 * a transaction that is rolled back or retried are written again by the next update.
+	 */
+	private void refreshSnapshots(Iterable<?> entities) {
+		SpannerDirtyTracker tracker = this.dirtyTracker;
+		if (tracker == null) {
+			return;
+		}
+		Map<Object, Map<String, Value>> snapshots = new IdentityHashMap<>();
+		for (Object entity : entities) {
+			if (tracker.isTracked(entity)) {
+				snapshots.put(entity, tracker.takeSnapshot(entity));
+			}
+		}
+		if (!snapshots.isEmpty()) {
+			afterCommit(() -> snapshots.forEach(tracker::track));
+		}
+	}
+
+	private static Set<String> getWrittenColumns(Optional<Set<String>> includeColumns) {
+		return includeColumns == null ? null : includeColumns.orElse(null);
+	}
+
+	private List<List<Mutation>> buildMutationGroups(
+			Function<Object, List<Mutation>> function, Iterable<?> objects) {
+		Assert.notNull(objects, "A non-null list of objects is required.");
+		List<List<Mutation>> mutationGroups = new ArrayList<>();
+		for (Object object : objects) {
+			mutationGroups.add(function.apply(object));
+		}
+		return mutationGroups;
 	}
 
-	private <T> void applyMutationUsingEntity(Function<T, Mutation> function, T arg) {
-		applyMutationTwoArgs((T t, Object unused) -> function.apply(t), arg, null);
+	/**
+	 * Reads the entities of a type in the read-only transaction of concurrent reads.
+	 * @param <A> the type of the keys or statement that the entities are read with.
+	 */
+	@FunctionalInterface
+	private interface ConcurrentRead<A> {
+		List<?> read(SpannerTemplate transactionOperations, Class<?> entityClass, A read);
 	}
 }
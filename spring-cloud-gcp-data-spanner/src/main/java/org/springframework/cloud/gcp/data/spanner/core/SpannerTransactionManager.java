@@ -0,0 +1,195 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.data.spanner.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.ReadOnlyTransaction;
+import com.google.cloud.spanner.SpannerException;
+
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerDataException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.SmartTransactionObject;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+/**
+ * A Spring transaction manager that lets the {@link SpannerTemplate} operations of
+ * separate methods, such as {@code @Transactional} service methods, share one Spanner
+ * transaction.
+ *
+ * <p>The mutations of the template's writes in a read-write transaction are buffered and
+ * sent in a single commit when the transaction commits, and are discarded if it rolls
+ * back. Because the Spanner client only runs read-write transactions inside a callback,
+ * reads in a read-write transaction are strong reads that take no locks; use
+ * {@link SpannerOperations#performReadWriteTransaction} outside of a managed transaction
+ * for read-modify-write operations that must not conflict with concurrent writes. Inside
+ * a managed transaction, {@link SpannerOperations#performReadWriteTransaction} joins it.
+ * Read-only transactions are mapped to a Spanner {@link ReadOnlyTransaction}, so that
+ * all of their reads are at the same timestamp, and cannot perform writes.
+ *
+ * @author Chengyuan Zhao
+ */
+public class SpannerTransactionManager extends AbstractPlatformTransactionManager {
+
+	private final DatabaseClient databaseClient;
+
+	/**
+	 * Constructor
+	 * @param databaseClient the database client of the templates whose operations take
+	 * part in the transactions.
+	 */
+	public SpannerTransactionManager(DatabaseClient databaseClient) {
+		Assert.notNull(databaseClient, "A valid database client is required.");
+		this.databaseClient = databaseClient;
+	}
+
+	/**
+	 * Gets the transaction of a database client that is bound to the current thread.
+	 * @param databaseClient the database client.
+	 * @return the transaction, or null if there is none.
+	 */
+	static TransactionHolder getCurrentTransaction(DatabaseClient databaseClient) {
+		return (TransactionHolder) TransactionSynchronizationManager
+				.getResource(databaseClient);
+	}
+
+	@Override
+	protected Object doGetTransaction() {
+		return new TransactionObject(getCurrentTransaction(this.databaseClient));
+	}
+
+	@Override
+	protected boolean isExistingTransaction(Object transaction) {
+		return ((TransactionObject) transaction).holder != null;
+	}
+
+	@Override
+	protected void doBegin(Object transaction, TransactionDefinition definition) {
+		TransactionHolder holder = new TransactionHolder(definition.isReadOnly()
+				? this.databaseClient.readOnlyTransaction()
+				: null);
+		((TransactionObject) transaction).holder = holder;
+		TransactionSynchronizationManager.bindResource(this.databaseClient, holder);
+	}
+
+	@Override
+	protected Object doSuspend(Object transaction) {
+		((TransactionObject) transaction).holder = null;
+		return TransactionSynchronizationManager.unbindResource(this.databaseClient);
+	}
+
+	@Override
+	protected void doResume(Object transaction, Object suspendedResources) {
+		TransactionSynchronizationManager.bindResource(this.databaseClient,
+				suspendedResources);
+	}
+
+	@Override
+	protected void doCommit(DefaultTransactionStatus status) {
+		TransactionHolder holder = ((TransactionObject) status.getTransaction()).holder;
+		if (holder.mutations.isEmpty()) {
+			return;
+		}
+		try {
+			this.databaseClient.write(holder.mutations);
+		}
+		catch (SpannerException e) {
+			throw new TransactionSystemException(
+					"Failed to commit the buffered mutations of the transaction.", e);
+		}
+	}
+
+	@Override
+	protected void doRollback(DefaultTransactionStatus status) {
+		((TransactionObject) status.getTransaction()).holder.mutations.clear();
+	}
+
+	@Override
+	protected void doSetRollbackOnly(DefaultTransactionStatus status) {
+		((TransactionObject) status.getTransaction()).holder.rollbackOnly = true;
+	}
+
+	@Override
+	protected void doCleanupAfterCompletion(Object transaction) {
+		TransactionHolder holder = ((TransactionObject) transaction).holder;
+		TransactionSynchronizationManager.unbindResource(this.databaseClient);
+		if (holder.readOnlyTransaction != null) {
+			holder.readOnlyTransaction.close();
+		}
+	}
+
+	/**
+	 * The state of a transaction that is shared by the templates of its thread.
+	 */
+	static final class TransactionHolder {
+
+		private final ReadOnlyTransaction readOnlyTransaction;
+
+		private final List<Mutation> mutations = new ArrayList<>();
+
+		private boolean rollbackOnly;
+
+		TransactionHolder(ReadOnlyTransaction readOnlyTransaction) {
+			this.readOnlyTransaction = readOnlyTransaction;
+		}
+
+		/**
+		 * Gets the read-only transaction that reads are done in.
+		 * @return the read-only transaction, or null for a read-write transaction.
+		 */
+		ReadOnlyTransaction getReadOnlyTransaction() {
+			return this.readOnlyTransaction;
+		}
+
+		void buffer(Iterable<Mutation> mutations) {
+			if (this.readOnlyTransaction != null) {
+				throw new SpannerDataException(
+						"A read-only transaction cannot perform mutations.");
+			}
+			mutations.forEach(this.mutations::add);
+		}
+	}
+
+	/**
+	 * The transaction object of a transaction status.
+	 */
+	private static final class TransactionObject implements SmartTransactionObject {
+
+		private TransactionHolder holder;
+
+		TransactionObject(TransactionHolder holder) {
+			this.holder = holder;
+		}
+
+		@Override
+		public boolean isRollbackOnly() {
+			return this.holder != null && this.holder.rollbackOnly;
+		}
+
+		@Override
+		public void flush() {
+			// mutations are only sent when the transaction commits.
+		}
+	}
+}
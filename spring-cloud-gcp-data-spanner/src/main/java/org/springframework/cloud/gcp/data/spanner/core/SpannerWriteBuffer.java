@@ -0,0 +1,335 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.data.spanner.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.KeySet;
+import com.google.cloud.spanner.Mutation;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerDataException;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerPersistentEntity;
+import org.springframework.util.Assert;
+
+/**
+ * Buffers writes of independent entities from many threads and commits them in groups
+ * through a {@link SpannerTemplate}. A group is committed when the flush interval after
+ * the first buffered write ends or when the maximum number of mutations is buffered,
+ * whichever comes first. Each write returns a future of its commit timestamp.
+ *
+ * <p>Writes wait for space when the buffer holds its capacity of writes. Writes are
+ * committed one group at a time, in the order they were buffered. If a group fails to
+ * commit, each of its writes is retried in a commit of its own, so that a failed write
+ * does not fail the others.
+ *
+ * <p>Closing the buffer, which a Spring context does when the buffer is a bean, commits
+ * the buffered writes and rejects any further writes. The scheduler is not shut down.
+ *
+ * @author Chengyuan Zhao
+ */
+public class SpannerWriteBuffer implements DisposableBean {
+
+	/**
+	 * The default interval after which buffered writes are committed, in milliseconds.
+	 */
+	public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 50;
+
+	/**
+	 * The default maximum number of mutations committed in a single group.
+	 */
+	public static final int DEFAULT_MAX_BATCH_MUTATIONS = 1000;
+
+	private final SpannerTemplate spannerTemplate;
+
+	private final ScheduledExecutorService scheduler;
+
+	private final Semaphore capacity;
+
+	private final Queue<PendingWrite> pendingWrites = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger pendingMutations = new AtomicInteger();
+
+	private final AtomicBoolean windowOpen = new AtomicBoolean();
+
+	private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+	private final Object flushLock = new Object();
+
+	private volatile boolean closed;
+
+	private volatile ScheduledFuture<?> scheduledFlush;
+
+	private long flushIntervalNanos = TimeUnit.MILLISECONDS
+			.toNanos(DEFAULT_FLUSH_INTERVAL_MILLIS);
+
+	private int maxBatchMutations = DEFAULT_MAX_BATCH_MUTATIONS;
+
+	/**
+	 * Constructor
+	 * @param spannerTemplate the template that commits the buffered writes.
+	 * @param scheduler the scheduler that ends the flush intervals and commits the writes.
+	 * @param capacity the maximum number of buffered writes. Must be positive.
+	 */
+	public SpannerWriteBuffer(SpannerTemplate spannerTemplate,
+			ScheduledExecutorService scheduler, int capacity) {
+		Assert.notNull(spannerTemplate, "A valid Spanner template is required.");
+		Assert.notNull(scheduler, "A valid scheduler is required.");
+		Assert.isTrue(capacity > 0, "The capacity of the buffer must be positive.");
+		this.spannerTemplate = spannerTemplate;
+		this.scheduler = scheduler;
+		this.capacity = new Semaphore(capacity);
+	}
+
+	/**
+	 * Sets the interval after the first buffered write at which the buffered writes are
+	 * committed.
+	 * @param flushInterval the length of the interval. Must not be negative.
+	 * @param timeUnit the unit of the interval.
+	 */
+	public void setFlushInterval(long flushInterval, TimeUnit timeUnit) {
+		Assert.isTrue(flushInterval >= 0, "The flush interval must not be negative.");
+		this.flushIntervalNanos = timeUnit.toNanos(flushInterval);
+	}
+
+	/**
+	 * Sets the maximum number of mutations committed in a single group. Groups are also
+	 * kept within the maximum number of mutation cells per commit of the template.
+	 * @param maxBatchMutations the maximum number of mutations. Must be positive.
+	 */
+	public void setMaxBatchMutations(int maxBatchMutations) {
+		Assert.isTrue(maxBatchMutations > 0,
+				"The maximum number of mutations per batch must be positive.");
+		this.maxBatchMutations = maxBatchMutations;
+	}
+
+	/**
+	 * Buffers the insert of an entity and its interleaved child entities.
+	 * @param entity the entity to insert.
+	 * @return a future of the commit timestamp of the insert.
+	 */
+	public CompletableFuture<Timestamp> insert(Object entity) {
+		return buffer(entity, this.spannerTemplate.getMutationFactory().insertWithChildren(entity));
+	}
+
+	/**
+	 * Buffers the update of an entity and its interleaved child entities.
+	 * @param entity the entity to update.
+	 * @return a future of the commit timestamp of the update.
+	 */
+	public CompletableFuture<Timestamp> update(Object entity) {
+		return buffer(entity,
+				this.spannerTemplate.getMutationFactory().updateWithChildren(entity, null));
+	}
+
+	/**
+	 * Buffers the upsert of an entity and its interleaved child entities.
+	 * @param entity the entity to upsert.
+	 * @return a future of the commit timestamp of the upsert.
+	 */
+	public CompletableFuture<Timestamp> upsert(Object entity) {
+		return buffer(entity,
+				this.spannerTemplate.getMutationFactory().upsertWithChildren(entity, null));
+	}
+
+	/**
+	 * Buffers the delete of an entity.
+	 * @param entity the entity to delete.
+	 * @return a future of the commit timestamp of the delete.
+	 */
+	public CompletableFuture<Timestamp> delete(Object entity) {
+		return buffer(entity, Collections.singletonList(
+				this.spannerTemplate.getMutationFactory().delete(entity)));
+	}
+
+	/**
+	 * Commits all of the buffered writes on the calling thread. If the calling thread is in
+	 * a {@link SpannerTransactionManager} transaction, the writes are buffered in the
+	 * transaction instead, and their futures complete with null timestamps.
+	 */
+	public void flush() {
+		synchronized (this.flushLock) {
+			while (!this.pendingWrites.isEmpty()) {
+				commitBatch();
+			}
+		}
+	}
+
+	/**
+	 * Stops the scheduled commit of the buffered writes, commits them on the calling
+	 * thread, and rejects any further writes.
+	 */
+	public void close() {
+		this.closed = true;
+		ScheduledFuture<?> scheduledFlush = this.scheduledFlush;
+		if (scheduledFlush != null) {
+			scheduledFlush.cancel(false);
+		}
+		flush();
+	}
+
+	@Override
+	public void destroy() {
+		close();
+	}
+
+	private CompletableFuture<Timestamp> buffer(Object entity, List<Mutation> mutations) {
+		if (this.closed) {
+			throw new SpannerDataException("The write buffer is closed.");
+		}
+		try {
+			this.capacity.acquire();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SpannerDataException(
+					"Interrupted while waiting for space in the write buffer.", e);
+		}
+		PendingWrite write = new PendingWrite(entity, mutations);
+		this.pendingWrites.add(write);
+		if (this.pendingMutations.addAndGet(mutations.size()) >= this.maxBatchMutations) {
+			if (this.flushRequested.compareAndSet(false, true)) {
+				this.scheduler.execute(() -> {
+					this.flushRequested.set(false);
+					flush();
+				});
+			}
+		}
+		else if (this.windowOpen.compareAndSet(false, true)) {
+			this.scheduledFlush = this.scheduler.schedule(this::flushAfterInterval,
+					this.flushIntervalNanos, TimeUnit.NANOSECONDS);
+		}
+		if (this.closed) {
+			// the buffer was closed while the write was being buffered.
+			flush();
+		}
+		return write.commitTimestamp;
+	}
+
+	private void flushAfterInterval() {
+		// writes buffered from now on open a new interval.
+		this.windowOpen.set(false);
+		flush();
+	}
+
+	private void commitBatch() {
+		List<PendingWrite> batch = new ArrayList<>();
+		int mutations = 0;
+		int cells = 0;
+		PendingWrite next;
+		while ((next = this.pendingWrites.peek()) != null) {
+			if (!batch.isEmpty()
+					&& (mutations + next.mutations.size() > this.maxBatchMutations
+							|| cells + next.cells > this.spannerTemplate
+									.getMaxMutationCellsPerCommit())) {
+				break;
+			}
+			batch.add(this.pendingWrites.poll());
+			mutations += next.mutations.size();
+			cells += next.cells;
+		}
+		try {
+			commit(batch);
+		}
+		catch (RuntimeException e) {
+			if (batch.size() == 1) {
+				batch.get(0).commitTimestamp.completeExceptionally(e);
+			}
+			else {
+				retryIndividually(batch);
+			}
+		}
+		finally {
+			this.pendingMutations.addAndGet(-mutations);
+			this.capacity.release(batch.size());
+		}
+	}
+
+	private void retryIndividually(List<PendingWrite> batch) {
+		for (PendingWrite write : batch) {
+			try {
+				commit(Collections.singletonList(write));
+			}
+			catch (RuntimeException e) {
+				write.commitTimestamp.completeExceptionally(e);
+			}
+		}
+	}
+
+	private void commit(List<PendingWrite> batch) {
+		List<List<Mutation>> mutationGroups = new ArrayList<>();
+		batch.forEach(write -> mutationGroups.add(write.mutations));
+		List<Timestamp> commitTimestamps;
+		try {
+			commitTimestamps = this.spannerTemplate.applyMutations(mutationGroups);
+		}
+		finally {
+			batch.forEach(this::invalidateCachedEntity);
+		}
+		// no timestamps are returned if the mutations were buffered in a transaction.
+		for (int i = 0; i < batch.size(); i++) {
+			batch.get(i).commitTimestamp.complete(
+					commitTimestamps.isEmpty() ? null : commitTimestamps.get(i));
+		}
+	}
+
+	private void invalidateCachedEntity(PendingWrite write) {
+		SpannerPersistentEntity<?> persistentEntity = this.spannerTemplate
+				.getMappingContext().getPersistentEntity(write.entity.getClass());
+		Key key = (Key) persistentEntity.getPropertyAccessor(write.entity)
+				.getProperty(persistentEntity.getIdProperty());
+		this.spannerTemplate.invalidateCachedEntities(write.entity.getClass(),
+				KeySet.singleKey(key));
+	}
+
+	/**
+	 * The mutations of a buffered write and the future of its commit timestamp.
+	 */
+	private static final class PendingWrite {
+
+		private final Object entity;
+
+		private final List<Mutation> mutations;
+
+		private final int cells;
+
+		private final CompletableFuture<Timestamp> commitTimestamp = new CompletableFuture<>();
+
+		PendingWrite(Object entity, List<Mutation> mutations) {
+			this.entity = entity;
+			this.mutations = mutations;
+			int cells = 0;
+			for (Mutation mutation : mutations) {
+				cells += SpannerMutationUtils.countCells(mutation);
+			}
+			this.cells = cells;
+		}
+	}
+}
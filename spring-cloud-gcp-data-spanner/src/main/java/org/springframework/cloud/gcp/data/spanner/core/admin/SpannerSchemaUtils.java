@@ -80,6 +80,9 @@ public class SpannerSchemaUtils {
 		StringJoiner columnStrings = new StringJoiner(" , ");
 		spannerPersistentEntity.doWithProperties(
 				(PropertyHandler<SpannerPersistentProperty>) spannerPersistentProperty -> {
+					if (spannerPersistentProperty.isInterleaved()) {
+						return;
+					}
 					columnStrings
 							.add(spannerPersistentProperty.getColumnName() + " "
 									+ ConversionUtils.getColumnDDLString(
@@ -28,6 +28,8 @@ import java.util.stream.StreamSupport;
 
 import com.google.cloud.ByteArray;
 import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.Struct;
 import com.google.cloud.spanner.Type;
 import com.google.cloud.spanner.Type.Code;
 import com.google.common.collect.ImmutableMap;
@@ -35,6 +37,7 @@ import com.google.common.collect.ImmutableMap.Builder;
 import com.google.common.collect.ImmutableSet;
 
 import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerDataException;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerPersistentEntity;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerPersistentProperty;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.lang.Nullable;
@@ -240,6 +243,27 @@ public class ConversionUtils {
 				&& !ByteArray.class.isAssignableFrom(propType);
 	}
 
+	/**
+	 * Reads the primary key of an entity from a row that contains its primary key
+	 * columns, without mapping the rest of the row.
+	 * @param persistentEntity the entity whose primary key is read.
+	 * @param row the row.
+	 * @return the primary key.
+	 */
+	public static Key getKey(SpannerPersistentEntity<?> persistentEntity, Struct row) {
+		Key.Builder key = Key.newBuilder();
+		for (SpannerPersistentProperty keyProperty : persistentEntity
+				.getPrimaryKeyProperties()) {
+			int columnIndex = row.getColumnIndex(keyProperty.getColumnName());
+			key.appendObject(row.isNull(columnIndex) ? null
+					: MappingSpannerReadConverter.singleItemReadMethodMapping
+							.get(SPANNER_COLUMN_TYPE_TO_JAVA_TYPE_MAPPING
+									.get(row.getColumnType(columnIndex)))
+							.apply(row, columnIndex));
+		}
+		return key.build();
+	}
+
 	static Iterable convertIterable(Iterable source, Class targetType,
 			AbstractSpannerCustomConverter converter) {
 		return (Iterable) StreamSupport.stream(source.spliterator(), false)
@@ -16,13 +16,18 @@
 
 package org.springframework.cloud.gcp.data.spanner.core.convert;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.google.cloud.ByteArray;
 import com.google.cloud.Timestamp;
@@ -34,6 +39,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 
+import org.springframework.cloud.gcp.data.spanner.core.convert.SpannerEntityRowMapper.BoundRowMapper;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerDataException;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerMappingContext;
 import org.springframework.core.convert.converter.Converter;
@@ -123,16 +129,48 @@ public class MappingSpannerConverter extends AbstractSpannerCustomConverter
 	@Override
 	public <T> List<T> mapToList(ResultSet resultSet, Class<T> entityClass,
 			Optional<Set<String>> includeColumns, boolean allowMissingColumns) {
-		ArrayList<T> result = new ArrayList<>();
-		while (resultSet.next()) {
-			result.add(this.readConverter.read(entityClass,
-					resultSet.getCurrentRowAsStruct(),
-					includeColumns == null || !includeColumns.isPresent() ? null
-							: includeColumns.get(),
-					allowMissingColumns));
+		try (Stream<T> stream = mapToStream(resultSet, entityClass, includeColumns,
+				allowMissingColumns)) {
+			return stream.collect(Collectors.toList());
 		}
-		resultSet.close();
-		return result;
+	}
+
+	@Override
+	public <T> Stream<T> mapToStream(ResultSet resultSet, Class<T> entityClass) {
+		return mapToStream(resultSet, entityClass, Optional.empty(), false);
+	}
+
+	@Override
+	public <T> Stream<T> mapToStream(ResultSet resultSet, Class<T> entityClass,
+			Optional<Set<String>> includeColumns, boolean allowMissingColumns) {
+		Set<String> columns = includeColumns == null || !includeColumns.isPresent() ? null
+				: includeColumns.get();
+		Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(
+				Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+
+			private boolean exhausted;
+
+			private BoundRowMapper<T> rowMapper;
+
+			@Override
+			public boolean tryAdvance(Consumer<? super T> action) {
+				if (this.exhausted || !resultSet.next()) {
+					this.exhausted = true;
+					return false;
+				}
+				Struct row = resultSet.getCurrentRowAsStruct();
+				if (this.rowMapper == null || !this.rowMapper.isBoundTo(row.getType())) {
+					// the rows of a result set share the same type, so columns are usually
+					// resolved only once.
+					this.rowMapper = MappingSpannerConverter.this.readConverter
+							.getRowMapper(entityClass)
+							.bind(row.getType(), columns, allowMissingColumns);
+				}
+				action.accept(this.rowMapper.read(row));
+				return true;
+			}
+		};
+		return StreamSupport.stream(spliterator, false).onClose(resultSet::close);
 	}
 
 	@Override
@@ -16,29 +16,21 @@
 
 package org.springframework.cloud.gcp.data.spanner.core.convert;
 
-import java.lang.reflect.Constructor;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 import com.google.cloud.ByteArray;
 import com.google.cloud.Date;
 import com.google.cloud.Timestamp;
-import com.google.cloud.spanner.AbstractStructReader;
 import com.google.cloud.spanner.Struct;
-import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.StructReader;
 import com.google.common.collect.ImmutableMap;
 
-import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerDataException;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerMappingContext;
-import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerPersistentEntity;
-import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerPersistentProperty;
 import org.springframework.data.convert.CustomConversions;
-import org.springframework.data.mapping.PersistentPropertyAccessor;
-import org.springframework.data.mapping.PropertyHandler;
 
 /**
  * @author Balint Pato
@@ -47,32 +39,34 @@ import org.springframework.data.mapping.PropertyHandler;
 class MappingSpannerReadConverter extends AbstractSpannerCustomConverter
 		implements SpannerEntityReader {
 
-	static final Map<Class, BiFunction<Struct, String, List>> readIterableMapping =
-			new ImmutableMap.Builder<Class, BiFunction<Struct, String, List>>()
-			.put(Boolean.class, AbstractStructReader::getBooleanList)
-			.put(Long.class, AbstractStructReader::getLongList)
-			.put(String.class, AbstractStructReader::getStringList)
-			.put(Double.class, AbstractStructReader::getDoubleList)
-			.put(Timestamp.class, AbstractStructReader::getTimestampList)
-			.put(Date.class, AbstractStructReader::getDateList)
-			.put(ByteArray.class, AbstractStructReader::getBytesList)
+	static final Map<Class, BiFunction<StructReader, Integer, List>> readIterableMapping =
+			new ImmutableMap.Builder<Class, BiFunction<StructReader, Integer, List>>()
+			.put(Boolean.class, StructReader::getBooleanList)
+			.put(Long.class, StructReader::getLongList)
+			.put(String.class, StructReader::getStringList)
+			.put(Double.class, StructReader::getDoubleList)
+			.put(Timestamp.class, StructReader::getTimestampList)
+			.put(Date.class, StructReader::getDateList)
+			.put(ByteArray.class, StructReader::getBytesList)
 			.build();
 
-	static final Map<Class, BiFunction<Struct, String, ?>> singleItemReadMethodMapping =
-			new ImmutableMap.Builder<Class, BiFunction<Struct, String, ?>>()
-			.put(Boolean.class, AbstractStructReader::getBoolean)
-			.put(Long.class, AbstractStructReader::getLong)
-			.put(String.class, AbstractStructReader::getString)
-			.put(Double.class, AbstractStructReader::getDouble)
-			.put(Timestamp.class, AbstractStructReader::getTimestamp)
-			.put(Date.class, AbstractStructReader::getDate)
-			.put(ByteArray.class, AbstractStructReader::getBytes)
-			.put(double[].class, AbstractStructReader::getDoubleArray)
-			.put(long[].class, AbstractStructReader::getLongArray)
-			.put(boolean[].class, AbstractStructReader::getBooleanArray).build();
+	static final Map<Class, BiFunction<StructReader, Integer, ?>> singleItemReadMethodMapping =
+			new ImmutableMap.Builder<Class, BiFunction<StructReader, Integer, ?>>()
+			.put(Boolean.class, StructReader::getBoolean)
+			.put(Long.class, StructReader::getLong)
+			.put(String.class, StructReader::getString)
+			.put(Double.class, StructReader::getDouble)
+			.put(Timestamp.class, StructReader::getTimestamp)
+			.put(Date.class, StructReader::getDate)
+			.put(ByteArray.class, StructReader::getBytes)
+			.put(double[].class, StructReader::getDoubleArray)
+			.put(long[].class, StructReader::getLongArray)
+			.put(boolean[].class, StructReader::getBooleanArray).build();
 
 	private final SpannerMappingContext spannerMappingContext;
 
+	private final Map<Class, SpannerEntityRowMapper> rowMappers = new ConcurrentHashMap<>();
+
 	MappingSpannerReadConverter(
 			SpannerMappingContext spannerMappingContext,
 			CustomConversions customConversions) {
@@ -92,62 +86,7 @@ class MappingSpannerReadConverter extends AbstractSpannerCustomConverter
 	 */
 	public <R> R read(Class<R> type, Struct source, Set<String> includeColumns,
 			boolean allowMissingColumns) {
-		boolean readAllColumns = includeColumns == null;
-		R object = instantiate(type);
-		SpannerPersistentEntity<?> persistentEntity = this.spannerMappingContext
-				.getPersistentEntity(type);
-
-		PersistentPropertyAccessor accessor = persistentEntity
-				.getPropertyAccessor(object);
-
-		persistentEntity.doWithProperties(
-				(PropertyHandler<SpannerPersistentProperty>) spannerPersistentProperty -> {
-					String columnName = spannerPersistentProperty.getColumnName();
-					try {
-						if ((!readAllColumns && !includeColumns.contains(columnName))
-								|| source.isNull(columnName)) {
-							return;
-						}
-					}
-					catch (IllegalArgumentException e) {
-						if (!allowMissingColumns) {
-							throw new SpannerDataException(
-									"Unable to read column from Spanner results: "
-											+ columnName,
-									e);
-						}
-					}
-					Class propType = spannerPersistentProperty.getType();
-
-					boolean valueSet;
-
-					/*
-					 * Due to type erasure, binder methods for Iterable properties must be
-					 * manually specified. ByteArray must be excluded since it implements
-					 * Iterable, but is also explicitly supported by spanner.
-					 */
-					if (ConversionUtils.isIterableNonByteArrayType(propType)) {
-						valueSet = attemptReadIterableValue(spannerPersistentProperty,
-								source, columnName, accessor);
-					}
-					else {
-						Class sourceType = ConversionUtils.SPANNER_COLUMN_TYPE_TO_JAVA_TYPE_MAPPING
-								.get(source.getColumnType(columnName));
-							valueSet = attemptReadSingleItemValue(
-									spannerPersistentProperty, source, sourceType,
-									columnName, accessor);
-					}
-
-					if (!valueSet) {
-						throw new SpannerDataException(String.format(
-								"The value in column with name %s"
-										+ " could not be converted to the corresponding property in the entity."
-										+ " The property's type is %s.",
-								columnName, propType));
-					}
-
-				});
-		return object;
+		return getRowMapper(type).read(source, includeColumns, allowMissingColumns);
 	}
 
 	@Override
@@ -155,81 +94,18 @@ class MappingSpannerReadConverter extends AbstractSpannerCustomConverter
 		return read(type, source, null, false);
 	}
 
-	private boolean attemptReadSingleItemValue(
-			SpannerPersistentProperty spannerPersistentProperty, Struct struct,
-			Class sourceType,
-			String colName, PersistentPropertyAccessor accessor) {
-		Class targetType = spannerPersistentProperty.getType();
-		if (sourceType == null || !canConvert(sourceType, targetType)) {
-			return false;
-		}
-		BiFunction readFunction = singleItemReadMethodMapping
-				.get(ConversionUtils.boxIfNeeded(sourceType));
-		if (readFunction == null) {
-			return false;
-		}
-		accessor.setProperty(spannerPersistentProperty,
-				convert(readFunction.apply(struct, colName), targetType));
-		return true;
-	}
-
-	private boolean attemptReadIterableValue(
-			SpannerPersistentProperty spannerPersistentProperty, Struct struct,
-			String colName, PersistentPropertyAccessor accessor) {
-
-		Class innerType = ConversionUtils.boxIfNeeded(spannerPersistentProperty.getColumnInnerType());
-		if (innerType == null) {
-			return false;
-		}
-
-		// due to checkstyle limit of 3 return statments per function, this variable is
-		// used.
-		boolean valueSet = false;
-
-		if (this.readIterableMapping.containsKey(innerType)) {
-			accessor.setProperty(spannerPersistentProperty,
-					this.readIterableMapping.get(innerType).apply(struct, colName));
-			valueSet = true;
-		}
-
-		if (!valueSet) {
-			for (Class sourceType : this.readIterableMapping.keySet()) {
-				if (canConvert(sourceType, innerType)) {
-					List iterableValue = readIterableMapping.get(sourceType).apply(struct,
-							colName);
-					accessor.setProperty(spannerPersistentProperty, ConversionUtils
-							.convertIterable(iterableValue, innerType, this));
-					valueSet = true;
-					break;
-				}
-			}
-		}
-
-		if (!valueSet && struct.getColumnType(colName).getArrayElementType().getCode() == Type.Code.STRUCT) {
-			List<Struct> iterableValue = struct.getStructList(colName);
-			Iterable convertedIterableValue = (Iterable) StreamSupport.stream(iterableValue.spliterator(), false)
-					.map(item -> read(innerType, item))
-					.collect(Collectors.toList());
-			accessor.setProperty(spannerPersistentProperty, convertedIterableValue);
-			valueSet = true;
-		}
-
-		return valueSet;
-	}
-
-	private static <R> R instantiate(Class<R> type) {
-		R object;
-		try {
-			Constructor<R> constructor = type.getDeclaredConstructor();
-			constructor.setAccessible(true);
-			object = constructor.newInstance();
-		}
-		catch (ReflectiveOperationException e) {
-			throw new SpannerDataException(
-					"Unable to create a new instance of entity using default constructor.",
-					e);
-		}
-		return object;
+	/**
+	 * Gets the row mapper for an entity type, building it the first time the type is
+	 * read.
+	 * @param type the type of the entity.
+	 * @param <R> the type of the entity.
+	 * @return the row mapper for the type.
+	 */
+	@SuppressWarnings("unchecked")
+	<R> SpannerEntityRowMapper<R> getRowMapper(Class<R> type) {
+		return this.rowMappers.computeIfAbsent(type,
+				unused -> new SpannerEntityRowMapper<>(type,
+						this.spannerMappingContext.getPersistentEntity(type), this));
 	}
 
 }
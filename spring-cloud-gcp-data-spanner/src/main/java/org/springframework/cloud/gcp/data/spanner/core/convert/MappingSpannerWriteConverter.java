@@ -18,6 +18,7 @@ package org.springframework.cloud.gcp.data.spanner.core.convert;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 
@@ -30,11 +31,9 @@ import com.google.common.collect.ImmutableMap;
 
 import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerDataException;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerMappingContext;
-import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerPersistentEntity;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerPersistentProperty;
 import org.springframework.data.convert.CustomConversions;
 import org.springframework.data.mapping.PersistentPropertyAccessor;
-import org.springframework.data.mapping.PropertyHandler;
 
 /**
  * @author Balint Pato
@@ -43,7 +42,7 @@ import org.springframework.data.mapping.PropertyHandler;
 public class MappingSpannerWriteConverter extends AbstractSpannerCustomConverter
 		implements SpannerEntityWriter {
 
-	static final Map<Class, BiConsumer<ValueBinder<WriteBuilder>, Iterable>> iterablePropertyType2ToMethodMap;
+	public static final Map<Class, BiConsumer<ValueBinder<WriteBuilder>, Iterable>> iterablePropertyType2ToMethodMap;
 
 	static {
 		// Java 8 has compile errors when using the builder extension methods
@@ -93,6 +92,8 @@ public class MappingSpannerWriteConverter extends AbstractSpannerCustomConverter
 
 	private final SpannerMappingContext spannerMappingContext;
 
+	private final Map<Class, SpannerEntityRowWriter> rowWriters = new ConcurrentHashMap<>();
+
 	MappingSpannerWriteConverter(
 			SpannerMappingContext spannerMappingContext,
 			CustomConversions customConversions) {
@@ -113,25 +114,27 @@ public class MappingSpannerWriteConverter extends AbstractSpannerCustomConverter
 	 * are written.
 	 */
 	public void write(Object source, WriteBuilder sink, Set<String> includeColumns) {
-		boolean writeAllColumns = includeColumns == null;
-		SpannerPersistentEntity<?> persistentEntity = this.spannerMappingContext
-				.getPersistentEntity(source.getClass());
-		PersistentPropertyAccessor accessor = persistentEntity
-				.getPropertyAccessor(source);
-		persistentEntity.doWithProperties(
-				(PropertyHandler<SpannerPersistentProperty>) spannerPersistentProperty -> {
-					if (!writeAllColumns && !includeColumns
-							.contains(spannerPersistentProperty.getColumnName())) {
-						return;
-					}
-					writeProperty(sink, accessor, spannerPersistentProperty);
-				});
+		getRowWriter(source.getClass()).write(source, sink, includeColumns);
+	}
+
+	/**
+	 * Gets the row writer for an entity type, building it the first time the type is
+	 * written.
+	 * @param type the type of the entity.
+	 * @return the row writer for the type.
+	 */
+	SpannerEntityRowWriter getRowWriter(Class type) {
+		return this.rowWriters.computeIfAbsent(type,
+				unused -> new SpannerEntityRowWriter(
+						this.spannerMappingContext.getPersistentEntity(type), this));
 	}
 
 	/**
 	 * <p>
 	 * For each property this method "set"s the column name and finds the corresponding "to"
-	 * method on the {@link ValueBinder} interface
+	 * method on the {@link ValueBinder} interface. The binding is resolved from the runtime
+	 * type of the value on every call, which {@link SpannerEntityRowWriter} relies on for
+	 * values whose type differs from the declared property type.
 	 * </p>
 	 * <pre>
 	 * {
@@ -148,7 +151,7 @@ public class MappingSpannerWriteConverter extends AbstractSpannerCustomConverter
 	 * }
 	 * </pre>
 	 */
-	private void writeProperty(WriteBuilder sink, PersistentPropertyAccessor accessor,
+	void writeProperty(WriteBuilder sink, PersistentPropertyAccessor accessor,
 			SpannerPersistentProperty property) {
 		Object propertyValue = accessor.getProperty(property);
 
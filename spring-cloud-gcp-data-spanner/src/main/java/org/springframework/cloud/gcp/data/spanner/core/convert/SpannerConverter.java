@@ -19,6 +19,7 @@ package org.springframework.cloud.gcp.data.spanner.core.convert;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import com.google.cloud.spanner.ResultSet;
 
@@ -69,6 +70,33 @@ public interface SpannerConverter extends SpannerEntityReader, SpannerEntityWrit
 	<T> List<T> mapToList(ResultSet resultSet, Class<T> entityClass,
 			String... includeColumns);
 
+	/**
+	 * Converts a set of Spanner {@link ResultSet} into a lazily-mapped stream of objects.
+	 * Rows are only read and converted as the stream is consumed.
+	 * @param resultSet The Spanner results to convert. The ResultSet is closed when the
+	 * returned stream is closed.
+	 * @param entityClass The type of the objects the Spanner results represent.
+	 * @param <T> The type of the objects the Spanner results represent.
+	 * @return A stream of objects that must be closed after use.
+	 */
+	<T> Stream<T> mapToStream(ResultSet resultSet, Class<T> entityClass);
+
+	/**
+	 * Converts a set of Spanner {@link ResultSet} into a lazily-mapped stream of objects.
+	 * Rows are only read and converted as the stream is consumed.
+	 * @param resultSet The Spanner results to convert. The ResultSet is closed when the
+	 * returned stream is closed.
+	 * @param entityClass The type of the objects the Spanner results represent.
+	 * @param <T> The type of the objects the Spanner results represent.
+	 * @param includeColumns the Set of columns to read. If the Set is not present or this
+	 * param is null then all columns will be read.
+	 * @param allowMissingColumns if true, then properties with no corresponding column
+	 * are not mapped. If false, then an exception is thrown.
+	 * @return A stream of objects that must be closed after use.
+	 */
+	<T> Stream<T> mapToStream(ResultSet resultSet, Class<T> entityClass,
+			Optional<Set<String>> includeColumns, boolean allowMissingColumns);
+
 	/**
 	 * Returns true if this converter can convert from the source type to the target type.
 	 * @param sourceType the starting type
@@ -0,0 +1,424 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.data.spanner.core.convert;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+import com.google.cloud.spanner.Struct;
+import com.google.cloud.spanner.StructReader;
+import com.google.cloud.spanner.Type;
+
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerDataException;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerPersistentEntity;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerPersistentProperty;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.mapping.PropertyHandler;
+
+/**
+ * Reads rows into instances of a single entity type. The constructor and property
+ * setters are resolved to {@link MethodHandle}s when the mapper is built. The column
+ * index, read function and conversion for each property are resolved once per row type
+ * by {@link #bind(Type, Set, boolean)}, so that rows are read by ordinal.
+ *
+ * @param <T> the type of the entity.
+ *
+ * @author Chengyuan Zhao
+ */
+final class SpannerEntityRowMapper<T> {
+
+	private static final MethodType CONSTRUCTOR_TYPE = MethodType
+			.methodType(Object.class);
+
+	private static final MethodType SETTER_TYPE = MethodType.methodType(void.class,
+			Object.class, Object.class);
+
+	private final SpannerPersistentEntity<?> persistentEntity;
+
+	private final MappingSpannerReadConverter readConverter;
+
+	private final MethodHandle constructor;
+
+	private final ColumnProperty[] columnProperties;
+
+	private final boolean propertyAccessorRequired;
+
+	private volatile BoundRowMapper<T> lastBoundRowMapper;
+
+	SpannerEntityRowMapper(Class<T> type, SpannerPersistentEntity<?> persistentEntity,
+			MappingSpannerReadConverter readConverter) {
+		this.persistentEntity = persistentEntity;
+		this.readConverter = readConverter;
+		this.constructor = findConstructor(type);
+		List<ColumnProperty> properties = new ArrayList<>();
+		persistentEntity.doWithProperties(
+				(PropertyHandler<SpannerPersistentProperty>) property -> properties
+						.add(new ColumnProperty(property, findSetter(property))));
+		this.columnProperties = properties.toArray(new ColumnProperty[0]);
+		boolean anyWithoutSetter = false;
+		for (ColumnProperty columnProperty : this.columnProperties) {
+			anyWithoutSetter |= columnProperty.setter == null;
+		}
+		this.propertyAccessorRequired = anyWithoutSetter;
+	}
+
+	/**
+	 * Reads a single entity from a Spanner row.
+	 * @param source the Spanner row
+	 * @param includeColumns the columns to read. If null then all columns will be read.
+	 * @param allowMissingColumns if true, then properties with no corresponding column
+	 * are not mapped. If false, then an exception is thrown.
+	 * @return the entity
+	 */
+	T read(Struct source, Set<String> includeColumns, boolean allowMissingColumns) {
+		if (includeColumns != null) {
+			return bind(source.getType(), includeColumns, allowMissingColumns).read(source);
+		}
+		BoundRowMapper<T> boundRowMapper = this.lastBoundRowMapper;
+		if (boundRowMapper == null
+				|| !boundRowMapper.isBoundTo(source.getType(), allowMissingColumns)) {
+			boundRowMapper = bind(source.getType(), null, allowMissingColumns);
+			this.lastBoundRowMapper = boundRowMapper;
+		}
+		return boundRowMapper.read(source);
+	}
+
+	/**
+	 * Resolves the column index, read function and conversion of each property for rows
+	 * of the given type.
+	 * @param rowType the struct type of the rows to read.
+	 * @param includeColumns the columns to read. If null then all columns will be read.
+	 * @param allowMissingColumns if true, then properties with no corresponding column
+	 * are not mapped. If false, then an exception is thrown.
+	 * @return a mapper that reads rows of the given type by column index.
+	 */
+	BoundRowMapper<T> bind(Type rowType, Set<String> includeColumns,
+			boolean allowMissingColumns) {
+		List<ColumnProperty> boundProperties = new ArrayList<>();
+		List<Integer> columnIndexes = new ArrayList<>();
+		List<ColumnValueReader> valueReaders = new ArrayList<>();
+		String missingColumnName = null;
+		for (ColumnProperty columnProperty : this.columnProperties) {
+			if (includeColumns != null
+					&& !includeColumns.contains(columnProperty.columnName)) {
+				continue;
+			}
+			int columnIndex = findColumnIndex(rowType, columnProperty.columnName);
+			if (columnIndex < 0 && columnProperty.property.isInterleaved()) {
+				// child entities are only read if the statement selected them.
+				continue;
+			}
+			if (columnIndex < 0 && !allowMissingColumns) {
+				// properties are still read in order until the missing column is reached.
+				missingColumnName = columnProperty.columnName;
+				break;
+			}
+			if (columnIndex < 0) {
+				continue;
+			}
+			boundProperties.add(columnProperty);
+			columnIndexes.add(columnIndex);
+			valueReaders.add(resolveValueReader(columnProperty,
+					rowType.getStructFields().get(columnIndex).getType()));
+		}
+		return new BoundRowMapper<>(this, rowType, allowMissingColumns,
+				boundProperties.toArray(new ColumnProperty[0]),
+				columnIndexes.stream().mapToInt(Integer::intValue).toArray(),
+				valueReaders.toArray(new ColumnValueReader[0]), missingColumnName);
+	}
+
+	private static int findColumnIndex(Type rowType, String columnName) {
+		try {
+			return rowType.getFieldIndex(columnName);
+		}
+		catch (IllegalArgumentException e) {
+			// the column is missing or ambiguous.
+			return -1;
+		}
+	}
+
+	private ColumnValueReader resolveValueReader(ColumnProperty columnProperty,
+			Type columnType) {
+		/*
+		 * Due to type erasure, read methods for Iterable properties must be manually
+		 * specified. ByteArray must be excluded since it implements Iterable, but is also
+		 * explicitly supported by spanner.
+		 */
+		return ConversionUtils.isIterableNonByteArrayType(columnProperty.property.getType())
+				? resolveIterableReader(columnProperty, columnType)
+				: resolveSingleItemReader(columnProperty, columnType);
+	}
+
+	private ColumnValueReader resolveSingleItemReader(ColumnProperty columnProperty,
+			Type columnType) {
+		Class targetType = columnProperty.property.getType();
+		Class sourceType = ConversionUtils.SPANNER_COLUMN_TYPE_TO_JAVA_TYPE_MAPPING
+				.get(columnType);
+		BiFunction<StructReader, Integer, ?> readFunction = sourceType == null ? null
+				: MappingSpannerReadConverter.singleItemReadMethodMapping
+						.get(ConversionUtils.boxIfNeeded(sourceType));
+		if (readFunction == null || !this.readConverter.canConvert(sourceType, targetType)) {
+			return failingReader(columnProperty);
+		}
+		if (!ConversionUtils.boxIfNeeded(sourceType)
+				.equals(ConversionUtils.boxIfNeeded(targetType))) {
+			return (source, index) -> this.readConverter
+					.convert(readFunction.apply(source, index), targetType);
+		}
+		return readFunction::apply;
+	}
+
+	private ColumnValueReader resolveIterableReader(ColumnProperty columnProperty,
+			Type columnType) {
+		Class innerType = ConversionUtils
+				.boxIfNeeded(columnProperty.property.getColumnInnerType());
+		if (innerType == null) {
+			return failingReader(columnProperty);
+		}
+		BiFunction<StructReader, Integer, List> directReadFunction =
+				MappingSpannerReadConverter.readIterableMapping.get(innerType);
+		if (directReadFunction != null) {
+			return directReadFunction::apply;
+		}
+		return resolveConvertingIterableReader(columnProperty, columnType, innerType);
+	}
+
+	private ColumnValueReader resolveConvertingIterableReader(
+			ColumnProperty columnProperty, Type columnType, Class innerType) {
+		for (Class sourceType : MappingSpannerReadConverter.readIterableMapping.keySet()) {
+			if (this.readConverter.canConvert(sourceType, innerType)) {
+				BiFunction<StructReader, Integer, List> readFunction =
+						MappingSpannerReadConverter.readIterableMapping.get(sourceType);
+				return (source, index) -> ConversionUtils.convertIterable(
+						readFunction.apply(source, index), innerType, this.readConverter);
+			}
+		}
+		if (columnType.getCode() == Type.Code.ARRAY
+				&& columnType.getArrayElementType().getCode() == Type.Code.STRUCT) {
+			SpannerEntityRowMapper<?> innerMapper = this.readConverter
+					.getRowMapper(innerType);
+			return (source, index) -> readStructList(innerMapper,
+					source.getStructList(index));
+		}
+		return failingReader(columnProperty);
+	}
+
+	private static List<Object> readStructList(SpannerEntityRowMapper<?> innerMapper,
+			List<Struct> structs) {
+		List<Object> values = new ArrayList<>(structs.size());
+		for (Struct struct : structs) {
+			values.add(innerMapper.read(struct, null, false));
+		}
+		return values;
+	}
+
+	/**
+	 * Creates a reader that fails when a value is actually read, so that a column that
+	 * cannot be converted only fails for rows in which it is not null.
+	 */
+	private static ColumnValueReader failingReader(ColumnProperty columnProperty) {
+		return (source, index) -> {
+			throw new SpannerDataException(String.format(
+					"The value in column with name %s"
+							+ " could not be converted to the corresponding property in the entity."
+							+ " The property's type is %s.",
+					columnProperty.columnName, columnProperty.property.getType()));
+		};
+	}
+
+	@SuppressWarnings("unchecked")
+	private T instantiate() {
+		if (this.constructor == null) {
+			throw new SpannerDataException(
+					"Unable to create a new instance of entity using default constructor.");
+		}
+		try {
+			return (T) this.constructor.invokeExact();
+		}
+		catch (RuntimeException | Error e) {
+			throw e;
+		}
+		catch (Throwable e) {
+			throw new SpannerDataException(
+					"Unable to create a new instance of entity using default constructor.",
+					e);
+		}
+	}
+
+	private static MethodHandle findConstructor(Class<?> type) {
+		try {
+			Constructor<?> constructor = type.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			return MethodHandles.lookup().unreflectConstructor(constructor)
+					.asType(CONSTRUCTOR_TYPE);
+		}
+		catch (ReflectiveOperationException | SecurityException e) {
+			// the error is reported when the first row is read.
+			return null;
+		}
+	}
+
+	/**
+	 * Finds a setter handle equivalent to the property accessor of the entity: the field
+	 * is written directly unless property access is requested.
+	 * @param property the property to set.
+	 * @return the setter handle, or null if the property accessor must be used instead.
+	 */
+	private static MethodHandle findSetter(SpannerPersistentProperty property) {
+		Field field = property.getField();
+		Method setter = property.getSetter();
+		try {
+			if (!property.usePropertyAccess() && field != null) {
+				field.setAccessible(true);
+				return MethodHandles.lookup().unreflectSetter(field).asType(SETTER_TYPE);
+			}
+			if (setter != null) {
+				setter.setAccessible(true);
+				return MethodHandles.lookup().unreflect(setter).asType(SETTER_TYPE);
+			}
+		}
+		catch (ReflectiveOperationException | SecurityException e) {
+			// fall back to the property accessor, which reports its own errors.
+		}
+		return null;
+	}
+
+	/**
+	 * Reads a single column value of a row by column index.
+	 */
+	@FunctionalInterface
+	private interface ColumnValueReader {
+		Object read(StructReader source, int columnIndex);
+	}
+
+	/**
+	 * A property and the handle used to set it.
+	 */
+	private static final class ColumnProperty {
+
+		private final SpannerPersistentProperty property;
+
+		private final String columnName;
+
+		private final MethodHandle setter;
+
+		ColumnProperty(SpannerPersistentProperty property, MethodHandle setter) {
+			this.property = property;
+			this.columnName = property.getColumnName();
+			this.setter = setter;
+		}
+
+		void setProperty(Object object, PersistentPropertyAccessor accessor,
+				Object value) {
+			if (this.setter == null) {
+				accessor.setProperty(this.property, value);
+				return;
+			}
+			try {
+				this.setter.invokeExact(object, value);
+			}
+			catch (RuntimeException | Error e) {
+				throw e;
+			}
+			catch (Throwable e) {
+				throw new SpannerDataException(
+						"Unable to set property from column: " + this.columnName, e);
+			}
+		}
+	}
+
+	/**
+	 * Reads rows of a single struct type into entities using column indexes resolved
+	 * when it was bound.
+	 *
+	 * @param <T> the type of the entity.
+	 */
+	static final class BoundRowMapper<T> {
+
+		private final SpannerEntityRowMapper<T> rowMapper;
+
+		private final Type rowType;
+
+		private final boolean allowMissingColumns;
+
+		private final ColumnProperty[] columnProperties;
+
+		private final int[] columnIndexes;
+
+		private final ColumnValueReader[] valueReaders;
+
+		private final String missingColumnName;
+
+		private BoundRowMapper(SpannerEntityRowMapper<T> rowMapper, Type rowType,
+				boolean allowMissingColumns, ColumnProperty[] columnProperties,
+				int[] columnIndexes, ColumnValueReader[] valueReaders,
+				String missingColumnName) {
+			this.rowMapper = rowMapper;
+			this.rowType = rowType;
+			this.allowMissingColumns = allowMissingColumns;
+			this.columnProperties = columnProperties;
+			this.columnIndexes = columnIndexes;
+			this.valueReaders = valueReaders;
+			this.missingColumnName = missingColumnName;
+		}
+
+		/**
+		 * Reads a single entity from a row of the type this mapper was bound to.
+		 * @param source the Spanner row
+		 * @return the entity
+		 */
+		T read(StructReader source) {
+			T object = this.rowMapper.instantiate();
+			PersistentPropertyAccessor accessor = this.rowMapper.propertyAccessorRequired
+					? this.rowMapper.persistentEntity.getPropertyAccessor(object)
+					: null;
+			for (int i = 0; i < this.columnIndexes.length; i++) {
+				int columnIndex = this.columnIndexes[i];
+				if (!source.isNull(columnIndex)) {
+					this.columnProperties[i].setProperty(object, accessor,
+							this.valueReaders[i].read(source, columnIndex));
+				}
+			}
+			if (this.missingColumnName != null) {
+				throw new SpannerDataException(
+						"Unable to read column from Spanner results: " + this.missingColumnName);
+			}
+			return object;
+		}
+
+		/**
+		 * Checks whether rows of the given type can be read by this mapper.
+		 * @param type the struct type of the row.
+		 * @return true if this mapper was bound to the given row type.
+		 */
+		boolean isBoundTo(Type type) {
+			return this.rowType == type || this.rowType.equals(type);
+		}
+
+		private boolean isBoundTo(Type type, boolean allowMissingColumns) {
+			return this.allowMissingColumns == allowMissingColumns && isBoundTo(type);
+		}
+	}
+}
@@ -0,0 +1,249 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.data.spanner.core.convert;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+import com.google.cloud.spanner.Mutation.WriteBuilder;
+import com.google.cloud.spanner.ValueBinder;
+
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerDataException;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerPersistentEntity;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerPersistentProperty;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.mapping.PropertyHandler;
+
+/**
+ * Writes the properties of a single entity type to a {@link WriteBuilder}. The property
+ * getters are resolved to {@link MethodHandle}s when the writer is built, and the bind
+ * function and conversion for each column are resolved the first time the column is
+ * written and reused for all following entities.
+ *
+ * @author Chengyuan Zhao
+ */
+final class SpannerEntityRowWriter {
+
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class,
+			Object.class);
+
+	private final SpannerPersistentEntity<?> persistentEntity;
+
+	private final MappingSpannerWriteConverter writeConverter;
+
+	private final List<ColumnWriter> columnWriters;
+
+	private final boolean propertyAccessorRequired;
+
+	SpannerEntityRowWriter(SpannerPersistentEntity<?> persistentEntity,
+			MappingSpannerWriteConverter writeConverter) {
+		this.persistentEntity = persistentEntity;
+		this.writeConverter = writeConverter;
+		List<ColumnWriter> writers = new ArrayList<>();
+		persistentEntity.doWithProperties(
+				(PropertyHandler<SpannerPersistentProperty>) property -> {
+					// child entities are written as rows of their own tables.
+					if (!property.isInterleaved()) {
+						writers.add(new ColumnWriter(property, findGetter(property)));
+					}
+				});
+		this.columnWriters = writers;
+		boolean anyWithoutGetter = false;
+		for (ColumnWriter columnWriter : this.columnWriters) {
+			anyWithoutGetter |= columnWriter.getter == null;
+		}
+		this.propertyAccessorRequired = anyWithoutGetter;
+	}
+
+	/**
+	 * Writes an entity's properties to the sink.
+	 * @param source the entity to write
+	 * @param sink the sink to which to write
+	 * @param includeColumns the properties/columns to write. If null, then all columns
+	 * are written.
+	 */
+	void write(Object source, WriteBuilder sink, Set<String> includeColumns) {
+		PersistentPropertyAccessor accessor = this.propertyAccessorRequired
+				? this.persistentEntity.getPropertyAccessor(source)
+				: null;
+		for (ColumnWriter columnWriter : this.columnWriters) {
+			if (includeColumns == null
+					|| includeColumns.contains(columnWriter.columnName)) {
+				columnWriter.write(source, accessor, sink);
+			}
+		}
+	}
+
+	/**
+	 * Finds a getter handle equivalent to the property accessor of the entity: the field
+	 * is read directly unless property access is requested.
+	 * @param property the property to get.
+	 * @return the getter handle, or null if the property accessor must be used instead.
+	 */
+	private static MethodHandle findGetter(SpannerPersistentProperty property) {
+		Field field = property.getField();
+		Method getter = property.getGetter();
+		try {
+			if (!property.usePropertyAccess() && field != null) {
+				field.setAccessible(true);
+				return MethodHandles.lookup().unreflectGetter(field).asType(GETTER_TYPE);
+			}
+			if (getter != null) {
+				getter.setAccessible(true);
+				return MethodHandles.lookup().unreflect(getter).asType(GETTER_TYPE);
+			}
+		}
+		catch (ReflectiveOperationException | SecurityException e) {
+			// fall back to the property accessor, which reports its own errors.
+		}
+		return null;
+	}
+
+	/**
+	 * Writes a single property into a single column.
+	 */
+	private final class ColumnWriter {
+
+		private final SpannerPersistentProperty property;
+
+		private final String columnName;
+
+		private final MethodHandle getter;
+
+		private final boolean iterable;
+
+		private final Class boxedPropertyType;
+
+		private volatile BiConsumer<ValueBinder<WriteBuilder>, Object> binder;
+
+		ColumnWriter(SpannerPersistentProperty property, MethodHandle getter) {
+			this.property = property;
+			this.columnName = property.getColumnName();
+			this.getter = getter;
+			/*
+			 * Due to type erasure, binder methods for Iterable properties must be manually
+			 * specified. ByteArray must be excluded since it implements Iterable, but is
+			 * also explicitly supported by spanner.
+			 */
+			this.iterable = ConversionUtils.isIterableNonByteArrayType(property.getType());
+			this.boxedPropertyType = ConversionUtils.boxIfNeeded(property.getType());
+		}
+
+		void write(Object source, PersistentPropertyAccessor accessor, WriteBuilder sink) {
+			Object value = getProperty(source, accessor);
+			if (value == null) {
+				return;
+			}
+			if (!this.iterable && value.getClass() != this.boxedPropertyType) {
+				// the binding depends on the runtime type of the value, so it cannot be reused.
+				SpannerEntityRowWriter.this.writeConverter.writeProperty(sink,
+						accessor != null ? accessor
+								: SpannerEntityRowWriter.this.persistentEntity
+										.getPropertyAccessor(source),
+						this.property);
+				return;
+			}
+			BiConsumer<ValueBinder<WriteBuilder>, Object> valueBinder = this.binder;
+			if (valueBinder == null) {
+				valueBinder = this.iterable ? resolveIterableBinder()
+						: resolveSingleItemBinder();
+				if (valueBinder == null) {
+					throw new SpannerDataException(String
+							.format("Unsupported mapping for type: %s", value.getClass()));
+				}
+				this.binder = valueBinder;
+			}
+			valueBinder.accept(sink.set(this.columnName), value);
+		}
+
+		private BiConsumer<ValueBinder<WriteBuilder>, Object> resolveSingleItemBinder() {
+			MappingSpannerWriteConverter converter = SpannerEntityRowWriter.this.writeConverter;
+			BiFunction directToMethod = MappingSpannerWriteConverter.singleItemType2ToMethodMap
+					.get(this.boxedPropertyType);
+			if (directToMethod != null) {
+				return (valueBinder, value) -> directToMethod.apply(valueBinder, value);
+			}
+			for (Class targetType : MappingSpannerWriteConverter.singleItemType2ToMethodMap
+					.keySet()) {
+				if (converter.canConvert(this.boxedPropertyType, targetType)) {
+					BiFunction toMethod = MappingSpannerWriteConverter.singleItemType2ToMethodMap
+							.get(targetType);
+					return (valueBinder, value) -> toMethod.apply(valueBinder,
+							converter.convert(value, targetType));
+				}
+			}
+			return null;
+		}
+
+		private BiConsumer<ValueBinder<WriteBuilder>, Object> resolveIterableBinder() {
+			Class innerType = ConversionUtils
+					.boxIfNeeded(this.property.getColumnInnerType());
+			if (innerType == null) {
+				return null;
+			}
+			BiConsumer<ValueBinder<WriteBuilder>, Iterable> directToMethod =
+					MappingSpannerWriteConverter.iterablePropertyType2ToMethodMap
+							.get(innerType);
+			if (directToMethod != null) {
+				return (valueBinder, value) -> directToMethod.accept(valueBinder,
+						(Iterable) value);
+			}
+			return resolveConvertingIterableBinder(innerType);
+		}
+
+		private BiConsumer<ValueBinder<WriteBuilder>, Object> resolveConvertingIterableBinder(
+				Class innerType) {
+			MappingSpannerWriteConverter converter = SpannerEntityRowWriter.this.writeConverter;
+			for (Class targetType : MappingSpannerWriteConverter.iterablePropertyType2ToMethodMap
+					.keySet()) {
+				if (converter.canConvert(innerType, targetType)) {
+					BiConsumer<ValueBinder<WriteBuilder>, Iterable> toMethod =
+							MappingSpannerWriteConverter.iterablePropertyType2ToMethodMap
+									.get(targetType);
+					return (valueBinder, value) -> toMethod.accept(valueBinder,
+							ConversionUtils.convertIterable((Iterable) value, targetType,
+									converter));
+				}
+			}
+			return null;
+		}
+
+		private Object getProperty(Object source, PersistentPropertyAccessor accessor) {
+			if (this.getter == null) {
+				return accessor.getProperty(this.property);
+			}
+			try {
+				return this.getter.invokeExact(source);
+			}
+			catch (RuntimeException | Error e) {
+				throw e;
+			}
+			catch (Throwable e) {
+				throw new SpannerDataException(
+						"Unable to get property for column: " + this.columnName, e);
+			}
+		}
+	}
+}
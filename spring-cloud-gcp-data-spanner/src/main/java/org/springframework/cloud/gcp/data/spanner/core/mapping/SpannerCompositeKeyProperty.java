@@ -85,6 +85,11 @@ public class SpannerCompositeKeyProperty implements SpannerPersistentProperty {
 		return false;
 	}
 
+	@Override
+	public boolean isInterleaved() {
+		return false;
+	}
+
 	@Override
 	public OptionalLong getMaxColumnLength() {
 		return OptionalLong.empty();
@@ -16,6 +16,8 @@
 
 package org.springframework.cloud.gcp.data.spanner.core.mapping;
 
+import com.google.cloud.spanner.TimestampBound;
+
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.data.mapping.model.MutablePersistentEntity;
 
@@ -41,9 +43,22 @@ public interface SpannerPersistentEntity<T>
 	 */
 	Iterable<String> columns();
 
+	/**
+	 * Gets the properties that hold the child entities of interleaved tables.
+	 * @return the interleaved properties, which are empty if the entity has no children.
+	 */
+	Iterable<SpannerPersistentProperty> getInterleavedProperties();
+
 	/**
 	 * Gets the primary key properties in order.
 	 * @return
 	 */
 	SpannerPersistentProperty[] getPrimaryKeyProperties();
+
+	/**
+	 * Gets the staleness allowed for reads of this entity by its {@link StaleRead}
+	 * annotation.
+	 * @return the timestamp bound of stale reads, or null if reads must be strong.
+	 */
+	TimestampBound getStaleReadBound();
 }
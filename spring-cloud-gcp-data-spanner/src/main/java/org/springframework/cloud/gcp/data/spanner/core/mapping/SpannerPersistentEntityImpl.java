@@ -16,13 +16,18 @@
 
 package org.springframework.cloud.gcp.data.spanner.core.mapping;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
+import com.google.cloud.spanner.TimestampBound;
+
 import org.springframework.beans.BeansException;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.expression.BeanFactoryAccessor;
@@ -58,7 +63,10 @@ public class SpannerPersistentEntityImpl<T>
 
 	private final String tableName;
 
-	private final Set<String> columnNames = new HashSet<>();
+	// kept in declaration order so that generated column lists are stable.
+	private final Set<String> columnNames = new LinkedHashSet<>();
+
+	private final List<SpannerPersistentProperty> interleavedProperties = new ArrayList<>();
 
 	private final Expression tableNameExpression;
 
@@ -66,6 +74,8 @@ public class SpannerPersistentEntityImpl<T>
 
 	private final Map<Integer, SpannerPersistentProperty> primaryKeyParts = new HashMap<>();
 
+	private final TimestampBound staleReadBound;
+
 	private StandardEvaluationContext context;
 
 	private SpannerPersistentProperty idProperty;
@@ -85,6 +95,22 @@ public class SpannerPersistentEntityImpl<T>
 		this.table = this.findAnnotation(Table.class);
 		this.tableName = this.hasTableName() ? this.table.name() : fallback;
 		this.tableNameExpression = detectExpression();
+		this.staleReadBound = getStaleReadBound(this.findAnnotation(StaleRead.class));
+	}
+
+	/**
+	 * Gets the timestamp bound for the reads allowed by a {@link StaleRead} annotation.
+	 * @param staleRead the annotation. Can be null.
+	 * @return the timestamp bound, or null if no annotation is given.
+	 */
+	@Nullable
+	public static TimestampBound getStaleReadBound(@Nullable StaleRead staleRead) {
+		if (staleRead == null) {
+			return null;
+		}
+		return staleRead.exact()
+				? TimestampBound.ofExactStaleness(staleRead.seconds(), TimeUnit.SECONDS)
+				: TimestampBound.ofMaxStaleness(staleRead.seconds(), TimeUnit.SECONDS);
 	}
 
 	protected boolean hasTableName() {
@@ -109,6 +135,17 @@ public class SpannerPersistentEntityImpl<T>
 			return;
 		}
 		addPersistentPropertyToPersistentEntity(property);
+		if (property.isInterleaved()) {
+			if (!property.isCollectionLike() || !property.getColumnInnerType()
+					.isAnnotationPresent(Table.class)) {
+				throw new SpannerDataException(
+						"Interleaved properties must be collections of entities annotated "
+								+ "with @Table: " + property.getName());
+			}
+			// child entities are not stored in a column of this entity's table.
+			this.interleavedProperties.add(property);
+			return;
+		}
 		this.columnNames.add(property.getColumnName());
 
 		if (property.getPrimaryKeyOrder() != null
@@ -168,6 +205,11 @@ public class SpannerPersistentEntityImpl<T>
 		return primaryKeyColumns;
 	}
 
+	@Override
+	public TimestampBound getStaleReadBound() {
+		return this.staleReadBound;
+	}
+
 	@Override
 	public String tableName() {
 		return validateTableName(this.tableNameExpression == null
@@ -190,6 +232,11 @@ public class SpannerPersistentEntityImpl<T>
 		return Collections.unmodifiableSet(this.columnNames);
 	}
 
+	@Override
+	public Iterable<SpannerPersistentProperty> getInterleavedProperties() {
+		return Collections.unmodifiableList(this.interleavedProperties);
+	}
+
 	public void setApplicationContext(ApplicationContext applicationContext)
 			throws BeansException {
 		this.context.addPropertyAccessor(new BeanFactoryAccessor());
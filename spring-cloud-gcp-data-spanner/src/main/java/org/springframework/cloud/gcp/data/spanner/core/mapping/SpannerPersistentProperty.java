@@ -64,4 +64,11 @@ public interface SpannerPersistentProperty
 	 * @return True if this property will be mapped to and from Spanner. False otherwise.
 	 */
 	boolean isMapped();
+
+	/**
+	 * True if the property holds the child entities of an interleaved table, which are not
+	 * a column of the entity's own table.
+	 * @return True if the property is annotated with {@link Interleaved}. False otherwise.
+	 */
+	boolean isInterleaved();
 }
@@ -132,6 +132,11 @@ public class SpannerPersistentPropertyImpl
 		return findAnnotation(NotMapped.class) == null;
 	}
 
+	@Override
+	public boolean isInterleaved() {
+		return findAnnotation(Interleaved.class) != null;
+	}
+
 	@Override
 	public OptionalLong getMaxColumnLength() {
 		ColumnLength annotation = findAnnotation(ColumnLength.class);
@@ -0,0 +1,50 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.data.spanner.core.mapping;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation for a {@link SpannerPersistentEntity} or a repository query method that
+ * allows its reads to return stale data, so that they can be served by the nearest
+ * replica instead of waiting for the leader. Reads with an explicit timestamp or
+ * staleness in their options, and reads in transactions, are not affected.
+ *
+ * @author Chengyuan Zhao
+ */
+@Documented
+@Target({ ElementType.TYPE, ElementType.METHOD })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StaleRead {
+
+	/**
+	 * The staleness of the reads in seconds.
+	 * @return the staleness in seconds.
+	 */
+	long seconds();
+
+	/**
+	 * Whether the reads are done exactly at the given staleness, instead of at any
+	 * timestamp no older than it.
+	 * @return true for exact staleness, false for maximum staleness.
+	 */
+	boolean exact() default false;
+}
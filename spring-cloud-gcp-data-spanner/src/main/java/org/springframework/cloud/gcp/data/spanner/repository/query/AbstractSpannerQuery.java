@@ -16,14 +16,22 @@
 
 package org.springframework.cloud.gcp.data.spanner.repository.query;
 
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import com.google.common.annotations.VisibleForTesting;
 
+import org.springframework.cloud.gcp.data.spanner.core.SpannerMetrics;
 import org.springframework.cloud.gcp.data.spanner.core.SpannerOperations;
+import org.springframework.cloud.gcp.data.spanner.core.SpannerQueryOptions;
+import org.springframework.cloud.gcp.data.spanner.core.SpannerTemplate;
 import org.springframework.cloud.gcp.data.spanner.core.convert.ConversionUtils;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerMappingContext;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.StaleRead;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.repository.query.QueryMethod;
 import org.springframework.data.repository.query.RepositoryQuery;
 
@@ -40,6 +48,8 @@ abstract class AbstractSpannerQuery implements RepositoryQuery {
 
 	protected final Class entityType;
 
+	private final StaleRead staleRead;
+
 	/**
 	 * Constructor
 	 * @param type the underlying entity type
@@ -54,14 +64,67 @@ abstract class AbstractSpannerQuery implements RepositoryQuery {
 		this.entityType = type;
 		this.spannerOperations = spannerOperations;
 		this.spannerMappingContext = spannerMappingContext;
+		StaleRead methodStaleRead = queryMethod instanceof SpannerQueryMethod
+				? ((SpannerQueryMethod) queryMethod).getStaleReadAnnotation()
+				: null;
+		this.staleRead = methodStaleRead != null ? methodStaleRead
+				: AnnotatedElementUtils.findMergedAnnotation(type, StaleRead.class);
+	}
+
+	/**
+	 * Allows the queries of this method to read stale data if the method or its entity
+	 * type has a {@link StaleRead} annotation, with the method's taking precedence.
+	 * @param queryOptions the options of a query of this method.
+	 * @return the given options.
+	 */
+	protected SpannerQueryOptions applyStaleRead(SpannerQueryOptions queryOptions) {
+		if (this.staleRead != null) {
+			if (this.staleRead.exact()) {
+				queryOptions.setExactStaleness(this.staleRead.seconds(), TimeUnit.SECONDS);
+			}
+			else {
+				queryOptions.setMaxStaleness(this.staleRead.seconds(), TimeUnit.SECONDS);
+			}
+		}
+		return queryOptions;
 	}
 
 	@Override
 	public Object execute(Object[] parameters) {
+		SpannerMetrics metrics = this.spannerOperations instanceof SpannerTemplate
+				? ((SpannerTemplate) this.spannerOperations).getMetrics()
+				: null;
+		if (metrics == null) {
+			return executeAndProcess(parameters);
+		}
+		long startNanos = System.nanoTime();
+		boolean success = false;
+		try {
+			Object result = executeAndProcess(parameters);
+			success = true;
+			return result;
+		}
+		finally {
+			metrics.recordQueryMethod(this.entityType, this.queryMethod.getName(),
+					System.nanoTime() - startNanos, success);
+		}
+	}
+
+	private Object executeAndProcess(Object[] parameters) {
 		Object rawResult = executeRawResult(parameters);
 		if (rawResult == null) {
 			return null;
 		}
+		if (rawResult instanceof Stream) {
+			return ((Stream<?>) rawResult).map(this::processRawObjectForProjection);
+		}
+		return processRawResult(rawResult);
+	}
+
+	private Object processRawResult(Object rawResult) {
+		if (rawResult instanceof Slice) {
+			return ((Slice<?>) rawResult).map(this::processRawObjectForProjection);
+		}
 		if (ConversionUtils.isIterableNonByteArrayType(rawResult.getClass())) {
 			return StreamSupport.stream(((Iterable) rawResult).spliterator(), true)
 					.map(result -> processRawObjectForProjection(result))
@@ -0,0 +1,154 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.data.spanner.repository.query;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import com.google.cloud.spanner.Statement;
+
+import org.springframework.cloud.gcp.data.spanner.core.convert.ConversionUtils;
+import org.springframework.data.domain.Sort;
+
+/**
+ * The final SQL text and parameter tags of a query method, built once and then bound to
+ * the arguments of each invocation. The binder for each parameter is resolved from the
+ * type of its argument and reused as long as the arguments keep that type. Collection
+ * arguments are bound as ARRAY values.
+ *
+ * @author Chengyuan Zhao
+ */
+final class CompiledSqlStatement {
+
+	private final String sql;
+
+	private final List<String> tags;
+
+	private final List<String> tableNames;
+
+	private final Sort sort;
+
+	private final Class[] arrayParamElementTypes;
+
+	private final ParamBinder[] paramBinders;
+
+	/**
+	 * Constructor
+	 * @param sql the SQL string with tags.
+	 * @param tags the tags that appear in the SQL string, in parameter order.
+	 * @param tableNames the table names that were resolved into the SQL string.
+	 */
+	CompiledSqlStatement(String sql, List<String> tags, List<String> tableNames) {
+		this(sql, tags, tableNames, Sort.unsorted(), Collections.emptyList());
+	}
+
+	/**
+	 * Constructor
+	 * @param sql the SQL string with tags.
+	 * @param tags the tags that appear in the SQL string, in parameter order.
+	 * @param tableNames the table names that were resolved into the SQL string.
+	 * @param sort the dynamic sort that was resolved into the SQL string.
+	 * @param arrayParamElementTypes the element types to use for collection parameters
+	 * that are empty, in parameter order. Can be empty or contain nulls if unknown.
+	 */
+	CompiledSqlStatement(String sql, List<String> tags, List<String> tableNames,
+			Sort sort, List<Class> arrayParamElementTypes) {
+		this.sql = sql;
+		this.tags = tags;
+		this.tableNames = tableNames;
+		this.sort = sort;
+		this.arrayParamElementTypes = new Class[tags.size()];
+		for (int i = 0; i < arrayParamElementTypes.size() && i < tags.size(); i++) {
+			this.arrayParamElementTypes[i] = arrayParamElementTypes.get(i);
+		}
+		this.paramBinders = new ParamBinder[tags.size()];
+	}
+
+	String getSql() {
+		return this.sql;
+	}
+
+	/**
+	 * Checks if this statement was built with the given table names. Table names can be
+	 * SpEL expressions, so they may change between invocations.
+	 * @param tableNames the current table names of the entities used in the SQL string.
+	 * @return true if the SQL string can be reused for the given table names.
+	 */
+	boolean isCompiledFor(List<String> tableNames) {
+		return isCompiledFor(tableNames, Sort.unsorted());
+	}
+
+	/**
+	 * Checks if this statement was built with the given table names and dynamic sort.
+	 * @param tableNames the current table names of the entities used in the SQL string.
+	 * @param sort the sort given to the current invocation.
+	 * @return true if the SQL string can be reused for the given table names and sort.
+	 */
+	boolean isCompiledFor(List<String> tableNames, Sort sort) {
+		return this.tableNames.equals(tableNames) && this.sort.equals(sort);
+	}
+
+	/**
+	 * Creates a Spanner statement by binding the parameters to the tags.
+	 * @param params the parameters to substitute the tags. The ordering must be the same
+	 * as the tags.
+	 * @return an SQL statement ready to use with Spanner.
+	 * @throws IllegalArgumentException if the number of tags does not match the number of
+	 * params, or if a param of an unsupported type is given.
+	 */
+	Statement bind(Object[] params) {
+		if (this.tags.size() != params.length) {
+			throw new IllegalArgumentException(
+					"The number of tags does match the number of params.");
+		}
+		Statement.Builder builder = Statement.newBuilder(this.sql);
+		for (int i = 0; i < params.length; i++) {
+			Object param = params[i];
+			if (ConversionUtils.isIterableNonByteArrayType(param.getClass())) {
+				// the element type may differ between calls, so it is checked each time.
+				SpannerStatementQueryExecutor.bindArrayParam(builder.bind(this.tags.get(i)),
+						(Iterable) param, this.arrayParamElementTypes[i]);
+				continue;
+			}
+			ParamBinder paramBinder = this.paramBinders[i];
+			if (paramBinder == null || paramBinder.paramType != param.getClass()) {
+				paramBinder = new ParamBinder(param.getClass(),
+						SpannerStatementQueryExecutor.getParamBinder(param));
+				this.paramBinders[i] = paramBinder;
+			}
+			builder = (Statement.Builder) paramBinder.toMethod
+					.apply(builder.bind(this.tags.get(i)), param);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * The binder resolved for a parameter type.
+	 */
+	private static final class ParamBinder {
+
+		private final Class paramType;
+
+		private final BiFunction toMethod;
+
+		ParamBinder(Class paramType, BiFunction toMethod) {
+			this.paramType = paramType;
+			this.toMethod = toMethod;
+		}
+	}
+}
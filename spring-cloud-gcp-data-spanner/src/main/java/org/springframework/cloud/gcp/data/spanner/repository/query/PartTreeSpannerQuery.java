@@ -16,9 +16,27 @@
 
 package org.springframework.cloud.gcp.data.spanner.repository.query;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.annotations.VisibleForTesting;
+
 import org.springframework.cloud.gcp.data.spanner.core.SpannerOperations;
+import org.springframework.cloud.gcp.data.spanner.core.SpannerQueryOptions;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerMappingContext;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerPersistentEntity;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerPersistentProperty;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.query.Parameter;
+import org.springframework.data.repository.query.ParameterAccessor;
+import org.springframework.data.repository.query.Parameters;
+import org.springframework.data.repository.query.ParametersParameterAccessor;
 import org.springframework.data.repository.query.QueryMethod;
+import org.springframework.data.repository.query.ResultProcessor;
 import org.springframework.data.repository.query.parser.PartTree;
 
 /**
@@ -29,6 +47,12 @@ public class PartTreeSpannerQuery extends AbstractSpannerQuery {
 
 	private final PartTree tree;
 
+	private final List<String> projectedProperties;
+
+	private final boolean paged;
+
+	private volatile CompiledSqlStatement compiledStatement;
+
 	/**
 	 * Constructor
 	 * @param type the underlying entity type
@@ -41,11 +65,157 @@ public class PartTreeSpannerQuery extends AbstractSpannerQuery {
 			SpannerMappingContext spannerMappingContext) {
 		super(type, queryMethod, spannerOperations, spannerMappingContext);
 		this.tree = new PartTree(queryMethod.getName(), type);
+		this.projectedProperties = this.tree.isDelete()
+				? getDeletedProperties(queryMethod, spannerMappingContext
+						.getPersistentEntity(type))
+				: getProjectedProperties(queryMethod);
+		Parameters<?, ?> methodParameters = queryMethod.getParameters();
+		this.paged = methodParameters != null
+				&& methodParameters.hasPageableParameter()
+				&& !this.tree.isCountProjection()
+				&& !this.tree.isExistsProjection();
+		// the only other return type allowed with a Pageable parameter is Page.
+		if (this.paged && !queryMethod.isSliceQuery() && !queryMethod.isCollectionQuery()
+				&& !queryMethod.isStreamQuery()) {
+			throw new UnsupportedOperationException(
+					"Page return types are not supported because they require an "
+							+ "additional count query. Use Slice instead: "
+							+ queryMethod.getName());
+		}
+	}
+
+	/**
+	 * Gets the entity properties read by the projection returned by the query method, so
+	 * that only their columns need to be selected.
+	 * @param queryMethod the query method.
+	 * @return the projected properties, or an empty list if all of the entity's columns
+	 * are needed.
+	 */
+	private static List<String> getProjectedProperties(QueryMethod queryMethod) {
+		ResultProcessor resultProcessor = queryMethod.getResultProcessor();
+		if (resultProcessor == null
+				|| !resultProcessor.getReturnedType().isProjecting()) {
+			return Collections.emptyList();
+		}
+		return resultProcessor.getReturnedType().getInputProperties();
+	}
+
+	/**
+	 * Gets the entity properties read by a delete query method. Only the primary key is
+	 * needed to delete a row, so the other columns are only read if the deleted entities
+	 * are returned.
+	 * @param queryMethod the query method.
+	 * @param persistentEntity the entity being deleted.
+	 * @return the properties to read, or an empty list if all of the entity's columns
+	 * are needed.
+	 */
+	private static List<String> getDeletedProperties(QueryMethod queryMethod,
+			SpannerPersistentEntity<?> persistentEntity) {
+		if (queryMethod.isCollectionQuery()) {
+			return Collections.emptyList();
+		}
+		List<String> keyProperties = new ArrayList<>();
+		for (SpannerPersistentProperty keyProperty : persistentEntity
+				.getPrimaryKeyProperties()) {
+			keyProperties.add(keyProperty.getName());
+		}
+		return keyProperties;
 	}
 
 	@Override
 	protected Object executeRawResult(Object[] parameters) {
-		return SpannerStatementQueryExecutor.executeQuery(this.entityType, this.tree,
-				parameters, this.spannerOperations, this.spannerMappingContext);
+		Parameters<?, ?> methodParameters = this.queryMethod.getParameters();
+		ParameterAccessor accessor = methodParameters == null
+				|| !methodParameters.hasSpecialParameter() ? null
+						: new ParametersParameterAccessor(methodParameters, parameters);
+		Sort sort = accessor == null ? Sort.unsorted() : accessor.getSort();
+		Pageable pageable = accessor == null ? Pageable.unpaged()
+				: accessor.getPageable();
+		Object[] bindParameters = accessor == null ? parameters
+				: getBindParameters(methodParameters, parameters, pageable);
+		CompiledSqlStatement statement = getCompiledStatement(sort);
+		SpannerQueryOptions queryOptions = applyStaleRead(
+				SpannerStatementQueryExecutor.getQueryOptions(this.projectedProperties));
+		if (this.queryMethod.isStreamQuery()) {
+			return SpannerStatementQueryExecutor.executeStreamQuery(this.entityType,
+					this.tree, statement, bindParameters, this.spannerOperations,
+					queryOptions);
+		}
+		Object result = SpannerStatementQueryExecutor.executeQuery(this.entityType,
+				this.tree, statement, bindParameters, this.spannerOperations,
+				queryOptions);
+		if (this.tree.isDelete()) {
+			return getDeleteResult((List) result);
+		}
+		return this.queryMethod.isSliceQuery() ? toSlice((List) result, pageable)
+				: result;
+	}
+
+	/**
+	 * Gets the result of a delete query method, which is either the list of deleted
+	 * entities, the number of deleted rows, or nothing.
+	 */
+	private Object getDeleteResult(List deletedEntities) {
+		if (this.queryMethod.isCollectionQuery()) {
+			return deletedEntities;
+		}
+		Class returnType = this.queryMethod.getReturnedObjectType();
+		return returnType == void.class || returnType == Void.class ? null
+				: (long) deletedEntities.size();
+	}
+
+	/**
+	 * Gets the parameters that are bound to the tags of the SQL statement. Sort and
+	 * Pageable parameters are not bound themselves, but a Pageable provides the LIMIT and
+	 * OFFSET values of paged queries. The static limit of a First or Top query method
+	 * caps the rows of all of its pages together.
+	 */
+	private Object[] getBindParameters(Parameters<?, ?> methodParameters,
+			Object[] parameters, Pageable pageable) {
+		List<Object> bindParameters = new ArrayList<>();
+		for (Parameter parameter : methodParameters.getBindableParameters()) {
+			bindParameters.add(parameters[parameter.getIndex()]);
+		}
+		if (this.paged) {
+			// a Slice reads one extra row to find out if there is a next slice, instead of
+			// counting all of the matching rows.
+			long extraRows = this.queryMethod.isSliceQuery() ? 1L : 0L;
+			long limit = pageable.isPaged() ? pageable.getPageSize() + extraRows
+					: Long.MAX_VALUE;
+			long offset = pageable.isPaged() ? pageable.getOffset() : 0L;
+			if (this.tree.isLimiting()) {
+				limit = Math.min(limit, Math.max(0L, this.tree.getMaxResults() - offset));
+			}
+			bindParameters.add(limit);
+			bindParameters.add(offset);
+		}
+		return bindParameters.toArray();
+	}
+
+	private Slice toSlice(List results, Pageable pageable) {
+		if (pageable.isUnpaged() || results.size() <= pageable.getPageSize()) {
+			return new SliceImpl(results, pageable, false);
+		}
+		return new SliceImpl(results.subList(0, pageable.getPageSize()), pageable, true);
+	}
+
+	/**
+	 * Gets the SQL statement of this query method, which is only built again if the table
+	 * name of the entity or the dynamic sort changes.
+	 * @param sort the sort given to the current invocation.
+	 * @return the compiled statement.
+	 */
+	@VisibleForTesting
+	CompiledSqlStatement getCompiledStatement(Sort sort) {
+		List<String> tableNames = Collections.singletonList(this.spannerMappingContext
+				.getPersistentEntity(this.entityType).tableName());
+		CompiledSqlStatement statement = this.compiledStatement;
+		if (statement == null || !statement.isCompiledFor(tableNames, sort)) {
+			statement = SpannerStatementQueryExecutor.compilePartTreeStatement(
+					this.entityType, this.tree, this.spannerMappingContext,
+					this.projectedProperties, sort, this.paged);
+			this.compiledStatement = statement;
+		}
+		return statement;
 	}
 }
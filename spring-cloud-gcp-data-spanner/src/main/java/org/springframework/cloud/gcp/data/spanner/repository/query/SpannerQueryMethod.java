@@ -21,6 +21,7 @@ import java.util.Optional;
 
 import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerPersistentEntity;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerPersistentProperty;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.StaleRead;
 import org.springframework.core.annotation.AnnotatedElementUtils;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.data.mapping.context.MappingContext;
@@ -89,4 +90,15 @@ public class SpannerQueryMethod extends QueryMethod {
 	Query getQueryAnnotation() {
 		return AnnotatedElementUtils.findMergedAnnotation(this.method, Query.class);
 	}
+
+	/**
+	 * Returns the {@link StaleRead} annotation that is applied to the method or
+	 * {@code null} if none available.
+	 *
+	 * @return
+	 */
+	@Nullable
+	StaleRead getStaleReadAnnotation() {
+		return AnnotatedElementUtils.findMergedAnnotation(this.method, StaleRead.class);
+	}
 }
@@ -17,16 +17,29 @@
 package org.springframework.cloud.gcp.data.spanner.repository.query;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
+import java.util.stream.Stream;
 
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.KeyRange;
+import com.google.cloud.spanner.KeyRange.Endpoint;
+import com.google.cloud.spanner.KeySet;
 import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.ValueBinder;
 
 import org.springframework.cloud.gcp.data.spanner.core.SpannerOperations;
+import org.springframework.cloud.gcp.data.spanner.core.SpannerQueryOptions;
+import org.springframework.cloud.gcp.data.spanner.core.convert.ConversionUtils;
 import org.springframework.cloud.gcp.data.spanner.core.convert.MappingSpannerWriteConverter;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerDataException;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerMappingContext;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerPersistentEntity;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerPersistentProperty;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Sort.Order;
 import org.springframework.data.repository.query.parser.PartTree;
@@ -48,30 +61,171 @@ public class SpannerStatementQueryExecutor {
 	 * @param params the parameters of this specific query
 	 * @param spannerOperations used to execute the query
 	 * @param spannerMappingContext used to get metadata about the entity type
-	 * @return A boolean for EXISTS queries, an integer for COUNT queries, and a List of
-	 * entities otherwise.
-	 * @throws UnsupportedOperationException for DELETE queries.
+	 * @return A boolean for EXISTS queries, a long for COUNT queries, and a List of
+	 * entities otherwise. COUNT and EXISTS are computed by Spanner, so no entities are
+	 * read for them. DELETE queries return the List of deleted entities.
 	 */
 	public static Object executeQuery(Class type, PartTree tree, Object[] params,
 			SpannerOperations spannerOperations,
 			SpannerMappingContext spannerMappingContext) {
+		return executeQuery(type, tree, params, spannerOperations,
+				spannerMappingContext, Collections.emptyList());
+	}
+
+	/**
+	 * Executes a PartTree-based query, selecting only the columns needed by a projection.
+	 * @param type the type of the underlying entity
+	 * @param tree the parsed metadata of the query
+	 * @param params the parameters of this specific query
+	 * @param spannerOperations used to execute the query
+	 * @param spannerMappingContext used to get metadata about the entity type
+	 * @param projectedProperties the entity properties read by the projection the query
+	 * method returns. If empty, all of the entity's columns are selected.
+	 * @return A boolean for EXISTS queries, a long for COUNT queries, and a List of
+	 * entities otherwise. DELETE queries return the List of deleted entities.
+	 */
+	public static Object executeQuery(Class type, PartTree tree, Object[] params,
+			SpannerOperations spannerOperations,
+			SpannerMappingContext spannerMappingContext,
+			List<String> projectedProperties) {
+		return executeQuery(type, tree,
+				compilePartTreeStatement(type, tree, spannerMappingContext,
+						projectedProperties, Sort.unsorted(), false),
+				params, spannerOperations, getQueryOptions(projectedProperties));
+	}
+
+	static Object executeQuery(Class type, PartTree tree,
+			CompiledSqlStatement compiledStatement, Object[] params,
+			SpannerOperations spannerOperations, SpannerQueryOptions queryOptions) {
+		Statement statement = compiledStatement.bind(params);
+		Object result;
 		if (tree.isDelete()) {
-			throw new UnsupportedOperationException(
-					"Delete queries are not supported in Spanner");
+			result = executeDelete(type, statement, spannerOperations,
+					queryOptions.isAllowPartialRead());
 		}
-		Pair<String, List<String>> sqlAndTags = buildPartTreeSqlString(tree,
-				spannerMappingContext, type);
-		List results = spannerOperations.query(type, buildStatementFromSqlWithArgs(
-				sqlAndTags.getFirst(), sqlAndTags.getSecond(), params));
-		if (tree.isCountProjection()) {
-			return results.size();
+		else if (tree.isCountProjection()) {
+			result = spannerOperations
+					.queryRows(row -> row.getLong(0), statement, queryOptions).get(0);
 		}
 		else if (tree.isExistsProjection()) {
-			return !results.isEmpty();
+			result = !spannerOperations.queryRows(row -> true, statement, queryOptions)
+					.isEmpty();
 		}
 		else {
-			return results;
+			result = spannerOperations.query(type, statement, queryOptions);
+		}
+		return result;
+	}
+
+	/**
+	 * Reads the rows matching a delete query and deletes them by key in the same
+	 * read-write transaction, so that only rows that still match are deleted. If there
+	 * are more rows than keys fit in a single commit, the rows are deleted after the
+	 * transaction in chunks that each fit in a commit, so the delete is not atomic.
+	 */
+	private static List executeDelete(Class type, Statement statement,
+			SpannerOperations spannerOperations, boolean allowPartialRead) {
+		AtomicInteger maxKeysPerCommit = new AtomicInteger();
+		List deletedEntities = spannerOperations
+				.performReadWriteTransaction(transactionOperations -> {
+					// the rows are read in the transaction, so no staleness can be allowed.
+					List entities = transactionOperations.query(type, statement,
+							new SpannerQueryOptions().setAllowPartialRead(allowPartialRead));
+					// a delete mutation counts one mutation cell per key.
+					maxKeysPerCommit.set(transactionOperations.getMaxMutationCellsPerCommit());
+					if (!entities.isEmpty() && entities.size() <= maxKeysPerCommit.get()) {
+						transactionOperations.delete(type, entities);
+					}
+					return entities;
+				});
+		int chunkSize = maxKeysPerCommit.get();
+		if (deletedEntities.size() > chunkSize) {
+			for (int start = 0; start < deletedEntities.size(); start += chunkSize) {
+				spannerOperations.delete(type, deletedEntities.subList(start,
+						Math.min(start + chunkSize, deletedEntities.size())));
+			}
+		}
+		return deletedEntities;
+	}
+
+	/**
+	 * Executes a PartTree-based query and lazily maps the results as they are consumed.
+	 * @param type the type of the underlying entity
+	 * @param tree the parsed metadata of the query
+	 * @param params the parameters of this specific query
+	 * @param spannerOperations used to execute the query
+	 * @param spannerMappingContext used to get metadata about the entity type
+	 * @param <T> the type of the underlying entity
+	 * @return A stream of entities that must be closed after use.
+	 * @throws UnsupportedOperationException for DELETE, COUNT, and EXISTS queries.
+	 */
+	public static <T> Stream<T> executeStreamQuery(Class<T> type, PartTree tree,
+			Object[] params, SpannerOperations spannerOperations,
+			SpannerMappingContext spannerMappingContext) {
+		return executeStreamQuery(type, tree, params, spannerOperations,
+				spannerMappingContext, Collections.emptyList());
+	}
+
+	/**
+	 * Executes a PartTree-based query, selecting only the columns needed by a projection,
+	 * and lazily maps the results as they are consumed.
+	 * @param type the type of the underlying entity
+	 * @param tree the parsed metadata of the query
+	 * @param params the parameters of this specific query
+	 * @param spannerOperations used to execute the query
+	 * @param spannerMappingContext used to get metadata about the entity type
+	 * @param projectedProperties the entity properties read by the projection the query
+	 * method returns. If empty, all of the entity's columns are selected.
+	 * @param <T> the type of the underlying entity
+	 * @return A stream of entities that must be closed after use.
+	 * @throws UnsupportedOperationException for DELETE, COUNT, and EXISTS queries.
+	 */
+	public static <T> Stream<T> executeStreamQuery(Class<T> type, PartTree tree,
+			Object[] params, SpannerOperations spannerOperations,
+			SpannerMappingContext spannerMappingContext,
+			List<String> projectedProperties) {
+		return executeStreamQuery(type, tree,
+				compilePartTreeStatement(type, tree, spannerMappingContext,
+						projectedProperties, Sort.unsorted(), false),
+				params, spannerOperations, getQueryOptions(projectedProperties));
+	}
+
+	static <T> Stream<T> executeStreamQuery(Class<T> type, PartTree tree,
+			CompiledSqlStatement compiledStatement, Object[] params,
+			SpannerOperations spannerOperations, SpannerQueryOptions queryOptions) {
+		if (tree.isDelete() || tree.isCountProjection() || tree.isExistsProjection()) {
+			throw new UnsupportedOperationException(
+					"Only entity-returning queries can be streamed: " + tree);
 		}
+		return spannerOperations.queryStream(type, compiledStatement.bind(params),
+				queryOptions);
+	}
+
+	/**
+	 * Builds the SQL string and tags of a PartTree-based query, which only have to be
+	 * bound to parameters for each execution.
+	 * @param type the type of the underlying entity
+	 * @param tree the parsed metadata of the query
+	 * @param spannerMappingContext used to get metadata about the entity type
+	 * @param projectedProperties the entity properties read by the projection the query
+	 * method returns. If empty, all of the entity's columns are selected.
+	 * @param sort the dynamic sort applied after the sort of the query method.
+	 * @param paged if true, two parameters following the query method's parameters are
+	 * bound as the LIMIT and OFFSET of entity-returning queries.
+	 * @return the compiled statement.
+	 */
+	static CompiledSqlStatement compilePartTreeStatement(Class type, PartTree tree,
+			SpannerMappingContext spannerMappingContext,
+			List<String> projectedProperties, Sort sort, boolean paged) {
+		SpannerPersistentEntity<?> persistentEntity = spannerMappingContext
+				.getPersistentEntity(type);
+		String tableName = persistentEntity.tableName();
+		List<Class> arrayParamElementTypes = new ArrayList<>();
+		Pair<String, List<String>> sqlAndTags = buildPartTreeSqlString(tree,
+				persistentEntity, spannerMappingContext, tableName, projectedProperties,
+				sort, paged, arrayParamElementTypes);
+		return new CompiledSqlStatement(sqlAndTags.getFirst(), sqlAndTags.getSecond(),
+				Collections.singletonList(tableName), sort, arrayParamElementTypes);
 	}
 
 	/**
@@ -86,54 +240,301 @@ public class SpannerStatementQueryExecutor {
 	 */
 	public static Statement buildStatementFromSqlWithArgs(String sql, List<String> tags,
 			Object[] params) {
-		if (tags.size() != params.length) {
-			throw new IllegalArgumentException(
-					"The number of tags does match the number of params.");
-		}
-		Statement.Builder builder = Statement.newBuilder(sql);
-		for (int i = 0; i < tags.size(); i++) {
-			Object param = params[i];
-			BiFunction toMethod = MappingSpannerWriteConverter.singleItemType2ToMethodMap
-					.get(param.getClass());
-			if (toMethod == null) {
-				throw new IllegalArgumentException("Param: " + param.toString()
-						+ " is not a supported type: " + param.getClass());
+		return new CompiledSqlStatement(sql, tags, Collections.emptyList()).bind(params);
+	}
+
+	/**
+	 * Binds a collection parameter as an ARRAY to a statement tag.
+	 * @param valueBinder the binder of the statement tag.
+	 * @param param the collection parameter to bind.
+	 * @param defaultElementType the element type used if the parameter has no non-null
+	 * elements to determine it from. Can be null.
+	 * @throws IllegalArgumentException if the element type is unsupported or cannot be
+	 * determined.
+	 */
+	static void bindArrayParam(ValueBinder<Statement.Builder> valueBinder, Iterable param,
+			Class defaultElementType) {
+		Class elementType = defaultElementType;
+		for (Object element : param) {
+			if (element != null) {
+				elementType = element.getClass();
+				break;
+			}
+		}
+		BiConsumer toMethod = elementType == null ? null
+				: MappingSpannerWriteConverter.iterablePropertyType2ToMethodMap
+						.get(elementType);
+		if (toMethod == null) {
+			throw new IllegalArgumentException("Param: " + param.toString()
+					+ " is not a supported array type. The element type is: " + elementType);
+		}
+		toMethod.accept(valueBinder, param);
+	}
+
+	/**
+	 * Gets the function that binds a parameter to a statement tag.
+	 * @param param the parameter to bind.
+	 * @return the binding function for the type of the parameter.
+	 * @throws IllegalArgumentException if the parameter is of an unsupported type.
+	 */
+	static BiFunction getParamBinder(Object param) {
+		BiFunction toMethod = MappingSpannerWriteConverter.singleItemType2ToMethodMap
+				.get(param.getClass());
+		if (toMethod == null) {
+			throw new IllegalArgumentException("Param: " + param.toString()
+					+ " is not a supported type: " + param.getClass());
+		}
+		return toMethod;
+	}
+
+	static SpannerQueryOptions getQueryOptions(List<String> projectedProperties) {
+		// projections only need some of the columns, so the entities are partially read.
+		return new SpannerQueryOptions()
+				.setAllowPartialRead(!projectedProperties.isEmpty());
+	}
+
+	/**
+	 * Gets the comma-separated list of columns to select for an entity, instead of
+	 * selecting all columns with "*". The child entities of interleaved properties are
+	 * selected as ARRAY subqueries named after the property's column name.
+	 * @param persistentEntity the entity whose columns are selected.
+	 * @param spannerMappingContext used to get metadata about the child entities.
+	 * @return the column list for a SELECT statement.
+	 */
+	public static String getColumnsStringForSelect(
+			SpannerPersistentEntity<?> persistentEntity,
+			SpannerMappingContext spannerMappingContext) {
+		StringJoiner columns = new StringJoiner(", ");
+		persistentEntity.columns().forEach(columns::add);
+		for (SpannerPersistentProperty interleavedProperty : persistentEntity
+				.getInterleavedProperties()) {
+			columns.add(getChildArraySubquery(persistentEntity, interleavedProperty,
+					spannerMappingContext));
+		}
+		return columns.toString();
+	}
+
+	/**
+	 * Builds a statement that reads the rows of an entity with the given keys, together
+	 * with the child entities of its interleaved properties. This is used instead of the
+	 * read API, which cannot read child rows in the same call.
+	 * @param persistentEntity the entity to read.
+	 * @param keys the keys of the rows to read. The key ranges are compared by key prefix,
+	 * like they are in reads.
+	 * @param spannerMappingContext used to get metadata about the child entities.
+	 * @return the statement.
+	 */
+	public static Statement buildReadStatement(SpannerPersistentEntity<?> persistentEntity,
+			KeySet keys, SpannerMappingContext spannerMappingContext) {
+		Statement.Builder builder = Statement.newBuilder("SELECT "
+				+ getColumnsStringForSelect(persistentEntity, spannerMappingContext)
+				+ " FROM " + persistentEntity.tableName());
+		if (!keys.isAll()) {
+			SpannerPersistentProperty[] keyProperties = persistentEntity
+					.getPrimaryKeyProperties();
+			List<Object> keyParts = new ArrayList<>();
+			StringJoiner keyConditions = new StringJoiner(" OR ");
+			for (Key key : keys.getKeys()) {
+				keyConditions.add(compareKey(keyProperties, key, "=", true, keyParts));
+			}
+			for (KeyRange range : keys.getRanges()) {
+				keyConditions.add("( "
+						+ compareKey(keyProperties, range.getStart(), ">",
+								range.getStartType() == Endpoint.CLOSED, keyParts)
+						+ " AND " + compareKey(keyProperties, range.getEnd(), "<",
+								range.geEndType() == Endpoint.CLOSED, keyParts)
+						+ " )");
+			}
+			builder.append(" WHERE "
+					+ (keyConditions.length() == 0 ? "FALSE" : keyConditions.toString()));
+			for (int i = 0; i < keyParts.size(); i++) {
+				Object keyPart = keyParts.get(i);
+				getParamBinder(keyPart).apply(builder.bind("key" + i), keyPart);
+			}
+		}
+		return builder.append(";").build();
+	}
+
+	/**
+	 * Compares the primary key columns of a row to a key, or to a prefix of the key
+	 * columns if the key has fewer parts. Rows are ordered by their key parts in order.
+	 * @param operator "=" to match the key, or the strict comparison "&gt;" or "&lt;".
+	 * @param inclusive if true, rows that match the key also satisfy a strict comparison.
+	 * @param keyParts the non-null key parts that are bound to the tags, in tag order.
+	 */
+	private static String compareKey(SpannerPersistentProperty[] keyProperties, Key key,
+			String operator, boolean inclusive, List<Object> keyParts) {
+		List<String> equalities = new ArrayList<>();
+		StringJoiner comparison = new StringJoiner(" OR ", "( ", " )");
+		comparison.setEmptyValue("FALSE");
+		int i = 0;
+		for (Object keyPart : key.getParts()) {
+			String column = keyProperties[i++].getColumnName();
+			String tag = keyPart == null ? null : "@key" + keyParts.size();
+			if (keyPart != null) {
+				keyParts.add(keyPart);
+			}
+			if (!operator.equals("=")) {
+				// null key parts are ordered before all other values.
+				String strict = keyPart == null
+						? (operator.equals(">") ? column + " IS NOT NULL" : "FALSE")
+						: column + operator + tag;
+				StringJoiner preceding = new StringJoiner(" AND ", "( ", " )");
+				equalities.forEach(preceding::add);
+				preceding.add(strict);
+				comparison.add(preceding.toString());
+			}
+			equalities.add(keyPart == null ? column + " IS NULL" : column + "=" + tag);
+		}
+		String equality = equalities.isEmpty() ? "TRUE"
+				: "( " + String.join(" AND ", equalities) + " )";
+		if (operator.equals("=")) {
+			return equality;
+		}
+		if (inclusive) {
+			comparison.add(equality);
+		}
+		return comparison.toString();
+	}
+
+	/**
+	 * Builds the ARRAY subquery that selects the child entities of an interleaved property
+	 * by matching the leading primary key columns of the child table to the primary key
+	 * of the parent row. The child entities are ordered by their primary key, like the rows
+	 * of an interleaved table are stored.
+	 */
+	private static String getChildArraySubquery(SpannerPersistentEntity<?> parentEntity,
+			SpannerPersistentProperty interleavedProperty,
+			SpannerMappingContext spannerMappingContext) {
+		SpannerPersistentEntity<?> childEntity = spannerMappingContext
+				.getPersistentEntity(interleavedProperty.getColumnInnerType());
+		SpannerPersistentProperty[] parentKeys = parentEntity.getPrimaryKeyProperties();
+		SpannerPersistentProperty[] childKeys = childEntity.getPrimaryKeyProperties();
+		if (childKeys.length <= parentKeys.length) {
+			throw new SpannerDataException("The primary key of an interleaved entity must "
+					+ "start with the primary key of its parent entity: "
+					+ childEntity.getType());
+		}
+		String parentTable = parentEntity.tableName();
+		String childTable = childEntity.tableName();
+		StringJoiner keyConditions = new StringJoiner(" AND ");
+		for (int i = 0; i < parentKeys.length; i++) {
+			keyConditions.add(childTable + "." + childKeys[i].getColumnName() + " = "
+					+ parentTable + "." + parentKeys[i].getColumnName());
+		}
+		StringJoiner keyOrder = new StringJoiner(", ");
+		for (SpannerPersistentProperty childKey : childKeys) {
+			keyOrder.add(childTable + "." + childKey.getColumnName());
+		}
+		return "ARRAY (SELECT AS STRUCT "
+				+ getColumnsStringForSelect(childEntity, spannerMappingContext) + " FROM "
+				+ childTable + " WHERE " + keyConditions.toString() + " ORDER BY "
+				+ keyOrder.toString() + ") AS " + interleavedProperty.getColumnName();
+	}
+
+	private static String getColumnsStringForSelect(
+			SpannerPersistentEntity<?> persistentEntity,
+			List<String> projectedProperties,
+			SpannerMappingContext spannerMappingContext) {
+		StringJoiner columns = new StringJoiner(", ");
+		for (String propertyName : projectedProperties) {
+			SpannerPersistentProperty property = persistentEntity
+					.getPersistentProperty(propertyName);
+			if (property == null) {
+				// the projection reads more than plain properties, so select everything.
+				return getColumnsStringForSelect(persistentEntity, spannerMappingContext);
 			}
-			builder = (Statement.Builder) toMethod.apply(builder.bind(tags.get(i)),
-					param);
+			columns.add(property.isInterleaved()
+					? getChildArraySubquery(persistentEntity, property,
+							spannerMappingContext)
+					: property.getColumnName());
 		}
-		return builder.build();
+		return columns.length() == 0
+				? getColumnsStringForSelect(persistentEntity, spannerMappingContext)
+				: columns.toString();
+	}
+
+	/**
+	 * Checks if the columns selected for a projection include the child entities of
+	 * interleaved properties.
+	 */
+	private static boolean selectsInterleavedProperties(
+			SpannerPersistentEntity<?> persistentEntity, List<String> projectedProperties) {
+		boolean allColumns = projectedProperties.isEmpty();
+		boolean interleaved = false;
+		for (String propertyName : projectedProperties) {
+			SpannerPersistentProperty property = persistentEntity
+					.getPersistentProperty(propertyName);
+			allColumns |= property == null;
+			interleaved |= property != null && property.isInterleaved();
+		}
+		return interleaved || (allColumns
+				&& persistentEntity.getInterleavedProperties().iterator().hasNext());
 	}
 
 	private static Pair<String, List<String>> buildPartTreeSqlString(PartTree tree,
-			SpannerMappingContext spannerMappingContext, Class type) {
-		SpannerPersistentEntity<?> persistentEntity = spannerMappingContext
-				.getPersistentEntity(type);
+			SpannerPersistentEntity<?> persistentEntity,
+			SpannerMappingContext spannerMappingContext, String tableName,
+			List<String> projectedProperties, Sort sort, boolean paged,
+			List<Class> arrayParamElementTypes) {
 		List<String> tags = new ArrayList<>();
 		StringBuilder stringBuilder = new StringBuilder();
 
-		buildSelect(tree, stringBuilder);
-		buildFrom(persistentEntity, stringBuilder);
-		buildWhere(tree, persistentEntity, tags, stringBuilder);
-		buildOrderBy(persistentEntity, stringBuilder, tree.getSort());
-		buildLimit(tree, stringBuilder);
+		if (tree.isExistsProjection()) {
+			// only the presence of a single matching row is needed.
+			stringBuilder.append("SELECT 1 ");
+			buildFrom(tableName, stringBuilder);
+			buildWhere(tree, persistentEntity, tags, arrayParamElementTypes, stringBuilder);
+			stringBuilder.append(" LIMIT 1");
+		}
+		else if (tree.isCountProjection() && !tree.isDistinct() && !tree.isLimiting()) {
+			stringBuilder.append("SELECT COUNT(*) ");
+			buildFrom(tableName, stringBuilder);
+			buildWhere(tree, persistentEntity, tags, arrayParamElementTypes, stringBuilder);
+		}
+		else {
+			if (tree.isDistinct()
+					&& selectsInterleavedProperties(persistentEntity, projectedProperties)) {
+				// the child entities are selected as arrays, which cannot be compared.
+				throw new SpannerDataException("DISTINCT queries are only supported for "
+						+ "entities with interleaved properties if a projection excludes "
+						+ "the interleaved properties: " + persistentEntity.getType());
+			}
+			buildSelect(tree, getColumnsStringForSelect(persistentEntity,
+					projectedProperties, spannerMappingContext), stringBuilder);
+			buildFrom(tableName, stringBuilder);
+			buildWhere(tree, persistentEntity, tags, arrayParamElementTypes, stringBuilder);
+			if (!tree.isCountProjection()) {
+				buildOrderBy(persistentEntity, stringBuilder, tree.getSort().and(sort));
+			}
+			if (paged && !tree.isCountProjection()) {
+				buildPagedLimit(tags, arrayParamElementTypes, stringBuilder);
+			}
+			else {
+				buildLimit(tree, stringBuilder);
+			}
+			if (tree.isCountProjection()) {
+				// distinct or limited rows must be selected before they can be counted.
+				stringBuilder.insert(0, "SELECT COUNT(*) FROM (").append(")");
+			}
+		}
 
 		stringBuilder.append(";");
 		return Pair.of(stringBuilder.toString(), tags);
 	}
 
-	private static StringBuilder buildSelect(PartTree tree, StringBuilder stringBuilder) {
+	private static StringBuilder buildSelect(PartTree tree, String columns,
+			StringBuilder stringBuilder) {
 		stringBuilder.append("SELECT ");
 		if (tree.isDistinct()) {
 			stringBuilder.append("DISTINCT ");
 		}
-		stringBuilder.append("* ");
+		stringBuilder.append(columns + " ");
 		return stringBuilder;
 	}
 
-	private static void buildFrom(SpannerPersistentEntity<?> persistentEntity,
-			StringBuilder stringBuilder) {
-		stringBuilder.append("FROM " + persistentEntity.tableName() + " ");
+	private static void buildFrom(String tableName, StringBuilder stringBuilder) {
+		stringBuilder.append("FROM " + tableName + " ");
 	}
 
 	public static void buildOrderBy(SpannerPersistentEntity<?> persistentEntity,
@@ -156,7 +557,8 @@ public class SpannerStatementQueryExecutor {
 	}
 
 	private static void buildWhere(PartTree tree, SpannerPersistentEntity<?> persistentEntity,
-			List<String> tags, StringBuilder stringBuilder) {
+			List<String> tags, List<Class> arrayParamElementTypes,
+			StringBuilder stringBuilder) {
 		if (tree.hasPredicate()) {
 			stringBuilder.append("WHERE ");
 
@@ -172,10 +574,25 @@ public class SpannerStatementQueryExecutor {
 					String segment = part.getProperty().getSegment();
 					String tag = "tag" + tags.size();
 					tags.add(tag);
-					String andString = persistentEntity.getPersistentProperty(segment)
-							.getColumnName();
+					SpannerPersistentProperty property = persistentEntity
+							.getPersistentProperty(segment);
+					String andString = property.getColumnName();
+					Class arrayParamElementType = null;
 
 					switch (part.getType()) {
+					case IN:
+						andString += " IN UNNEST(@" + tag + ")";
+						arrayParamElementType = property.getType();
+						break;
+					case NOT_IN:
+						andString += " NOT IN UNNEST(@" + tag + ")";
+						arrayParamElementType = property.getType();
+						break;
+					case CONTAINING:
+						andString = property.isCollectionLike()
+								? "@" + tag + " IN UNNEST(" + andString + ")"
+								: "STRPOS(" + andString + ", @" + tag + ")>0";
+						break;
 					case LIKE:
 						andString += " LIKE %@" + tag;
 						break;
@@ -211,6 +628,8 @@ public class SpannerStatementQueryExecutor {
 								+ part.getType() + " is not supported.");
 					}
 
+					// used to type array parameters whose elements can't be inspected.
+					arrayParamElementTypes.add(ConversionUtils.boxIfNeeded(arrayParamElementType));
 					andStrings.add(andString);
 				});
 
@@ -223,6 +642,17 @@ public class SpannerStatementQueryExecutor {
 		}
 	}
 
+	private static void buildPagedLimit(List<String> tags,
+			List<Class> arrayParamElementTypes, StringBuilder stringBuilder) {
+		String limitTag = "tag" + tags.size();
+		String offsetTag = "tag" + (tags.size() + 1);
+		tags.add(limitTag);
+		tags.add(offsetTag);
+		arrayParamElementTypes.add(null);
+		arrayParamElementTypes.add(null);
+		stringBuilder.append(" LIMIT @" + limitTag + " OFFSET @" + offsetTag);
+	}
+
 	private static void buildLimit(PartTree tree, StringBuilder stringBuilder) {
 		if (tree.isLimiting()) {
 			stringBuilder.append(" LIMIT " + tree.getMaxResults());
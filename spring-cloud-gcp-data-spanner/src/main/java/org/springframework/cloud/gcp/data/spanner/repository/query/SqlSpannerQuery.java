@@ -17,11 +17,15 @@
 package org.springframework.cloud.gcp.data.spanner.repository.query;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import com.google.cloud.spanner.Statement;
+
 import org.springframework.cloud.gcp.data.spanner.core.SpannerOperations;
 import org.springframework.cloud.gcp.data.spanner.core.SpannerQueryOptions;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerDataException;
@@ -38,13 +42,18 @@ import org.springframework.expression.spel.standard.SpelExpressionParser;
  */
 public class SqlSpannerQuery extends AbstractSpannerQuery {
 
-	// A character that isn't used in SQL
-	private static String ENTITY_CLASS_NAME_BOOKEND = ":";
+	// Entity class names are given in the SQL between two ':' characters, which aren't
+	// used in SQL otherwise.
+	private static final Pattern ENTITY_CLASS_NAME_PATTERN = Pattern.compile("\\:\\S+\\:");
 
 	private final String sql;
 
 	private final List<String> tags;
 
+	private final Map<String, SpannerPersistentEntity<?>> entityClassNameTokens;
+
+	private volatile CompiledSqlStatement compiledStatement;
+
 	private EvaluationContextProvider evaluationContextProvider;
 
 	private SpelExpressionParser expressionParser;
@@ -59,6 +68,7 @@ public class SqlSpannerQuery extends AbstractSpannerQuery {
 		this.evaluationContextProvider = evaluationContextProvider;
 		this.expressionParser = expressionParser;
 		this.sql = sql;
+		this.entityClassNameTokens = resolveEntityClassNameTokens(sql);
 	}
 
 	private List<String> getTags() {
@@ -76,23 +86,23 @@ public class SqlSpannerQuery extends AbstractSpannerQuery {
 		return tags;
 	}
 
-	private String resolveEntityClassNames(String sql) {
-		Pattern pattern = Pattern.compile("\\:\\S+\\:");
-		Matcher matcher = pattern.matcher(sql);
-		String result = sql;
+	private Map<String, SpannerPersistentEntity<?>> resolveEntityClassNameTokens(
+			String sql) {
+		Map<String, SpannerPersistentEntity<?>> entities = new LinkedHashMap<>();
+		Matcher matcher = ENTITY_CLASS_NAME_PATTERN.matcher(sql);
 		while (matcher.find()) {
 			String matched = matcher.group();
 			String className = matched.substring(1, matched.length() - 1);
 			try {
 				Class entityClass = Class.forName(className);
-				SpannerPersistentEntity spannerPersistentEntity = this.spannerMappingContext
+				SpannerPersistentEntity<?> spannerPersistentEntity = this.spannerMappingContext
 						.getPersistentEntity(entityClass);
 				if (spannerPersistentEntity == null) {
 					throw new SpannerDataException(
 							"The class used in the SQL statement is not a Spanner persistent entity: "
 									+ className);
 				}
-				result = result.replace(matched, spannerPersistentEntity.tableName());
+				entities.put(matched, spannerPersistentEntity);
 			}
 			catch (ClassNotFoundException e) {
 				throw new SpannerDataException(
@@ -100,14 +110,42 @@ public class SqlSpannerQuery extends AbstractSpannerQuery {
 								+ className);
 			}
 		}
-		return result;
+		return entities;
+	}
+
+	/**
+	 * Gets the SQL statement of this query method with the entity class names replaced by
+	 * their table names. It is only built again if a table name changes.
+	 * @return the compiled statement.
+	 */
+	private CompiledSqlStatement getCompiledStatement() {
+		List<String> tableNames = new ArrayList<>(this.entityClassNameTokens.size());
+		for (SpannerPersistentEntity<?> persistentEntity : this.entityClassNameTokens
+				.values()) {
+			tableNames.add(persistentEntity.tableName());
+		}
+		CompiledSqlStatement statement = this.compiledStatement;
+		if (statement == null || !statement.isCompiledFor(tableNames)) {
+			String resolvedSql = this.sql;
+			int i = 0;
+			for (String token : this.entityClassNameTokens.keySet()) {
+				resolvedSql = resolvedSql.replace(token, tableNames.get(i++));
+			}
+			statement = new CompiledSqlStatement(resolvedSql, this.tags, tableNames);
+			this.compiledStatement = statement;
+		}
+		return statement;
 	}
 
 	@Override
 	public Object executeRawResult(Object[] parameters) {
-		return this.spannerOperations.query(this.entityType,
-				SpannerStatementQueryExecutor.buildStatementFromSqlWithArgs(
-						resolveEntityClassNames(this.sql), this.tags, parameters),
+		Statement statement = getCompiledStatement().bind(parameters);
+		SpannerQueryOptions queryOptions = applyStaleRead(
 				new SpannerQueryOptions().setAllowPartialRead(true));
+		if (this.queryMethod.isStreamQuery()) {
+			return this.spannerOperations.queryStream(this.entityType, statement,
+					queryOptions);
+		}
+		return this.spannerOperations.query(this.entityType, statement, queryOptions);
 	}
 }
@@ -85,9 +85,7 @@ public class SimpleSpannerRepository<T, ID> implements SpannerRepository<T, ID>
 	@Override
 	public Iterable saveAll(Iterable entities) {
 		Assert.notNull(entities, "A non-null list of entities is required for saving.");
-		for (Object entity : entities) {
-			save(entity);
-		}
+		this.spannerTemplate.upsertAll(entities);
 		return entities;
 	}
 
@@ -0,0 +1,249 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.data.spanner.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.ErrorCode;
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.KeySet;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.SpannerExceptionFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerDataException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Chengyuan Zhao
+ */
+public class SpannerBulkWriterTests {
+
+	private SpannerTemplate spannerTemplate;
+
+	private SpannerMutationFactory mutationFactory;
+
+	private SpannerBulkWriter bulkWriter;
+
+	@Before
+	public void setUp() {
+		this.spannerTemplate = mock(SpannerTemplate.class);
+		this.mutationFactory = mock(SpannerMutationFactory.class);
+		when(this.spannerTemplate.getMutationFactory()).thenReturn(this.mutationFactory);
+		when(this.spannerTemplate.getMaxMutationCellsPerCommit()).thenReturn(4);
+		when(this.mutationFactory.upsertWithChildren(any(), isNull())).thenAnswer(
+				invocation -> Collections.singletonList(Mutation
+						.newInsertOrUpdateBuilder("test_table").set("id")
+						.to((String) invocation.getArgument(0)).set("value").to(1L)
+						.build()));
+		this.bulkWriter = new SpannerBulkWriter(this.spannerTemplate, Runnable::run);
+		this.bulkWriter.setInitialBackoff(0, TimeUnit.MILLISECONDS);
+	}
+
+	@Test
+	public void chunksAreSizedByMutationCellsTest() {
+		when(this.spannerTemplate.applyMutations(any()))
+				.thenReturn(Collections.singletonList(Timestamp.ofTimeMicroseconds(1)));
+		List<SpannerBulkWriteProgress> progress = new ArrayList<>();
+		this.bulkWriter.setProgressListener(progress::add);
+
+		SpannerBulkWriteProgress result = this.bulkWriter
+				.upsert(Stream.of("a", "b", "c", "d", "e"));
+
+		// each upsert has 2 cells, so 2 entities fit in a commit.
+		verify(this.spannerTemplate, times(3)).applyMutations(any());
+		assertEquals(5, result.getEntities());
+		assertEquals(5, result.getMutations());
+		assertEquals(3, result.getCommits());
+		assertEquals(3, progress.size());
+		assertEquals(2, progress.get(0).getEntities());
+	}
+
+	@Test
+	public void chunkKeysAreEvictedFromCacheTest() {
+		when(this.spannerTemplate.getEntityCache()).thenReturn(mock(SpannerEntityCache.class));
+		when(this.spannerTemplate.getEntityKey(any()))
+				.thenAnswer(invocation -> Key.of((String) invocation.getArgument(0)));
+		when(this.spannerTemplate.applyMutations(any()))
+				.thenReturn(Collections.singletonList(Timestamp.ofTimeMicroseconds(1)));
+
+		this.bulkWriter.upsert(Stream.of("a", "b", "c"));
+
+		verify(this.spannerTemplate, times(1)).invalidateCachedEntities(String.class,
+				KeySet.newBuilder().addKey(Key.of("a")).addKey(Key.of("b")).build());
+		verify(this.spannerTemplate, times(1)).invalidateCachedEntities(String.class,
+				KeySet.singleKey(Key.of("c")));
+		verify(this.spannerTemplate, times(0)).invalidateCachedEntities(any(),
+				eq(KeySet.all()));
+	}
+
+	@Test
+	public void failedChunkIsRetriedTest() {
+		when(this.spannerTemplate.applyMutations(any()))
+				.thenThrow(transientFailure())
+				.thenReturn(Collections.singletonList(Timestamp.ofTimeMicroseconds(1)));
+
+		SpannerBulkWriteProgress result = this.bulkWriter
+				.upsert(Arrays.asList("a", "b").iterator());
+
+		verify(this.spannerTemplate, times(2)).applyMutations(any());
+		assertEquals(1, result.getRetries());
+		assertEquals(2, result.getEntities());
+	}
+
+	@Test
+	public void writeStopsAfterMaxAttemptsTest() {
+		this.bulkWriter.setMaxAttempts(2);
+		SpannerDataException failure = transientFailure();
+		when(this.spannerTemplate.applyMutations(any())).thenThrow(failure);
+
+		try {
+			this.bulkWriter.upsert(Stream.of("a", "b", "c", "d", "e"));
+			fail("Expected the bulk write to fail.");
+		}
+		catch (SpannerDataException e) {
+			assertSame(failure, e.getCause());
+		}
+		// the first chunk is attempted twice and no further chunks are committed.
+		verify(this.spannerTemplate, times(2)).applyMutations(any());
+	}
+
+	@Test
+	public void unavailableUpsertIsRetriedTest() {
+		when(this.spannerTemplate.applyMutations(any()))
+				.thenThrow(failure(ErrorCode.UNAVAILABLE))
+				.thenReturn(Collections.singletonList(Timestamp.ofTimeMicroseconds(1)));
+
+		SpannerBulkWriteProgress result = this.bulkWriter.upsert(Stream.of("a", "b"));
+
+		verify(this.spannerTemplate, times(2)).applyMutations(any());
+		assertEquals(1, result.getRetries());
+		assertEquals(2, result.getEntities());
+	}
+
+	@Test
+	public void unavailableInsertIsNotRetriedTest() {
+		when(this.mutationFactory.insertWithChildren(any())).thenAnswer(
+				invocation -> Collections.singletonList(Mutation.newInsertBuilder("test_table")
+						.set("id").to((String) invocation.getArgument(0)).build()));
+		// the commit went through, so a retry would fail because the rows already exist.
+		SpannerDataException failure = failure(ErrorCode.UNAVAILABLE);
+		when(this.spannerTemplate.applyMutations(any())).thenThrow(failure)
+				.thenThrow(failure(ErrorCode.ALREADY_EXISTS));
+
+		try {
+			this.bulkWriter.insert(Stream.of("a", "b"));
+			fail("Expected the bulk write to fail.");
+		}
+		catch (SpannerDataException e) {
+			assertSame(failure, e.getCause());
+		}
+		verify(this.spannerTemplate, times(1)).applyMutations(any());
+	}
+
+	@Test
+	public void abortedInsertIsRetriedTest() {
+		when(this.mutationFactory.insertWithChildren(any())).thenAnswer(
+				invocation -> Collections.singletonList(Mutation.newInsertBuilder("test_table")
+						.set("id").to((String) invocation.getArgument(0)).build()));
+		when(this.spannerTemplate.applyMutations(any())).thenThrow(transientFailure())
+				.thenReturn(Collections.singletonList(Timestamp.ofTimeMicroseconds(1)));
+
+		SpannerBulkWriteProgress result = this.bulkWriter.insert(Stream.of("a", "b"));
+
+		verify(this.spannerTemplate, times(2)).applyMutations(any());
+		assertEquals(1, result.getRetries());
+		assertEquals(2, result.getEntities());
+	}
+
+	@Test
+	public void nonTransientFailureIsNotRetriedTest() {
+		SpannerDataException failure = new SpannerDataException("failed",
+				SpannerExceptionFactory.newSpannerException(ErrorCode.ALREADY_EXISTS,
+						"exists"));
+		when(this.spannerTemplate.applyMutations(any())).thenThrow(failure);
+
+		try {
+			this.bulkWriter.upsert(Stream.of("a", "b"));
+			fail("Expected the bulk write to fail.");
+		}
+		catch (SpannerDataException e) {
+			assertSame(failure, e.getCause());
+		}
+		verify(this.spannerTemplate, times(1)).applyMutations(any());
+	}
+
+	@Test
+	public void writeWaitsForCommitsWhenReadingEntitiesFailsTest() {
+		// chunks are committed slowly on other threads.
+		this.bulkWriter = new SpannerBulkWriter(this.spannerTemplate,
+				commit -> new Thread(() -> {
+					try {
+						Thread.sleep(100);
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					commit.run();
+				}).start());
+		when(this.spannerTemplate.applyMutations(any()))
+				.thenReturn(Collections.singletonList(Timestamp.ofTimeMicroseconds(1)));
+		IllegalStateException failure = new IllegalStateException("source failed");
+		// the first chunk is submitted before the source fails.
+		Stream<String> entities = Stream.of("a", "b", "c", "d").map(entity -> {
+			if (entity.equals("d")) {
+				throw failure;
+			}
+			return entity;
+		});
+
+		try {
+			this.bulkWriter.upsert(entities);
+			fail("Expected the bulk write to fail.");
+		}
+		catch (IllegalStateException e) {
+			assertSame(failure, e);
+		}
+		verify(this.spannerTemplate, times(1)).applyMutations(any());
+	}
+
+	private static SpannerDataException transientFailure() {
+		return failure(ErrorCode.ABORTED);
+	}
+
+	private static SpannerDataException failure(ErrorCode errorCode) {
+		return new SpannerDataException("failed",
+				SpannerExceptionFactory.newSpannerException(errorCode, "failed"));
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.data.spanner.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import com.google.cloud.ByteArray;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.cloud.gcp.data.spanner.core.convert.MappingSpannerConverter;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.Column;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.Interleaved;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.PrimaryKey;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerMappingContext;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.Table;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Chengyuan Zhao
+ */
+public class SpannerDirtyTrackerTests {
+
+	private SpannerDirtyTracker dirtyTracker;
+
+	@Before
+	public void setUp() {
+		SpannerMappingContext mappingContext = new SpannerMappingContext();
+		this.dirtyTracker = new SpannerDirtyTracker(mappingContext,
+				new MappingSpannerConverter(mappingContext));
+	}
+
+	@Test
+	public void changedColumnsTest() {
+		TestEntity entity = new TestEntity();
+		entity.id = "a";
+		entity.name = "name";
+		entity.payload = ByteArray.copyFrom("payload");
+		this.dirtyTracker.track(entity);
+
+		assertTrue(this.dirtyTracker.getChangedColumns(entity).isEmpty());
+
+		entity.name = "other name";
+		// an equal value in a new object is not a change.
+		entity.payload = ByteArray.copyFrom("payload");
+		assertEquals(Collections.singleton("custom_name"),
+				this.dirtyTracker.getChangedColumns(entity));
+
+		this.dirtyTracker.track(entity);
+		assertTrue(this.dirtyTracker.getChangedColumns(entity).isEmpty());
+	}
+
+	@Test
+	public void untrackedEntityTest() {
+		TestEntity entity = new TestEntity();
+		assertFalse(this.dirtyTracker.isTracked(entity));
+		assertNull(this.dirtyTracker.getChangedColumns(entity));
+
+		this.dirtyTracker.track(entity);
+		this.dirtyTracker.untrack(entity);
+		assertNull(this.dirtyTracker.getChangedColumns(entity));
+	}
+
+	@Test
+	public void interleavedColumnsAreAlwaysChangedTest() {
+		ParentEntity entity = new ParentEntity();
+		entity.id = "a";
+		entity.children = Arrays.asList(new TestEntity());
+		this.dirtyTracker.track(entity);
+
+		entity.name = "name";
+		assertEquals(new HashSet<>(Arrays.asList("name", "children")),
+				this.dirtyTracker.getChangedColumns(entity));
+	}
+
+	@Table(name = "test_table")
+	private static class TestEntity {
+		@PrimaryKey
+		String id;
+
+		@Column(name = "custom_name")
+		String name;
+
+		ByteArray payload;
+	}
+
+	@Table(name = "parent_table")
+	private static class ParentEntity {
+		@PrimaryKey
+		String id;
+
+		String name;
+
+		@Interleaved
+		List<TestEntity> children;
+	}
+}
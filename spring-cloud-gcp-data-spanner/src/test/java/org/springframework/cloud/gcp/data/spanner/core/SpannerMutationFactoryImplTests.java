@@ -18,7 +18,10 @@ package org.springframework.cloud.gcp.data.spanner.core;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 
 import com.google.cloud.spanner.Key;
 import com.google.cloud.spanner.KeySet;
@@ -29,6 +32,7 @@ import org.junit.Test;
 
 import org.springframework.cloud.gcp.data.spanner.core.convert.SpannerConverter;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.Column;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.Interleaved;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.PrimaryKey;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerMappingContext;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.Table;
@@ -78,6 +82,58 @@ public class SpannerMutationFactoryImplTests {
 		assertEquals(Op.INSERT_OR_UPDATE, mutation.getOperation());
 	}
 
+	@Test
+	public void insertAggregateTest() {
+		ParentEntity parent = new ParentEntity();
+		parent.children = Arrays.asList(new ChildEntity(), null, new ChildEntity());
+		List<Mutation> mutations = this.spannerMutationFactory.insertWithChildren(parent);
+		assertEquals(3, mutations.size());
+		assertEquals("parent_test_table", mutations.get(0).getTable());
+		assertEquals("child_test_table", mutations.get(1).getTable());
+		assertEquals("child_test_table", mutations.get(2).getTable());
+		mutations.forEach(mutation -> assertEquals(Op.INSERT, mutation.getOperation()));
+	}
+
+	@Test
+	public void updateAggregateColumnsTest() {
+		ParentEntity parent = new ParentEntity();
+		parent.children = Collections.singletonList(new ChildEntity());
+		List<Mutation> withoutChildren = this.spannerMutationFactory.updateWithChildren(parent,
+				Optional.of(Collections.singleton("name")));
+		assertEquals(1, withoutChildren.size());
+		assertEquals("parent_test_table", withoutChildren.get(0).getTable());
+
+		List<Mutation> withChildren = this.spannerMutationFactory.updateWithChildren(parent,
+				Optional.of(new HashSet<>(Arrays.asList("name", "children"))));
+		assertEquals(2, withChildren.size());
+		assertEquals(Op.UPDATE, withChildren.get(0).getOperation());
+		assertEquals("child_test_table", withChildren.get(1).getTable());
+		assertEquals(Op.INSERT_OR_UPDATE, withChildren.get(1).getOperation());
+	}
+
+	@Test
+	public void updateAggregateUpsertsChildrenTest() {
+		ParentEntity parent = new ParentEntity();
+		parent.children = Arrays.asList(new ChildEntity(), new ChildEntity());
+		List<Mutation> mutations = this.spannerMutationFactory.updateWithChildren(parent,
+				null);
+		assertEquals(3, mutations.size());
+		assertEquals("parent_test_table", mutations.get(0).getTable());
+		assertEquals(Op.UPDATE, mutations.get(0).getOperation());
+		// children added to the parent since it was read are inserted.
+		assertEquals(Op.INSERT_OR_UPDATE, mutations.get(1).getOperation());
+		assertEquals(Op.INSERT_OR_UPDATE, mutations.get(2).getOperation());
+	}
+
+	@Test
+	public void singleMutationExcludesChildrenTest() {
+		ParentEntity parent = new ParentEntity();
+		parent.children = Collections.singletonList(new ChildEntity());
+		Mutation mutation = this.spannerMutationFactory.insert(parent);
+		assertEquals("parent_test_table", mutation.getTable());
+		assertEquals(Op.INSERT, mutation.getOperation());
+	}
+
 	@Test
 	public void deleteEntitiesTest() {
 		TestEntity t1 = new TestEntity();
@@ -138,6 +194,26 @@ public class SpannerMutationFactoryImplTests {
 		assertThat(keys, containsInAnyOrder("key1"));
 	}
 
+	@Table(name = "parent_test_table")
+	private static class ParentEntity {
+		@PrimaryKey
+		String id;
+
+		String name;
+
+		@Interleaved
+		List<ChildEntity> children;
+	}
+
+	@Table(name = "child_test_table")
+	private static class ChildEntity {
+		@PrimaryKey(keyOrder = 1)
+		String id;
+
+		@PrimaryKey(keyOrder = 2)
+		String id2;
+	}
+
 	@Table(name = "custom_test_table")
 	private static class TestEntity {
 		@PrimaryKey(keyOrder = 1)
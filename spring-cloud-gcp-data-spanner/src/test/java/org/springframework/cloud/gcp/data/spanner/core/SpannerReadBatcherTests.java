@@ -0,0 +1,191 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.data.spanner.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.KeySet;
+import com.google.cloud.spanner.Struct;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.springframework.cloud.gcp.data.spanner.core.mapping.PrimaryKey;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerMappingContext;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.Table;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Chengyuan Zhao
+ */
+public class SpannerReadBatcherTests {
+
+	private SpannerTemplate spannerTemplate;
+
+	private ScheduledExecutorService scheduler;
+
+	private SpannerReadBatcher readBatcher;
+
+	@Before
+	public void setUp() {
+		this.spannerTemplate = mock(SpannerTemplate.class);
+		when(this.spannerTemplate.getMappingContext())
+				.thenReturn(new SpannerMappingContext());
+		when(this.spannerTemplate.mapRow(eq(TestEntity.class), any(Struct.class)))
+				.thenAnswer(invocation -> new TestEntity(
+						invocation.<Struct>getArgument(1).getString("id")));
+		this.scheduler = mock(ScheduledExecutorService.class);
+		this.readBatcher = new SpannerReadBatcher(this.spannerTemplate, this.scheduler);
+	}
+
+	@Test
+	public void readsInWindowAreMergedTest() {
+		when(this.spannerTemplate.readRows(eq(TestEntity.class), any(KeySet.class),
+				isNull())).thenReturn(Collections.singletonList(row("a")));
+
+		CompletableFuture<TestEntity> first = this.readBatcher.read(TestEntity.class,
+				Key.of("a"));
+		CompletableFuture<TestEntity> second = this.readBatcher.read(TestEntity.class,
+				Key.of("b"));
+		CompletableFuture<TestEntity> duplicate = this.readBatcher.read(TestEntity.class,
+				Key.of("a"));
+		assertFalse(first.isDone());
+
+		endWindow(1);
+
+		verify(this.spannerTemplate, times(1)).readRows(TestEntity.class,
+				KeySet.newBuilder().addKey(Key.of("a")).addKey(Key.of("b")).build(), null);
+		assertEquals("a", first.join().id);
+		assertNull(second.join());
+		// reads of the same key get their own entities.
+		assertEquals("a", duplicate.join().id);
+		assertNotSame(first.join(), duplicate.join());
+	}
+
+	@Test
+	public void concurrentReadsOfSameKeyGetOwnEntitiesTest() throws Exception {
+		when(this.spannerTemplate.readRows(eq(TestEntity.class), any(KeySet.class),
+				isNull())).thenReturn(Collections.singletonList(row("a")));
+		ExecutorService readers = Executors.newFixedThreadPool(8);
+		List<CompletableFuture<TestEntity>> reads = new ArrayList<>();
+		try {
+			List<CompletableFuture<CompletableFuture<TestEntity>>> requests = new ArrayList<>();
+			for (int i = 0; i < 32; i++) {
+				requests.add(CompletableFuture.supplyAsync(
+						() -> this.readBatcher.read(TestEntity.class, Key.of("a")), readers));
+			}
+			for (CompletableFuture<CompletableFuture<TestEntity>> request : requests) {
+				reads.add(request.get(10, TimeUnit.SECONDS));
+			}
+		}
+		finally {
+			readers.shutdownNow();
+		}
+
+		endWindow(1);
+
+		verify(this.spannerTemplate, times(1)).readRows(TestEntity.class,
+				KeySet.singleKey(Key.of("a")), null);
+		Map<TestEntity, Boolean> entities = new IdentityHashMap<>();
+		for (CompletableFuture<TestEntity> read : reads) {
+			assertEquals("a", read.join().id);
+			entities.put(read.join(), true);
+		}
+		assertEquals(32, entities.size());
+	}
+
+	@Test
+	public void fullBatchIsReadBeforeWindowEndsTest() {
+		this.readBatcher.setMaxBatchSize(TestEntity.class, 2);
+		when(this.spannerTemplate.readRows(eq(TestEntity.class), any(KeySet.class),
+				isNull())).thenReturn(Arrays.asList(row("a"), row("b")));
+
+		this.readBatcher.read(TestEntity.class, Key.of("a"));
+		CompletableFuture<TestEntity> last = this.readBatcher.read(TestEntity.class,
+				Key.of("b"));
+
+		assertEquals("b", last.join().id);
+		verify(this.spannerTemplate, times(1)).readRows(eq(TestEntity.class),
+				any(KeySet.class), isNull());
+
+		// the window of the batch that was already read ends without another read.
+		endWindow(1);
+		verify(this.spannerTemplate, times(1)).readRows(eq(TestEntity.class),
+				any(KeySet.class), isNull());
+	}
+
+	@Test
+	public void failedReadCompletesAllReadsTest() {
+		IllegalStateException failure = new IllegalStateException("read failed");
+		when(this.spannerTemplate.readRows(eq(TestEntity.class), any(KeySet.class),
+				isNull())).thenThrow(failure);
+
+		CompletableFuture<TestEntity> first = this.readBatcher.read(TestEntity.class,
+				Key.of("a"));
+		CompletableFuture<TestEntity> second = this.readBatcher.read(TestEntity.class,
+				Key.of("b"));
+		endWindow(1);
+
+		assertTrue(first.isCompletedExceptionally());
+		assertTrue(second.isCompletedExceptionally());
+	}
+
+	private void endWindow(int scheduledWindows) {
+		ArgumentCaptor<Runnable> windowEnd = ArgumentCaptor.forClass(Runnable.class);
+		verify(this.scheduler, times(scheduledWindows)).schedule(windowEnd.capture(),
+				anyLong(), eq(TimeUnit.NANOSECONDS));
+		windowEnd.getAllValues().forEach(Runnable::run);
+	}
+
+	private static Struct row(String id) {
+		return Struct.newBuilder().set("id").to(id).build();
+	}
+
+	@Table(name = "test_table")
+	private static class TestEntity {
+		@PrimaryKey
+		String id;
+
+		TestEntity(String id) {
+			this.id = id;
+		}
+	}
+}
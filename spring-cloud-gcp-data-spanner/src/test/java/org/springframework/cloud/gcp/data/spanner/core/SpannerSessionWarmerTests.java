@@ -0,0 +1,182 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.data.spanner.core;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.ErrorCode;
+import com.google.cloud.spanner.ReadContext;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.SpannerExceptionFactory;
+import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.TransactionContext;
+import com.google.cloud.spanner.TransactionRunner;
+import com.google.cloud.spanner.TransactionRunner.TransactionCallable;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerDataException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Chengyuan Zhao
+ */
+public class SpannerSessionWarmerTests {
+
+	private DatabaseClient databaseClient;
+
+	private ReadContext readContext;
+
+	private TransactionRunner transactionRunner;
+
+	private AtomicInteger checkedOutSessions;
+
+	private AtomicInteger maxCheckedOutSessions;
+
+	@Before
+	public void setUp() {
+		this.databaseClient = mock(DatabaseClient.class);
+		this.readContext = mock(ReadContext.class);
+		this.transactionRunner = mock(TransactionRunner.class);
+		this.checkedOutSessions = new AtomicInteger();
+		this.maxCheckedOutSessions = new AtomicInteger();
+		when(this.databaseClient.singleUse()).thenReturn(this.readContext);
+		when(this.databaseClient.readWriteTransaction()).thenReturn(this.transactionRunner);
+
+		// a read holds its session until its result set is closed.
+		when(this.readContext.executeQuery(any(Statement.class))).thenAnswer(invocation -> {
+			checkOut();
+			ResultSet resultSet = mock(ResultSet.class);
+			when(resultSet.next()).thenReturn(true);
+			doAnswer(closeInvocation -> {
+				this.checkedOutSessions.decrementAndGet();
+				return null;
+			}).when(resultSet).close();
+			return resultSet;
+		});
+
+		// a read-write transaction holds its session until its callable returns.
+		TransactionContext transactionContext = mock(TransactionContext.class);
+		when(transactionContext.executeQuery(any(Statement.class)))
+				.thenReturn(mock(ResultSet.class));
+		when(this.transactionRunner.run(any())).thenAnswer(invocation -> {
+			checkOut();
+			try {
+				TransactionCallable transactionCallable = invocation.getArgument(0);
+				return transactionCallable.run(transactionContext);
+			}
+			finally {
+				this.checkedOutSessions.decrementAndGet();
+			}
+		});
+	}
+
+	@Test
+	public void allSessionsAreCheckedOutAtOnceTest() {
+		SpannerSessionWarmer warmer = new SpannerSessionWarmer(this.databaseClient, 5,
+				0.4f);
+
+		CompletableFuture<Void> warmUp = warmer.warmUp();
+		warmUp.join();
+
+		assertSame(warmUp, warmer.warmUp());
+		assertEquals(2, warmer.getWriteSessions());
+		assertEquals(5, this.maxCheckedOutSessions.get());
+		assertEquals(0, this.checkedOutSessions.get());
+		verify(this.databaseClient, times(3)).singleUse();
+		verify(this.databaseClient, times(2)).readWriteTransaction();
+	}
+
+	@Test
+	public void sessionsAreCheckedOutOnBoundedThreadsTest() {
+		Set<Thread> threads = ConcurrentHashMap.newKeySet();
+		when(this.databaseClient.singleUse()).thenAnswer(invocation -> {
+			threads.add(Thread.currentThread());
+			return this.readContext;
+		});
+		when(this.databaseClient.readWriteTransaction()).thenAnswer(invocation -> {
+			threads.add(Thread.currentThread());
+			return this.transactionRunner;
+		});
+		SpannerSessionWarmer warmer = new SpannerSessionWarmer(this.databaseClient, 20,
+				0.1f);
+		warmer.setMaxThreads(3);
+
+		warmer.warmUp().join();
+
+		// the 2 write sessions hold a thread each, and the reads share the third.
+		assertTrue(threads.size() <= 3);
+		assertEquals(20, this.maxCheckedOutSessions.get());
+		assertEquals(0, this.checkedOutSessions.get());
+	}
+
+	@Test
+	public void failedSessionFailsWarmUpTest() {
+		when(this.databaseClient.singleUse()).thenThrow(SpannerExceptionFactory
+				.newSpannerException(ErrorCode.UNAVAILABLE, "unavailable"));
+		SpannerSessionWarmer warmer = new SpannerSessionWarmer(this.databaseClient, 3,
+				0.4f);
+
+		try {
+			warmer.warmUp().join();
+			fail();
+		}
+		catch (CompletionException e) {
+			assertTrue(e.getCause() instanceof SpannerDataException);
+		}
+		assertTrue(warmer.getWarmUp().isCompletedExceptionally());
+	}
+
+	@Test
+	public void warmUpTimesOutTest() {
+		when(this.readContext.executeQuery(any(Statement.class))).thenAnswer(invocation -> {
+			Thread.sleep(1000);
+			return mock(ResultSet.class);
+		});
+		SpannerSessionWarmer warmer = new SpannerSessionWarmer(this.databaseClient, 2, 0);
+		warmer.setTimeout(50, TimeUnit.MILLISECONDS);
+
+		try {
+			warmer.warmUp().join();
+			fail();
+		}
+		catch (CompletionException e) {
+			assertTrue(e.getCause() instanceof SpannerDataException);
+		}
+	}
+
+	private void checkOut() {
+		this.maxCheckedOutSessions.accumulateAndGet(
+				this.checkedOutSessions.incrementAndGet(), Math::max);
+	}
+}
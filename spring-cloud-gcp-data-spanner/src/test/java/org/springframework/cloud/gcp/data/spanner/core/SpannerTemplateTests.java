@@ -20,43 +20,75 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import com.google.cloud.ByteArray;
 import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.BatchClient;
+import com.google.cloud.spanner.BatchReadOnlyTransaction;
 import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.ErrorCode;
 import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.KeyRange;
 import com.google.cloud.spanner.KeySet;
 import com.google.cloud.spanner.Mutation;
 import com.google.cloud.spanner.Options.QueryOption;
 import com.google.cloud.spanner.Options.ReadOption;
+import com.google.cloud.spanner.Partition;
 import com.google.cloud.spanner.ReadContext;
 import com.google.cloud.spanner.ReadOnlyTransaction;
 import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.SpannerException;
+import com.google.cloud.spanner.SpannerExceptionFactory;
 import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.Struct;
 import com.google.cloud.spanner.TimestampBound;
 import com.google.cloud.spanner.TransactionContext;
 import com.google.cloud.spanner.TransactionRunner;
 import com.google.cloud.spanner.TransactionRunner.TransactionCallable;
+import com.google.cloud.spanner.Value;
 import org.junit.Before;
 import org.junit.Test;
 
+import org.springframework.cloud.gcp.data.spanner.core.convert.MappingSpannerConverter;
 import org.springframework.cloud.gcp.data.spanner.core.convert.SpannerConverter;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.Column;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.Interleaved;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.PrimaryKey;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerDataException;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerMappingContext;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.StaleRead;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.Table;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Sort.Order;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.ArgumentMatchers.same;
@@ -120,10 +152,74 @@ public class SpannerTemplateTests {
 				});
 
 		assertEquals("all done", finalResult);
-		verify(transactionContext, times(1)).buffer((Mutation) any());
+		verify(transactionContext, times(1)).buffer(anyIterable());
 		verify(transactionContext, times(1)).read(eq("custom_test_table"), any(), any());
 	}
 
+	@Test
+	public void metricsTest() {
+		SpannerMetrics metrics = mock(SpannerMetrics.class);
+		this.spannerTemplate.setMetrics(metrics);
+		Mutation mutation = Mutation.newInsertBuilder("custom_test_table").build();
+		TestEntity entity = new TestEntity();
+		when(this.mutationFactory.insertWithChildren(entity)).thenReturn(Collections.singletonList(mutation));
+
+		this.spannerTemplate.insert(entity);
+		this.spannerTemplate.read(TestEntity.class, Key.of("key"));
+
+		verify(metrics, times(1)).recordOperation(eq("insert"), eq(TestEntity.class),
+				eq("custom_test_table"), anyLong(), eq(true));
+		verify(metrics, times(1)).recordMutations("insert", "custom_test_table", 1);
+		verify(metrics, times(1)).recordOperation(eq("read"), eq(TestEntity.class),
+				eq("custom_test_table"), anyLong(), eq(true));
+		verify(metrics, times(1)).recordRows("read", TestEntity.class,
+				"custom_test_table", 0);
+	}
+
+	@Test
+	public void metricsRecordStreamWhenClosedTest() {
+		SpannerMetrics metrics = mock(SpannerMetrics.class);
+		this.spannerTemplate.setMetrics(metrics);
+		when(this.objectMapper.mapToStream(any(), eq(TestEntity.class)))
+				.thenReturn(Stream.of(new TestEntity(), new TestEntity()));
+
+		try (Stream<TestEntity> stream = this.spannerTemplate
+				.readStream(TestEntity.class, KeySet.all())) {
+			assertEquals(2, stream.count());
+			verify(metrics, times(0)).recordOperation(any(), any(), any(), anyLong(),
+					anyBoolean());
+		}
+
+		verify(metrics, times(1)).recordOperation(eq("read"), eq(TestEntity.class),
+				eq("custom_test_table"), anyLong(), eq(true));
+		verify(metrics, times(1)).recordRows("read", TestEntity.class,
+				"custom_test_table", 2);
+	}
+
+	@Test
+	public void metricsRecordRetriedTransactionTest() {
+		SpannerMetrics metrics = mock(SpannerMetrics.class);
+		this.spannerTemplate.setMetrics(metrics);
+		TransactionRunner transactionRunner = mock(TransactionRunner.class);
+		when(this.databaseClient.readWriteTransaction()).thenReturn(transactionRunner);
+		TransactionContext transactionContext = mock(TransactionContext.class);
+		// the runner retries the transaction once, as it does after an aborted commit.
+		when(transactionRunner.run(any())).thenAnswer(invocation -> {
+			TransactionCallable transactionCallable = invocation.getArgument(0);
+			transactionCallable.run(transactionContext);
+			return transactionCallable.run(transactionContext);
+		});
+
+		this.spannerTemplate.performReadWriteTransaction(
+				spannerOperations -> spannerOperations.readAll(TestEntity.class));
+
+		verify(metrics, times(1)).recordTransactionRetry();
+		verify(metrics, times(1)).recordOperation(eq("readWriteTransaction"), isNull(),
+				isNull(), anyLong(), eq(true));
+		verify(metrics, times(2)).recordOperation(eq("read"), eq(TestEntity.class),
+				eq("custom_test_table"), anyLong(), eq(true));
+	}
+
 	@Test
 	public void readOnlyTransactionTest() {
 
@@ -145,6 +241,679 @@ public class SpannerTemplateTests {
 		verify(readOnlyTransaction, times(2)).read(eq("custom_test_table"), any(), any());
 	}
 
+	@Test
+	public void readConcurrentlyTest() {
+		ReadOnlyTransaction readOnlyTransaction = mock(ReadOnlyTransaction.class);
+		when(this.databaseClient.readOnlyTransaction()).thenReturn(readOnlyTransaction);
+		when(readOnlyTransaction.getReadTimestamp())
+				.thenReturn(Timestamp.ofTimeMicroseconds(333));
+		// each read waits for the other, so the reads only finish if they run concurrently.
+		CyclicBarrier barrier = new CyclicBarrier(2);
+		when(readOnlyTransaction.read(any(), any(), any())).thenAnswer(invocation -> {
+			barrier.await(10, TimeUnit.SECONDS);
+			return mock(ResultSet.class);
+		});
+		TestEntity testEntity = new TestEntity();
+		ChildEntity childEntity = new ChildEntity();
+		when(this.objectMapper.mapToList(any(), eq(TestEntity.class)))
+				.thenReturn(Collections.singletonList(testEntity));
+		when(this.objectMapper.mapToList(any(), eq(ChildEntity.class)))
+				.thenReturn(Collections.singletonList(childEntity));
+		Map<Class<?>, KeySet> keys = new LinkedHashMap<>();
+		keys.put(TestEntity.class, KeySet.all());
+		keys.put(ChildEntity.class, KeySet.singleKey(Key.of("a", "b")));
+		this.spannerTemplate.setConcurrentReadExecutor(Executors.newFixedThreadPool(2));
+
+		SpannerReadResults results = this.spannerTemplate.readConcurrently(keys, null);
+
+		assertEquals(Collections.singletonList(testEntity), results.get(TestEntity.class));
+		assertEquals(Collections.singletonList(childEntity), results.get(ChildEntity.class));
+		assertEquals(Timestamp.ofTimeMicroseconds(333), results.getReadTimestamp());
+		verify(this.databaseClient, times(1)).readOnlyTransaction();
+		verify(readOnlyTransaction, times(1)).read(eq("custom_test_table"), any(), any());
+		verify(readOnlyTransaction, times(1)).read(eq("child_test_table"), any(), any());
+		verify(readOnlyTransaction, times(1)).close();
+	}
+
+	@Test
+	public void readConcurrentlyOnOwnThreadsTest() {
+		ReadOnlyTransaction readOnlyTransaction = mock(ReadOnlyTransaction.class);
+		when(this.databaseClient.readOnlyTransaction()).thenReturn(readOnlyTransaction);
+		// the reads block each other, so they only finish if each has its own thread.
+		CyclicBarrier barrier = new CyclicBarrier(2);
+		Set<String> threadNames = ConcurrentHashMap.newKeySet();
+		when(readOnlyTransaction.read(any(), any(), any())).thenAnswer(invocation -> {
+			threadNames.add(Thread.currentThread().getName());
+			barrier.await(10, TimeUnit.SECONDS);
+			return mock(ResultSet.class);
+		});
+		Map<Class<?>, KeySet> keys = new LinkedHashMap<>();
+		keys.put(TestEntity.class, KeySet.all());
+		keys.put(ChildEntity.class, KeySet.all());
+
+		this.spannerTemplate.readConcurrently(keys, null);
+
+		assertEquals(Collections.singleton("spanner-concurrent-read"), threadNames);
+		verify(readOnlyTransaction, times(2)).read(any(), any(), any());
+		verify(readOnlyTransaction, times(1)).close();
+	}
+
+	@Test
+	public void queryConcurrentlyFailureTest() {
+		ReadOnlyTransaction readOnlyTransaction = mock(ReadOnlyTransaction.class);
+		when(this.databaseClient.readOnlyTransaction(
+				eq(TimestampBound.ofReadTimestamp(Timestamp.ofTimeMicroseconds(333)))))
+						.thenReturn(readOnlyTransaction);
+		Statement failingStatement = Statement.of("SELECT * FROM child_test_table");
+		when(readOnlyTransaction.executeQuery(eq(failingStatement), any()))
+				.thenThrow(SpannerExceptionFactory.newSpannerException(ErrorCode.INTERNAL,
+						"failed"));
+		Map<Class<?>, Statement> statements = new LinkedHashMap<>();
+		statements.put(TestEntity.class, Statement.of("SELECT * FROM custom_test_table"));
+		statements.put(ChildEntity.class, failingStatement);
+
+		try {
+			this.spannerTemplate.queryConcurrently(statements, new SpannerReadOptions()
+					.setTimestamp(Timestamp.ofTimeMicroseconds(333)));
+			fail();
+		}
+		catch (SpannerException e) {
+			assertEquals(ErrorCode.INTERNAL, e.getErrorCode());
+		}
+		verify(readOnlyTransaction, times(2)).executeQuery(any(), any());
+		verify(readOnlyTransaction, times(1)).close();
+	}
+
+	@Test
+	public void dirtyTrackingUpdateTest() {
+		this.spannerTemplate.setDirtyTracker(new SpannerDirtyTracker(this.mappingContext,
+				new MappingSpannerConverter(this.mappingContext)));
+		ChildEntity entity = new ChildEntity();
+		entity.id = "a";
+		entity.id2 = "b";
+		entity.details = "details";
+		when(this.objectMapper.mapToList(any(), eq(ChildEntity.class)))
+				.thenReturn(Collections.singletonList(entity));
+		when(this.mutationFactory.upsertWithChildren(same(entity), any())).thenReturn(
+				Collections.singletonList(
+						Mutation.newInsertOrUpdateBuilder("child_test_table").build()));
+
+		ChildEntity read = this.spannerTemplate.read(ChildEntity.class, Key.of("a", "b"));
+		// nothing changed, so nothing is written.
+		this.spannerTemplate.update(read);
+		read.details = "new details";
+		// the changed columns are upserted, so that a deleted row is recreated.
+		this.spannerTemplate.upsert(read);
+		// the entity is tracked from the state it was written in.
+		this.spannerTemplate.update(read);
+		this.spannerTemplate.upsertAll(Collections.singletonList(read));
+		read.details = "other details";
+		this.spannerTemplate.upsertAll(Collections.singletonList(read));
+
+		verify(this.mutationFactory, times(2)).upsertWithChildren(same(entity), eq(Optional.of(
+				new HashSet<>(Arrays.asList("id", "id2", "details")))));
+		verify(this.mutationFactory, times(0)).updateWithChildren(any(), any());
+		verify(this.databaseClient, times(2)).write(any());
+	}
+
+	@Test
+	public void dirtyTrackingUpdateAfterRollbackTest() {
+		this.spannerTemplate.setDirtyTracker(new SpannerDirtyTracker(this.mappingContext,
+				new MappingSpannerConverter(this.mappingContext)));
+		ChildEntity entity = new ChildEntity();
+		entity.id = "a";
+		entity.id2 = "b";
+		entity.details = "details";
+		when(this.objectMapper.mapToList(any(), eq(ChildEntity.class)))
+				.thenReturn(Collections.singletonList(entity));
+		TransactionRunner transactionRunner = mock(TransactionRunner.class);
+		when(this.databaseClient.readWriteTransaction()).thenReturn(transactionRunner);
+		TransactionContext transactionContext = mock(TransactionContext.class);
+		when(transactionRunner.run(any())).thenAnswer(invocation -> {
+			TransactionCallable transactionCallable = invocation.getArgument(0);
+			return transactionCallable.run(transactionContext);
+		});
+
+		ChildEntity read = this.spannerTemplate.read(ChildEntity.class, Key.of("a", "b"));
+		read.details = "new details";
+		try {
+			this.spannerTemplate.performReadWriteTransaction(transactionTemplate -> {
+				transactionTemplate.update(read);
+				throw new IllegalStateException("failed");
+			});
+			fail("Expected the transaction to fail.");
+		}
+		catch (IllegalStateException e) {
+			// the transaction is rolled back.
+		}
+		// the changes that were rolled back are written again.
+		this.spannerTemplate.update(read);
+
+		verify(this.mutationFactory, times(2)).updateWithChildren(same(entity), eq(Optional.of(
+				new HashSet<>(Arrays.asList("id", "id2", "details")))));
+		verify(this.databaseClient, times(1)).write(any());
+	}
+
+	@Test
+	public void dirtyTrackingRetriedTransactionTest() {
+		this.spannerTemplate.setDirtyTracker(new SpannerDirtyTracker(this.mappingContext,
+				new MappingSpannerConverter(this.mappingContext)));
+		ChildEntity entity = new ChildEntity();
+		entity.id = "a";
+		entity.id2 = "b";
+		entity.details = "details";
+		when(this.objectMapper.mapToList(any(), eq(ChildEntity.class)))
+				.thenReturn(Collections.singletonList(entity));
+		TransactionRunner transactionRunner = mock(TransactionRunner.class);
+		when(this.databaseClient.readWriteTransaction()).thenReturn(transactionRunner);
+		TransactionContext transactionContext = mock(TransactionContext.class);
+		// the runner retries the transaction once, as it does after an aborted commit.
+		when(transactionRunner.run(any())).thenAnswer(invocation -> {
+			TransactionCallable transactionCallable = invocation.getArgument(0);
+			transactionCallable.run(transactionContext);
+			return transactionCallable.run(transactionContext);
+		});
+
+		ChildEntity read = this.spannerTemplate.read(ChildEntity.class, Key.of("a", "b"));
+		read.details = "new details";
+		this.spannerTemplate.performReadWriteTransaction(transactionTemplate -> {
+			transactionTemplate.update(read);
+			return null;
+		});
+		// the entity is clean once the retried transaction is committed.
+		this.spannerTemplate.update(read);
+
+		verify(this.mutationFactory, times(2)).updateWithChildren(same(entity), eq(Optional.of(
+				new HashSet<>(Arrays.asList("id", "id2", "details")))));
+		verify(this.databaseClient, times(0)).write(any());
+	}
+
+	@Test
+	public void dirtyTrackingIgnoresUntrackedEntitiesTest() {
+		this.spannerTemplate.setDirtyTracker(new SpannerDirtyTracker(this.mappingContext,
+				new MappingSpannerConverter(this.mappingContext)));
+		ChildEntity entity = new ChildEntity();
+		when(this.mutationFactory.upsertWithChildren(same(entity), isNull())).thenReturn(
+				Collections.singletonList(
+						Mutation.newInsertOrUpdateBuilder("child_test_table").build()));
+
+		this.spannerTemplate.upsertAll(Collections.singletonList(entity));
+
+		verify(this.mutationFactory, times(1)).upsertWithChildren(same(entity), isNull());
+	}
+
+	@Test
+	public void readThroughEntityCacheTest() {
+		SpannerEntityCache entityCache = setUpEntityCache();
+		Key key = Key.of("a", 1L);
+
+		TestEntity first = this.spannerTemplate.read(TestEntity.class, key);
+		TestEntity second = this.spannerTemplate.read(TestEntity.class, key);
+
+		// every read maps its own entity from the cached row.
+		assertNotSame(first, second);
+		assertEquals("a", second.id);
+		verify(this.readContext, times(1)).read(eq("custom_test_table"), any(), any());
+		assertEquals(1, entityCache.getStats(TestEntity.class).hitCount());
+		assertEquals(1, entityCache.getStats(TestEntity.class).missCount());
+	}
+
+	@Test
+	public void entityCacheSkipsRowReadBeforeInvalidationTest() {
+		SpannerEntityCache entityCache = setUpEntityCache();
+		Key key = Key.of("a", 1L);
+		// a write of the entity is completed while its row is being read.
+		doAnswer(invocation -> {
+			entityCache.invalidate(TestEntity.class, KeySet.singleKey(key));
+			return singleRowResultSet();
+		}).when(this.readContext).read(any(), any(), any());
+
+		assertNotNull(this.spannerTemplate.read(TestEntity.class, key));
+
+		assertNull(entityCache.get(TestEntity.class, key));
+		this.spannerTemplate.read(TestEntity.class, key);
+		verify(this.readContext, times(2)).read(eq("custom_test_table"), any(), any());
+	}
+
+	@Test
+	public void entityCacheInvalidatedByWriteTest() {
+		setUpEntityCache();
+		Key key = Key.of("a", 1L);
+		TestEntity entity = this.spannerTemplate.read(TestEntity.class, key);
+		when(this.mutationFactory.updateWithChildren(entity, null))
+				.thenReturn(Collections.singletonList(
+						Mutation.newUpdateBuilder("custom_test_table").build()));
+
+		this.spannerTemplate.update(entity);
+		this.spannerTemplate.read(TestEntity.class, key);
+		this.spannerTemplate.delete(TestEntity.class, KeySet.all());
+		this.spannerTemplate.read(TestEntity.class, key);
+
+		verify(this.readContext, times(3)).read(eq("custom_test_table"), any(), any());
+	}
+
+	@Test
+	public void readWithTimestampBypassesEntityCacheTest() {
+		SpannerEntityCache entityCache = setUpEntityCache();
+		Timestamp timestamp = Timestamp.ofTimeMicroseconds(333);
+		when(this.databaseClient.singleUse(eq(TimestampBound.ofReadTimestamp(timestamp))))
+				.thenReturn(this.readContext);
+		Key key = Key.of("a", 1L);
+
+		this.spannerTemplate.read(TestEntity.class, key);
+		this.spannerTemplate.read(TestEntity.class, key,
+				new SpannerReadOptions().setTimestamp(timestamp));
+
+		verify(this.readContext, times(2)).read(eq("custom_test_table"), any(), any(),
+				any());
+		assertEquals(0, entityCache.getStats().hitCount());
+	}
+
+	@Test
+	public void readWriteTransactionBypassesEntityCacheTest() {
+		SpannerEntityCache entityCache = setUpEntityCache();
+		Key key = Key.of("a", 1L);
+		TestEntity cached = this.spannerTemplate.read(TestEntity.class, key);
+
+		TransactionRunner transactionRunner = mock(TransactionRunner.class);
+		when(this.databaseClient.readWriteTransaction()).thenReturn(transactionRunner);
+		TransactionContext transactionContext = mock(TransactionContext.class);
+		when(transactionContext.read(any(), any(), any()))
+				.thenReturn(mock(ResultSet.class));
+		when(transactionRunner.run(any())).thenAnswer(invocation -> {
+			TransactionCallable transactionCallable = invocation.getArgument(0);
+			return transactionCallable.run(transactionContext);
+		});
+
+		this.spannerTemplate.performReadWriteTransaction(transactionTemplate -> {
+			transactionTemplate.read(TestEntity.class, key);
+			transactionTemplate.delete(cached);
+			// the entity is only evicted after the transaction is committed.
+			assertNotNull(entityCache.get(TestEntity.class, key));
+			return null;
+		});
+
+		verify(transactionContext, times(1)).read(eq("custom_test_table"), any(), any());
+		assertNull(entityCache.get(TestEntity.class, key));
+	}
+
+	@Test
+	public void readWriteTransactionIdentityMapTest() {
+		TransactionRunner transactionRunner = mock(TransactionRunner.class);
+		when(this.databaseClient.readWriteTransaction()).thenReturn(transactionRunner);
+		TransactionContext transactionContext = mock(TransactionContext.class);
+		when(transactionContext.read(any(), any(), any()))
+				.thenReturn(mock(ResultSet.class));
+		when(transactionRunner.run(any())).thenAnswer(invocation -> {
+			TransactionCallable transactionCallable = invocation.getArgument(0);
+			return transactionCallable.run(transactionContext);
+		});
+		when(this.objectMapper.mapToList(any(ResultSet.class), eq(TestEntity.class)))
+				.thenAnswer(invocation -> {
+					TestEntity entity = new TestEntity();
+					entity.id = "a";
+					entity.id2 = 1L;
+					return Collections.singletonList(entity);
+				});
+		Key key = Key.of("a", 1L);
+
+		this.spannerTemplate.performReadWriteTransaction(transactionTemplate -> {
+			TestEntity first = transactionTemplate.read(TestEntity.class, key);
+			assertSame(first, transactionTemplate.read(TestEntity.class, key));
+
+			TestEntity written = new TestEntity();
+			written.id = "a";
+			written.id2 = 1L;
+			transactionTemplate.upsert(written);
+			assertSame(written, transactionTemplate.read(TestEntity.class, key));
+
+			transactionTemplate.delete(TestEntity.class, key);
+			assertNull(transactionTemplate.read(TestEntity.class, key));
+			return null;
+		});
+
+		verify(transactionContext, times(1)).read(eq("custom_test_table"), any(), any());
+	}
+
+	@Test
+	public void readWriteTransactionPartialUpdateThenReadTest() {
+		TransactionRunner transactionRunner = mock(TransactionRunner.class);
+		when(this.databaseClient.readWriteTransaction()).thenReturn(transactionRunner);
+		TransactionContext transactionContext = mock(TransactionContext.class);
+		when(transactionContext.read(any(), any(), any()))
+				.thenReturn(mock(ResultSet.class));
+		when(transactionRunner.run(any())).thenAnswer(invocation -> {
+			TransactionCallable transactionCallable = invocation.getArgument(0);
+			return transactionCallable.run(transactionContext);
+		});
+		when(this.objectMapper.mapToList(any(ResultSet.class), eq(TestEntity.class)))
+				.thenAnswer(invocation -> {
+					TestEntity entity = new TestEntity();
+					entity.id = "a";
+					entity.id2 = 1L;
+					entity.something = "stored";
+					entity.other = "stored";
+					return Collections.singletonList(entity);
+				});
+		Key key = Key.of("a", 1L);
+
+		this.spannerTemplate.performReadWriteTransaction(transactionTemplate -> {
+			// the written column is applied to the row read after the update.
+			TestEntity written = new TestEntity();
+			written.id = "a";
+			written.id2 = 1L;
+			written.something = "first";
+			written.other = "not written";
+			transactionTemplate.update(written, "custom_col");
+			TestEntity read = transactionTemplate.read(TestEntity.class, key);
+			assertEquals("first", read.something);
+			assertEquals("stored", read.other);
+
+			// the written column is applied to the entity that was already read.
+			written.something = "second";
+			transactionTemplate.update(written, "custom_col");
+			assertSame(read, transactionTemplate.read(TestEntity.class, key));
+			assertEquals("second", read.something);
+			assertEquals("stored", read.other);
+			return null;
+		});
+
+		verify(transactionContext, times(1)).read(eq("custom_test_table"), any(), any());
+	}
+
+	@Test
+	public void aggregateWriteEvictsCachedChildrenTest() {
+		SpannerEntityCache entityCache = new SpannerEntityCache(10, 1, TimeUnit.MINUTES);
+		this.spannerTemplate.setEntityCache(entityCache);
+		Key childKey = Key.of("p", "c");
+		Struct row = Struct.newBuilder().set("details").to("cached").build();
+		ChildEntity child = new ChildEntity();
+		child.id = "p";
+		child.id2 = "c";
+		ParentEntity parent = new ParentEntity();
+		parent.id = "p";
+		parent.children = Collections.singletonList(child);
+
+		entityCache.put(ChildEntity.class, childKey, row,
+				entityCache.getGeneration(ChildEntity.class));
+		this.spannerTemplate.upsert(parent);
+		assertNull(entityCache.get(ChildEntity.class, childKey));
+
+		// deleting the parent deletes its children.
+		entityCache.put(ChildEntity.class, childKey, row,
+				entityCache.getGeneration(ChildEntity.class));
+		this.spannerTemplate.delete(ParentEntity.class, Key.of("p"));
+		assertNull(entityCache.get(ChildEntity.class, childKey));
+	}
+
+	@Test
+	public void childWriteEvictsCachedParentTest() {
+		this.spannerTemplate.setEntityCache(new SpannerEntityCache(10, 1, TimeUnit.MINUTES));
+		when(this.readContext.executeQuery(any()))
+				.thenAnswer(invocation -> singleRowResultSet());
+		when(this.objectMapper.read(eq(ParentEntity.class), any(Struct.class)))
+				.thenAnswer(invocation -> new ParentEntity());
+		ChildEntity child = new ChildEntity();
+		child.id = "a";
+		child.id2 = "c";
+
+		this.spannerTemplate.read(ParentEntity.class, Key.of("a"));
+		this.spannerTemplate.read(ParentEntity.class, Key.of("a"));
+		verify(this.readContext, times(1)).executeQuery(any());
+
+		// the cached parent row includes the rows of its children.
+		this.spannerTemplate.insert(child);
+		this.spannerTemplate.read(ParentEntity.class, Key.of("a"));
+		verify(this.readContext, times(2)).executeQuery(any());
+
+		this.spannerTemplate.delete(ChildEntity.class, Key.of("a", "c"));
+		this.spannerTemplate.read(ParentEntity.class, Key.of("a"));
+		verify(this.readContext, times(3)).executeQuery(any());
+	}
+
+	@Test
+	public void readWriteTransactionChildWriteUpdatesParentTest() {
+		TransactionRunner transactionRunner = mock(TransactionRunner.class);
+		when(this.databaseClient.readWriteTransaction()).thenReturn(transactionRunner);
+		TransactionContext transactionContext = mock(TransactionContext.class);
+		when(transactionContext.executeQuery(any())).thenReturn(mock(ResultSet.class));
+		when(transactionRunner.run(any())).thenAnswer(invocation -> {
+			TransactionCallable transactionCallable = invocation.getArgument(0);
+			return transactionCallable.run(transactionContext);
+		});
+		ChildEntity readChild = new ChildEntity();
+		readChild.id = "a";
+		readChild.id2 = "b";
+		when(this.objectMapper.mapToList(any(ResultSet.class), eq(ParentEntity.class)))
+				.thenAnswer(invocation -> {
+					ParentEntity entity = new ParentEntity();
+					entity.id = "a";
+					entity.children = Collections.singletonList(readChild);
+					return Collections.singletonList(entity);
+				});
+		Key key = Key.of("a");
+
+		this.spannerTemplate.performReadWriteTransaction(transactionTemplate -> {
+			ParentEntity parent = transactionTemplate.read(ParentEntity.class, key);
+			ChildEntity newChild = new ChildEntity();
+			newChild.id = "a";
+			newChild.id2 = "c";
+			transactionTemplate.insert(newChild);
+			assertEquals(Arrays.asList(readChild, newChild),
+					transactionTemplate.read(ParentEntity.class, key).children);
+
+			ChildEntity updatedChild = new ChildEntity();
+			updatedChild.id = "a";
+			updatedChild.id2 = "b";
+			updatedChild.details = "details";
+			transactionTemplate.update(updatedChild, "details");
+			assertEquals("details", parent.children.get(0).details);
+
+			transactionTemplate.delete(readChild);
+			assertEquals(Collections.singletonList(newChild), parent.children);
+			return null;
+		});
+
+		verify(transactionContext, times(1)).executeQuery(any());
+	}
+
+	@Test
+	public void readWriteTransactionIdentityMapChildrenTest() {
+		TransactionRunner transactionRunner = mock(TransactionRunner.class);
+		when(this.databaseClient.readWriteTransaction()).thenReturn(transactionRunner);
+		TransactionContext transactionContext = mock(TransactionContext.class);
+		when(transactionContext.read(any(), any(), any()))
+				.thenReturn(mock(ResultSet.class));
+		when(transactionRunner.run(any())).thenAnswer(invocation -> {
+			TransactionCallable transactionCallable = invocation.getArgument(0);
+			return transactionCallable.run(transactionContext);
+		});
+		when(this.objectMapper.mapToList(any(ResultSet.class), eq(ChildEntity.class)))
+				.thenAnswer(invocation -> {
+					ChildEntity entity = new ChildEntity();
+					entity.id = "p";
+					entity.id2 = "c";
+					return Collections.singletonList(entity);
+				});
+		Key childKey = Key.of("p", "c");
+
+		this.spannerTemplate.performReadWriteTransaction(transactionTemplate -> {
+			transactionTemplate.read(ChildEntity.class, childKey);
+			ChildEntity child = new ChildEntity();
+			child.id = "p";
+			child.id2 = "c";
+			ParentEntity parent = new ParentEntity();
+			parent.id = "p";
+			parent.children = Collections.singletonList(child);
+			transactionTemplate.upsert(parent);
+			// the child written with its parent replaces the child that was read.
+			assertSame(child, transactionTemplate.read(ChildEntity.class, childKey));
+
+			transactionTemplate.delete(ParentEntity.class, Key.of("p"));
+			assertNotSame(child, transactionTemplate.read(ChildEntity.class, childKey));
+			return null;
+		});
+
+		verify(transactionContext, times(2)).read(eq("child_test_table"), any(), any());
+	}
+
+	@Test
+	public void readThroughBatcherTest() {
+		SpannerReadBatcher readBatcher = mock(SpannerReadBatcher.class);
+		this.spannerTemplate.setReadBatcher(readBatcher);
+		TestEntity entity = new TestEntity();
+		Key key = Key.of("a", 1L);
+		when(readBatcher.read(TestEntity.class, key))
+				.thenReturn(CompletableFuture.completedFuture(entity));
+
+		assertSame(entity, this.spannerTemplate.read(TestEntity.class, key));
+		this.spannerTemplate.read(TestEntity.class, key, new SpannerReadOptions());
+
+		verify(readBatcher, times(1)).read(any(), any());
+		verify(this.readContext, times(1)).read(eq("custom_test_table"), any(), any(),
+				any());
+	}
+
+	@Test
+	public void readEntityWithChildrenTest() {
+		ResultSet results = mock(ResultSet.class);
+		when(this.readContext.executeQuery(any())).thenReturn(results);
+		KeySet keys = KeySet.newBuilder().addKey(Key.of("a"))
+				.addRange(KeyRange.closedOpen(Key.of("b"), Key.of("c"))).build();
+
+		this.spannerTemplate.read(ParentEntity.class, keys);
+
+		Statement statement = Statement.newBuilder("SELECT id, name, "
+				+ "ARRAY (SELECT AS STRUCT id, id2, details FROM child_test_table "
+				+ "WHERE child_test_table.id = parent_test_table.id "
+				+ "ORDER BY child_test_table.id, child_test_table.id2) AS children "
+				+ "FROM parent_test_table WHERE ( id=@key0 ) "
+				+ "OR ( ( ( id>@key1 ) OR ( id=@key1 ) ) AND ( ( id<@key2 ) ) );")
+				.bind("key0").to("a").bind("key1").to("b").bind("key2").to("c").build();
+		verify(this.readContext, times(1)).executeQuery(eq(statement));
+		verify(this.readContext, times(0)).read(any(), any(), any());
+		verify(this.objectMapper, times(1)).mapToList(same(results),
+				eq(ParentEntity.class));
+	}
+
+	@Test
+	public void queryAllEntityWithChildrenTest() {
+		this.spannerTemplate.queryAll(ParentEntity.class, Sort.by("name"));
+
+		verify(this.readContext, times(1)).executeQuery(eq(Statement.of(
+				"SELECT id, name, ARRAY (SELECT AS STRUCT id, id2, details "
+						+ "FROM child_test_table "
+						+ "WHERE child_test_table.id = parent_test_table.id "
+						+ "ORDER BY child_test_table.id, child_test_table.id2) AS children "
+						+ "FROM parent_test_table ORDER BY name ASC;")));
+	}
+
+	@Test(expected = SpannerDataException.class)
+	public void readEntityWithChildrenUsingIndexTest() {
+		this.spannerTemplate.read(ParentEntity.class, KeySet.all(),
+				new SpannerReadOptions().setIndex("index"));
+	}
+
+	private SpannerEntityCache setUpEntityCache() {
+		SpannerEntityCache entityCache = new SpannerEntityCache(10, 1, TimeUnit.MINUTES);
+		this.spannerTemplate.setEntityCache(entityCache);
+		when(this.readContext.read(any(), any(), any()))
+				.thenAnswer(invocation -> singleRowResultSet());
+		when(this.readContext.read(any(), any(), any(), any()))
+				.thenAnswer(invocation -> singleRowResultSet());
+		when(this.objectMapper.read(eq(TestEntity.class), any(Struct.class)))
+				.thenAnswer(invocation -> {
+					TestEntity entity = new TestEntity();
+					entity.id = "a";
+					entity.id2 = 1L;
+					return entity;
+				});
+		when(this.objectMapper.mapToList(any(ResultSet.class), eq(TestEntity.class)))
+				.thenAnswer(invocation -> {
+					TestEntity entity = new TestEntity();
+					entity.id = "a";
+					entity.id2 = 1L;
+					return Collections.singletonList(entity);
+				});
+		return entityCache;
+	}
+
+	private static ResultSet singleRowResultSet() {
+		ResultSet resultSet = mock(ResultSet.class);
+		when(resultSet.next()).thenReturn(true, false);
+		when(resultSet.getCurrentRowAsStruct()).thenReturn(Struct.newBuilder()
+				.set("id").to("a").set("id2").to(1L).build());
+		return resultSet;
+	}
+
+	@Test
+	public void readWithMaxStalenessTest() {
+		ReadContext staleReadContext = mock(ReadContext.class);
+		when(this.databaseClient.singleUse(
+				eq(TimestampBound.ofMaxStaleness(15, TimeUnit.SECONDS))))
+						.thenReturn(staleReadContext);
+
+		this.spannerTemplate.readAll(TestEntity.class,
+				new SpannerReadOptions().setMaxStaleness(15, TimeUnit.SECONDS));
+
+		verify(staleReadContext, times(1)).read(eq("custom_test_table"), any(), any());
+		verify(this.databaseClient, times(0)).singleUse();
+	}
+
+	@Test
+	public void queryWithEntityStaleReadTest() {
+		ReadContext staleReadContext = mock(ReadContext.class);
+		when(this.databaseClient.singleUse(
+				eq(TimestampBound.ofExactStaleness(10, TimeUnit.SECONDS))))
+						.thenReturn(staleReadContext);
+		Statement statement = Statement.of("SELECT * FROM stale_table");
+
+		this.spannerTemplate.query(StaleEntity.class, statement);
+
+		verify(staleReadContext, times(1)).executeQuery(eq(statement));
+		verify(this.databaseClient, times(0)).singleUse();
+	}
+
+	@Test
+	public void timestampTakesPrecedenceOverStalenessTest() {
+		ReadContext timestampReadContext = mock(ReadContext.class);
+		when(this.databaseClient.singleUse(
+				eq(TimestampBound.ofReadTimestamp(Timestamp.ofTimeMicroseconds(333)))))
+						.thenReturn(timestampReadContext);
+		Statement statement = Statement.of("SELECT * FROM stale_table");
+
+		this.spannerTemplate.query(StaleEntity.class, statement,
+				new SpannerQueryOptions().setTimestamp(Timestamp.ofTimeMicroseconds(333))
+						.setMaxStaleness(5, TimeUnit.SECONDS));
+
+		verify(timestampReadContext, times(1)).executeQuery(eq(statement));
+	}
+
+	@Test
+	public void readOnlyTransactionIgnoresEntityStaleReadTest() {
+		ReadOnlyTransaction readOnlyTransaction = mock(ReadOnlyTransaction.class);
+		when(this.databaseClient.readOnlyTransaction()).thenReturn(readOnlyTransaction);
+
+		this.spannerTemplate.performReadOnlyTransaction(
+				spannerOperations -> spannerOperations.readAll(StaleEntity.class), null);
+
+		verify(readOnlyTransaction, times(1)).read(eq("stale_table"), any(), any());
+	}
+
+	@Test
+	public void readOnlyTransactionMaxStalenessTest() {
+		try {
+			this.spannerTemplate.performReadOnlyTransaction(
+					spannerOperations -> spannerOperations.readAll(TestEntity.class),
+					new SpannerReadOptions().setMaxStaleness(10, TimeUnit.SECONDS));
+			fail();
+		}
+		catch (SpannerDataException e) {
+			assertTrue(e.getMessage().contains("exact staleness"));
+		}
+		verify(this.databaseClient, times(0)).readOnlyTransaction(any());
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void nullDatabaseClientTest() {
 		new SpannerTemplate(null, this.mappingContext, this.objectMapper,
@@ -209,7 +978,8 @@ public class SpannerTemplateTests {
 		doAnswer(invocation -> {
 			Statement statement = invocation.getArgument(1);
 			assertEquals(
-					"SELECT * FROM custom_test_table ORDER BY id ASC LIMIT 5 OFFSET 3;",
+					"SELECT id, id2, custom_col, other, bytes, bytesList, integerList, doubles "
+							+ "FROM custom_test_table ORDER BY id ASC LIMIT 5 OFFSET 3;",
 					statement.getSql());
 			return Collections.emptyList();
 		}).when(spyTemplate).query(eq(TestEntity.class), any(), any());
@@ -270,6 +1040,49 @@ public class SpannerTemplateTests {
 				same(queryOption));
 	}
 
+	@Test
+	public void queryRowsTest() {
+		ResultSet results = mock(ResultSet.class);
+		when(results.next()).thenReturn(true, true, false);
+		when(results.getCurrentRowAsStruct()).thenReturn(
+				Struct.newBuilder().add("count", Value.int64(3L)).build(),
+				Struct.newBuilder().add("count", Value.int64(4L)).build());
+		Statement statement = Statement.of("test");
+		when(this.readContext.executeQuery(any())).thenReturn(results);
+		List<Long> counts = this.spannerTemplate.queryRows(row -> row.getLong(0),
+				statement, null);
+		assertEquals(Arrays.asList(3L, 4L), counts);
+		verify(this.objectMapper, times(0)).mapToList(any(), any(), any(),
+				anyBoolean());
+		verify(results, times(1)).close();
+	}
+
+	@Test
+	public void queryStreamTest() {
+		ResultSet results = mock(ResultSet.class);
+		QueryOption queryOption = mock(QueryOption.class);
+		Statement statement = Statement.of("test");
+		SpannerQueryOptions options = new SpannerQueryOptions()
+				.addQueryOption(queryOption).setAllowPartialRead(true);
+		when(this.readContext.executeQuery(any(), any())).thenReturn(results);
+		this.spannerTemplate.queryStream(TestEntity.class, statement, options);
+		verify(this.objectMapper, times(1)).mapToStream(same(results),
+				eq(TestEntity.class), eq(Optional.empty()), eq(true));
+		verify(this.objectMapper, times(0)).mapToList(any(), any(), any(),
+				anyBoolean());
+	}
+
+	@Test
+	public void readAllStreamTest() {
+		ResultSet results = mock(ResultSet.class);
+		when(this.readContext.read(any(), any(), any())).thenReturn(results);
+		this.spannerTemplate.readAllStream(TestEntity.class);
+		verify(this.objectMapper, times(1)).mapToStream(same(results),
+				eq(TestEntity.class));
+		verify(this.readContext, times(1)).read(eq("custom_test_table"),
+				eq(KeySet.all()), any());
+	}
+
 	@Test
 	public void findAllTest() {
 		SpannerTemplate spyTemplate = spy(this.spannerTemplate);
@@ -283,7 +1096,7 @@ public class SpannerTemplateTests {
 	public void insertTest() {
 		Mutation mutation = Mutation.newInsertBuilder("custom_test_table").build();
 		TestEntity entity = new TestEntity();
-		when(this.mutationFactory.insert(entity)).thenReturn(mutation);
+		when(this.mutationFactory.insertWithChildren(entity)).thenReturn(Collections.singletonList(mutation));
 		this.spannerTemplate.insert(entity);
 		verify(this.databaseClient, times(1)).write(eq(Arrays.asList(mutation)));
 	}
@@ -292,7 +1105,7 @@ public class SpannerTemplateTests {
 	public void updateTest() {
 		Mutation mutation = Mutation.newUpdateBuilder("custom_test_table").build();
 		TestEntity entity = new TestEntity();
-		when(this.mutationFactory.update(entity, null)).thenReturn(mutation);
+		when(this.mutationFactory.updateWithChildren(entity, null)).thenReturn(Collections.singletonList(mutation));
 		this.spannerTemplate.update(entity);
 		verify(this.databaseClient, times(1)).write(eq(Arrays.asList(mutation)));
 	}
@@ -302,9 +1115,9 @@ public class SpannerTemplateTests {
 		Mutation mutation = Mutation.newInsertOrUpdateBuilder("custom_test_table")
 				.build();
 		TestEntity entity = new TestEntity();
-		when(this.mutationFactory.update(same(entity),
+		when(this.mutationFactory.updateWithChildren(same(entity),
 				eq(Optional.of(new HashSet<>(Arrays.asList(new String[] { "a", "b" }))))))
-						.thenReturn(mutation);
+						.thenReturn(Collections.singletonList(mutation));
 		this.spannerTemplate.update(entity, "a", "b");
 		verify(this.databaseClient, times(1)).write(eq(Arrays.asList(mutation)));
 	}
@@ -315,8 +1128,8 @@ public class SpannerTemplateTests {
 				.build();
 		TestEntity entity = new TestEntity();
 		Set<String> cols = new HashSet<>(Arrays.asList(new String[] { "a", "b" }));
-		when(this.mutationFactory.update(same(entity), eq(Optional.of(cols))))
-				.thenReturn(mutation);
+		when(this.mutationFactory.updateWithChildren(same(entity), eq(Optional.of(cols))))
+				.thenReturn(Collections.singletonList(mutation));
 		this.spannerTemplate.update(entity, Optional.of(cols));
 		verify(this.databaseClient, times(1)).write(eq(Arrays.asList(mutation)));
 	}
@@ -326,7 +1139,8 @@ public class SpannerTemplateTests {
 		Mutation mutation = Mutation.newInsertOrUpdateBuilder("custom_test_table")
 				.build();
 		TestEntity entity = new TestEntity();
-		when(this.mutationFactory.upsert(same(entity), isNull())).thenReturn(mutation);
+		when(this.mutationFactory.upsertWithChildren(same(entity), isNull()))
+				.thenReturn(Collections.singletonList(mutation));
 		this.spannerTemplate.upsert(entity);
 		verify(this.databaseClient, times(1)).write(eq(Arrays.asList(mutation)));
 	}
@@ -336,9 +1150,9 @@ public class SpannerTemplateTests {
 		Mutation mutation = Mutation.newInsertOrUpdateBuilder("custom_test_table")
 				.build();
 		TestEntity entity = new TestEntity();
-		when(this.mutationFactory.upsert(same(entity),
+		when(this.mutationFactory.upsertWithChildren(same(entity),
 				eq(Optional.of(new HashSet<>(Arrays.asList(new String[] { "a", "b" }))))))
-						.thenReturn(mutation);
+						.thenReturn(Collections.singletonList(mutation));
 		this.spannerTemplate.upsert(entity, "a", "b");
 		verify(this.databaseClient, times(1)).write(eq(Arrays.asList(mutation)));
 	}
@@ -349,12 +1163,136 @@ public class SpannerTemplateTests {
 				.build();
 		TestEntity entity = new TestEntity();
 		Set<String> cols = new HashSet<>(Arrays.asList(new String[] { "a", "b" }));
-		when(this.mutationFactory.upsert(same(entity), eq(Optional.of(cols))))
-				.thenReturn(mutation);
+		when(this.mutationFactory.upsertWithChildren(same(entity), eq(Optional.of(cols))))
+				.thenReturn(Collections.singletonList(mutation));
 		this.spannerTemplate.upsert(entity, Optional.of(cols));
 		verify(this.databaseClient, times(1)).write(eq(Arrays.asList(mutation)));
 	}
 
+	@Test
+	public void upsertAllChunkedTest() {
+		Mutation mutation1 = Mutation.newInsertOrUpdateBuilder("custom_test_table")
+				.set("a").to("a1").set("b").to("b1").build();
+		Mutation mutation2 = Mutation.newInsertOrUpdateBuilder("custom_test_table")
+				.set("a").to("a2").set("b").to("b2").build();
+		Mutation mutation3 = Mutation.newInsertOrUpdateBuilder("custom_test_table")
+				.set("a").to("a3").set("b").to("b3").build();
+		TestEntity entity1 = new TestEntity();
+		TestEntity entity2 = new TestEntity();
+		TestEntity entity3 = new TestEntity();
+		when(this.mutationFactory.upsertWithChildren(same(entity1), isNull()))
+				.thenReturn(Collections.singletonList(mutation1));
+		when(this.mutationFactory.upsertWithChildren(same(entity2), isNull()))
+				.thenReturn(Collections.singletonList(mutation2));
+		when(this.mutationFactory.upsertWithChildren(same(entity3), isNull()))
+				.thenReturn(Collections.singletonList(mutation3));
+		Timestamp timestamp1 = Timestamp.ofTimeMicroseconds(1);
+		Timestamp timestamp2 = Timestamp.ofTimeMicroseconds(2);
+		when(this.databaseClient.write(eq(Arrays.asList(mutation1, mutation2))))
+				.thenReturn(timestamp1);
+		when(this.databaseClient.write(eq(Arrays.asList(mutation3))))
+				.thenReturn(timestamp2);
+
+		this.spannerTemplate.setMaxMutationCellsPerCommit(4);
+		List<Timestamp> commitTimestamps = this.spannerTemplate
+				.upsertAll(Arrays.asList(entity1, entity2, entity3));
+
+		assertEquals(Arrays.asList(timestamp1, timestamp1, timestamp2), commitTimestamps);
+		verify(this.databaseClient, times(2)).write(any());
+	}
+
+	@Test
+	public void upsertAllFailedSecondChunkTest() {
+		Mutation mutation1 = Mutation.newInsertOrUpdateBuilder("custom_test_table")
+				.set("a").to("a1").set("b").to("b1").build();
+		Mutation mutation2 = Mutation.newInsertOrUpdateBuilder("custom_test_table")
+				.set("a").to("a2").set("b").to("b2").build();
+		TestEntity entity1 = new TestEntity();
+		TestEntity entity2 = new TestEntity();
+		when(this.mutationFactory.upsertWithChildren(same(entity1), isNull()))
+				.thenReturn(Collections.singletonList(mutation1));
+		when(this.mutationFactory.upsertWithChildren(same(entity2), isNull()))
+				.thenReturn(Collections.singletonList(mutation2));
+		Timestamp timestamp = Timestamp.ofTimeMicroseconds(1);
+		when(this.databaseClient.write(eq(Arrays.asList(mutation1)))).thenReturn(timestamp);
+		when(this.databaseClient.write(eq(Arrays.asList(mutation2)))).thenThrow(
+				SpannerExceptionFactory.newSpannerException(ErrorCode.ABORTED, "aborted"));
+
+		this.spannerTemplate.setMaxMutationCellsPerCommit(2);
+		try {
+			this.spannerTemplate.upsertAll(Arrays.asList(entity1, entity2));
+			fail();
+		}
+		catch (SpannerBatchWriteException e) {
+			assertEquals(1, e.getCommittedCount());
+			assertEquals(Collections.singletonList(timestamp), e.getCommitTimestamps());
+		}
+	}
+
+	@Test
+	public void insertAllKeepsAggregateInOneCommitTest() {
+		Mutation parentMutation = Mutation.newInsertBuilder("parent_test_table")
+				.set("id").to("p1").set("name").to("n1").build();
+		Mutation childMutation = Mutation.newInsertBuilder("child_test_table")
+				.set("id").to("p1").set("id2").to("c1").build();
+		Mutation otherMutation = Mutation.newInsertBuilder("parent_test_table")
+				.set("id").to("p2").set("name").to("n2").build();
+		ParentEntity aggregate = new ParentEntity();
+		ParentEntity other = new ParentEntity();
+		when(this.mutationFactory.insertWithChildren(same(aggregate)))
+				.thenReturn(Arrays.asList(parentMutation, childMutation));
+		when(this.mutationFactory.insertWithChildren(same(other)))
+				.thenReturn(Collections.singletonList(otherMutation));
+
+		this.spannerTemplate.setMaxMutationCellsPerCommit(5);
+		this.spannerTemplate.insertAll(Arrays.asList(other, aggregate));
+
+		verify(this.databaseClient, times(1)).write(eq(Arrays.asList(otherMutation)));
+		verify(this.databaseClient, times(1))
+				.write(eq(Arrays.asList(parentMutation, childMutation)));
+	}
+
+	@Test
+	public void insertAllTest() {
+		Mutation mutation1 = Mutation.newInsertBuilder("custom_test_table").build();
+		Mutation mutation2 = Mutation.newInsertBuilder("custom_test_table").build();
+		TestEntity entity1 = new TestEntity();
+		TestEntity entity2 = new TestEntity();
+		when(this.mutationFactory.insertWithChildren(same(entity1))).thenReturn(Collections.singletonList(mutation1));
+		when(this.mutationFactory.insertWithChildren(same(entity2))).thenReturn(Collections.singletonList(mutation2));
+		this.spannerTemplate.insertAll(Arrays.asList(entity1, entity2));
+		verify(this.databaseClient, times(1))
+				.write(eq(Arrays.asList(mutation1, mutation2)));
+	}
+
+	@Test(expected = SpannerDataException.class)
+	public void updateAllFailedChunkTest() {
+		Mutation mutation = Mutation.newUpdateBuilder("custom_test_table").build();
+		TestEntity entity = new TestEntity();
+		when(this.mutationFactory.updateWithChildren(same(entity), isNull()))
+				.thenReturn(Collections.singletonList(mutation));
+		when(this.databaseClient.write(any())).thenThrow(SpannerExceptionFactory
+				.newSpannerException(ErrorCode.ABORTED, "aborted"));
+		this.spannerTemplate.updateAll(Collections.singletonList(entity));
+	}
+
+	@Test
+	public void upsertAllInReadWriteTransactionTest() {
+		TransactionContext transactionContext = mock(TransactionContext.class);
+		Mutation mutation = Mutation.newInsertOrUpdateBuilder("custom_test_table")
+				.build();
+		TestEntity entity = new TestEntity();
+		when(this.mutationFactory.upsertWithChildren(same(entity), isNull()))
+				.thenReturn(Collections.singletonList(mutation));
+		List<Timestamp> commitTimestamps = new ReadWriteTransactionSpannerTemplate(
+				this.databaseClient, this.mappingContext, this.objectMapper,
+				this.mutationFactory, transactionContext)
+						.upsertAll(Collections.singletonList(entity));
+		assertTrue(commitTimestamps.isEmpty());
+		verify(transactionContext, times(1)).buffer(eq(Arrays.asList(mutation)));
+		verify(this.databaseClient, times(0)).write(any());
+	}
+
 	@Test
 	public void deleteByKeyTest() {
 		Key key = Key.of("key");
@@ -417,7 +1355,8 @@ public class SpannerTemplateTests {
 		doAnswer(invocation -> {
 			Statement statement = invocation.getArgument(1);
 			assertEquals(
-					"SELECT * FROM custom_test_table ORDER BY id ASC , "
+					"SELECT id, id2, custom_col, other, bytes, bytesList, integerList, doubles "
+							+ "FROM custom_test_table ORDER BY id ASC , "
 							+ "custom_col DESC , other ASC LIMIT 3 OFFSET 5;",
 					statement.getSql());
 			return null;
@@ -428,6 +1367,184 @@ public class SpannerTemplateTests {
 				any());
 	}
 
+	@Test
+	public void findAllSortWithOffsetOnlyTest() {
+		SpannerTemplate spyTemplate = spy(this.spannerTemplate);
+		SpannerQueryOptions queryOption = new SpannerQueryOptions().setOffset(5L);
+
+		doAnswer(invocation -> {
+			Statement statement = invocation.getArgument(1);
+			assertEquals(
+					"SELECT id, id2, custom_col, other, bytes, bytesList, integerList, doubles "
+							+ "FROM custom_test_table ORDER BY id ASC LIMIT "
+							+ Long.MAX_VALUE + " OFFSET 5;",
+					statement.getSql());
+			return null;
+		}).when(spyTemplate).query(eq(TestEntity.class), (Statement) any(), any());
+
+		spyTemplate.queryAll(TestEntity.class, Sort.by("id"), queryOption);
+		verify(spyTemplate, times(1)).query(eq(TestEntity.class), (Statement) any(),
+				any());
+	}
+
+	@Test
+	public void queryAllAfterTest() {
+		SpannerTemplate spyTemplate = spy(this.spannerTemplate);
+		when(this.objectMapper.getSpannerJavaType(any(), eq(false)))
+				.thenAnswer(invocation -> invocation.getArgument(0));
+		TestEntity lastEntity = new TestEntity();
+		lastEntity.id = "a";
+		lastEntity.id2 = 5L;
+		lastEntity.something = "x";
+
+		doAnswer(invocation -> {
+			Statement statement = invocation.getArgument(1);
+			assertEquals(
+					"SELECT id, id2, custom_col, other, bytes, bytesList, integerList, doubles "
+							+ "FROM custom_test_table WHERE "
+							+ "( ( custom_col<@seek0 OR custom_col IS NULL ) ) OR "
+							+ "( custom_col=@seek0 AND id>@seek1 ) OR "
+							+ "( custom_col=@seek0 AND id=@seek1 AND id2>@seek2 ) "
+							+ "ORDER BY custom_col DESC , id ASC , id2 ASC LIMIT 3;",
+					statement.getSql());
+			assertEquals("x", statement.getParameters().get("seek0").getString());
+			assertEquals("a", statement.getParameters().get("seek1").getString());
+			assertEquals(5L, statement.getParameters().get("seek2").getInt64());
+			return Arrays.asList(new TestEntity(), new TestEntity(), new TestEntity());
+		}).when(spyTemplate).query(eq(TestEntity.class), (Statement) any(), any());
+
+		Slice<TestEntity> slice = spyTemplate.queryAllAfter(TestEntity.class,
+				Sort.by(Order.desc("something")), lastEntity, 2);
+		assertEquals(2, slice.getNumberOfElements());
+		assertTrue(slice.hasNext());
+		assertEquals(Sort.by(Order.desc("something"), Order.asc("id"), Order.asc("id2")),
+				slice.getSort());
+	}
+
+	@Test
+	public void queryAllAfterNullLastEntityTest() {
+		SpannerTemplate spyTemplate = spy(this.spannerTemplate);
+
+		doAnswer(invocation -> {
+			Statement statement = invocation.getArgument(1);
+			assertEquals(
+					"SELECT id, id2, custom_col, other, bytes, bytesList, integerList, doubles "
+							+ "FROM custom_test_table ORDER BY id ASC , id2 ASC LIMIT 3;",
+					statement.getSql());
+			return Collections.singletonList(new TestEntity());
+		}).when(spyTemplate).query(eq(TestEntity.class), (Statement) any(), any());
+
+		Slice<TestEntity> slice = spyTemplate.queryAllAfter(TestEntity.class,
+				Sort.unsorted(), null, 2);
+		assertEquals(1, slice.getNumberOfElements());
+		assertFalse(slice.hasNext());
+	}
+
+	@Test
+	public void readAllPartitionedTest() {
+		BatchReadOnlyTransaction transaction = setUpBatchReadOnlyTransaction(
+				TimestampBound.ofReadTimestamp(Timestamp.ofTimeMicroseconds(333)));
+		Partition partition1 = mock(Partition.class);
+		Partition partition2 = mock(Partition.class);
+		when(transaction.partitionRead(any(), eq("custom_test_table"), eq(KeySet.all()),
+				any(), any())).thenReturn(Arrays.asList(partition1, partition2));
+		TestEntity t1 = new TestEntity();
+		TestEntity t2 = new TestEntity();
+		TestEntity t3 = new TestEntity();
+		mockPartitionEntities(transaction, partition1, t1, t2);
+		mockPartitionEntities(transaction, partition2, t3);
+
+		List<TestEntity> entities = this.spannerTemplate
+				.readAllPartitioned(TestEntity.class, new SpannerReadOptions()
+						.setTimestamp(Timestamp.ofTimeMicroseconds(333)))
+				.collect(Collectors.toList());
+
+		assertEquals(Arrays.asList(t1, t2, t3), entities);
+		verify(transaction, times(1)).close();
+	}
+
+	@Test
+	public void queryPartitionedConsumerTest() {
+		BatchReadOnlyTransaction transaction = setUpBatchReadOnlyTransaction(
+				TimestampBound.strong());
+		Statement statement = Statement.of("SELECT * FROM custom_test_table");
+		Partition partition1 = mock(Partition.class);
+		Partition partition2 = mock(Partition.class);
+		when(transaction.partitionQuery(any(), eq(statement)))
+				.thenReturn(Arrays.asList(partition1, partition2));
+		mockPartitionEntities(transaction, partition1, new TestEntity());
+		mockPartitionEntities(transaction, partition2, new TestEntity(),
+				new TestEntity());
+
+		List<Long> partitionSizes = new ArrayList<>();
+		this.spannerTemplate.queryPartitioned(TestEntity.class, statement, null,
+				entities -> partitionSizes.add(entities.count()));
+
+		assertEquals(Arrays.asList(1L, 2L), partitionSizes);
+		verify(transaction, times(1)).close();
+	}
+
+	@Test
+	public void readAllPartitionedOnBoundedThreadsTest() {
+		BatchClient batchClient = mock(BatchClient.class);
+		BatchReadOnlyTransaction transaction = mock(BatchReadOnlyTransaction.class);
+		when(batchClient.batchReadOnlyTransaction(eq(TimestampBound.strong())))
+				.thenReturn(transaction);
+		this.spannerTemplate.setBatchClient(batchClient);
+		List<Partition> partitions = new ArrayList<>();
+		for (int i = 0; i < SpannerTemplate.DEFAULT_MAX_CONCURRENT_PARTITIONS * 2; i++) {
+			partitions.add(mock(Partition.class));
+		}
+		when(transaction.partitionRead(any(), any(), any(), any(), any()))
+				.thenReturn(partitions);
+		Set<String> threadNames = ConcurrentHashMap.newKeySet();
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		ResultSet resultSet = mock(ResultSet.class);
+		when(transaction.execute(any())).thenAnswer(invocation -> {
+			threadNames.add(Thread.currentThread().getName());
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			Thread.sleep(10);
+			running.decrementAndGet();
+			return resultSet;
+		});
+		when(this.objectMapper.mapToStream(same(resultSet), eq(TestEntity.class), any(),
+				anyBoolean())).thenAnswer(invocation -> Stream.of(new TestEntity()));
+
+		long count = this.spannerTemplate.readAllPartitioned(TestEntity.class, null)
+				.count();
+
+		assertEquals(partitions.size(), count);
+		assertEquals(Collections.singleton("spanner-partition-read"), threadNames);
+		assertTrue(maxRunning.get() <= SpannerTemplate.DEFAULT_MAX_CONCURRENT_PARTITIONS);
+		verify(transaction, times(partitions.size())).execute(any());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void partitionedReadWithoutBatchClientTest() {
+		this.spannerTemplate.readAllPartitioned(TestEntity.class, null);
+	}
+
+	private BatchReadOnlyTransaction setUpBatchReadOnlyTransaction(
+			TimestampBound timestampBound) {
+		BatchClient batchClient = mock(BatchClient.class);
+		BatchReadOnlyTransaction transaction = mock(BatchReadOnlyTransaction.class);
+		when(batchClient.batchReadOnlyTransaction(eq(timestampBound)))
+				.thenReturn(transaction);
+		this.spannerTemplate.setBatchClient(batchClient);
+		// partitions are run on the calling thread so that the order is deterministic.
+		this.spannerTemplate.setPartitionExecutor(Runnable::run);
+		return transaction;
+	}
+
+	private void mockPartitionEntities(BatchReadOnlyTransaction transaction,
+			Partition partition, TestEntity... entities) {
+		ResultSet resultSet = mock(ResultSet.class);
+		when(transaction.execute(same(partition))).thenReturn(resultSet);
+		when(this.objectMapper.mapToStream(same(resultSet), eq(TestEntity.class), any(),
+				anyBoolean())).thenReturn(Stream.of(entities));
+	}
+
 	@Test
 	public void findAllPageableTest() {
 		SpannerTemplate spyTemplate = spy(this.spannerTemplate);
@@ -468,6 +1585,35 @@ public class SpannerTemplateTests {
 		assertEquals("c", ((TestEntity) page.getContent().get(2)).id);
 	}
 
+	@Table(name = "stale_table")
+	@StaleRead(seconds = 10, exact = true)
+	private static class StaleEntity {
+		@PrimaryKey
+		String id;
+	}
+
+	@Table(name = "parent_test_table")
+	private static class ParentEntity {
+		@PrimaryKey
+		String id;
+
+		String name;
+
+		@Interleaved
+		List<ChildEntity> children;
+	}
+
+	@Table(name = "child_test_table")
+	private static class ChildEntity {
+		@PrimaryKey(keyOrder = 1)
+		String id;
+
+		@PrimaryKey(keyOrder = 2)
+		String id2;
+
+		String details;
+	}
+
 	@Table(name = "custom_test_table")
 	private static class TestEntity {
 		@PrimaryKey(keyOrder = 1)
@@ -0,0 +1,262 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.data.spanner.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.ReadOnlyTransaction;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.cloud.gcp.data.spanner.core.convert.MappingSpannerConverter;
+import org.springframework.cloud.gcp.data.spanner.core.convert.SpannerConverter;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.PrimaryKey;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerDataException;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerMappingContext;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.Table;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Chengyuan Zhao
+ */
+public class SpannerTransactionManagerTests {
+
+	private DatabaseClient databaseClient;
+
+	private SpannerMutationFactory mutationFactory;
+
+	private SpannerTemplate spannerTemplate;
+
+	private TransactionTemplate transactionTemplate;
+
+	@Before
+	public void setUp() {
+		this.databaseClient = mock(DatabaseClient.class);
+		this.mutationFactory = mock(SpannerMutationFactory.class);
+		this.spannerTemplate = new SpannerTemplate(this.databaseClient,
+				new SpannerMappingContext(), mock(SpannerConverter.class),
+				this.mutationFactory);
+		this.transactionTemplate = new TransactionTemplate(
+				new SpannerTransactionManager(this.databaseClient));
+	}
+
+	@Test
+	public void mutationsAreSentInOneCommitTest() {
+		Mutation mutation1 = Mutation.newInsertBuilder("test_table").build();
+		Mutation mutation2 = Mutation.newUpdateBuilder("test_table").build();
+		TestEntity entity1 = new TestEntity();
+		TestEntity entity2 = new TestEntity();
+		when(this.mutationFactory.insertWithChildren(same(entity1)))
+				.thenReturn(Collections.singletonList(mutation1));
+		when(this.mutationFactory.updateWithChildren(same(entity2), any()))
+				.thenReturn(Collections.singletonList(mutation2));
+
+		this.transactionTemplate.execute(status -> {
+			this.spannerTemplate.insert(entity1);
+			this.spannerTemplate.updateAll(Collections.singletonList(entity2));
+			verify(this.databaseClient, times(0)).write(any());
+			return null;
+		});
+
+		verify(this.databaseClient, times(1))
+				.write(eq(Arrays.asList(mutation1, mutation2)));
+	}
+
+	@Test
+	public void rollbackDiscardsMutationsTest() {
+		TestEntity entity = new TestEntity();
+		when(this.mutationFactory.insertWithChildren(same(entity))).thenReturn(
+				Collections.singletonList(Mutation.newInsertBuilder("test_table").build()));
+
+		try {
+			this.transactionTemplate.execute(status -> {
+				this.spannerTemplate.insert(entity);
+				throw new IllegalStateException("failed");
+			});
+			fail("Expected the transaction to fail.");
+		}
+		catch (IllegalStateException e) {
+			// the transaction is rolled back.
+		}
+		verify(this.databaseClient, times(0)).write(any());
+
+		// writes after the transaction are committed immediately.
+		this.spannerTemplate.insert(entity);
+		verify(this.databaseClient, times(1)).write(any());
+	}
+
+	@Test
+	public void dirtyEntityIsWrittenAgainAfterRollbackTest() {
+		SpannerMappingContext mappingContext = new SpannerMappingContext();
+		SpannerDirtyTracker dirtyTracker = new SpannerDirtyTracker(mappingContext,
+				new MappingSpannerConverter(mappingContext));
+		this.spannerTemplate.setDirtyTracker(dirtyTracker);
+		TestEntity entity = new TestEntity();
+		entity.id = "a";
+		entity.value = "old";
+		dirtyTracker.track(entity);
+		entity.value = "new";
+		when(this.mutationFactory.updateWithChildren(same(entity), any())).thenReturn(
+				Collections.singletonList(Mutation.newUpdateBuilder("test_table").build()));
+
+		try {
+			this.transactionTemplate.execute(status -> {
+				this.spannerTemplate.update(entity);
+				throw new IllegalStateException("failed");
+			});
+			fail("Expected the transaction to fail.");
+		}
+		catch (IllegalStateException e) {
+			// the transaction is rolled back.
+		}
+		// the changes that were rolled back are still written by the next update.
+		this.spannerTemplate.update(entity);
+
+		Optional<Set<String>> dirtyColumns = Optional
+				.of(new HashSet<>(Arrays.asList("id", "value")));
+		verify(this.mutationFactory, times(2)).updateWithChildren(same(entity),
+				eq(dirtyColumns));
+		verify(this.databaseClient, times(1)).write(any());
+
+		// the entity is clean once an update in a transaction is committed.
+		entity.value = "newer";
+		this.transactionTemplate.execute(status -> {
+			this.spannerTemplate.update(entity);
+			return null;
+		});
+		this.spannerTemplate.update(entity);
+		verify(this.mutationFactory, times(3)).updateWithChildren(same(entity),
+				eq(dirtyColumns));
+		verify(this.databaseClient, times(2)).write(any());
+	}
+
+	@Test
+	public void cachedEntitiesAreEvictedAfterCommitTest() {
+		SpannerEntityCache entityCache = mock(SpannerEntityCache.class);
+		this.spannerTemplate.setEntityCache(entityCache);
+		TestEntity entity = new TestEntity();
+		entity.id = "a";
+		when(this.mutationFactory.insertWithChildren(same(entity))).thenReturn(
+				Collections.singletonList(Mutation.newInsertBuilder("test_table").build()));
+
+		this.transactionTemplate.execute(status -> {
+			this.spannerTemplate.insert(entity);
+			// concurrent reads keep seeing the committed row until the commit.
+			verify(entityCache, times(0)).invalidate(any(), any());
+			return null;
+		});
+
+		verify(this.databaseClient, times(1)).write(any());
+		verify(entityCache, times(1)).invalidate(eq(TestEntity.class), any());
+	}
+
+	@Test
+	public void readWriteTransactionJoinsManagedTransactionTest() {
+		TestEntity entity = new TestEntity();
+		when(this.mutationFactory.insertWithChildren(same(entity))).thenReturn(
+				Collections.singletonList(Mutation.newInsertBuilder("test_table").build()));
+
+		try {
+			this.transactionTemplate.execute(status -> {
+				this.spannerTemplate.performReadWriteTransaction(spannerOperations -> {
+					spannerOperations.insert(entity);
+					return null;
+				});
+				throw new IllegalStateException("failed");
+			});
+			fail("Expected the transaction to fail.");
+		}
+		catch (IllegalStateException e) {
+			// the transaction is rolled back.
+		}
+
+		verify(this.databaseClient, times(0)).readWriteTransaction();
+		verify(this.databaseClient, times(0)).write(any());
+	}
+
+	@Test
+	public void readWriteTransactionInReadOnlyTransactionTest() {
+		when(this.databaseClient.readOnlyTransaction())
+				.thenReturn(mock(ReadOnlyTransaction.class));
+		this.transactionTemplate.setReadOnly(true);
+
+		this.transactionTemplate.execute(status -> {
+			try {
+				this.spannerTemplate.performReadWriteTransaction(spannerOperations -> {
+					spannerOperations.delete(TestEntity.class, Key.of("a"));
+					return null;
+				});
+				fail("Expected writes to fail in a read-only transaction.");
+			}
+			catch (SpannerDataException e) {
+				// writes are not allowed.
+			}
+			return null;
+		});
+
+		verify(this.databaseClient, times(0)).readWriteTransaction();
+		verify(this.databaseClient, times(0)).write(any());
+	}
+
+	@Test
+	public void readOnlyTransactionTest() {
+		ReadOnlyTransaction readOnlyTransaction = mock(ReadOnlyTransaction.class);
+		when(this.databaseClient.readOnlyTransaction()).thenReturn(readOnlyTransaction);
+		this.transactionTemplate.setReadOnly(true);
+
+		this.transactionTemplate.execute(status -> {
+			this.spannerTemplate.read(TestEntity.class, Key.of("a"));
+			this.spannerTemplate.readAll(TestEntity.class);
+			try {
+				this.spannerTemplate.delete(TestEntity.class, Key.of("a"));
+				fail("Expected writes to fail in a read-only transaction.");
+			}
+			catch (SpannerDataException e) {
+				// writes are not allowed.
+			}
+			return null;
+		});
+
+		verify(readOnlyTransaction, times(2)).read(eq("test_table"), any(), any());
+		verify(readOnlyTransaction, times(1)).close();
+		verify(this.databaseClient, times(0)).singleUse();
+	}
+
+	@Table(name = "test_table")
+	private static class TestEntity {
+		@PrimaryKey
+		String id;
+
+		String value;
+	}
+}
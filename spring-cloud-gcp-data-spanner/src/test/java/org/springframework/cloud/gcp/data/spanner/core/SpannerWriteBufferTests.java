@@ -0,0 +1,210 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.data.spanner.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.ErrorCode;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.SpannerExceptionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.springframework.cloud.gcp.data.spanner.core.mapping.PrimaryKey;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerDataException;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerMappingContext;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.Table;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Chengyuan Zhao
+ */
+public class SpannerWriteBufferTests {
+
+	private SpannerTemplate spannerTemplate;
+
+	private SpannerMutationFactory mutationFactory;
+
+	private ScheduledExecutorService scheduler;
+
+	private SpannerWriteBuffer writeBuffer;
+
+	@Before
+	public void setUp() {
+		this.spannerTemplate = mock(SpannerTemplate.class);
+		this.mutationFactory = mock(SpannerMutationFactory.class);
+		when(this.spannerTemplate.getMappingContext())
+				.thenReturn(new SpannerMappingContext());
+		when(this.spannerTemplate.getMutationFactory()).thenReturn(this.mutationFactory);
+		when(this.spannerTemplate.getMaxMutationCellsPerCommit())
+				.thenReturn(SpannerTemplate.DEFAULT_MAX_MUTATION_CELLS_PER_COMMIT);
+		this.scheduler = mock(ScheduledExecutorService.class);
+		this.writeBuffer = new SpannerWriteBuffer(this.spannerTemplate, this.scheduler,
+				10);
+	}
+
+	@Test
+	public void writesInIntervalAreCommittedTogetherTest() {
+		TestEntity entity1 = new TestEntity("a");
+		TestEntity entity2 = new TestEntity("b");
+		Mutation mutation1 = mockUpsert(entity1);
+		Mutation mutation2 = mockUpsert(entity2);
+		Timestamp timestamp = Timestamp.ofTimeMicroseconds(1);
+		when(this.spannerTemplate.applyMutations(Arrays.asList(
+				Collections.singletonList(mutation1), Collections.singletonList(mutation2))))
+						.thenReturn(Arrays.asList(timestamp, timestamp));
+
+		CompletableFuture<Timestamp> first = this.writeBuffer.upsert(entity1);
+		CompletableFuture<Timestamp> second = this.writeBuffer.upsert(entity2);
+		assertFalse(first.isDone());
+
+		ArgumentCaptor<Runnable> intervalEnd = ArgumentCaptor.forClass(Runnable.class);
+		verify(this.scheduler, times(1)).schedule(intervalEnd.capture(), anyLong(),
+				eq(TimeUnit.NANOSECONDS));
+		intervalEnd.getValue().run();
+
+		assertEquals(timestamp, first.join());
+		assertEquals(timestamp, second.join());
+		verify(this.spannerTemplate, times(1)).applyMutations(any());
+	}
+
+	@Test
+	public void fullBatchIsCommittedBeforeIntervalEndsTest() {
+		this.writeBuffer.setMaxBatchMutations(2);
+		TestEntity entity1 = new TestEntity("a");
+		TestEntity entity2 = new TestEntity("b");
+		mockUpsert(entity1);
+		mockUpsert(entity2);
+		Timestamp timestamp = Timestamp.ofTimeMicroseconds(1);
+		when(this.spannerTemplate.applyMutations(any()))
+				.thenReturn(Arrays.asList(timestamp, timestamp));
+
+		this.writeBuffer.upsert(entity1);
+		CompletableFuture<Timestamp> last = this.writeBuffer.upsert(entity2);
+
+		ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+		verify(this.scheduler, times(1)).execute(flush.capture());
+		flush.getValue().run();
+
+		assertTrue(last.isDone());
+		verify(this.spannerTemplate, times(1)).applyMutations(any());
+	}
+
+	@Test
+	public void failedBatchIsRetriedIndividuallyTest() {
+		TestEntity entity1 = new TestEntity("a");
+		TestEntity entity2 = new TestEntity("b");
+		Mutation good = mockUpsert(entity1);
+		Mutation bad = mockUpsert(entity2);
+		Timestamp timestamp = Timestamp.ofTimeMicroseconds(1);
+		SpannerDataException failure = new SpannerDataException("failed",
+				SpannerExceptionFactory.newSpannerException(ErrorCode.NOT_FOUND, "b"));
+		when(this.spannerTemplate.applyMutations(Arrays.asList(
+				Collections.singletonList(good), Collections.singletonList(bad))))
+						.thenThrow(failure);
+		when(this.spannerTemplate.applyMutations(
+				Collections.singletonList(Collections.singletonList(good))))
+						.thenReturn(Collections.singletonList(timestamp));
+		when(this.spannerTemplate.applyMutations(
+				Collections.singletonList(Collections.singletonList(bad))))
+						.thenThrow(failure);
+
+		CompletableFuture<Timestamp> first = this.writeBuffer.upsert(entity1);
+		CompletableFuture<Timestamp> second = this.writeBuffer.upsert(entity2);
+		this.writeBuffer.flush();
+
+		assertEquals(timestamp, first.join());
+		assertTrue(second.isCompletedExceptionally());
+		verify(this.spannerTemplate, times(3)).applyMutations(any());
+	}
+
+	@Test
+	public void writesBufferedInTransactionHaveNoTimestampTest() {
+		TestEntity entity = new TestEntity("a");
+		mockUpsert(entity);
+		// the mutations are buffered in a transaction manager's transaction.
+		when(this.spannerTemplate.applyMutations(any())).thenReturn(Collections.emptyList());
+
+		CompletableFuture<Timestamp> write = this.writeBuffer.upsert(entity);
+		this.writeBuffer.flush();
+
+		assertTrue(write.isDone());
+		assertNull(write.join());
+	}
+
+	@Test
+	public void closeCommitsBufferedWritesTest() {
+		TestEntity entity = new TestEntity("a");
+		mockUpsert(entity);
+		Timestamp timestamp = Timestamp.ofTimeMicroseconds(1);
+		when(this.spannerTemplate.applyMutations(any()))
+				.thenReturn(Collections.singletonList(timestamp));
+		ScheduledFuture scheduledFlush = mock(ScheduledFuture.class);
+		when(this.scheduler.schedule(any(Runnable.class), anyLong(), any()))
+				.thenReturn(scheduledFlush);
+		CompletableFuture<Timestamp> write = this.writeBuffer.upsert(entity);
+
+		this.writeBuffer.destroy();
+
+		assertEquals(timestamp, write.join());
+		verify(scheduledFlush, times(1)).cancel(false);
+	}
+
+	@Test(expected = SpannerDataException.class)
+	public void writeAfterCloseTest() {
+		this.writeBuffer.close();
+		this.writeBuffer.upsert(new TestEntity("a"));
+	}
+
+	private Mutation mockUpsert(TestEntity entity) {
+		Mutation mutation = Mutation.newInsertOrUpdateBuilder("test_table").set("id")
+				.to(entity.id).build();
+		when(this.mutationFactory.upsertWithChildren(same(entity), isNull()))
+				.thenReturn(Collections.singletonList(mutation));
+		return mutation;
+	}
+
+	@Table(name = "test_table")
+	private static class TestEntity {
+		@PrimaryKey
+		String id;
+
+		TestEntity(String id) {
+			this.id = id;
+		}
+	}
+}
@@ -19,7 +19,11 @@ package org.springframework.cloud.gcp.data.spanner.core.convert;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 import com.google.cloud.ByteArray;
 import com.google.cloud.Date;
@@ -37,6 +41,7 @@ import org.springframework.lang.Nullable;
 
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -261,6 +266,64 @@ public class MappingSpannerConverterTests {
 		assertNull(t2.stringList);
 	}
 
+	@Test
+	public void mapToListAllowMissingColumnsTest() {
+		Struct struct1 = Struct.newBuilder().add("custom_col", Value.string("string1"))
+				.add("longField", Value.int64(3L)).add("id", Value.string("key1")).build();
+		Struct struct2 = Struct.newBuilder().add("custom_col", Value.string("string2"))
+				.add("longField", Value.int64(5L)).add("id", Value.string("key2")).build();
+
+		MockResults mockResults = new MockResults();
+		mockResults.structs = Arrays.asList(struct1, struct2);
+
+		ResultSet results = mock(ResultSet.class);
+		when(results.next()).thenAnswer(invocation -> mockResults.next());
+		when(results.getCurrentRowAsStruct())
+				.thenAnswer(invocation -> mockResults.getCurrent());
+
+		List<TestEntity> entities = this.spannerConverter.mapToList(results,
+				TestEntity.class, Optional.empty(), true);
+
+		assertEquals(2, entities.size());
+		assertEquals("key1", entities.get(0).id);
+		assertEquals("string1", entities.get(0).stringField);
+		assertEquals(3L, entities.get(0).longField);
+		assertNull(entities.get(0).doubleList);
+		assertEquals("key2", entities.get(1).id);
+		assertEquals("string2", entities.get(1).stringField);
+		assertEquals(5L, entities.get(1).longField);
+	}
+
+	@Test
+	public void mapToStreamTest() {
+		Struct struct1 = Struct.newBuilder().add("id", Value.string("key1"))
+				.add("custom_col", Value.string("string1")).build();
+		Struct struct2 = Struct.newBuilder().add("id", Value.string("key2"))
+				.add("custom_col", Value.string("string2")).build();
+
+		MockResults mockResults = new MockResults();
+		mockResults.structs = Arrays.asList(struct1, struct2);
+
+		ResultSet results = mock(ResultSet.class);
+		when(results.next()).thenAnswer(invocation -> mockResults.next());
+		when(results.getCurrentRowAsStruct())
+				.thenAnswer(invocation -> mockResults.getCurrent());
+
+		try (Stream<TestEntity> entities = this.spannerConverter.mapToStream(results,
+				TestEntity.class, Optional.of(new HashSet<>(Arrays.asList("id"))), false)) {
+			// rows are only read as the stream is consumed.
+			verify(results, times(0)).next();
+
+			Iterator<TestEntity> iterator = entities.iterator();
+			assertEquals("key1", iterator.next().id);
+			verify(results, times(1)).next();
+			assertEquals("key2", iterator.next().id);
+			assertFalse(iterator.hasNext());
+			verify(results, times(0)).close();
+		}
+		verify(results, times(1)).close();
+	}
+
 	private interface SpannerType {
 	}
 
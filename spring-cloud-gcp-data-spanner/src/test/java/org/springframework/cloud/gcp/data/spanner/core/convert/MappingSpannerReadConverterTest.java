@@ -27,6 +27,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import org.springframework.cloud.gcp.data.spanner.core.convert.TestEntities.FaultyTestEntity;
+import org.springframework.cloud.gcp.data.spanner.core.convert.TestEntities.InnerTestEntity;
 import org.springframework.cloud.gcp.data.spanner.core.convert.TestEntities.OuterTestEntity;
 import org.springframework.cloud.gcp.data.spanner.core.convert.TestEntities.TestEntity;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerDataException;
@@ -36,6 +37,8 @@ import org.springframework.data.convert.CustomConversions;
 import org.springframework.data.convert.CustomConversions.StoreConversions;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 /**
  * @author Chengyuan Zhao
@@ -66,6 +69,34 @@ public class MappingSpannerReadConverterTest {
 		assertEquals("value", result.innerTestEntities.get(0).value);
 	}
 
+	@Test
+	public void readAllowMissingColumnsTest() {
+		Struct struct = Struct.newBuilder().add("id", Value.string("key1"))
+				.add("custom_col", Value.string("string1")).build();
+
+		TestEntity result = ((MappingSpannerReadConverter) this.readConverter)
+				.read(TestEntity.class, struct, null, true);
+		assertEquals("key1", result.id);
+		assertEquals("string1", result.stringField);
+		assertNull(result.doubleList);
+	}
+
+	@Test
+	public void readSameColumnWithDifferentTypesTest() {
+		Struct stringStruct = Struct.newBuilder().add("value", Value.string("value"))
+				.build();
+		Struct longStruct = Struct.newBuilder().add("value", Value.int64(3L)).build();
+
+		assertEquals("value",
+				this.readConverter.read(InnerTestEntity.class, stringStruct).value);
+		assertEquals("3", this.readConverter.read(InnerTestEntity.class, longStruct).value);
+		assertSame(
+				((MappingSpannerReadConverter) this.readConverter)
+						.getRowMapper(InnerTestEntity.class),
+				((MappingSpannerReadConverter) this.readConverter)
+						.getRowMapper(InnerTestEntity.class));
+	}
+
 	@Test(expected = SpannerDataException.class)
 	public void readNotFoundColumnTest() {
 		Struct struct1 = Struct.newBuilder().add("id", Value.string("key1"))
@@ -16,6 +16,10 @@
 
 package org.springframework.cloud.gcp.data.spanner.core.mapping;
 
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.cloud.spanner.TimestampBound;
 import io.grpc.Attributes.Key;
 import org.junit.Test;
 
@@ -28,7 +32,9 @@ import org.springframework.expression.spel.SpelEvaluationException;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -47,6 +53,16 @@ public class SpannerPersistentEntityImplTests {
 		assertThat(entity.tableName(), is("custom_test_table"));
 	}
 
+	@Test
+	public void testStaleReadBound() {
+		assertNull(new SpannerPersistentEntityImpl<>(
+				ClassTypeInformation.from(TestEntity.class)).getStaleReadBound());
+		assertEquals(TimestampBound.ofMaxStaleness(10, TimeUnit.SECONDS),
+				new SpannerPersistentEntityImpl<>(
+						ClassTypeInformation.from(EntityWithStaleRead.class))
+								.getStaleReadBound());
+	}
+
 	@Test
 	public void testRawTableName() {
 		SpannerPersistentEntityImpl<EntityNoCustomName> entity = new SpannerPersistentEntityImpl<>(
@@ -72,6 +88,21 @@ public class SpannerPersistentEntityImplTests {
 		assertThat(entity.columns(), containsInAnyOrder("custom_col", "id"));
 	}
 
+	@Test
+	public void testInterleavedProperties() {
+		SpannerPersistentEntity<?> entity = new SpannerMappingContext()
+				.getPersistentEntity(ParentEntity.class);
+
+		assertThat(entity.columns(), containsInAnyOrder("id"));
+		assertThat(entity.getInterleavedProperties().iterator().next().getName(),
+				is("children"));
+	}
+
+	@Test(expected = SpannerDataException.class)
+	public void testInvalidInterleavedProperty() {
+		new SpannerMappingContext().getPersistentEntity(EntityWithInvalidInterleaved.class);
+	}
+
 	@Test(expected = SpelEvaluationException.class)
 	public void testExpressionResolutionWithoutApplicationContext() {
 		SpannerPersistentEntityImpl<EntityWithExpression> entity = new SpannerPersistentEntityImpl<>(
@@ -170,6 +201,12 @@ public class SpannerPersistentEntityImplTests {
 		entity.tableName();
 	}
 
+	@StaleRead(seconds = 10)
+	private static class EntityWithStaleRead {
+		@PrimaryKey
+		String id;
+	}
+
 	@Table(name = ";DROP TABLE your_table;")
 	private static class EntityBadName {
 		@PrimaryKey(keyOrder = 1)
@@ -190,6 +227,23 @@ public class SpannerPersistentEntityImplTests {
 		String notMapped;
 	}
 
+	@Table(name = "parent_test_table")
+	private static class ParentEntity {
+		@PrimaryKey
+		String id;
+
+		@Interleaved
+		List<TestEntity> children;
+	}
+
+	private static class EntityWithInvalidInterleaved {
+		@PrimaryKey
+		String id;
+
+		@Interleaved
+		List<String> children;
+	}
+
 	private static class EntityNoCustomName {
 		@PrimaryKey(keyOrder = 1)
 		String id;
@@ -17,29 +17,56 @@
 package org.springframework.cloud.gcp.data.spanner.repository.query;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.TimestampBound;
+import com.google.cloud.spanner.Type;
 import com.google.cloud.spanner.Value;
 import org.junit.Before;
 import org.junit.Test;
 
 import org.springframework.cloud.gcp.data.spanner.core.SpannerOperations;
+import org.springframework.cloud.gcp.data.spanner.core.SpannerQueryOptions;
+import org.springframework.cloud.gcp.data.spanner.core.SpannerTemplate;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.Column;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.Interleaved;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.PrimaryKey;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerDataException;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerMappingContext;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.StaleRead;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.Table;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Order;
+import org.springframework.data.repository.query.DefaultParameters;
 import org.springframework.data.repository.query.QueryMethod;
+import org.springframework.data.repository.query.ResultProcessor;
+import org.springframework.data.repository.query.ReturnedType;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -86,7 +113,9 @@ public class SpannerStatementQueryTests {
 					Statement statement = invocation.getArgument(1);
 
 					assertEquals(
-							"SELECT DISTINCT * FROM trades WHERE ( action=@tag0 AND ticker=@tag1 ) OR "
+							"SELECT DISTINCT id, action, price, shares, ticker, trader_id, executionPrices "
+									+ "FROM trades "
+									+ "WHERE ( action=@tag0 AND ticker=@tag1 ) OR "
 									+ "( trader_id=@tag2 AND price<@tag3 ) OR ( price>=@tag4 AND id<>NULL AND "
 									+ "trader_id=NULL AND trader_id LIKE %@tag7 AND price=TRUE AND price=FALSE AND "
 									+ "price>@tag10 AND price<=@tag11 )ORDER BY id DESC LIMIT 3;",
@@ -113,6 +142,230 @@ public class SpannerStatementQueryTests {
 		this.partTreeSpannerQuery.execute(params);
 	}
 
+	@Test
+	public void streamQueryTest() {
+		when(this.queryMethod.getName()).thenReturn("findByAction");
+		when(this.queryMethod.isStreamQuery()).thenReturn(true);
+		this.partTreeSpannerQuery = createQuery();
+
+		Trade trade = new Trade();
+		when(this.spannerOperations.queryStream(any(), (Statement) any(), any()))
+				.thenAnswer(invocation -> {
+					Statement statement = invocation.getArgument(1);
+					assertEquals("SELECT id, action, price, shares, ticker, trader_id, "
+							+ "executionPrices FROM trades WHERE ( action=@tag0 );",
+							statement.getSql());
+					return Stream.of(trade);
+				});
+
+		PartTreeSpannerQuery spyQuery = spy(this.partTreeSpannerQuery);
+		doAnswer(invocation -> invocation.getArgument(0)).when(spyQuery)
+				.processRawObjectForProjection(any());
+
+		Object result = spyQuery.execute(new Object[] { "BUY" });
+		assertTrue(result instanceof Stream);
+		assertEquals(Collections.singletonList(trade),
+				((Stream<?>) result).collect(Collectors.toList()));
+		verify(this.spannerOperations, times(0)).query(any(), (Statement) any());
+	}
+
+	@Test
+	public void projectionShouldSelectOnlyProjectedColumnsTest() {
+		ResultProcessor resultProcessor = mock(ResultProcessor.class);
+		ReturnedType returnedType = mock(ReturnedType.class);
+		when(this.queryMethod.getResultProcessor()).thenReturn(resultProcessor);
+		when(resultProcessor.getReturnedType()).thenReturn(returnedType);
+		when(returnedType.isProjecting()).thenReturn(true);
+		when(returnedType.getInputProperties())
+				.thenReturn(Arrays.asList("action", "symbol"));
+		when(this.queryMethod.getName()).thenReturn("findByTraderId");
+		this.partTreeSpannerQuery = createQuery();
+
+		when(this.spannerOperations.query(any(), (Statement) any(), any()))
+				.thenAnswer(invocation -> {
+					Statement statement = invocation.getArgument(1);
+					SpannerQueryOptions options = invocation.getArgument(2);
+					assertEquals("SELECT action, ticker FROM trades WHERE ( trader_id=@tag0 );",
+							statement.getSql());
+					assertTrue(options.isAllowPartialRead());
+					return Collections.emptyList();
+				});
+
+		this.partTreeSpannerQuery.executeRawResult(new Object[] { "trader1" });
+		verify(this.spannerOperations, times(1)).query(any(), (Statement) any(), any());
+	}
+
+	@Test
+	public void inAndNotInArrayParamsTest() {
+		when(this.queryMethod.getName())
+				.thenReturn("findByTraderIdInAndActionNotInAndPriceIn");
+		this.partTreeSpannerQuery = createQuery();
+
+		when(this.spannerOperations.query(any(), (Statement) any(), any()))
+				.thenAnswer(invocation -> {
+					Statement statement = invocation.getArgument(1);
+					assertEquals("SELECT id, action, price, shares, ticker, trader_id, "
+							+ "executionPrices FROM trades WHERE ( trader_id IN UNNEST(@tag0) "
+							+ "AND action NOT IN UNNEST(@tag1) AND price IN UNNEST(@tag2) );",
+							statement.getSql());
+					Map<String, Value> paramMap = statement.getParameters();
+					assertEquals(Arrays.asList("trader1", "trader2"),
+							paramMap.get("tag0").getStringArray());
+					assertEquals(Collections.singletonList("SELL"),
+							paramMap.get("tag1").getStringArray());
+					// the element type of an empty collection is taken from the property.
+					assertEquals(Type.array(Type.float64()), paramMap.get("tag2").getType());
+					assertTrue(paramMap.get("tag2").getFloat64Array().isEmpty());
+					return Collections.emptyList();
+				});
+
+		this.partTreeSpannerQuery.executeRawResult(new Object[] {
+				Arrays.asList("trader1", "trader2"), Collections.singleton("SELL"),
+				Collections.emptyList() });
+		verify(this.spannerOperations, times(1)).query(any(), (Statement) any(), any());
+	}
+
+	@Test
+	public void containingTest() {
+		when(this.queryMethod.getName())
+				.thenReturn("findByActionContainingAndExecutionPricesContaining");
+		this.partTreeSpannerQuery = createQuery();
+
+		when(this.spannerOperations.query(any(), (Statement) any(), any()))
+				.thenAnswer(invocation -> {
+					Statement statement = invocation.getArgument(1);
+					assertEquals("SELECT id, action, price, shares, ticker, trader_id, "
+							+ "executionPrices FROM trades WHERE ( STRPOS(action, @tag0)>0 "
+							+ "AND @tag1 IN UNNEST(executionPrices) );", statement.getSql());
+					return Collections.emptyList();
+				});
+
+		this.partTreeSpannerQuery.executeRawResult(new Object[] { "BU", 3.33 });
+		verify(this.spannerOperations, times(1)).query(any(), (Statement) any(), any());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unsupportedArrayParamTypeTest() {
+		when(this.queryMethod.getName()).thenReturn("findByTraderIdIn");
+		this.partTreeSpannerQuery = createQuery();
+
+		this.partTreeSpannerQuery.executeRawResult(
+				new Object[] { Collections.singletonList(new Trade()) });
+	}
+
+	@Test
+	public void statementCompiledOnceTest() {
+		when(this.queryMethod.getName()).thenReturn("findByAction");
+		this.partTreeSpannerQuery = createQuery();
+
+		List<Statement> statements = new ArrayList<>();
+		when(this.spannerOperations.query(any(), (Statement) any(), any()))
+				.thenAnswer(invocation -> {
+					statements.add(invocation.getArgument(1));
+					return Collections.emptyList();
+				});
+
+		this.partTreeSpannerQuery.executeRawResult(new Object[] { "BUY" });
+		this.partTreeSpannerQuery.executeRawResult(new Object[] { "SELL" });
+
+		assertEquals(2, statements.size());
+		assertEquals(statements.get(0).getSql(), statements.get(1).getSql());
+		assertSame(this.partTreeSpannerQuery.getCompiledStatement(Sort.unsorted()),
+				this.partTreeSpannerQuery.getCompiledStatement(Sort.unsorted()));
+		assertEquals("BUY", statements.get(0).getParameters().get("tag0").getString());
+		assertEquals("SELL", statements.get(1).getParameters().get("tag0").getString());
+	}
+
+	@Test
+	public void sliceQueryShouldReadOneExtraRowTest() throws NoSuchMethodException {
+		when(this.queryMethod.getName()).thenReturn("findByActionOrderByIdAsc");
+		when(this.queryMethod.isSliceQuery()).thenReturn(true);
+		doReturn(new DefaultParameters(TradeRepository.class.getMethod(
+				"findByActionOrderByIdAsc", String.class, Pageable.class)))
+						.when(this.queryMethod).getParameters();
+		this.partTreeSpannerQuery = createQuery();
+
+		when(this.spannerOperations.query(any(), (Statement) any(), any()))
+				.thenAnswer(invocation -> {
+					Statement statement = invocation.getArgument(1);
+					assertEquals("SELECT id, action, price, shares, ticker, trader_id, "
+							+ "executionPrices FROM trades WHERE ( action=@tag0 )"
+							+ "ORDER BY id ASC , price DESC LIMIT @tag1 OFFSET @tag2;",
+							statement.getSql());
+					Map<String, Value> paramMap = statement.getParameters();
+					assertEquals("BUY", paramMap.get("tag0").getString());
+					assertEquals(3L, paramMap.get("tag1").getInt64());
+					assertEquals(4L, paramMap.get("tag2").getInt64());
+					return Arrays.asList(new Trade(), new Trade(), new Trade());
+				});
+
+		Slice<?> slice = (Slice<?>) this.partTreeSpannerQuery.executeRawResult(
+				new Object[] { "BUY", PageRequest.of(2, 2, Sort.by(Order.desc("price"))) });
+
+		assertEquals(2, slice.getNumberOfElements());
+		assertTrue(slice.hasNext());
+		verify(this.spannerOperations, times(0)).queryRows(any(), any(), any());
+	}
+
+	@Test
+	public void pagedTopQueryShouldKeepStaticLimitTest() throws NoSuchMethodException {
+		when(this.queryMethod.getName()).thenReturn("findTop3ByActionOrderByIdAsc");
+		when(this.queryMethod.isSliceQuery()).thenReturn(true);
+		doReturn(new DefaultParameters(TradeRepository.class.getMethod(
+				"findTop3ByActionOrderByIdAsc", String.class, Pageable.class)))
+						.when(this.queryMethod).getParameters();
+		this.partTreeSpannerQuery = createQuery();
+
+		List<Statement> statements = new ArrayList<>();
+		when(this.spannerOperations.query(any(), (Statement) any(), any()))
+				.thenAnswer(invocation -> {
+					statements.add(invocation.getArgument(1));
+					return Collections.singletonList(new Trade());
+				});
+
+		this.partTreeSpannerQuery.executeRawResult(
+				new Object[] { "BUY", PageRequest.of(0, 50) });
+		Slice<?> lastSlice = (Slice<?>) this.partTreeSpannerQuery.executeRawResult(
+				new Object[] { "BUY", PageRequest.of(1, 2) });
+		this.partTreeSpannerQuery.executeRawResult(
+				new Object[] { "BUY", PageRequest.of(2, 2) });
+
+		assertEquals(3L, statements.get(0).getParameters().get("tag1").getInt64());
+		assertEquals(1L, statements.get(1).getParameters().get("tag1").getInt64());
+		assertEquals(2L, statements.get(1).getParameters().get("tag2").getInt64());
+		assertEquals(0L, statements.get(2).getParameters().get("tag1").getInt64());
+		assertFalse(lastSlice.hasNext());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void pageQueryNotSupportedTest() throws NoSuchMethodException {
+		when(this.queryMethod.getName()).thenReturn("findByAction");
+		doReturn(new DefaultParameters(TradeRepository.class.getMethod("findByAction",
+				String.class, Pageable.class))).when(this.queryMethod).getParameters();
+		createQuery();
+	}
+
+	@Test
+	public void staleReadMethodTest() throws NoSuchMethodException {
+		SpannerQueryMethod spannerQueryMethod = mock(SpannerQueryMethod.class);
+		this.queryMethod = spannerQueryMethod;
+		when(spannerQueryMethod.getName()).thenReturn("findByTraderId");
+		when(spannerQueryMethod.getStaleReadAnnotation()).thenReturn(TradeRepository.class
+				.getMethod("findByTraderId", String.class).getAnnotation(StaleRead.class));
+		this.partTreeSpannerQuery = createQuery();
+
+		when(this.spannerOperations.query(any(), (Statement) any(), any()))
+				.thenAnswer(invocation -> {
+					SpannerQueryOptions queryOptions = invocation.getArgument(2);
+					assertEquals(TimestampBound.ofMaxStaleness(5, TimeUnit.SECONDS),
+							queryOptions.getStaleness());
+					return Collections.emptyList();
+				});
+
+		this.partTreeSpannerQuery.executeRawResult(new Object[] { "trader1" });
+		verify(this.spannerOperations, times(1)).query(any(), (Statement) any(), any());
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void unspecifiedParametersTest() {
 		when(this.queryMethod.getName()).thenReturn(
@@ -139,16 +392,72 @@ public class SpannerStatementQueryTests {
 		this.partTreeSpannerQuery.execute(params);
 	}
 
-	@Test(expected = UnsupportedOperationException.class)
+	@Test
 	public void deleteTest() {
-		// delete is not supported
-		when(this.queryMethod.getName()).thenReturn(
-				"deleteTop3DistinctIdActionPriceByActionAndSymbolOrTraderIdAndPriceLessThanOrPriceGreater"
-						+ "ThanEqualAndIdIsNotNullAndTraderIdIsNullOrderByIdDesc");
+		when(this.queryMethod.getName()).thenReturn("deleteByAction");
+		this.partTreeSpannerQuery = createQuery();
+
+		SpannerTemplate transactionTemplate = mock(SpannerTemplate.class);
+		when(this.spannerOperations.performReadWriteTransaction(any()))
+				.thenAnswer(invocation -> ((Function<SpannerTemplate, ?>) invocation
+						.getArgument(0)).apply(transactionTemplate));
+		when(transactionTemplate.getMaxMutationCellsPerCommit()).thenReturn(20000);
+		List<Trade> trades = Arrays.asList(new Trade(), new Trade());
+		when(transactionTemplate.query(eq(Trade.class), (Statement) any(), any()))
+				.thenAnswer(invocation -> {
+					Statement statement = invocation.getArgument(1);
+					// only the primary key is read because the entities are not returned.
+					assertEquals("SELECT id FROM trades WHERE ( action=@tag0 );",
+							statement.getSql());
+					assertEquals("BUY", statement.getParameters().get("tag0").getString());
+					return trades;
+				});
+
+		assertEquals(2L, this.partTreeSpannerQuery.executeRawResult(new Object[] { "BUY" }));
+		verify(transactionTemplate, times(1)).delete(eq(Trade.class), same(trades));
+	}
 
+	@Test
+	public void deleteMoreKeysThanFitInCommitTest() {
+		when(this.queryMethod.getName()).thenReturn("deleteByAction");
 		this.partTreeSpannerQuery = createQuery();
 
-		this.partTreeSpannerQuery.execute(EMPTY_PARAMETERS);
+		SpannerTemplate transactionTemplate = mock(SpannerTemplate.class);
+		when(this.spannerOperations.performReadWriteTransaction(any()))
+				.thenAnswer(invocation -> ((Function<SpannerTemplate, ?>) invocation
+						.getArgument(0)).apply(transactionTemplate));
+		when(transactionTemplate.getMaxMutationCellsPerCommit()).thenReturn(2);
+		List<Trade> trades = Arrays.asList(new Trade(), new Trade(), new Trade(),
+				new Trade(), new Trade());
+		when(transactionTemplate.query(eq(Trade.class), (Statement) any(), any()))
+				.thenReturn(trades);
+
+		assertEquals(5L, this.partTreeSpannerQuery.executeRawResult(new Object[] { "BUY" }));
+		// the keys do not fit in the commit of the transaction, so they are deleted in
+		// chunks that each fit in a commit.
+		verify(transactionTemplate, times(0)).delete(any(), (Iterable) any());
+		verify(this.spannerOperations, times(1)).delete(eq(Trade.class),
+				eq(trades.subList(0, 2)));
+		verify(this.spannerOperations, times(1)).delete(eq(Trade.class),
+				eq(trades.subList(2, 4)));
+		verify(this.spannerOperations, times(1)).delete(eq(Trade.class),
+				eq(trades.subList(4, 5)));
+	}
+
+	@Test
+	public void deleteNoMatchesTest() {
+		when(this.queryMethod.getName()).thenReturn("deleteByAction");
+		this.partTreeSpannerQuery = createQuery();
+
+		SpannerTemplate transactionTemplate = mock(SpannerTemplate.class);
+		when(this.spannerOperations.performReadWriteTransaction(any()))
+				.thenAnswer(invocation -> ((Function<SpannerTemplate, ?>) invocation
+						.getArgument(0)).apply(transactionTemplate));
+		when(transactionTemplate.query(eq(Trade.class), (Statement) any(), any()))
+				.thenReturn(Collections.emptyList());
+
+		assertEquals(0L, this.partTreeSpannerQuery.executeRawResult(new Object[] { "BUY" }));
+		verify(transactionTemplate, times(0)).delete(any(), (Iterable) any());
 	}
 
 	@Test(expected = UnsupportedOperationException.class)
@@ -159,11 +468,9 @@ public class SpannerStatementQueryTests {
 	}
 
 	@Test
-	public void countShouldReturnSizeOfResultSet() {
-		List<Trade> results = new ArrayList<>();
-		results.add(new Trade());
-
-		queryWithMockResult("countByAction", results);
+	public void countShouldBeComputedBySpanner() {
+		queryWithMockScalarResult("countByAction", Collections.singletonList(5L),
+				"SELECT COUNT(*) FROM trades WHERE ( action=@tag0 );");
 
 		PartTreeSpannerQuery spyQuery = spy(this.partTreeSpannerQuery);
 
@@ -171,15 +478,33 @@ public class SpannerStatementQueryTests {
 				.processRawObjectForProjection(any());
 
 		Object[] params = new Object[] { "BUY", };
-		assertEquals(1, spyQuery.execute(params));
+		assertEquals(5L, spyQuery.execute(params));
+		verify(this.spannerOperations, times(0)).query(any(), any());
 	}
 
 	@Test
-	public void existShouldBeTrueWhenResultSetIsNotEmpty() {
-		List<Trade> results = new ArrayList<>();
-		results.add(new Trade());
+	public void countDistinctShouldCountSubquery() {
+		queryWithMockScalarResult("countDistinctByAction", Collections.singletonList(3L),
+				"SELECT COUNT(*) FROM (SELECT DISTINCT id, action, price, shares, ticker, "
+						+ "trader_id, executionPrices FROM trades WHERE ( action=@tag0 ));");
+
+		Object[] params = new Object[] { "BUY", };
+		assertEquals(3L, this.partTreeSpannerQuery.executeRawResult(params));
+	}
+
+	@Test(expected = SpannerDataException.class)
+	public void distinctWithInterleavedPropertiesNotSupportedTest() {
+		when(this.queryMethod.getName()).thenReturn("findDistinctByName");
+		this.partTreeSpannerQuery = new PartTreeSpannerQuery(Portfolio.class,
+				this.queryMethod, this.spannerOperations, this.spannerMappingContext);
 
-		queryWithMockResult("existsByAction", results);
+		this.partTreeSpannerQuery.execute(new Object[] { "growth" });
+	}
+
+	@Test
+	public void existShouldBeTrueWhenResultSetIsNotEmpty() {
+		queryWithMockScalarResult("existsByAction", Collections.singletonList(true),
+				"SELECT 1 FROM trades WHERE ( action=@tag0 ) LIMIT 1;");
 
 		PartTreeSpannerQuery spyQuery = spy(this.partTreeSpannerQuery);
 
@@ -188,11 +513,13 @@ public class SpannerStatementQueryTests {
 
 		Object[] params = new Object[] { "BUY", };
 		assertTrue((boolean) spyQuery.execute(params));
+		verify(this.spannerOperations, times(0)).query(any(), any());
 	}
 
 	@Test
 	public void existShouldBeFalseWhenResultSetIsEmpty() {
-		queryWithMockResult("existsByAction", Collections.emptyList());
+		queryWithMockScalarResult("existsByAction", Collections.emptyList(),
+				"SELECT 1 FROM trades WHERE ( action=@tag0 ) LIMIT 1;");
 
 		PartTreeSpannerQuery spyQuery = spy(this.partTreeSpannerQuery);
 
@@ -203,10 +530,16 @@ public class SpannerStatementQueryTests {
 		assertFalse((boolean) spyQuery.execute(params));
 	}
 
-	private void queryWithMockResult(String queryName, List results) {
+	private void queryWithMockScalarResult(String queryName, List results,
+			String expectedSql) {
 		when(this.queryMethod.getName()).thenReturn(queryName);
 		this.partTreeSpannerQuery = createQuery();
-		when(this.spannerOperations.query(any(), (Statement) any())).thenReturn(results);
+		when(this.spannerOperations.queryRows(any(),
+				(Statement) any(), any())).thenAnswer(invocation -> {
+					Statement statement = invocation.getArgument(1);
+					assertEquals(expectedSql, statement.getSql());
+					return results;
+				});
 	}
 
 	@Table(name = "trades")
@@ -225,5 +558,38 @@ public class SpannerStatementQueryTests {
 
 		@Column(name = "trader_id")
 		String traderId;
+
+		List<Double> executionPrices;
+	}
+
+	@Table(name = "portfolios")
+	private static class Portfolio {
+		@PrimaryKey
+		String id;
+
+		String name;
+
+		@Interleaved
+		List<Holding> holdings;
+	}
+
+	@Table(name = "holdings")
+	private static class Holding {
+		@PrimaryKey(keyOrder = 1)
+		String portfolioId;
+
+		@PrimaryKey(keyOrder = 2)
+		String ticker;
+	}
+
+	private interface TradeRepository {
+		Slice<Trade> findByActionOrderByIdAsc(String action, Pageable pageable);
+
+		Slice<Trade> findTop3ByActionOrderByIdAsc(String action, Pageable pageable);
+
+		Page<Trade> findByAction(String action, Pageable pageable);
+
+		@StaleRead(seconds = 5)
+		List<Trade> findByTraderId(String traderId);
 	}
 }
@@ -28,6 +28,7 @@ import org.springframework.cloud.gcp.data.spanner.core.SpannerOperations;
 import org.springframework.cloud.gcp.data.spanner.core.SpannerQueryOptions;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.Column;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.PrimaryKey;
+import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerDataException;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.SpannerMappingContext;
 import org.springframework.cloud.gcp.data.spanner.core.mapping.Table;
 import org.springframework.data.repository.query.EvaluationContextProvider;
@@ -135,6 +136,16 @@ public class SqlSpannerQueryTests {
 		verify(this.spannerOperations, times(1)).query(any(), (Statement) any(), any());
 	}
 
+	@Test(expected = SpannerDataException.class)
+	public void unknownEntityClassNameTest() {
+		Parameters parameters = mock(Parameters.class);
+		when(this.queryMethod.getParameters()).thenReturn(parameters);
+		when(parameters.getNumberOfParameters()).thenReturn(0);
+
+		// the class names in the SQL are resolved when the query is created.
+		createQuery("SELECT * FROM :com.example.DoesNotExist:");
+	}
+
 	@Table(name = "trades")
 	private static class Trade {
 		@PrimaryKey
@@ -126,8 +126,8 @@ public class SpannerRepositoryImplTests {
 		Iterable<Object> ret = new SimpleSpannerRepository(template, Object.class)
 				.saveAll(Arrays.asList(ob, ob2));
 		assertThat(ret, containsInAnyOrder(ob, ob2));
-		verify(template, times(1)).upsert(eq(ob));
-		verify(template, times(1)).upsert(eq(ob2));
+		verify(template, times(1)).upsertAll(eq(Arrays.asList(ob, ob2)));
+		verify(template, times(0)).upsert(any());
 	}
 
 	@Test